@@ -162,14 +162,14 @@ public class TCWarningAnnotation extends TCAnnotation
 	{
 		Iterator<VDMWarning> witer = TypeChecker.getWarnings().iterator();
 		int myLine = name.getLocation().startLine;
-		File myFile = name.getLocation().file;
+		File myFile = name.getLocation().getFile();
 		
 		while (witer.hasNext())
 		{
 			VDMWarning w = witer.next();
 			
 			if (w.location.startLine == myLine + 1 &&
-				w.location.file.equals(myFile) &&
+				w.location.getFile().equals(myFile) &&
 				suppressed.contains((long)w.number))
 			{
 				// Warning is on the line after the one we annotated, so remove it
@@ -182,7 +182,7 @@ public class IO implements Serializable
 		{
 			SeqValue sv = (SeqValue)val;
 
-			for (Value v: sv.values)
+			for (Value v: sv.seqValue(null))
 			{
 				v = v.deref();
 
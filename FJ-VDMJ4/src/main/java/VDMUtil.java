@@ -69,7 +69,7 @@ public class VDMUtil
 			SeqValue seq = (SeqValue) arg;
 			StringBuilder expression = new StringBuilder();
 			
-			for (Value v: seq.values)
+			for (Value v: seq.seqValue(null))
 			{
 				CharacterValue ch = (CharacterValue) v;
 				expression.append(ch.unicode);
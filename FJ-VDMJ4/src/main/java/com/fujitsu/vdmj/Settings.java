@@ -41,6 +41,8 @@ public class Settings
 	public static boolean annotations = false;
 	public static boolean verbose = false;
 	public static boolean strict = false;
+	public static int traceThreads = 1;
+	public static boolean traceSharing = false;
 
 	public static boolean usingCmdLine = false;
 }
@@ -189,6 +189,29 @@ abstract public class VDMJ
     				usage("-r option requires a VDM release");
     			}
     		}
+    		else if (arg.equals("-threads"))
+    		{
+    			if (i.hasNext())
+    			{
+    				try
+    				{
+    					Settings.traceThreads = Integer.parseInt(i.next());
+    				}
+    				catch (NumberFormatException e)
+    				{
+    					Settings.traceThreads = 0;
+    				}
+
+    				if (Settings.traceThreads < 1)
+    				{
+    					usage("-threads option must be a positive number");
+    				}
+    			}
+    			else
+    			{
+    				usage("-threads option requires a number of trace workers");
+    			}
+    		}
     		else if (arg.equals("-pre"))
     		{
     			Settings.prechecks = false;
@@ -485,6 +508,7 @@ abstract public class VDMJ
 		System.err.println("-c <charset>: select a file charset");
 		System.err.println("-t <charset>: select a console charset");
 		System.err.println("-default <name>: set the default module/class");
+		System.err.println("-threads <n>: run CT traces with n worker processes");
 		System.err.println("-pre: disable precondition checks");
 		System.err.println("-post: disable postcondition checks");
 		System.err.println("-inv: disable type/state invariant checks");
@@ -29,6 +29,7 @@ import java.io.FileOutputStream;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.ast.definitions.ASTClassList;
 import com.fujitsu.vdmj.commands.ClassCommandReader;
@@ -61,6 +62,7 @@ public class VDMPP extends VDMJ
 	protected ASTClassList parsedClasses = new ASTClassList();
 	private TCClassList checkedClasses = new TCClassList();
 	private INClassList executableClasses = null;
+	private List<File> loadedFiles = null;
 
 	public VDMPP()
 	{
@@ -75,6 +77,7 @@ public class VDMPP extends VDMJ
 	public ExitStatus parse(List<File> files)
 	{
 		parsedClasses.clear();
+		loadedFiles = new Vector<File>(files);
 		LexLocation.resetLocations();
    		int perrs = 0;
    		int pwarn = 0;
@@ -344,6 +347,8 @@ public class VDMPP extends VDMJ
    			mapperStats(before, INNode.MAPPINGS);
 		}
 		
-		return new ClassInterpreter(executableClasses, checkedClasses);
+		ClassInterpreter interpreter = new ClassInterpreter(executableClasses, checkedClasses);
+		interpreter.setLoadedFiles(loadedFiles);
+		return interpreter;
 	}
 }
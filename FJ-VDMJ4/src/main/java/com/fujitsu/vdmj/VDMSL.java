@@ -26,6 +26,7 @@ package com.fujitsu.vdmj;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.ast.modules.ASTModuleList;
 import com.fujitsu.vdmj.commands.CommandReader;
@@ -57,6 +58,7 @@ public class VDMSL extends VDMJ
 	private ASTModuleList parsedModules = new ASTModuleList();
 	private TCModuleList checkedModules = new TCModuleList();
 	private INModuleList executableModules = null;
+	private List<File> loadedFiles = null;
 
 	public VDMSL()
 	{
@@ -71,6 +73,7 @@ public class VDMSL extends VDMJ
 	public ExitStatus parse(List<File> files)
 	{
 		parsedModules.clear();
+		loadedFiles = new Vector<File>(files);
 		LexLocation.resetLocations();
    		int perrs = 0;
    		int pwarn = 0;
@@ -314,6 +317,8 @@ public class VDMSL extends VDMJ
    			mapperStats(before, INNode.MAPPINGS);
 		}
 		
-		return new ModuleInterpreter(executableModules, checkedModules);
+		ModuleInterpreter interpreter = new ModuleInterpreter(executableModules, checkedModules);
+		interpreter.setLoadedFiles(loadedFiles);
+		return interpreter;
 	}
 }
@@ -54,7 +54,7 @@ public class ASTClassList extends Vector<ASTClassDefinition>
 			if (!(def instanceof ASTCPUClassDefinition ||
 				  def instanceof ASTBUSClassDefinition))
 			{
-				files.add(def.location.file);
+				files.add(def.location.getFile());
 			}
 		}
 
@@ -41,7 +41,7 @@ public class ASTNamedTraceDefinition extends ASTDefinition
 		LexLocation location, List<String> pathname, ASTTraceDefinitionTermList terms)
 	{
 		super(location, new LexNameToken(
-			location.module, Utils.listToString(pathname, "_"), location));
+			location.getModule(), Utils.listToString(pathname, "_"), location));
 
 		this.pathname = pathname;
 		this.terms = terms;
@@ -34,7 +34,7 @@ public class ASTSelfExpression extends ASTExpression
 	public ASTSelfExpression(LexLocation location)
 	{
 		super(location);
-		name = new LexNameToken(location.module, "self", location);
+		name = new LexNameToken(location.getModule(), "self", location);
 	}
 
 	@Override
@@ -69,7 +69,7 @@ public class LexIdentifierToken extends LexToken
 		// read the name. So create a new location with the right module.
 
 		LexLocation loc = new LexLocation(
-			location.file,
+			location.getFile(),
 			name,
 			location.startLine,
 			location.startPos,
@@ -73,7 +73,7 @@ public class ASTModule extends ASTNode implements Serializable
 		this.defs = defs;
 		this.files = new FileList();
 
-		files.add(name.location.file);
+		files.add(name.location.getFile());
 		isFlat = false;
 	}
 
@@ -34,7 +34,7 @@ public class ASTObjectSelfDesignator extends ASTObjectDesignator
 	public ASTObjectSelfDesignator(LexLocation location)
 	{
 		super(location);
-		self = new LexNameToken(location.module, "self", location);
+		self = new LexNameToken(location.getModule(), "self", location);
 	}
 
 	@Override
@@ -237,6 +237,14 @@ abstract public class CommandReader
 				{
 					carryOn = doOut(line);
 				}
+				else if(line.startsWith("tracethreads"))
+				{
+					carryOn = doTracethreads(line);
+				}
+				else if(line.startsWith("tracesharing"))
+				{
+					carryOn = doTracesharing(line);
+				}
 				else if(line.startsWith("trace"))
 				{
 					carryOn = doTrace(line);
@@ -703,6 +711,65 @@ abstract public class CommandReader
 		return true;
 	}
 
+	protected boolean doTracethreads(String line)
+	{
+		String[] parts = line.split("\\s+");
+		
+		if (parts.length == 1)
+		{
+			println("CT traces use " + Settings.traceThreads + " worker(s)");
+		}
+		else if (parts.length != 2)
+		{
+			println("tracethreads [<number>]");
+		}
+		else
+		{
+			try
+			{
+				int threads = Integer.parseInt(parts[1]);
+				
+				if (threads < 1)
+				{
+					println("tracethreads [<number>]");
+				}
+				else
+				{
+					Settings.traceThreads = threads;
+					println("CT traces now use " + Settings.traceThreads + " worker(s)");
+				}
+			}
+			catch (NumberFormatException e)
+			{
+				println("tracethreads [<number>]");
+			}
+		}
+		
+		return true;
+	}
+
+	protected boolean doTracesharing(String line)
+	{
+		String[] parts = line.split("\\s+");
+		
+		if (parts.length == 2 && parts[1].equalsIgnoreCase("on"))
+		{
+			Settings.traceSharing = true;
+		}
+		else if (parts.length == 2 && parts[1].equalsIgnoreCase("off"))
+		{
+			Settings.traceSharing = false;
+		}
+		else if (parts.length != 1)
+		{
+			println("tracesharing [on | off]");
+			return true;
+		}
+		
+		println("CT trace stem sharing is " + (Settings.traceSharing ? "on" : "off"));
+		return true;
+	}
+
 	protected boolean doAllTraces(String line)
 	{
 		return notAvailable(line);
@@ -1544,6 +1611,8 @@ abstract public class CommandReader
 		println("debugtrace <name> [start test [end test]] - debug CT trace");
 		println("savetrace [<file> | off] - save CT trace output");
 		println("seedtrace <number> - seed CT trace random generator");
+		println("tracethreads [<number>] - run CT traces with worker processes");
+		println("tracesharing [on | off] - share execution of common CT test stems");
 		println("runalltraces [<name>] - run all CT traces in class/module name");
 		println("filter %age | <reduction type> - reduce CT trace(s)");
 		println("assert <file> - run assertions from a file");
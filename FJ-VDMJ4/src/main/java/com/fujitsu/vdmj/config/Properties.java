@@ -35,6 +35,9 @@ public class Properties extends ConfigBase
 	/** The tab stop for source files. */
 	public static int parser_tabstop = 4;
 
+	/** The size of definition list that is indexed by name, or zero for none. */
+	public static int tc_index_threshold = 20;
+
 	/** The maximum number of expansions for "+" and "*" trace patterns. */
 	public static int traces_max_repeats = 5;
 
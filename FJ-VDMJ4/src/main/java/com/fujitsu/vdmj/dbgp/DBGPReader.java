@@ -895,7 +895,7 @@ public class DBGPReader extends DebugLink
 		sb.append("<breakpoint id=\"" + bp.number + "\"");
 		sb.append(" type=\"line\"");
 		sb.append(" state=\"enabled\"");
-		sb.append(" filename=\"" + bp.location.file.toURI() + "\"");
+		sb.append(" filename=\"" + bp.location.getFile().toURI() + "\"");
 		sb.append(" lineno=\"" + bp.location.startLine + "\"");
 		sb.append(">");
 
@@ -915,7 +915,7 @@ public class DBGPReader extends DebugLink
 
 		sb.append("<stack level=\"" + level + "\"");
 		sb.append(" type=\"file\"");
-		sb.append(" filename=\"" + location.file.toURI() + "\"");
+		sb.append(" filename=\"" + location.getFile().toURI() + "\"");
 		sb.append(" lineno=\"" + location.startLine + "\"");
 		sb.append(" cmdbegin=\"" + location.startLine + ":" + location.startPos + "\"");
 		sb.append("/>");
@@ -1031,9 +1031,9 @@ public class DBGPReader extends DebugLink
 		else if (value instanceof SeqValue)
 		{
 			SeqValue seq = (SeqValue)value;
-			boolean string = !seq.values.isEmpty();		// So it's [] and not ""
+			boolean string = !seq.seqValue(null).isEmpty();		// So it's [] and not ""
 			
-			for (Value e: seq.values)
+			for (Value e: seq.seqValue(null))
 			{
 				if (!(e instanceof CharacterValue))
 				{
@@ -1048,12 +1048,12 @@ public class DBGPReader extends DebugLink
 			}
 			else
 			{
-				results.addAll(seq.values);
+				results.addAll(seq.seqValue(null));
 			}
 		}
 		else if (value instanceof MapValue)
 		{
-			ValueMap map = ((MapValue)value).values;
+			ValueMap map = ((MapValue)value).mapValue(null);
 			
 			for (Value dom: map.keySet())
 			{
@@ -1080,9 +1080,9 @@ public class DBGPReader extends DebugLink
 		else if (value instanceof SeqValue)
 		{
 			SeqValue seq = (SeqValue)value;
-			boolean string = !seq.values.isEmpty();		// So it's [] and not ""
+			boolean string = !seq.seqValue(null).isEmpty();		// So it's [] and not ""
 			
-			for (Value e: seq.values)
+			for (Value e: seq.seqValue(null))
 			{
 				if (!(e instanceof CharacterValue))
 				{
@@ -1097,12 +1097,12 @@ public class DBGPReader extends DebugLink
 			}
 			else
 			{
-				return ((SeqValue)value).values.size();
+				return ((SeqValue)value).seqRope(null).size();
 			}
 		}
 		else if (value instanceof MapValue)
 		{
-			return ((MapValue)value).values.size();
+			return ((MapValue)value).mapValue(null).size();
 		}
 		else
 		{
@@ -1683,7 +1683,7 @@ public class DBGPReader extends DebugLink
 		try
 		{
 			String exp = c.data;	// Already base64 decoded by the parser
-			interpreter.setDefaultName(breakpoint.location.module);
+			interpreter.setDefaultName(breakpoint.location.getModule());
 			theAnswer = interpreter.evaluate(exp, breakContext);
 			StringBuilder property = propertyResponse(exp, exp, interpreter.getDefaultName(), theAnswer);
 			StringBuilder hdr = new StringBuilder("success=\"1\"");
@@ -2949,7 +2949,7 @@ public class DBGPReader extends DebugLink
     		PrintWriter pw = new PrintWriter(out);
     		pw.println("Stopped [" + Thread.currentThread().getName() + "] " + breakpoint.location);
     		pw.println(interpreter.getSourceLine(
-    			breakpoint.location.file, breakpoint.location.startLine, ":  "));
+    			breakpoint.location.getFile(), breakpoint.location.startLine, ":  "));
     		pw.close();
     		cdataResponse(out.toString());
 		}
@@ -2963,7 +2963,7 @@ public class DBGPReader extends DebugLink
 			throw new DBGPException(DBGPErrorCode.NOT_AVAILABLE, c.toString());
 		}
 
-		File file = breakpoint.location.file;
+		File file = breakpoint.location.getFile();
 		int current = breakpoint.location.startLine;
 
 		if (current == 0)
@@ -68,7 +68,7 @@ public class ConsoleDebugExecutor implements DebugExecutor
 	{
    		try
 		{
-			interpreter.setDefaultName(breakloc.module);
+			interpreter.setDefaultName(breakloc.getModule());
 		}
 		catch (Exception e)
 		{
@@ -252,12 +252,12 @@ public class ConsoleDebugExecutor implements DebugExecutor
 	{
 		LexLocation loc = (frame == 0) ? breakloc : getFrame().location;
 		
-		if (loc.module.equals("?"))
+		if (loc.getModule().equals("?"))
 		{
 			return new DebugCommand(DebugType.ERROR, "No source");
 		}
 		
-		File file = loc.file;
+		File file = loc.getFile();
 		int current = loc.startLine;
 
 		int start = current - SOURCE_LINES;
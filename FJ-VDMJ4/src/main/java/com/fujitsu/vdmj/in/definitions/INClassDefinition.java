@@ -26,8 +26,10 @@ package com.fujitsu.vdmj.in.definitions;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 import java.util.Map.Entry;
 
@@ -38,6 +40,7 @@ import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.Token;
 import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.Delegate;
 import com.fujitsu.vdmj.runtime.ObjectContext;
 import com.fujitsu.vdmj.runtime.ValueException;
@@ -91,6 +94,10 @@ public class INClassDefinition extends INDefinition
 	private NameValuePairMap privateStaticValues = null;
 	/** The public visible static values in the class. */
 	private NameValuePairMap publicStaticValues = null;
+	/** The value definitions already initialized, which are not retried. */
+	private Set<INDefinition> staticValuesDone = new HashSet<INDefinition>();
+	/** The definitions in the order to initialize a new instance, or null. */
+	INDefinitionList instanceOrder = null;
 	
 	/** True if the class' static members are initialized. */
 	protected boolean staticInit = false;
@@ -240,6 +247,7 @@ public class INClassDefinition extends INDefinition
 
     		privateStaticValues = new NameValuePairMap();
     		publicStaticValues = new NameValuePairMap();
+    		staticValuesDone = new HashSet<INDefinition>();
 
     		// We initialize function and operation definitions first as these
     		// can be called by variable initializations.
@@ -314,82 +322,128 @@ public class INClassDefinition extends INDefinition
 
 	private void setStaticValues(INDefinitionList defs, Context initCtxt, boolean inherit)
 	{
+		ContextException failed = null;
+
 		for (INDefinition d: defs)
 		{
-			NameValuePairList nvl = null;
-
-			if (inherit)
+			try
 			{
-				INInheritedDefinition id = (INInheritedDefinition)d;
-				TCNameList names = new TCNameList(d.name);	//d.getVariableNames();
-				nvl = new NameValuePairList();
-
-				for (TCNameToken vname: names)
-				{
-					TCNameToken iname = vname.getModifiedName(id.superdef.name.getModule());
-					Value v = initCtxt.check(iname);
-
-					if (v != null)		// TCTypeDefinition names aren't values
-					{
-						nvl.add(vname, v);
-					}
-				}
+				setStaticValue(d, initCtxt, inherit);
 			}
-			else
+			catch (ContextException e)
 			{
-				if (d.isValueDefinition())
+				// Carry on with the other values, which may be needed by
+				// a later pass, but prefer to report a "real" error.
+
+				if (e.isStackOverflow())
 				{
-					nvl = d.getNamedValues(initCtxt);
+					throw e;
 				}
-				else if (d.isStatic() && d.isInstanceVariable())
+				else if (failed == null || e.number != 4034 && e.number != 6)
 				{
-					nvl = d.getNamedValues(initCtxt);
+					failed = e;
 				}
 			}
+		}
+
+		if (failed != null)
+		{
+			throw failed;
+		}
+	}
 
-			if (d.isValueDefinition())
+	/**
+	 * Initialize one static value or static instance variable of the class, or
+	 * copy one inherited static from its superclass. Functions, operations and
+	 * other definitions are ignored. This is used by INClassList to initialize
+	 * the statics of all classes in dependency order.
+	 */
+	void setStaticValue(INDefinition d, Context initCtxt)
+	{
+		setStaticValue(d, initCtxt, d instanceof INInheritedDefinition);
+	}
+
+	private void setStaticValue(INDefinition d, Context initCtxt, boolean inherit)
+	{
+		NameValuePairList nvl = null;
+
+		if (inherit)
+		{
+			INInheritedDefinition id = (INInheritedDefinition)d;
+			TCNameList names = new TCNameList(d.name);	//d.getVariableNames();
+			nvl = new NameValuePairList();
+
+			for (TCNameToken vname: names)
 			{
-				// Values are implicitly static, but NOT updatable
+				TCNameToken iname = vname.getModifiedName(id.superdef.name.getModule());
+				Value v = initCtxt.check(iname);
 
-				switch (d.accessSpecifier.access)
+				if (v != null)		// TCTypeDefinition names aren't values
 				{
-					case PRIVATE:
-					case PROTECTED:
-						privateStaticValues.putAllNew(nvl);
-						initCtxt.putAllNew(nvl);
-						break;
-
-					case PUBLIC:
-						publicStaticValues.putAllNew(nvl);
-						initCtxt.putAllNew(nvl);
-						break;
-						
-					default:
-						break;
+					nvl.add(vname, v);
 				}
 			}
-			else if (d.isStatic() && d.isInstanceVariable())
-			{
-				// Static instance variables are updatable
+		}
+		else if (staticValuesDone.contains(d))
+		{
+			return;		// Initialized by an earlier pass
+		}
+		else if (d.isValueDefinition())
+		{
+			nvl = d.getNamedValues(initCtxt);
+		}
+		else if (d.isStatic() && d.isInstanceVariable())
+		{
+			nvl = d.getNamedValues(initCtxt);
+		}
 
-				switch (d.accessSpecifier.access)
-				{
-					case PRIVATE:
-					case PROTECTED:
-						privateStaticValues.putAllNew(nvl);
-						initCtxt.putAllNew(nvl);
-						break;
+		if (d.isValueDefinition())
+		{
+			// Values are implicitly static, but NOT updatable
 
-					case PUBLIC:
-						publicStaticValues.putAllNew(nvl);
-						initCtxt.putAllNew(nvl);
-						break;
-						
-					default:
-						break;
-				}
+			switch (d.accessSpecifier.access)
+			{
+				case PRIVATE:
+				case PROTECTED:
+					privateStaticValues.putAllNew(nvl);
+					initCtxt.putAllNew(nvl);
+					break;
+
+				case PUBLIC:
+					publicStaticValues.putAllNew(nvl);
+					initCtxt.putAllNew(nvl);
+					break;
+					
+				default:
+					break;
+			}
+		}
+		else if (d.isStatic() && d.isInstanceVariable())
+		{
+			// Static instance variables are updatable
+
+			switch (d.accessSpecifier.access)
+			{
+				case PRIVATE:
+				case PROTECTED:
+					privateStaticValues.putAllNew(nvl);
+					initCtxt.putAllNew(nvl);
+					break;
+
+				case PUBLIC:
+					publicStaticValues.putAllNew(nvl);
+					initCtxt.putAllNew(nvl);
+					break;
+					
+				default:
+					break;
 			}
 		}
+
+		if (!inherit && nvl != null)
+		{
+			staticValuesDone.add(d);
+		}
 	}
 
 	public Value getStatic(TCNameToken sought)
@@ -597,7 +651,7 @@ public class INClassDefinition extends INDefinition
 			}
 		}
 
-		for (INDefinition d: definitions)
+		for (INDefinition d: (instanceOrder != null ? instanceOrder : definitions))
 		{
 			if (!d.isStatic() && !d.isFunctionOrOperation())
 			{
@@ -806,10 +860,10 @@ public class INClassDefinition extends INDefinition
 		in.defaultReadObject();
 		guardLock = new Lock();
     }
-
-	@Override
-	public <R, S> R apply(INDefinitionVisitor<R, S> visitor, S arg)
-	{
-		return visitor.caseClassDefinition(this, arg);
-	}
+
+	@Override
+	public <R, S> R apply(INDefinitionVisitor<R, S> visitor, S arg)
+	{
+		return visitor.caseClassDefinition(this, arg);
+	}
 }
@@ -25,7 +25,10 @@ package com.fujitsu.vdmj.in.definitions;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.INMappedList;
@@ -39,6 +42,7 @@ import com.fujitsu.vdmj.runtime.StateContext;
 import com.fujitsu.vdmj.scheduler.ResourceScheduler;
 import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCClassList;
+import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.CPUValue;
 import com.fujitsu.vdmj.values.TransactionValue;
@@ -50,9 +54,15 @@ public class INClassList extends INMappedList<TCClassDefinition, INClassDefiniti
 {
 	private static final long serialVersionUID = 1L;
 
+	/** The definitions of all classes in dependency order, or null if not known. */
+	private INDefinitionOrder initOrder = null;
+	/** The class of each definition in initOrder. */
+	private Vector<INClassDefinition> initOwners = null;
+
 	public INClassList(TCClassList from) throws Exception
 	{
 		super(from);
+		orderDefinitions(from);
 	}
 
 	public INClassList()
@@ -67,14 +77,14 @@ public class INClassList extends INMappedList<TCClassDefinition, INClassDefiniti
 
 	public Set<File> getSourceFiles()
 	{
-		Set<File> files = new HashSet<File>();
+		Set<File> files = new LinkedHashSet<File>();
 
 		for (INClassDefinition def: this)
 		{
 			if (!(def instanceof INCPUClassDefinition ||
 				  def instanceof INBUSClassDefinition))
 			{
-				files.add(def.location.file);
+				files.add(def.location.getFile());
 			}
 		}
 
@@ -126,89 +136,117 @@ public class INClassList extends INMappedList<TCClassDefinition, INClassDefiniti
 			cdef.staticInit(globalContext);
 		}
 
-		// Values can forward reference each other, which means that we don't
-		// know what order to initialize the classes in. So we have a crude
-		// retry mechanism, looking for "forward reference" like exceptions.
+		INDefinitionList order = new INDefinitionList();
+		List<INClassDefinition> owners = new Vector<INClassDefinition>();
 
-		ContextException failed = null;
-		int retries = 3;	// Potentially not enough.
-		Set<ContextException> trouble = new HashSet<ContextException>();
-		Set<TCNameToken> passed = new HashSet<TCNameToken>();
+		if (initOrder != null)
+		{
+			for (int i=0; i<initOrder.size(); i++)
+			{
+				order.add(initOrder.get(i));
+				owners.add(initOwners.get(i));
+			}
+		}
+		else
+		{
+			for (INClassDefinition cdef: this)
+			{
+				for (INDefinition d: cdef.localInheritedDefinitions)
+				{
+					order.add(d);
+					owners.add(cdef);
+				}
+
+				for (INDefinition d: cdef.definitions)
+				{
+					order.add(d);
+					owners.add(cdef);
+				}
+			}
+		}
+
+		// The static values of all classes are in dependency order, so most
+		// specifications will initialize in one pass. But the free variables do
+		// not include every dependency, so each pass retries the values that
+		// failed in the last one, and we carry on as long as something succeeds.
+		// A pass that makes no progress means a real cycle or error.
+
+		Set<ContextException> problems = null;
+		List<Integer> pending = new Vector<Integer>();
+		int pass = 0;
+		boolean overflow = false;
 		boolean exceptions = Settings.exceptions;
 		Settings.exceptions = false;
 
-		do
+		for (int i=0; i<order.size(); i++)
 		{
-			failed = null;
-			trouble.clear();
+			pending.add(i);
+		}
 
-    		for (INClassDefinition cdef: this)
-    		{
-				if (passed.contains(cdef.name))
+		while (true)
+		{
+			pass++;
+			problems = new HashSet<ContextException>();
+			List<Integer> failed = new Vector<Integer>();
+			long before = System.currentTimeMillis();
+
+			for (int i: pending)
+			{
+				try
 				{
-					continue;
+					owners.get(i).setStaticValue(order.get(i), globalContext);
 				}
+				catch (ContextException e)
+				{
+					problems.add(e);	// Carry on...
+					failed.add(i);
+
+					if (e.isStackOverflow())	// Stack overflow returns immediately
+					{
+						problems.clear();
+						problems.add(e);
+						overflow = true;
+						break;
+					}
+				}
+			}
 
-    			long before = System.currentTimeMillis();
-    			long after;
+			long after = System.currentTimeMillis();
 
-    			try
-    			{
-            		cdef.staticValuesInit(globalContext);
-    				passed.add(cdef.name);
-    			}
-    			catch (ContextException e)
-    			{
-    				if (e.isStackOverflow())
-    				{
-    					trouble.clear();
-    					trouble.add(e);
-    					retries = 0;
-    					break;
-    				}
-    				
-    				trouble.add(e);
-    				
-    				// These two exceptions mean that a member could not be
-    				// found, which may be a forward reference, so we retry...
-
-    				if (e.number == 4034 || e.number == 6)
-    				{
-    					failed = e;
-    				}
-    				else
-    				{
-    					throw e;
-    				}
-    			}
-    			finally
-    			{
-    				after = System.currentTimeMillis();
-    				
-            		if (Settings.verbose && (after-before) > 200)
-            		{
-            			Console.out.printf("Pass %d: %s = %.3f secs\n", (4-retries), cdef.name.getName(), (double)(after-before)/1000);
-            		}
-    			}
-    		}
-    		
-        	if (Settings.verbose && !trouble.isEmpty())
-        	{
-        		Console.out.printf("Pass %d:\n", (4-retries));
+			if (Settings.verbose && (after-before) > 200)
+			{
+				Console.out.printf("Pass %d: %d definitions = %.3f secs\n", pass, pending.size(), (double)(after-before)/1000);
+			}
 
-    			for (ContextException e: trouble)
-    			{
-    				Console.out.println(e);
-    			}        		
-        	}
+			if (Settings.verbose && !problems.isEmpty())
+			{
+				Console.out.printf("Pass %d:\n", pass);
+
+				for (ContextException e: problems)
+				{
+					Console.out.println(e);
+				}
+			}
+
+			boolean progress = failed.size() < pending.size();
+			pending = failed;
+
+			if (problems.isEmpty() || overflow || !progress)
+			{
+				break;
+			}
 		}
-		while (--retries > 0 && failed != null);
 
-		if (!trouble.isEmpty())
+		if (!problems.isEmpty())
 		{
-			ContextException toThrow = trouble.iterator().next();
+			if (!overflow && initOrder != null)
+			{
+				initOrder.reportCycles(pending);
+			}
+
+			ContextException toThrow = problems.iterator().next();
 
-			for (ContextException e: trouble)
+			for (ContextException e: problems)
 			{
 				Console.err.println(e);
 
@@ -221,14 +259,79 @@ public class INClassList extends INMappedList<TCClassDefinition, INClassDefiniti
 			throw toThrow;
 		}
 
+		// Everything is now initialized, so this just marks each class as done,
+		// after copying any inherited statics again.
+
+		for (INClassDefinition cdef: this)
+		{
+			cdef.staticValuesInit(globalContext);
+		}
+
 		Settings.exceptions = exceptions;
 	}
 
+	/**
+	 * Work out the order in which to initialize the definitions of all classes.
+	 * The locally inherited and local definitions of each class are ordered
+	 * together, and otherwise stay in class and declaration order. The order of
+	 * each class's own definitions is also used to initialize new instances.
+	 */
+	private void orderDefinitions(TCClassList from)
+	{
+		TCDefinitionList tcdefs = new TCDefinitionList();
+		INDefinitionList indefs = new INDefinitionList();
+		TCDefinitionList globals = new TCDefinitionList();
+		List<INClassDefinition> owners = new Vector<INClassDefinition>();
+
+		for (int c=0; c<size(); c++)
+		{
+			TCClassDefinition tcc = from.get(c);
+			INClassDefinition inc = get(c);
+
+			if (tcc.localInheritedDefinitions.size() != inc.localInheritedDefinitions.size() ||
+				tcc.definitions.size() != inc.definitions.size())
+			{
+				return;		// Not mapped one to one, so use declaration order
+			}
+
+			tcdefs.addAll(tcc.localInheritedDefinitions);
+			indefs.addAll(inc.localInheritedDefinitions);
+			tcdefs.addAll(tcc.definitions);
+			indefs.addAll(inc.definitions);
+			globals.addAll(tcc.getDefinitions());
+
+			for (int d=0; d<tcc.localInheritedDefinitions.size() + tcc.definitions.size(); d++)
+			{
+				owners.add(inc);
+			}
+		}
+
+		initOrder = new INDefinitionOrder(tcdefs, indefs, globals);
+		initOwners = new Vector<INClassDefinition>();
+
+		for (INClassDefinition cdef: this)
+		{
+			cdef.instanceOrder = new INDefinitionList();
+		}
+
+		for (int i=0; i<initOrder.size(); i++)
+		{
+			INClassDefinition cdef = owners.get(initOrder.getPosition(i));
+			INDefinition d = initOrder.get(i);
+			initOwners.add(cdef);
+
+			if (!(d instanceof INInheritedDefinition))
+			{
+				cdef.instanceOrder.add(d);
+			}
+		}
+	}
+
 	public INStatement findStatement(File file, int lineno)
 	{
 		for (INClassDefinition c: this)
 		{
-			if (c.name.getLocation().file.equals(file))
+			if (c.name.getLocation().getFile().equals(file))
 			{
     			INStatement stmt = c.findStatement(lineno);
 
@@ -246,7 +349,7 @@ public class INClassList extends INMappedList<TCClassDefinition, INClassDefiniti
 	{
 		for (INClassDefinition c: this)
 		{
-			if (c.name.getLocation().file.equals(file))
+			if (c.name.getLocation().getFile().equals(file))
 			{
     			INExpression exp = c.findExpression(lineno);
 
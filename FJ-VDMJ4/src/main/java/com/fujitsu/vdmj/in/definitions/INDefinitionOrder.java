@@ -0,0 +1,273 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.in.definitions;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Stack;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fujitsu.vdmj.messages.Console;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
+import com.fujitsu.vdmj.tc.definitions.TCGetFreeVariablesVisitor;
+import com.fujitsu.vdmj.tc.definitions.TCInheritedDefinition;
+import com.fujitsu.vdmj.tc.definitions.TCRenamedDefinition;
+import com.fujitsu.vdmj.tc.expressions.EnvTriple;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.tc.lex.TCNameSet;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.typechecker.Environment;
+import com.fujitsu.vdmj.typechecker.FlatEnvironment;
+
+/**
+ * The order in which to initialize a list of definitions, so that each one comes
+ * after the definitions it depends on. The dependencies come from the free
+ * variables of the TC definitions that the IN definitions were mapped from, as
+ * for the type checker's cyclic dependency check. Otherwise the definitions stay
+ * in the order given, and cycles are left in that order, to be reported by
+ * reportCycles if they fail to initialize.
+ */
+public class INDefinitionOrder implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The definitions in dependency order. */
+	private final INDefinitionList order = new INDefinitionList();
+	/** The position of each ordered definition in the list given. */
+	private final Vector<Integer> positions = new Vector<Integer>();
+	/** A name for each ordered definition, for cycle reports. */
+	private final TCNameList names = new TCNameList();
+	/** The positions in the order of the definitions each one depends on. */
+	private final Vector<Vector<Integer>> depends = new Vector<Vector<Integer>>();
+
+	/**
+	 * Order the IN definitions, which are mapped one to one from the TC definitions.
+	 * The globals are used to find the functions that each definition calls.
+	 */
+	public INDefinitionOrder(TCDefinitionList tcdefs, INDefinitionList indefs, TCDefinitionList globals)
+	{
+		Map<TCNameToken, Integer> found = new HashMap<TCNameToken, Integer>();
+		TCNameList declared = new TCNameList();
+
+		for (int i=0; i<tcdefs.size(); i++)
+		{
+			TCDefinition def = tcdefs.get(i);
+			TCNameList vars = def.getVariableNames();
+			declared.add(vars.isEmpty() ? def.name : vars.get(0).getExplicit(true));
+
+			for (TCNameToken name: vars)
+			{
+				found.put(name.getExplicit(true), i);
+			}
+		}
+
+		// The visitor is called directly, rather than by getFreeVariables, so that
+		// the globals are used to find the functions that each definition calls.
+
+		Environment env = new FlatEnvironment(globals, null);
+		TCGetFreeVariablesVisitor visitor = new TCGetFreeVariablesVisitor();
+		List<List<Integer>> needs = new Vector<List<Integer>>();
+
+		for (TCDefinition def: tcdefs)
+		{
+			Environment empty = new FlatEnvironment(null, true);
+			TCNameSet freevars = def.apply(visitor, new EnvTriple(env, empty, new AtomicBoolean(false)));
+
+			if (def instanceof TCRenamedDefinition)
+			{
+				TCRenamedDefinition rdef = (TCRenamedDefinition)def;
+
+				if (rdef.def.name != null)
+				{
+					freevars.add(rdef.def.name.getExplicit(true));
+				}
+			}
+			else if (def instanceof TCInheritedDefinition)
+			{
+				TCInheritedDefinition idef = (TCInheritedDefinition)def;
+
+				for (TCNameToken name: idef.superdef.getVariableNames())
+				{
+					freevars.add(name.getExplicit(true));
+				}
+			}
+
+			List<Integer> list = new Vector<Integer>();
+
+			for (TCNameToken name: freevars)
+			{
+				Integer pos = found.get(name);
+
+				if (pos != null)
+				{
+					list.add(pos);
+				}
+			}
+
+			needs.add(list);
+		}
+
+		List<Integer> sorted = new Vector<Integer>();
+		int[] visits = new int[tcdefs.size()];
+
+		for (int i=0; i<tcdefs.size(); i++)
+		{
+			visit(i, needs, visits, sorted);
+		}
+
+		int[] moved = new int[sorted.size()];
+
+		for (int i=0; i<sorted.size(); i++)
+		{
+			moved[sorted.get(i)] = i;
+		}
+
+		for (int i: sorted)
+		{
+			Vector<Integer> list = new Vector<Integer>();
+
+			for (int n: needs.get(i))
+			{
+				list.add(moved[n]);
+			}
+
+			order.add(indefs.get(i));
+			positions.add(i);
+			names.add(declared.get(i));
+			depends.add(list);
+		}
+	}
+
+	/**
+	 * Add a definition to the sorted list after the ones it depends on. The visits
+	 * are 0 for not seen, 1 for in progress and 2 for done, so that a cycle stops
+	 * when it gets back to a definition in progress.
+	 */
+	private void visit(int i, List<List<Integer>> needs, int[] visits, List<Integer> sorted)
+	{
+		if (visits[i] == 0)
+		{
+			visits[i] = 1;
+
+			for (int n: needs.get(i))
+			{
+				visit(n, needs, visits, sorted);
+			}
+
+			visits[i] = 2;
+			sorted.add(i);
+		}
+	}
+
+	public int size()
+	{
+		return order.size();
+	}
+
+	/**
+	 * The definition at a position in the order.
+	 */
+	public INDefinition get(int i)
+	{
+		return order.get(i);
+	}
+
+	/**
+	 * The position in the list given of the definition at a position in the order.
+	 */
+	public int getPosition(int i)
+	{
+		return positions.get(i);
+	}
+
+	/**
+	 * Report any cycles in the dependencies of the definitions that failed to
+	 * initialize, which are given by their positions in the order. A failure
+	 * without a cycle is a dependency that the free variables did not find, or
+	 * an ordinary runtime error.
+	 */
+	public void reportCycles(List<Integer> failed)
+	{
+		Set<Integer> reported = new HashSet<Integer>();
+
+		for (int sought: failed)
+		{
+			if (!reported.contains(sought))
+			{
+				Stack<Integer> stack = new Stack<Integer>();
+				stack.push(sought);
+
+				if (reachable(sought, sought, failed, stack))
+				{
+					TCNameList cycle = new TCNameList();
+
+					for (int i: stack)
+					{
+						cycle.add(names.get(i));
+						reported.add(i);
+					}
+
+					Console.err.println("Cyclic dependency detected for " + names.get(sought));
+					Console.err.println("Cycle: " + cycle);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Search the dependencies of a failed definition for a path back to the one
+	 * sought. The stack records the path taken.
+	 */
+	private boolean reachable(int sought, int from, List<Integer> failed, Stack<Integer> stack)
+	{
+		for (int next: depends.get(from))
+		{
+			if (next == sought)
+			{
+				stack.push(next);
+				return true;
+			}
+
+			if (failed.contains(next) && !stack.contains(next))
+			{
+				stack.push(next);
+
+				if (reachable(sought, next, failed, stack))
+				{
+					return true;
+				}
+
+				stack.pop();
+			}
+		}
+
+		return false;
+	}
+}
@@ -29,7 +29,9 @@ import java.util.Map;
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.annotations.INAnnotationList;
 import com.fujitsu.vdmj.in.expressions.INExpression;
+import com.fujitsu.vdmj.in.expressions.INSlotResolver;
 import com.fujitsu.vdmj.in.expressions.INSubclassResponsibilityExpression;
+import com.fujitsu.vdmj.in.patterns.INPattern;
 import com.fujitsu.vdmj.in.patterns.INPatternList;
 import com.fujitsu.vdmj.in.patterns.INPatternListList;
 import com.fujitsu.vdmj.in.types.Instantiate;
@@ -64,6 +66,7 @@ public class INExplicitFunctionDefinition extends INDefinition
 	public final INExplicitFunctionDefinition predef;
 	public final INExplicitFunctionDefinition postdef;
 	public final INClassDefinition classdef;
+	public final TCNameList slotNames;
 	
 	private Map<TCTypeList, FunctionValue> polyfuncs = null;
 
@@ -94,6 +97,41 @@ public class INExplicitFunctionDefinition extends INDefinition
 		this.classdef = classdef;
 
 		type.instantiated = (typeParams == null) ? null : false;
+		this.slotNames = resolveSlots();
+	}
+
+	/**
+	 * Give the parameter names a frame slot each, and resolve their uses in the
+	 * body to those slots. Curried functions bind their parameters in several
+	 * frames, so their names are always looked up.
+	 */
+	private TCNameList resolveSlots()
+	{
+		if (isCurried || body == null)
+		{
+			return null;
+		}
+
+		TCNameList names = new TCNameList();
+
+		for (INPattern p: paramPatternList.get(0))
+		{
+			for (TCNameToken pname: p.getVariableNames())
+			{
+				if (!names.contains(pname))
+				{
+					names.add(pname);
+				}
+			}
+		}
+
+		if (names.isEmpty())
+		{
+			return null;
+		}
+
+		new INSlotResolver(names).resolve(body);
+		return names;
 	}
 
 	@Override
@@ -28,7 +28,7 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.SeqValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INDistConcatExpression extends INUnaryExpression
 {
@@ -52,12 +52,12 @@ public class INDistConcatExpression extends INUnaryExpression
 
 		try
 		{
-    		ValueList seqseq = exp.eval(ctxt).seqValue(ctxt);
-    		ValueList result = new ValueList();
+    		ValueRope seqseq = exp.eval(ctxt).seqRope(ctxt);
+    		ValueRope result = ValueRope.EMPTY;
 
     		for (Value v: seqseq)
     		{
-   				result.addAll(v.seqValue(ctxt));
+   				result = result.concat(v.seqRope(ctxt));
     		}
 
     		return new SeqValue(result);
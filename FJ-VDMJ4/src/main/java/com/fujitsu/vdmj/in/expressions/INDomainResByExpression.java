@@ -28,8 +28,8 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueMap;
 import com.fujitsu.vdmj.values.ValueSet;
+import com.fujitsu.vdmj.values.ValueTrie;
 
 public class INDomainResByExpression extends INBinaryExpression
 {
@@ -49,15 +49,11 @@ public class INDomainResByExpression extends INBinaryExpression
 		try
 		{
     		ValueSet set = left.eval(ctxt).setValue(ctxt);
-    		ValueMap map = right.eval(ctxt).mapValue(ctxt);
-    		ValueMap modified = new ValueMap(map);
+    		ValueTrie modified = right.eval(ctxt).mapTrie(ctxt);
 
-    		for (Value k: map.keySet())
+    		for (Value k: set)
     		{
-    			if (set.contains(k))
-    			{
-    				modified.remove(k);
-    			}
+    			modified = modified.remove(k);
     		}
 
     		return new MapValue(modified);
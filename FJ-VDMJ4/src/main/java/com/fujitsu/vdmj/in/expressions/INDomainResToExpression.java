@@ -28,8 +28,9 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueMap;
 import com.fujitsu.vdmj.values.ValueSet;
+import com.fujitsu.vdmj.values.ValueTrie;
+import java.util.Map;
 
 public class INDomainResToExpression extends INBinaryExpression
 {
@@ -49,14 +50,20 @@ public class INDomainResToExpression extends INBinaryExpression
 		try
 		{
     		ValueSet set = left.eval(ctxt).setValue(ctxt);
-    		ValueMap map = right.eval(ctxt).mapValue(ctxt);
-    		ValueMap modified = new ValueMap(map);
+    		ValueTrie map = right.eval(ctxt).mapTrie(ctxt);
 
-    		for (Value k: map.keySet())
+    		if (set.size() < map.size())
     		{
-    			if (!set.contains(k))
+    			return new MapValue(map.select(set));	// Keeps map order
+    		}
+
+    		ValueTrie modified = map;
+
+    		for (Map.Entry<Value, Value> entry: map)
+    		{
+    			if (!set.contains(entry.getKey()))
     			{
-    				modified.remove(k);
+    				modified = modified.remove(entry.getKey());
     			}
     		}
 
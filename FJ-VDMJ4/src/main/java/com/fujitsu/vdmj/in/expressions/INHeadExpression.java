@@ -27,7 +27,7 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INHeadExpression extends INUnaryExpression
 {
@@ -51,7 +51,7 @@ public class INHeadExpression extends INUnaryExpression
 
 		try
 		{
-    		ValueList seq = exp.eval(ctxt).seqValue(ctxt);
+    		ValueRope seq = exp.eval(ctxt).seqRope(ctxt);
 
     		if (seq.isEmpty())
     		{
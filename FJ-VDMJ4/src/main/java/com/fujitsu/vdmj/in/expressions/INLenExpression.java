@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.NaturalValue;
 import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INLenExpression extends INUnaryExpression
 {
@@ -52,7 +53,7 @@ public class INLenExpression extends INUnaryExpression
 
 		try
 		{
-			return new NaturalValue(exp.eval(ctxt).seqValue(ctxt).size());
+			return new NaturalValue(exp.eval(ctxt).seqRope(ctxt).size());
 		}
         catch (ValueException e)
         {
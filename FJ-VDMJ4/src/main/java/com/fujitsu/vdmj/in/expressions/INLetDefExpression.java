@@ -76,13 +76,20 @@ public class INLetDefExpression extends INExpression
 
 		Context evalContext = new Context(location, "let expression", ctxt);
 
-		TCNameToken sname = new TCNameToken(location, location.module, "self");
-		ObjectValue self = (ObjectValue)ctxt.check(sname);
+		ObjectValue self = null;
+		boolean selfChecked = false;	// Only needed for local functions
 
 		for (INDefinition d: localDefs)
 		{
 			NameValuePairList values = d.getNamedValues(evalContext);
 
+			if (!selfChecked && d instanceof INExplicitFunctionDefinition)
+			{
+				TCNameToken sname = new TCNameToken(location, location.getModule(), "self");
+				self = (ObjectValue)ctxt.check(sname);
+				selfChecked = true;
+			}
+
 			if (self != null && d instanceof INExplicitFunctionDefinition)
 			{
 				for (NameValuePair nvp: values)
@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueMap;
+import com.fujitsu.vdmj.values.ValueTrie;
 
 public class INMapUnionExpression extends INBinaryExpression
 {
@@ -45,12 +46,12 @@ public class INMapUnionExpression extends INBinaryExpression
 		// breakpoint.check(location, ctxt);
 		location.hit();		// Mark as covered
 
-		ValueMap lm = null;
+		ValueTrie lm = null;
 		ValueMap rm = null;
 
 		try
 		{
-			lm = left.eval(ctxt).mapValue(ctxt);
+			lm = left.eval(ctxt).mapTrie(ctxt);
 			rm = right.eval(ctxt).mapValue(ctxt);
 		}
 		catch (ValueException e)
@@ -58,15 +59,18 @@ public class INMapUnionExpression extends INBinaryExpression
 			return abort(e);
 		}
 
-		ValueMap result = new ValueMap();
-		result.putAll(lm);
+		ValueTrie result = lm;
 
 		for (Value k: rm.keySet())
 		{
 			Value rng = rm.get(k);
-			Value old = result.put(k, rng);
+			Value old = result.get(k);
 
-			if (old != null && !old.equals(rng))
+			if (old == null)
+			{
+				result = result.put(k, rng);
+			}
+			else if (!old.equals(rng))
 			{
 				abort(4021, "Duplicate map keys have different values: " + k, ctxt);
 			}
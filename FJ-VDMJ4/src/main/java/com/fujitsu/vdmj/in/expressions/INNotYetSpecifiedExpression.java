@@ -66,8 +66,8 @@ public class INNotYetSpecifiedExpression extends INExpression
 	{
 		breakpoint.check(location, ctxt);
 
-		if (location.module.equals("VDMUtil") ||
-			location.module.equals("DEFAULT"))
+		if (location.getModule().equals("VDMUtil") ||
+			location.getModule().equals("DEFAULT"))
 		{
     		if (ctxt.title.equals("get_file_pos()"))
     		{
@@ -78,8 +78,8 @@ public class INNotYetSpecifiedExpression extends INExpression
     		}
 		}
 
-		if (location.module.equals("IO") ||
-			location.module.equals("DEFAULT"))
+		if (location.getModule().equals("IO") ||
+			location.getModule().equals("DEFAULT"))
 		{
 			if (ctxt.title.equals("freadval(filename)"))
 			{
@@ -108,7 +108,7 @@ public class INNotYetSpecifiedExpression extends INExpression
 		if (Settings.dialect == Dialect.VDM_SL)
 		{
 			ModuleInterpreter i = (ModuleInterpreter)Interpreter.getInstance();
-			INModule module = i.findModule(location.module);
+			INModule module = i.findModule(location.getModule());
 
 			if (module != null)
 			{
@@ -125,7 +125,7 @@ public class INNotYetSpecifiedExpression extends INExpression
     		if (self == null)
     		{
     			ClassInterpreter i = (ClassInterpreter)Interpreter.getInstance();
-    			INClassDefinition cls = i.findClass(location.module);
+    			INClassDefinition cls = i.findClass(location.getModule());
 
     			if (cls != null)
     			{
@@ -155,10 +155,10 @@ public class INNotYetSpecifiedExpression extends INExpression
 			Context outer = ctxt.getRoot().outer;
 			RootContext root = outer.getRoot();
 
-			tuple.add(new SeqValue(ctxt.location.file.getPath()));
+			tuple.add(new SeqValue(ctxt.location.getFile().getPath()));
 			tuple.add(new NaturalOneValue(ctxt.location.startLine));
 			tuple.add(new NaturalOneValue(ctxt.location.startPos));
-			tuple.add(new SeqValue(ctxt.location.module));
+			tuple.add(new SeqValue(ctxt.location.getModule()));
 
 			int bra = root.title.indexOf('(');
 
@@ -29,8 +29,9 @@ import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.SeqValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
 import com.fujitsu.vdmj.values.ValueMap;
+import com.fujitsu.vdmj.values.ValueRope;
+import com.fujitsu.vdmj.values.ValueTrie;
 
 public class INPlusPlusExpression extends INBinaryExpression
 {
@@ -54,21 +55,21 @@ public class INPlusPlusExpression extends INBinaryExpression
 
     		if (lv instanceof MapValue)
     		{
-    			ValueMap lm = new ValueMap(lv.mapValue(ctxt));
+    			ValueTrie lm = lv.mapTrie(ctxt);
     			ValueMap rm = rv.mapValue(ctxt);
 
     			for (Value k: rm.keySet())
     			{
-					lm.put(k, rm.get(k));
+					lm = lm.put(k, rm.get(k));
 				}
 
     			return new MapValue(lm);
     		}
     		else
     		{
-    			ValueList seq = lv.seqValue(ctxt);
+    			ValueRope seq = lv.seqRope(ctxt);
     			ValueMap map = rv.mapValue(ctxt);
-    			ValueList result = new ValueList(seq);
+    			ValueRope result = seq;
 
     			for (Value k: map.keySet())
     			{
@@ -79,7 +80,7 @@ public class INPlusPlusExpression extends INBinaryExpression
 						abort(4025, "Map key not within sequence index range: " + k, ctxt);
 					}
 
-					result.set(iv-1, map.get(k));
+					result = result.set(iv-1, map.get(k));
     			}
 
     			return new SeqValue(result);
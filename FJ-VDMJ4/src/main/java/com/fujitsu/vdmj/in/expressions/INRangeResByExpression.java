@@ -28,8 +28,9 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueMap;
 import com.fujitsu.vdmj.values.ValueSet;
+import com.fujitsu.vdmj.values.ValueTrie;
+import java.util.Map;
 
 public class INRangeResByExpression extends INBinaryExpression
 {
@@ -47,25 +48,25 @@ public class INRangeResByExpression extends INBinaryExpression
 		location.hit();		// Mark as covered
 
 		ValueSet set = null;
-		ValueMap map = null;
+		ValueTrie map = null;
 
 		try
 		{
 			set = right.eval(ctxt).setValue(ctxt);
-			map = left.eval(ctxt).mapValue(ctxt);
+			map = left.eval(ctxt).mapTrie(ctxt);
 		}
 		catch (ValueException e)
 		{
 			return abort(e);
 		}
 
-		ValueMap modified = new ValueMap(map);
+		ValueTrie modified = map;
 
-		for (Value k: map.keySet())
+		for (Map.Entry<Value, Value> entry: map)
 		{
-			if (set.contains(map.get(k)))
+			if (set.contains(entry.getValue()))
 			{
-				modified.remove(k);
+				modified = modified.remove(entry.getKey());
 			}
 		}
 
@@ -36,7 +36,7 @@ public class INSelfExpression extends INExpression
 	public INSelfExpression(LexLocation location)
 	{
 		super(location);
-		name = new TCNameToken(location, location.module, "self");
+		name = new TCNameToken(location, location.getModule(), "self");
 	}
 
 	@Override
@@ -28,7 +28,7 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.SeqValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INSeqConcatExpression extends INBinaryExpression
 {
@@ -50,11 +50,7 @@ public class INSeqConcatExpression extends INBinaryExpression
     		Value lv = left.eval(ctxt);
     		Value rv = right.eval(ctxt);
 
-    		ValueList result = new ValueList();
-    		result.addAll(lv.seqValue(ctxt));
-    		result.addAll(rv.seqValue(ctxt));
-
-    		return new SeqValue(result);
+    		return new SeqValue(lv.seqRope(ctxt).concat(rv.seqRope(ctxt)));
 		}
 		catch (ValueException e)
 		{
@@ -51,11 +51,13 @@ public class INSetDifferenceExpression extends INBinaryExpression
 		try
 		{
 			togo = right.eval(ctxt).setValue(ctxt);
-			result.addAll(left.eval(ctxt).setValue(ctxt));
 
-			for (Value r: togo)
+			for (Value l: left.eval(ctxt).setValue(ctxt))
 			{
-				result.remove(r);
+				if (!togo.contains(l))
+				{
+					result.add(l);
+				}
 			}
 
 			return new SetValue(result);
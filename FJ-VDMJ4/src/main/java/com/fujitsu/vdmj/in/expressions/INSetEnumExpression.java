@@ -55,7 +55,7 @@ public class INSetEnumExpression extends INSetExpression
 	{
 		breakpoint.check(location, ctxt);
 
-		ValueSet values = new ValueSet();
+		ValueSet values = new ValueSet(members.size());
 
 		for (INExpression e: members)
 		{
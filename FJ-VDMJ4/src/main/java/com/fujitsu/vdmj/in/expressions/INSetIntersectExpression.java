@@ -47,8 +47,7 @@ public class INSetIntersectExpression extends INBinaryExpression
 
 		try
 		{
-    		ValueSet result = new ValueSet();
-    		result.addAll(left.eval(ctxt).setValue(ctxt));
+    		ValueSet result = new ValueSet(left.eval(ctxt).setValue(ctxt));
     		result.retainAll(right.eval(ctxt).setValue(ctxt));
     		return new SetValue(result);
 		}
@@ -0,0 +1,319 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.in.expressions;
+
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INValueDefinition;
+import com.fujitsu.vdmj.in.patterns.INMultipleBind;
+import com.fujitsu.vdmj.in.patterns.INMultipleBindList;
+import com.fujitsu.vdmj.in.patterns.INMultipleSeqBind;
+import com.fujitsu.vdmj.in.patterns.INMultipleSetBind;
+import com.fujitsu.vdmj.in.patterns.INMultipleTypeBind;
+import com.fujitsu.vdmj.in.patterns.INPattern;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+
+/**
+ * Resolve the parameter names used in a function body to a (depth, slot) address
+ * in the function's frame, when the IN tree is built. The depth is the number of
+ * contexts that the body has pushed above the frame, and the slot is the index of
+ * the name in the frame's slot names. Only the expressions below are descended,
+ * and a name is not resolved where a local binding hides it, so everything else
+ * is left to the name lookup. The addresses are checked when they are used, so a
+ * frame that does not match also falls back to the name lookup.
+ */
+public class INSlotResolver extends INExpressionVisitor<INExpressionList, INSlotResolver.Scope>
+{
+	/**
+	 * The number of contexts pushed, and the names they bind.
+	 */
+	static class Scope
+	{
+		public final int depth;
+		public final TCNameList hidden;
+
+		public Scope(int depth, TCNameList hidden)
+		{
+			this.depth = depth;
+			this.hidden = hidden;
+		}
+
+		public Scope push(TCNameList names)
+		{
+			TCNameList all = new TCNameList();
+			all.addAll(hidden);
+			all.addAll(names);
+			return new Scope(depth + 1, all);
+		}
+	}
+
+	private final TCNameList slotNames;
+
+	public INSlotResolver(TCNameList slotNames)
+	{
+		this.slotNames = slotNames;
+	}
+
+	/**
+	 * Resolve the names in a function body, returning the variables resolved.
+	 */
+	public INExpressionList resolve(INExpression body)
+	{
+		return body.apply(this, new Scope(0, new TCNameList()));
+	}
+
+	@Override
+	public INExpressionList caseExpression(INExpression node, Scope scope)
+	{
+		return new INExpressionList();		// Not descended, so looked up by name
+	}
+
+	@Override
+	public INExpressionList caseVariableExpression(INVariableExpression node, Scope scope)
+	{
+		INExpressionList all = new INExpressionList();
+		int slot = slotNames.indexOf(node.name);
+
+		if (slot >= 0 && !scope.hidden.contains(node.name))
+		{
+			node.setSlot(slotNames, scope.depth, slot);
+			all.add(node);
+		}
+
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseUnaryExpression(INUnaryExpression node, Scope scope)
+	{
+		return node.exp.apply(this, scope);
+	}
+
+	@Override
+	public INExpressionList caseBinaryExpression(INBinaryExpression node, Scope scope)
+	{
+		INExpressionList all = node.left.apply(this, scope);
+		all.addAll(node.right.apply(this, scope));
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseApplyExpression(INApplyExpression node, Scope scope)
+	{
+		INExpressionList all = node.root.apply(this, scope);
+		all.addAll(caseList(node.args, scope));
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseIfExpression(INIfExpression node, Scope scope)
+	{
+		INExpressionList all = node.ifExp.apply(this, scope);
+		all.addAll(node.thenExp.apply(this, scope));
+
+		for (INElseIfExpression elseif: node.elseList)
+		{
+			all.addAll(elseif.apply(this, scope));
+		}
+
+		all.addAll(node.elseExp.apply(this, scope));
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseElseIfExpression(INElseIfExpression node, Scope scope)
+	{
+		INExpressionList all = node.elseIfExp.apply(this, scope);
+		all.addAll(node.thenExp.apply(this, scope));
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseCasesExpression(INCasesExpression node, Scope scope)
+	{
+		INExpressionList all = node.exp.apply(this, scope);
+
+		for (INCaseAlternative alt: node.cases)
+		{
+			// Each alternative evaluates in a "case alternative" context
+			all.addAll(alt.result.apply(this, scope.push(alt.pattern.getVariableNames())));
+		}
+
+		if (node.others != null)
+		{
+			all.addAll(node.others.apply(this, scope));
+		}
+
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseLetDefExpression(INLetDefExpression node, Scope scope)
+	{
+		TCNameList names = new TCNameList();
+
+		for (INDefinition def: node.localDefs)
+		{
+			if (def instanceof INValueDefinition)
+			{
+				names.addAll(((INValueDefinition)def).pattern.getVariableNames());
+			}
+			else
+			{
+				return caseExpression(node, scope);		// Local functions etc.
+			}
+		}
+
+		// The definitions and the body all evaluate in the "let expression" context
+		Scope inner = scope.push(names);
+		INExpressionList all = new INExpressionList();
+
+		for (INDefinition def: node.localDefs)
+		{
+			all.addAll(((INValueDefinition)def).exp.apply(this, inner));
+		}
+
+		all.addAll(node.expression.apply(this, inner));
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseForAllExpression(INForAllExpression node, Scope scope)
+	{
+		return caseQuantifier(node, node.bindList, node.predicate, scope);
+	}
+
+	@Override
+	public INExpressionList caseExistsExpression(INExistsExpression node, Scope scope)
+	{
+		return caseQuantifier(node, node.bindList, node.predicate, scope);
+	}
+
+	@Override
+	public INExpressionList caseFieldExpression(INFieldExpression node, Scope scope)
+	{
+		return node.object.apply(this, scope);
+	}
+
+	@Override
+	public INExpressionList caseFieldNumberExpression(INFieldNumberExpression node, Scope scope)
+	{
+		return node.tuple.apply(this, scope);
+	}
+
+	@Override
+	public INExpressionList caseIsExpression(INIsExpression node, Scope scope)
+	{
+		return node.test.apply(this, scope);
+	}
+
+	@Override
+	public INExpressionList caseMkTypeExpression(INMkTypeExpression node, Scope scope)
+	{
+		return caseList(node.args, scope);
+	}
+
+	@Override
+	public INExpressionList caseTupleExpression(INTupleExpression node, Scope scope)
+	{
+		return caseList(node.args, scope);
+	}
+
+	@Override
+	public INExpressionList caseSeqEnumExpression(INSeqEnumExpression node, Scope scope)
+	{
+		return caseList(node.members, scope);
+	}
+
+	@Override
+	public INExpressionList caseSetEnumExpression(INSetEnumExpression node, Scope scope)
+	{
+		return caseList(node.members, scope);
+	}
+
+	@Override
+	public INExpressionList caseSetRangeExpression(INSetRangeExpression node, Scope scope)
+	{
+		INExpressionList all = node.first.apply(this, scope);
+		all.addAll(node.last.apply(this, scope));
+		return all;
+	}
+
+	@Override
+	public INExpressionList caseSubseqExpression(INSubseqExpression node, Scope scope)
+	{
+		INExpressionList all = node.seq.apply(this, scope);
+		all.addAll(node.from.apply(this, scope));
+		all.addAll(node.to.apply(this, scope));
+		return all;
+	}
+
+	private INExpressionList caseList(INExpressionList list, Scope scope)
+	{
+		INExpressionList all = new INExpressionList();
+
+		for (INExpression exp: list)
+		{
+			all.addAll(exp.apply(this, scope));
+		}
+
+		return all;
+	}
+
+	private INExpressionList caseQuantifier(INExpression node,
+		INMultipleBindList bindList, INExpression predicate, Scope scope)
+	{
+		TCNameList names = new TCNameList();
+		INExpressionList all = new INExpressionList();
+
+		for (INMultipleBind bind: bindList)
+		{
+			// The bind values evaluate in the outer context
+			if (bind instanceof INMultipleSetBind)
+			{
+				all.addAll(((INMultipleSetBind)bind).set.apply(this, scope));
+			}
+			else if (bind instanceof INMultipleSeqBind)
+			{
+				all.addAll(((INMultipleSeqBind)bind).sequence.apply(this, scope));
+			}
+			else if (!(bind instanceof INMultipleTypeBind))
+			{
+				return caseExpression(node, scope);
+			}
+
+			for (INPattern p: bind.plist)
+			{
+				names.addAll(p.getVariableNames());
+			}
+		}
+
+		if (predicate != null)
+		{
+			// The predicate evaluates in a new context for each binding
+			all.addAll(predicate.apply(this, scope.push(names)));
+		}
+
+		return all;
+	}
+}
@@ -29,6 +29,7 @@ import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.values.SeqValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INSubseqExpression extends INExpression
 {
@@ -58,7 +59,7 @@ public class INSubseqExpression extends INExpression
 
 		try
 		{
-    		ValueList list = seq.eval(ctxt).seqValue(ctxt);
+    		ValueRope list = seq.eval(ctxt).seqRope(ctxt);
     		double fr = from.eval(ctxt).realValue(ctxt);
     		double tr = to.eval(ctxt).realValue(ctxt);
     		int fi = (int)Math.ceil(fr);
@@ -74,14 +75,12 @@ public class INSubseqExpression extends INExpression
     			ti = list.size();
     		}
 
-    		ValueList result = new ValueList();
-
     		if (fi <= ti)
     		{
-        		result.addAll(list.subList(fi-1, ti));
+        		return new SeqValue(list.slice(fi-1, ti));
     		}
 
-    		return new SeqValue(result);
+    		return new SeqValue();
 		}
 		catch (ValueException e)
 		{
@@ -28,7 +28,7 @@ import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.values.SeqValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INTailExpression extends INUnaryExpression
 {
@@ -50,11 +50,11 @@ public class INTailExpression extends INUnaryExpression
 	{
 		breakpoint.check(location, ctxt);
 
-		ValueList seq = null;
+		ValueRope seq = null;
 
 		try
 		{
-			seq = new ValueList(exp.eval(ctxt).seqValue(ctxt));
+			seq = exp.eval(ctxt).seqRope(ctxt);
 		}
 		catch (ValueException e)
 		{
@@ -66,8 +66,7 @@ public class INTailExpression extends INUnaryExpression
 			abort(4033, "Tail sequence is empty", ctxt);
 		}
 
-		seq.remove(0);
-		return new SeqValue(seq);
+		return new SeqValue(seq.tail());
 	}
 
 	@Override
@@ -36,12 +36,24 @@ public class INVariableExpression extends INExpression
 
 	public final TCNameToken name;
 
+	// The frame address of a function parameter, set by INSlotResolver
+	private TCNameList slotNames = null;
+	private int depth = 0;
+	private int slot = 0;
+
 	public INVariableExpression(TCNameToken name)
 	{
 		super(name.getLocation());
 		this.name = name;
 	}
 
+	public void setSlot(TCNameList slotNames, int depth, int slot)
+	{
+		this.slotNames = slotNames;
+		this.depth = depth;
+		this.slot = slot;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -52,6 +64,17 @@ public class INVariableExpression extends INExpression
 	public Value eval(Context ctxt)
 	{
 		breakpoint.check(location, ctxt);
+
+		if (slotNames != null)
+		{
+			Value v = ctxt.getSlot(slotNames, depth, slot);
+
+			if (v != null)
+			{
+				return v;
+			}
+		}
+
 		return ctxt.lookup(name);
 	}
 
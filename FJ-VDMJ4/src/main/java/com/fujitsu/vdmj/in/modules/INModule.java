@@ -25,8 +25,6 @@ package com.fujitsu.vdmj.in.modules;
 
 import java.io.File;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Set;
 
 import com.fujitsu.vdmj.in.INNode;
 import com.fujitsu.vdmj.in.definitions.INDefinition;
@@ -38,7 +36,6 @@ import com.fujitsu.vdmj.in.statements.INStatement;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.mapper.FileList;
 import com.fujitsu.vdmj.runtime.Context;
-import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.Delegate;
 import com.fujitsu.vdmj.runtime.StateContext;
 import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
@@ -138,80 +135,36 @@ public class INModule extends INNode implements Serializable
 	}
 
 	/**
-	 * Initialize the system for execution from this module. The initial
-	 * {@link Context} is created, and populated with name/value pairs from the
-	 * local definitions and the imported definitions. If state is defined
-	 * by the module, this is also initialized, creating the state Context.
-	 *
-	 * @return True if initialized OK.
+	 * The definitions that put values into the initial context, which are the
+	 * renamed imports and the module's own definitions, in declaration order.
 	 */
-	public Set<ContextException> initialize(StateContext initialContext)
+	INDefinitionList getInitialDefinitions()
 	{
-		Set<ContextException> trouble = new HashSet<ContextException>();
+		INDefinitionList list = new INDefinitionList();
 
 		for (INDefinition d: importdefs)
 		{
 			if (d instanceof INRenamedDefinition)
 			{
-				try
-				{
-					initialContext.putList(d.getNamedValues(initialContext));
-				}
-				catch (ContextException e)
-				{
-					trouble.add(e);		// Carry on...
-					
-					if (e.isStackOverflow())	// Stack overflow returns immediately
-					{
-						trouble.clear();
-						trouble.add(e);
-						return trouble;
-					}
-				}
+				list.add(d);
 			}
 		}
 
-		for (INDefinition d: defs)
-		{
-			try
-			{
-				initialContext.putList(d.getNamedValues(initialContext));
-			}
-			catch (ContextException e)
-			{
-				trouble.add(e);		// Carry on...
-				
-				if (e.isStackOverflow())	// Stack overflow returns immediately
-				{
-					trouble.clear();
-					trouble.add(e);
-					return trouble;
-				}
-			}
-		}
+		list.addAll(defs);
+		return list;
+	}
 
-		try
-		{
-			INStateDefinition sdef = defs.findStateDefinition();
+	/**
+	 * Initialize the module's state, if it has any.
+	 */
+	void initializeState(StateContext initialContext)
+	{
+		INStateDefinition sdef = defs.findStateDefinition();
 
-			if (sdef != null)
-			{
-				sdef.initState(initialContext);
-			}
-		}
-		catch (ContextException e)
+		if (sdef != null)
 		{
-			trouble.add(e);		// Carry on...
-			
-			if (e.isStackOverflow())	// Stack overflow returns immediately
-			{
-				trouble.clear();
-				trouble.add(e);
-				return trouble;
-			}
+			sdef.initState(initialContext);
 		}
-
-		return trouble;
 	}
 
 	/**
@@ -229,7 +182,7 @@ public class INModule extends INNode implements Serializable
 
 		for (INDefinition d: defs)
 		{
-			if (d.location.file.equals(file))
+			if (d.location.getFile().equals(file))
 			{
 				INStatement stmt = d.findStatement(lineno);
 
@@ -258,7 +211,7 @@ public class INModule extends INNode implements Serializable
 
 		for (INDefinition d: defs)
 		{
-			if (d.location.file.equals(file))
+			if (d.location.getFile().equals(file))
 			{
 				INExpression exp = d.findExpression(lineno);
 
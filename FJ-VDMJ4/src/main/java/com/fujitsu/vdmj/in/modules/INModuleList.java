@@ -25,12 +25,19 @@ package com.fujitsu.vdmj.in.modules;
 
 import java.io.File;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.INMappedList;
 import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INDefinitionList;
+import com.fujitsu.vdmj.in.definitions.INDefinitionOrder;
 import com.fujitsu.vdmj.in.definitions.INNamedTraceDefinition;
+import com.fujitsu.vdmj.in.definitions.INRenamedDefinition;
+import com.fujitsu.vdmj.in.definitions.INStateDefinition;
 import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.in.statements.INStatement;
 import com.fujitsu.vdmj.lex.LexLocation;
@@ -38,16 +45,23 @@ import com.fujitsu.vdmj.messages.Console;
 import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.runtime.RootContext;
 import com.fujitsu.vdmj.runtime.StateContext;
+import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
 import com.fujitsu.vdmj.tc.lex.TCIdentifierToken;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 import com.fujitsu.vdmj.util.Utils;
+import com.fujitsu.vdmj.values.FunctionValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
 
 public class INModuleList extends INMappedList<TCModule, INModule>
 {
 	private static final long serialVersionUID = 1L;
 
+	/** The definitions of all modules in dependency order, or null if not known. */
+	private INDefinitionOrder initOrder = null;
+
 	public INModuleList()
 	{
 		super();
@@ -56,6 +70,7 @@ public class INModuleList extends INMappedList<TCModule, INModule>
 	public INModuleList(TCModuleList from) throws Exception
 	{
 		super(from);
+		orderDefinitions(from);
 	}
 
 	@Override
@@ -66,7 +81,7 @@ public class INModuleList extends INMappedList<TCModule, INModule>
 
 	public Set<File> getSourceFiles()
 	{
-		Set<File> files = new HashSet<File>();
+		Set<File> files = new LinkedHashSet<File>();
 
 		for (INModule def: this)
 		{
@@ -142,61 +157,130 @@ public class INModuleList extends INMappedList<TCModule, INModule>
 		StateContext initialContext = (StateContext)ctxt;
 		initialContext.setThreadState(null);
 		Set<ContextException> problems = null;
-		Set<TCIdentifierToken> passed = new HashSet<TCIdentifierToken>();
-		int retries = 5;
+		int pass = 0;
+		boolean overflow = false;
 		boolean exceptions = Settings.exceptions;
 		Settings.exceptions = false;
 
-		do
+		INDefinitionList order = new INDefinitionList();
+
+		if (initOrder != null)
+		{
+			for (int i=0; i<initOrder.size(); i++)
+			{
+				order.add(initOrder.get(i));
+			}
+		}
+		else
+		{
+			for (INModule m: this)
+			{
+				order.addAll(m.getInitialDefinitions());
+			}
+		}
+
+		List<Integer> pending = new Vector<Integer>();
+		List<INModule> states = new Vector<INModule>(this);
+
+		for (int i=0; i<order.size(); i++)
 		{
+			pending.add(i);
+		}
+
+		// The definitions are in dependency order, so most specifications will
+		// initialize in one pass. But the free variables do not include every
+		// dependency, so each pass retries the definitions that failed in the
+		// last one, and we carry on as long as something succeeds. A pass that
+		// makes no progress means a real cycle or error.
+
+		while (true)
+		{
+			pass++;
 			problems = new HashSet<ContextException>();
+			List<Integer> failed = new Vector<Integer>();
+			List<INModule> unset = new Vector<INModule>();
+			long before = System.currentTimeMillis();
 
-        	for (INModule m: this)
-    		{
-        		if (passed.contains(m.name))
-        		{
-        			continue;
-        		}
-
-        		long before = System.currentTimeMillis();
-        		Set<ContextException> e = m.initialize(initialContext);
-        		long after = System.currentTimeMillis();
-        		
-        		if (Settings.verbose && (after-before) > 200)
-        		{
-        			Console.out.printf("Pass %d: %s = %.3f secs\n", (6-retries), m.name, (double)(after-before)/1000);
-        		}
-
-        		if (e != null)
-        		{
-        			problems.addAll(e);
-
-        			if (e.size() == 1 && e.iterator().next().isStackOverflow())
-        			{
-        				retries = 0;
-        				break;
-        			}
-        		}
-        		else
-        		{
-        			passed.add(m.name);
-        		}
-     		}
-        	
-        	if (Settings.verbose && !problems.isEmpty())
-        	{
-        		Console.out.printf("Pass %d:\n", (6-retries));
-
-    			for (ContextException e: problems)
-    			{
-    				Console.out.println(e);
-    			}        		
-        	}
-		}
-		while (--retries > 0 && !problems.isEmpty());
+			for (int i: pending)
+			{
+				try
+				{
+					initialContext.putList(order.get(i).getNamedValues(initialContext));
+				}
+				catch (ContextException e)
+				{
+					problems.add(e);	// Carry on...
+					failed.add(i);
+
+					if (e.isStackOverflow())	// Stack overflow returns immediately
+					{
+						problems.clear();
+						problems.add(e);
+						overflow = true;
+						break;
+					}
+				}
+			}
+
+			for (INModule m: states)
+			{
+				if (overflow)
+				{
+					break;
+				}
+
+				try
+				{
+					m.initializeState(initialContext);
+				}
+				catch (ContextException e)
+				{
+					problems.add(e);	// Carry on...
+					unset.add(m);
+
+					if (e.isStackOverflow())	// Stack overflow returns immediately
+					{
+						problems.clear();
+						problems.add(e);
+						overflow = true;
+					}
+				}
+			}
+
+			long after = System.currentTimeMillis();
+
+			if (Settings.verbose && (after-before) > 200)
+			{
+				Console.out.printf("Pass %d: %d definitions = %.3f secs\n", pass, pending.size(), (double)(after-before)/1000);
+			}
+
+			if (Settings.verbose && !problems.isEmpty())
+			{
+				Console.out.printf("Pass %d:\n", pass);
+
+				for (ContextException e: problems)
+				{
+					Console.out.println(e);
+				}
+			}
+
+			boolean progress = failed.size() + unset.size() < pending.size() + states.size();
+			pending = failed;
+			states = unset;
+
+			if (problems.isEmpty() || overflow || !progress)
+			{
+				break;
+			}
+		}
 
 		if (!problems.isEmpty())
 		{
+			if (!overflow && initOrder != null)
+			{
+				initOrder.reportCycles(pending);
+			}
+
 			ContextException toThrow = problems.iterator().next();
 
 			for (ContextException e: problems)
@@ -215,6 +299,134 @@ public class INModuleList extends INMappedList<TCModule, INModule>
 		Settings.exceptions = exceptions;
 	}
 
+	/**
+	 * Work out the order in which to initialize the definitions of all modules.
+	 * The renamed imports and definitions of each module are ordered together,
+	 * and otherwise stay in module and declaration order.
+	 */
+	private void orderDefinitions(TCModuleList from)
+	{
+		TCDefinitionList tcdefs = new TCDefinitionList();
+		INDefinitionList indefs = new INDefinitionList();
+		TCDefinitionList globals = new TCDefinitionList();
+
+		for (int m=0; m<size(); m++)
+		{
+			TCModule tcm = from.get(m);
+			INModule inm = get(m);
+
+			if (tcm.importdefs.size() != inm.importdefs.size() ||
+				tcm.defs.size() != inm.defs.size())
+			{
+				return;		// Not mapped one to one, so use declaration order
+			}
+
+			for (int d=0; d<tcm.importdefs.size(); d++)
+			{
+				if (inm.importdefs.get(d) instanceof INRenamedDefinition)
+				{
+					tcdefs.add(tcm.importdefs.get(d));
+					indefs.add(inm.importdefs.get(d));
+				}
+			}
+
+			tcdefs.addAll(tcm.defs);
+			indefs.addAll(inm.defs);
+			globals.addAll(tcm.importdefs);
+		}
+
+		for (TCModule m: from)
+		{
+			globals.addAll(m.defs);
+		}
+
+		initOrder = new INDefinitionOrder(tcdefs, indefs, globals);
+	}
+
+	/**
+	 * Save the state of every module, after initialization.
+	 */
+	public void saveState()
+	{
+		for (INModule m: this)
+		{
+			INStateDefinition sdef = m.defs.findStateDefinition();
+
+			if (sdef != null)
+			{
+				sdef.getState().save();
+			}
+		}
+	}
+
+	/**
+	 * Take a checkpoint of the current state of every module.
+	 */
+	public List<ValueList> checkpointState()
+	{
+		List<ValueList> states = new Vector<ValueList>();
+
+		for (INModule m: this)
+		{
+			INStateDefinition sdef = m.defs.findStateDefinition();
+
+			if (sdef != null)
+			{
+				states.add(sdef.getState().checkpoint());
+			}
+		}
+
+		return states;
+	}
+
+	/**
+	 * Restore the state of every module from a checkpoint.
+	 */
+	public void restoreState(RootContext ctxt, List<ValueList> states)
+	{
+		int i = 0;
+
+		for (INModule m: this)
+		{
+			INStateDefinition sdef = m.defs.findStateDefinition();
+
+			if (sdef != null)
+			{
+				sdef.getState().restore(ctxt, states.get(i++));
+			}
+		}
+	}
+
+	/**
+	 * Restore the state of every module, as saved by saveState. The values of the
+	 * global context are not re-evaluated, since they are constant, but any
+	 * measure values left by failed function calls are discarded.
+	 * 
+	 * @return false if there is no saved state, and so a full initialize is needed.
+	 */
+	public boolean restoreState(RootContext ctxt)
+	{
+		for (INModule m: this)
+		{
+			INStateDefinition sdef = m.defs.findStateDefinition();
+
+			if (sdef != null && !sdef.getState().restore(ctxt))
+			{
+				return false;
+			}
+		}
+
+		for (Value v: ctxt.values())
+		{
+			if (v instanceof FunctionValue)
+			{
+				((FunctionValue)v).resetMeasure();
+			}
+		}
+
+		return true;
+	}
+
 	public INNamedTraceDefinition findTraceDefinition(TCNameToken name)
 	{
 		for (INModule m: this)
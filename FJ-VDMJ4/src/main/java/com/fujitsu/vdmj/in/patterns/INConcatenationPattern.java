@@ -23,7 +23,6 @@
 
 package com.fujitsu.vdmj.in.patterns;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.Vector;
 
@@ -41,7 +40,7 @@ import com.fujitsu.vdmj.values.NameValuePairList;
 import com.fujitsu.vdmj.values.NameValuePairMap;
 import com.fujitsu.vdmj.values.SeqValue;
 import com.fujitsu.vdmj.values.Value;
-import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
 
 public class INConcatenationPattern extends INPattern
 {
@@ -74,11 +73,11 @@ public class INConcatenationPattern extends INPattern
 	public List<NameValuePairList> getAllNamedValues(Value expval, Context ctxt)
 		throws PatternMatchException
 	{
-		ValueList values = null;
+		ValueRope values = null;
 
 		try
 		{
-			values = expval.seqValue(ctxt);
+			values = expval.seqRope(ctxt);
 		}
 		catch (ValueException e)
 		{
@@ -158,20 +157,8 @@ public class INConcatenationPattern extends INPattern
 
 		for (Integer lsize: leftSizes)
 		{
-			Iterator<Value> iter = values.iterator();
-			ValueList head = new ValueList();
-
-			for (int i=0; i<lsize; i++)
-			{
-				head.add(iter.next());
-			}
-
-			ValueList tail = new ValueList();
-
-			while (iter.hasNext())	// Everything else in second
-			{
-				tail.add(iter.next());
-			}
+			ValueRope head = values.slice(0, lsize);
+			ValueRope tail = values.slice(lsize, size);		// Everything else in second
 
 			List<List<NameValuePairList>> nvplists = new Vector<List<NameValuePairList>>();
 			int psize = 2;
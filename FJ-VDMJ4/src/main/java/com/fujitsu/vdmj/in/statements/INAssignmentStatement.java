@@ -32,6 +32,7 @@ import com.fujitsu.vdmj.messages.RTLogger;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.values.MapValue;
 import com.fujitsu.vdmj.values.ObjectValue;
 import com.fujitsu.vdmj.values.Value;
 import com.fujitsu.vdmj.values.VoidValue;
@@ -66,6 +67,11 @@ public class INAssignmentStatement extends INStatement
 		Value newval = exp.eval(ctxt);
 		Value oldval = target.eval(ctxt);
 
+		if (newval instanceof MapValue)
+		{
+			newval = ((MapValue)newval).assignedTo(oldval);	// Shares oldval's trie
+		}
+
 		try
 		{
 			oldval.set(location, newval.convertTo(targetType, ctxt), ctxt);
@@ -61,7 +61,7 @@ public class INNotYetSpecifiedStatement extends INStatement
 		if (Settings.dialect == Dialect.VDM_SL)
 		{
 			ModuleInterpreter i = (ModuleInterpreter)Interpreter.getInstance();
-			INModule module = i.findModule(location.module);
+			INModule module = i.findModule(location.getModule());
 
 			if (module != null)
 			{
@@ -78,7 +78,7 @@ public class INNotYetSpecifiedStatement extends INStatement
     		if (self == null)
     		{
     			ClassInterpreter i = (ClassInterpreter)Interpreter.getInstance();
-    			INClassDefinition cls = i.findClass(location.module);
+    			INClassDefinition cls = i.findClass(location.getModule());
 
     			if (cls != null)
     			{
@@ -97,7 +97,7 @@ public class INNotYetSpecifiedStatement extends INStatement
     		}
 		}
 
-		if (location.module.equals("CPU"))
+		if (location.getModule().equals("CPU"))
 		{
     		try
 			{
@@ -36,7 +36,7 @@ public class INObjectSelfDesignator extends INObjectDesignator
 	public INObjectSelfDesignator(LexLocation location)
 	{
 		super(location);
-		self = new TCNameToken(location, location.module, "self");
+		self = new TCNameToken(location, location.getModule(), "self");
 	}
 
 	@Override
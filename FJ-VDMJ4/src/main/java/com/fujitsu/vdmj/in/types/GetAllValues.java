@@ -233,7 +233,7 @@ public class GetAllValues
 		{
 			MapValue vm = (MapValue)map;
 			
-			if (vm.values.isInjective())
+			if (vm.mapValue(ctxt).isInjective())
 			{
 				result.add(vm);
 			}
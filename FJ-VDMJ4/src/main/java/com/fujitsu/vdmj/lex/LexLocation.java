@@ -27,13 +27,18 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fujitsu.vdmj.ast.lex.LexNameList;
 import com.fujitsu.vdmj.ast.lex.LexNameToken;
@@ -46,22 +51,112 @@ public class LexLocation implements Serializable
 {
 	private static final long serialVersionUID = 1L;
 
-	/** An ordered collection of all LexLocation objects. */
-	private static List<LexLocation> allLocations = new Vector<LexLocation>();
-	
-	/** A unique map of LexLocation objects, for rapid searching. */
-	private static Map<LexLocation, LexLocation> uniqueLocations = new HashMap<LexLocation, LexLocation>();
+	/** The registry of the specification being loaded. */
+	private static Registry registry = new Registry();
+
+	/** The locations created by a thread that collects its own, if any. */
+	private static ThreadLocal<ThreadLocations> threadLocations = new ThreadLocal<ThreadLocations>();
+
+	/** The files and module names of all locations, indexed by their source field. */
+	private static volatile Source[] sources = new Source[0];
 
-	/** A map of f/op/class names to their lexical span, for coverage. */
-	private static Map<LexNameToken, LexLocation> nameSpans = new HashMap<LexNameToken, LexLocation>();
+	/** The index of each Source in the sources array. */
+	private static final Map<Source, Integer> sourceIndex = new ConcurrentHashMap<Source, Integer>();
 
-	/** True if the location is executable. */
-	private boolean executable = false;
+	/** The bit of the source field that is set for executable locations. */
+	private static final int EXECUTABLE = 0x80000000;
+
+	/**
+	 * The locations and name spans of one specification. Every location is added
+	 * to the current registry when it is created, so a new registry is started by
+	 * resetLocations when a specification is loaded again, and the previous one is
+	 * released with the trees that refer to its locations.
+	 */
+	public static class Registry
+	{
+		/** An ordered collection of all LexLocation objects. */
+		private final List<LexLocation> allLocations = new Vector<LexLocation>();
+
+		/** A unique map of LexLocation objects, built when it is first needed. */
+		private Map<LexLocation, LexLocation> uniqueLocations = null;
+
+		/** A map of f/op/class names to their lexical span, for coverage. */
+		private final Map<LexNameToken, LexLocation> nameSpans = new HashMap<LexNameToken, LexLocation>();
+
+		private void add(LexLocation location)
+		{
+			allLocations.add(location);
+			uniqueLocations = null;
+		}
+
+		private Map<LexLocation, LexLocation> getUniqueLocations()
+		{
+			if (uniqueLocations == null)
+			{
+				uniqueLocations = new HashMap<LexLocation, LexLocation>();
+
+				for (LexLocation l: allLocations)
+				{
+					uniqueLocations.put(l, l);
+				}
+			}
+
+			return uniqueLocations;
+		}
+	}
+
+	/**
+	 * The locations and spans created by one thread, between startThreadLocations
+	 * and endThreadLocations. These are added to the current registry later, by
+	 * addLocations, so that a file that is parsed once can be registered again
+	 * with each check that uses it, as the language server does.
+	 */
+	public static class ThreadLocations
+	{
+		private final List<LexLocation> locations = new Vector<LexLocation>();
+		private final List<LexNameToken> spanNames = new Vector<LexNameToken>();
+		private final List<LexLocation> spans = new Vector<LexLocation>();
+	}
+
+	/**
+	 * A file and module name. Locations hold the index of their Source, which is
+	 * shared by all of the locations of a module, rather than two references.
+	 */
+	private static class Source
+	{
+		public final File file;
+		public final String module;
+
+		public Source(File file, String module)
+		{
+			this.file = file;
+			this.module = module;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Source)
+			{
+				Source sother = (Source)other;
+
+				return file.equals(sother.file) &&
+					(module == null ? sother.module == null : module.equals(sother.module));
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return file.hashCode() + (module == null ? 0 : module.hashCode());
+		}
+	}
+
+	/** The index of the file and module, plus the EXECUTABLE bit. */
+	private transient int source;
 
-	/** The filename of the token. */
-	public final File file;
-	/** The module/class name of the token. */
-	public final String module;
 	/** The line number of the start of the token. */
 	public final int startLine;
 	/** The character position of the start of the token. */
@@ -80,8 +175,7 @@ public class LexLocation implements Serializable
 	public LexLocation(File file, String module,
 		int startLine, int startPos, int endLine, int endPos)
 	{
-		this.file = file;
-		this.module = module;
+		this.source = intern(file, module);
 		this.startLine = startLine;
 		this.startPos = startPos;
 		this.endLine = endLine;
@@ -90,8 +184,16 @@ public class LexLocation implements Serializable
 		if (!file.getName().equals("console") &&
 			!file.getName().equals("?"))	// Don't remember junk
 		{
-			allLocations.add(this);
-			uniqueLocations.put(this, this);
+			ThreadLocations local = threadLocations.get();
+
+			if (local != null)
+			{
+				local.locations.add(this);
+			}
+			else
+			{
+				registry.add(this);
+			}
 		}
 	}
 
@@ -103,9 +205,53 @@ public class LexLocation implements Serializable
 		this(new File("?"), "?", 0, 0, 0, 0);
 	}
 
+	private static int intern(File file, String module)
+	{
+		Source key = new Source(file, module);
+		Integer index = sourceIndex.get(key);
+
+		if (index == null)
+		{
+			synchronized (sourceIndex)
+			{
+				index = sourceIndex.get(key);
+
+				if (index == null)
+				{
+					index = sources.length;
+					Source[] extended = Arrays.copyOf(sources, index + 1);
+					extended[index] = key;
+					sources = extended;
+					sourceIndex.put(key, index);
+				}
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * The filename of the token.
+	 */
+	public File getFile()
+	{
+		return sources[source & ~EXECUTABLE].file;
+	}
+
+	/**
+	 * The module/class name of the token.
+	 */
+	public String getModule()
+	{
+		return sources[source & ~EXECUTABLE].module;
+	}
+
 	@Override
 	public String toString()
 	{
+		File file = getFile();
+		String module = getModule();
+
 		if (file.getPath().equals("?"))
 		{
 			return "";		// Default LexLocation has no location string
@@ -122,7 +268,7 @@ public class LexLocation implements Serializable
 
 	public String toShortString()
 	{
-		if (file.getPath().equals("?"))
+		if (getFile().getPath().equals("?"))
 		{
 			return "";		// Default LexLocation has no location string
 		}
@@ -141,8 +287,7 @@ public class LexLocation implements Serializable
 
 			return  startPos == lother.startPos &&
 					startLine == lother.startLine &&
-					module.equals(lother.module) &&
-					file.equals(lother.file);
+					sameSource(lother);
 		}
 
 		return false;
@@ -151,7 +296,31 @@ public class LexLocation implements Serializable
 	@Override
 	public int hashCode()
 	{
-		return file.hashCode() + module.hashCode() + startLine + startPos;
+		return getFile().hashCode() + getModule().hashCode() + startLine + startPos;
+	}
+
+	private boolean sameSource(LexLocation other)
+	{
+		return ((source ^ other.source) & ~EXECUTABLE) == 0;
+	}
+
+	/**
+	 * The source index is only meaningful in one JVM, so the file and module
+	 * name are written instead, and interned again when they are read.
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		out.writeObject(getFile());
+		out.writeObject(getModule());
+		out.writeBoolean(isExecutable());
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		source = intern((File)in.readObject(), (String)in.readObject());
+		executable(in.readBoolean());
 	}
 
 	/**
@@ -160,7 +329,7 @@ public class LexLocation implements Serializable
 	 */
 	private Object readResolve() throws ObjectStreamException
 	{
-		LexLocation existing = uniqueLocations.get(this);
+		LexLocation existing = registry.getUniqueLocations().get(this);
 		
 		if (existing == null)
 		{
@@ -179,32 +348,130 @@ public class LexLocation implements Serializable
 				(startLine == span.startLine && startPos >= span.startPos)) &&
 			(startLine < span.endLine ||
 				(startLine == span.endLine && startPos < span.endPos)) &&
-			file.equals(span.file);
+			sameSource(span);
 	}
 
 	public void executable(boolean exe)
 	{
-		executable = exe;
+		if (exe)
+		{
+			source |= EXECUTABLE;
+		}
+		else
+		{
+			source &= ~EXECUTABLE;
+		}
+	}
+
+	public boolean isExecutable()
+	{
+		return (source & EXECUTABLE) != 0;
 	}
 
 	public void hit()
 	{
-		if (executable) hits++;
+		if (isExecutable()) hits++;
 	}
 
 	public static void clearLocations()
 	{
-		for (LexLocation loc: allLocations)
+		for (LexLocation loc: registry.allLocations)
 		{
 			loc.hits = 0;
 		}
 	}
 
+	/**
+	 * Start a new registry, releasing the locations and spans of the previous
+	 * one. This is called when a specification is loaded again.
+	 */
 	public static void resetLocations()
 	{
-		allLocations = new Vector<LexLocation>();
-		uniqueLocations = new HashMap<LexLocation, LexLocation>();
-		nameSpans =	new HashMap<LexNameToken, LexLocation>();
+		registry = new Registry();
+	}
+
+	/**
+	 * Get and set the current registry, for clients that hold more than one
+	 * specification at a time.
+	 */
+	public static Registry getRegistry()
+	{
+		return registry;
+	}
+
+	public static void setRegistry(Registry current)
+	{
+		registry = current;
+	}
+
+	/**
+	 * Return the locations of one file, or of every file if null, in the order
+	 * that they were created.
+	 */
+	public static List<LexLocation> getLocations(File file)
+	{
+		List<LexLocation> locations = new Vector<LexLocation>();
+
+		for (LexLocation l: registry.allLocations)
+		{
+			if (file == null || l.getFile().equals(file))
+			{
+				locations.add(l);
+			}
+		}
+
+		return locations;
+	}
+
+	/**
+	 * Return the name spans of one file, or of every file if null.
+	 */
+	public static Map<LexNameToken, LexLocation> getSpans(File file)
+	{
+		Map<LexNameToken, LexLocation> spans = new HashMap<LexNameToken, LexLocation>();
+
+		for (Entry<LexNameToken, LexLocation> entry: registry.nameSpans.entrySet())
+		{
+			if (file == null || entry.getValue().getFile().equals(file))
+			{
+				spans.put(entry.getKey(), entry.getValue());
+			}
+		}
+
+		return spans;
+	}
+
+	/**
+	 * Collect the locations created by the calling thread separately, until
+	 * endThreadLocations is called.
+	 */
+	public static void startThreadLocations()
+	{
+		threadLocations.set(new ThreadLocations());
+	}
+
+	public static ThreadLocations endThreadLocations()
+	{
+		ThreadLocations local = threadLocations.get();
+		threadLocations.remove();
+		return local;
+	}
+
+	/**
+	 * Register the locations and spans collected by a thread, as though they had
+	 * been created by the calling thread now.
+	 */
+	public static void addLocations(ThreadLocations local)
+	{
+		for (LexLocation l: local.locations)
+		{
+			registry.add(l);
+		}
+
+		for (int i=0; i<local.spans.size(); i++)
+		{
+			putSpan(local.spanNames.get(i), local.spans.get(i));
+		}
 	}
 
 	public static void clearAfter(File file, int linecount, int charpos)
@@ -213,14 +480,15 @@ public class LexLocation implements Serializable
 		// locations "popped". We assume any pushes are on the end of
 		// the vector.
 
-		ListIterator<LexLocation> it =
-			allLocations.listIterator(allLocations.size());
+		ThreadLocations local = threadLocations.get();
+		List<LexLocation> list = (local != null ? local.locations : registry.allLocations);
+		ListIterator<LexLocation> it = list.listIterator(list.size());
 
 		while (it.hasPrevious())
 		{
 			LexLocation l = it.previous();
 
-			if (!l.file.equals(file) ||
+			if (!l.getFile().equals(file) ||
 				l.startLine < linecount ||
 				(l.startLine == linecount && l.startPos < charpos))
 			{
@@ -229,7 +497,11 @@ public class LexLocation implements Serializable
 			else
 			{
 				it.remove();
-				uniqueLocations.remove(l);
+
+				if (local == null)
+				{
+					registry.uniqueLocations = null;
+				}
 			}
 		}
 	}
@@ -237,36 +509,51 @@ public class LexLocation implements Serializable
 	public static void addSpan(LexNameToken name, LexToken upto)
 	{
 		LexLocation span = new LexLocation(
-			name.location.file,
-			name.location.module,
+			name.location.getFile(),
+			name.location.getModule(),
 			name.location.startLine,
 			name.location.startPos,
 			upto.location.endLine,
 			upto.location.endPos);
-		
-		if (nameSpans.get(name) != null)
+
+		ThreadLocations local = threadLocations.get();
+
+		if (local != null)
+		{
+			local.spanNames.add(name);
+			local.spans.add(span);
+		}
+		else
+		{
+			putSpan(name, span);
+		}
+	}
+
+	private static void putSpan(LexNameToken name, LexLocation span)
+	{
+		if (registry.nameSpans.get(name) != null)
 		{
 			// Overloaded names use line numbers to distinguish them
 			name = new LexNameToken(name.module, name.name + ":" + name.location.startLine, name.location);
 		}
 		
-		nameSpans.put(name, span);
+		registry.nameSpans.put(name, span);
 	}
 	
 	public static LexLocation getSpan(LexNameToken name)
 	{
-		return nameSpans.get(name);
+		return registry.nameSpans.get(name);
 	}
 	
 	public static LexNameList getSpanNames(File filename)
 	{
 		LexNameList list = new LexNameList();
 
-		for (LexNameToken name: nameSpans.keySet())
+		for (LexNameToken name: registry.nameSpans.keySet())
 		{
-			LexLocation span = nameSpans.get(name);
+			LexLocation span = registry.nameSpans.get(name);
 
-			if (span.file.equals(filename))
+			if (span.getFile().equals(filename))
 			{
 				list.add(name);
 			}
@@ -279,11 +566,11 @@ public class LexLocation implements Serializable
 	{
 		int hits = 0;
 		int misses = 0;
-		LexLocation span = nameSpans.get(name);
+		LexLocation span = registry.nameSpans.get(name);
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.executable && l.within(span))
+			if (l.isExecutable() && l.within(span))
 			{
 				if (l.hits > 0)
     			{
@@ -305,11 +592,11 @@ public class LexLocation implements Serializable
 		// The assumption is that the first executable location in
 		// the span for the name is hit as many time as the span is called.
 
-		LexLocation span = nameSpans.get(name);
+		LexLocation span = registry.nameSpans.get(name);
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.executable && l.within(span))
+			if (l.isExecutable() && l.within(span))
 			{
 				return l.hits;
 			}
@@ -322,9 +609,9 @@ public class LexLocation implements Serializable
 	{
 		List<Integer> hits = new Vector<Integer>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.hits > 0 && l.file.equals(file))
+			if (l.hits > 0 && l.getFile().equals(file))
 			{
 				hits.add(l.startLine);
 			}
@@ -337,9 +624,9 @@ public class LexLocation implements Serializable
 	{
 		List<Integer> misses = new Vector<Integer>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.hits == 0 && l.file.equals(file))
+			if (l.hits == 0 && l.getFile().equals(file))
 			{
 				misses.add(l.startLine);
 			}
@@ -353,9 +640,9 @@ public class LexLocation implements Serializable
 		List<Integer> lines = new Vector<Integer>();
 		int last = 0;
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.executable && l.startLine != last && l.file.equals(file))
+			if (l.isExecutable() && l.startLine != last && l.getFile().equals(file))
 			{
 				lines.add(l.startLine);
 				last = l.startLine;
@@ -370,9 +657,9 @@ public class LexLocation implements Serializable
 		Map<Integer, List<LexLocation>> map =
 				new HashMap<Integer, List<LexLocation>>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.executable && l.hits > 0 && l.file.equals(file))
+			if (l.isExecutable() && l.hits > 0 && l.getFile().equals(file))
 			{
 				List<LexLocation> list = map.get(l.startLine);
 
@@ -394,9 +681,9 @@ public class LexLocation implements Serializable
 		int hits = 0;
 		int misses = 0;
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.file.equals(file) && l.executable)
+			if (l.getFile().equals(file) && l.isExecutable())
 			{
 				if (l.hits > 0)
     			{
@@ -418,9 +705,9 @@ public class LexLocation implements Serializable
 		Map<Integer, List<LexLocation>> map =
 				new HashMap<Integer, List<LexLocation>>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.executable && l.hits == 0 && l.file.equals(file))
+			if (l.isExecutable() && l.hits == 0 && l.getFile().equals(file))
 			{
 				List<LexLocation> list = map.get(l.startLine);
 
@@ -441,9 +728,9 @@ public class LexLocation implements Serializable
 	{
 		List<LexLocation> locations = new Vector<LexLocation>();
 
-		for (LexLocation l: allLocations)
+		for (LexLocation l: registry.allLocations)
 		{
-			if (l.executable && l.file.equals(file))
+			if (l.isExecutable() && l.getFile().equals(file))
 			{
 				locations.add(l);
 			}
@@ -223,7 +223,7 @@ public class LexTokenReader extends BacktrackInputReader
 	{
 		super(content);
 		this.currentModule = reader.currentModule;
-		this.file = location.file;
+		this.file = location.getFile();
 		this.dialect = reader.dialect;
 		rdCh();
 		this.linecount = location.startLine;
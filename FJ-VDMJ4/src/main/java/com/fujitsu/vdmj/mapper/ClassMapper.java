@@ -24,19 +24,22 @@
 package com.fujitsu.vdmj.mapper;
 
 import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.URL;
+import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.Stack;
 import java.util.Vector;
 
 /**
@@ -47,14 +50,25 @@ public class ClassMapper
 	/** The mappers that have already been loaded, indexed by resource name */
 	private final static Map<String, ClassMapper> mappers = new HashMap<String, ClassMapper>();
 	
+	/** Used to create the method handles that access fields, constructors and setters */
+	private final static MethodHandles.Lookup lookup = MethodHandles.lookup();
+	
 	/**
-	 * These caches hold the object references converted so far, and keep a stack of
-	 * the objects that are currently being processed.
+	 * These caches hold the object references converted so far, and the objects
+	 * that are currently being processed, indexed by their identity.
 	 */
-	private final Stack<Progress> inProgress = new Stack<Progress>();
+	private final Map<Object, Progress> inProgress = new IdentityHashMap<Object, Progress>();
 	
 	private final Map<Long, Object> converted = new HashMap<Long, Object>();
 	
+	/**
+	 * The conversions kept between calls to convertIncremental, indexed by the
+	 * caller's key, and the IDs converted for the current incremental root, if any.
+	 */
+	private final Map<String, Retained> retained = new HashMap<String, Retained>();
+	
+	private List<Long> owned = null;
+	
 	private long loadTimeMs;
 
 	/**
@@ -80,6 +94,7 @@ public class ClassMapper
 	{
 		inProgress.clear();
 		converted.clear();
+		retained.clear();
 		
 		for (Method m: initializers)
 		{
@@ -142,7 +157,9 @@ public class ClassMapper
 	
 	/**
 	 * A class to define how to construct one destPackage class, passing srcPackage
-	 * object fields to the Constructor and setter methods.
+	 * object fields to the Constructor and setter methods. The fields, constructor
+	 * and setters are accessed via method handles, which are created once, when the
+	 * mappings are loaded.
 	 */
 	private static class MapParams
 	{
@@ -153,8 +170,10 @@ public class ClassMapper
 		public final List<Field> setterFields;
 		public final boolean unmapped;
 
-		public Constructor<?> constructor;
-		public Method[] setters;
+		public MethodHandle constructor;	// (Object[]) -> Object
+		public MethodHandle[] ctorGetters;	// (Object) -> Object, or null for "this"
+		public MethodHandle[] setterGetters;	// (Object) -> Object
+		public MethodHandle[] setters;		// (Object, Object) -> void
 
 		public MapParams(int lineNo, Class<?> srcClass, Class<?> destClass,
 				List<Field> ctorFields, List<Field> setterFields, boolean unmapped)
@@ -459,7 +478,18 @@ public class ClassMapper
 				try
 				{
 					lineNo = mp.lineNo;		// For error reporting :)
-					mp.constructor = mp.destClass.getConstructor(paramTypes);
+					mp.constructor = constructorHandle(mp.destClass.getConstructor(paramTypes));
+					mp.ctorGetters = new MethodHandle[mp.ctorFields.size()];
+					a = 0;
+					
+					for (Field field: mp.ctorFields)
+					{
+						mp.ctorGetters[a++] = (field == SELF) ? null : getterHandle(field);
+					}
+				}
+				catch (IllegalAccessException e)
+				{
+					error("Cannot access constructor: " + mp.destClass.getSimpleName() + "(" + typeString(paramTypes) + ")");
 				}
 				catch (NoSuchMethodException e)
 				{
@@ -482,7 +512,8 @@ public class ClassMapper
 					System.err.println();
 				}
 				
-				mp.setters = new Method[mp.setterFields.size()];
+				mp.setters = new MethodHandle[mp.setterFields.size()];
+				mp.setterGetters = new MethodHandle[mp.setterFields.size()];
 				a = 0;
 				
 				for (Field field: mp.setterFields)
@@ -506,18 +537,53 @@ public class ClassMapper
 					try
 					{
 						lineNo = mp.lineNo;		// For error reporting :)
-						mp.setters[a++] = mp.destClass.getMethod("set" + name, argType);
+						mp.setterGetters[a] = getterHandle(field);
+						mp.setters[a++] = setterHandle(mp.destClass.getMethod("set" + name, argType));
 					}
 					catch (NoSuchMethodException e)
 					{
 						error("No such setter: " + mp.destClass.getSimpleName() +
 								".set" + name + "(" + argType.getSimpleName() + ")");
 					}
+					catch (IllegalAccessException e)
+					{
+						error("Cannot access setter: " + mp.destClass.getSimpleName() +
+								".set" + name + "(" + argType.getSimpleName() + ")");
+					}
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Create a handle to read a field, with the generic type (Object) -> Object.
+	 */
+	private MethodHandle getterHandle(Field field) throws IllegalAccessException
+	{
+		field.setAccessible(true);
+		MethodHandle getter = lookup.unreflectGetter(field);
+		return getter.asType(MethodType.methodType(Object.class, Object.class));
+	}
+	
+	/**
+	 * Create a handle to call a constructor, with the generic type (Object[]) -> Object.
+	 */
+	private MethodHandle constructorHandle(Constructor<?> ctor) throws IllegalAccessException
+	{
+		MethodHandle constructor = lookup.unreflectConstructor(ctor);
+		constructor = constructor.asType(constructor.type().generic());
+		return constructor.asSpreader(Object[].class, ctor.getParameterTypes().length);
+	}
+	
+	/**
+	 * Create a handle to call a setter, with the generic type (Object, Object) -> void.
+	 */
+	private MethodHandle setterHandle(Method setter) throws IllegalAccessException
+	{
+		MethodHandle handle = lookup.unreflect(setter);
+		return handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+	}
+	
 	private String typeString(Class<?>[] paramTypes)
 	{
 		StringBuffer sb = new StringBuffer();
@@ -615,10 +681,11 @@ public class ClassMapper
     		}
 		}
 		
+		Progress myProgress = new Progress(source);
+		Progress outerProgress = inProgress.put(source, myProgress);
+		
 		try
 		{
-    		inProgress.push(new Progress(source));
-    		
     		Class<?> srcClass = source.getClass();
     		MapParams mp = mappings.get(srcClass);
     
@@ -632,98 +699,82 @@ public class ClassMapper
     		}
     		else
     		{
-    			Object[] args = new Object[mp.ctorFields.size()];
-    			int a = 0;
+    			Object[] values = new Object[mp.ctorGetters.length];
+    			Object[] args = new Object[values.length];
     
-    			for (Field field: mp.ctorFields)
+    			for (int a = 0; a < values.length; a++)
     			{
-    				if (field == SELF)	// ie. "this"
+    				if (mp.ctorGetters[a] == null)	// ie. "this"
     				{
-    					args[a++] = source;
+    					args[a] = source;
     				}
     				else
     				{
-						field.setAccessible(true);
-    					Object fieldvalue = field.get(source);
+    					values[a] = (Object) mp.ctorGetters[a].invokeExact(source);
     					
-    					if (isInProgress(fieldvalue) == null)
-    					{
-    						args[a++] = convert(fieldvalue);
-    					}
-    					else
+    					if (!isInProgress(values[a]))
     					{
-    						args[a++] = null;
+    						args[a] = convert(values[a]);
     					}
     				}
     			}
     			
-    			result = (T) mp.constructor.newInstance(args);
-    			int s = 0;
+    			result = (T) (Object) mp.constructor.invokeExact(args);
+    			Object[] setvalues = new Object[mp.setters.length];
     			
-    			for (Field setter: mp.setterFields)
+    			for (int s = 0; s < setvalues.length; s++)
     			{
-					setter.setAccessible(true);
-					Object fieldvalue = setter.get(source);
+    				setvalues[s] = (Object) mp.setterGetters[s].invokeExact(source);
 					Object arg = null;
 					
-					if (isInProgress(fieldvalue) == null)
-					{
-						arg = convert(fieldvalue);
-					}
-					else
+					if (!isInProgress(setvalues[s]))
 					{
-						arg = null;
+						arg = convert(setvalues[s]);
 					}
 					
-    				mp.setters[s++].invoke(result, arg);
+    				mp.setters[s].invokeExact((Object) result, arg);
     			}
  
-    			for (Field field: mp.ctorFields)
+    			for (int a = 0; a < values.length; a++)
     			{
-    				if (field != SELF)
+    				if (mp.ctorGetters[a] != null)
     				{
-    					Progress progress = isInProgress(field.get(source));
-    
-    					if (progress != null)
-    					{
-            				progress.updates.add(new Pair(result, field.getName()));
-            			}
+    					addUpdate(values[a], result, mp.ctorFields.get(a));
     				}
     			}
     			 
-    			for (Field field: mp.setterFields)
+    			for (int s = 0; s < setvalues.length; s++)
     			{
-					Progress progress = isInProgress(field.get(source));
-
-					if (progress != null)
-					{
-        				progress.updates.add(new Pair(result, field.getName()));
-        			}
+    				addUpdate(setvalues[s], result, mp.setterFields.get(s));
     			}
      		}
 		}
-		catch (InvocationTargetException e)
+		catch (Exception e)
 		{
-			if (e.getCause() instanceof Exception)
-			{
-				throw (Exception)e.getCause();
-			}
-			else if (e.getTargetException() instanceof Exception)
+			throw e;
+		}
+		catch (Error e)
+		{
+			throw e;
+		}
+		catch (Throwable e)
+		{
+			throw new Exception(e);		// Method handles can throw anything
+		}
+		finally
+		{
+			if (outerProgress == null)
 			{
-				throw (Exception)e.getTargetException();
+				inProgress.remove(source);
 			}
 			else
 			{
-				throw e;
+				inProgress.put(source, outerProgress);
 			}
-		}
-		finally
-		{
-			Progress progress = inProgress.pop();
 			
-			if (!progress.updates.isEmpty())
+			if (!myProgress.updates.isEmpty())
 			{
-				for (Pair pair: progress.updates)
+				for (Pair pair: myProgress.updates)
 				{
 					Field f = pair.object.getClass().getField(pair.fieldname);
 					f.setAccessible(true);
@@ -735,26 +786,133 @@ public class ClassMapper
 			{
 				MappedObject mo = (MappedObject)source;
 				converted.put(mo.getMappedId(), result);
+				
+				if (owned != null)
+				{
+					owned.add(mo.getMappedId());
+				}
 			}
 		}
 		
 		return result;
 	}
+	
+	/**
+	 * Private class to hold the conversion of one root object by convertIncremental,
+	 * with the IDs of all the objects that were converted with it.
+	 */
+	private static class Retained
+	{
+		public final Object source;
+		public final String hash;
+		public final Object result;
+		public final List<Long> ids;
+		
+		public Retained(Object source, String hash, Object result, List<Long> ids)
+		{
+			this.source = source;
+			this.hash = hash;
+			this.result = result;
+			this.ids = ids;
+		}
+	}
+	
+	/**
+	 * Convert a root object, like a module or a class, re-using the result of a
+	 * previous call with the same key if the source has the same hash of its source
+	 * text, or if no hashes are given, if the source is the same object. Otherwise
+	 * the previous conversion is forgotten and the root is converted again. The
+	 * conversions of other roots are kept, so references from a new conversion to
+	 * objects converted with them are to the same results as before.
+	 * 
+	 * If a root is converted again, the roots whose results refer to it must be too.
+	 * The conversions are only forgotten by init(), which must be called to start
+	 * again when the mapping initializers matter, for example with annotations.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T convertIncremental(String key, String hash, Object source) throws Exception
+	{
+		Retained previous = retained.get(key);
+		
+		if (previous != null)
+		{
+			boolean unchanged = (hash != null && previous.hash != null) ?
+				hash.equals(previous.hash) : previous.source == source;
+			
+			if (unchanged)
+			{
+				return (T) previous.result;
+			}
+			
+			forget(key);
+		}
+		
+		List<Long> ids = new Vector<Long>();
+		owned = ids;
+		
+		try
+		{
+			T result = convert(source);
+			retained.put(key, new Retained(source, hash, result, ids));
+			return result;
+		}
+		finally
+		{
+			owned = null;
+		}
+	}
+	
+	/**
+	 * Forget the incremental conversions of any roots whose keys are not in the
+	 * collection passed, for example because the modules have been deleted.
+	 */
+	public void retainOnly(Collection<String> keys)
+	{
+		for (String key: new Vector<String>(retained.keySet()))
+		{
+			if (!keys.contains(key))
+			{
+				forget(key);
+			}
+		}
+	}
+	
+	private void forget(String key)
+	{
+		Retained previous = retained.remove(key);
+		
+		if (previous != null)
+		{
+			for (Long id: previous.ids)
+			{
+				converted.remove(id);
+			}
+		}
+	}
 
 	/**
 	 * Check whether an object is already in the process of being converted.
 	 */
-	private Progress isInProgress(Object source)
+	private boolean isInProgress(Object source)
 	{
-		for (Progress update: inProgress)
+		return source != null && inProgress.containsKey(source);
+	}
+	
+	/**
+	 * If a field value is still being converted, record that the field of the
+	 * result must be set when its conversion is complete.
+	 */
+	private void addUpdate(Object fieldvalue, Object result, Field field)
+	{
+		if (fieldvalue != null)
 		{
-			if (source == update.source)
+			Progress progress = inProgress.get(fieldvalue);
+			
+			if (progress != null)
 			{
-				return update;
+				progress.updates.add(new Pair(result, field.getName()));
 			}
 		}
-		
-		return null;
 	}
 	
 	public int getNodeCount()
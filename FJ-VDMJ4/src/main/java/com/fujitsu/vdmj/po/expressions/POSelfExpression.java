@@ -34,7 +34,7 @@ public class POSelfExpression extends POExpression
 	public POSelfExpression(LexLocation location)
 	{
 		super(location);
-		name = new LexNameToken(location.module, "self", location);
+		name = new LexNameToken(location.getModule(), "self", location);
 	}
 
 	@Override
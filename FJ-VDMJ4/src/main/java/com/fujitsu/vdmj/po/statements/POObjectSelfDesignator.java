@@ -34,7 +34,7 @@ public class POObjectSelfDesignator extends POObjectDesignator
 	public POObjectSelfDesignator(LexLocation location)
 	{
 		super(location);
-		self = new LexNameToken(location.module, "self", location);
+		self = new LexNameToken(location.getModule(), "self", location);
 	}
 
 	@Override
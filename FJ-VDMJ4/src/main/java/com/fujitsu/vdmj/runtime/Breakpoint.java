@@ -117,7 +117,7 @@ public class Breakpoint implements Serializable
 				default:
 					ltr.pop();
 					ExpressionReader reader = new ExpressionReader(ltr);
-        			reader.setCurrentModule(location.module);
+        			reader.setCurrentModule(location.getModule());
         			ASTExpression ast = reader.readExpression();
         			TCExpression tc = ClassMapper.getInstance(TCNode.MAPPINGS).convert(ast);
         			condition = ClassMapper.getInstance(INNode.MAPPINGS).convert(tc);
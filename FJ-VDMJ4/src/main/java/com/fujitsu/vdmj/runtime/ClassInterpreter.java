@@ -155,7 +155,7 @@ public class ClassInterpreter extends Interpreter
 	@Override
 	public File getDefaultFile()
 	{
-		return defaultClass.name.getLocation().file;
+		return defaultClass.name.getLocation().getFile();
 	}
 
 	@Override
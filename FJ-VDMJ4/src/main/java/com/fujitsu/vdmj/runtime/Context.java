@@ -145,22 +145,27 @@ public class Context extends HashMap<TCNameToken, Value>
 	}
 
 	/**
-	 * Get a name, taking type overloading into account. If we use the
-	 * superclass method, different names are considered different,
-	 * because the map is driven by the names' hashCodes. The equals
-	 * method of LexNameToken makes a TypeComparator check, which is
-	 * what we need. But we try a simple super.get() first.
+	 * Get a name, taking type overloading into account. The superclass
+	 * method uses name.equals(key), but a TypeComparator check of the
+	 * parameter types is not symmetrical, so if that fails we try
+	 * key.equals(name) as well. That can only differ for names with
+	 * parameter types, and only for keys with the same hashCode (which
+	 * ignores the parameters), so simple names never need the search.
+	 * This matters because a miss is the usual case as a name lookup
+	 * passes down the context chain.
 	 */
 	@Override
 	public Value get(Object name)
 	{
 		Value rv = super.get(name);
 
-		if (rv == null)
+		if (rv == null && name instanceof TCNameToken && ((TCNameToken)name).getTypeQualifier() != null)
 		{
+			int hash = name.hashCode();
+
     		for (TCNameToken var: keySet())
     		{
-    			if (var.equals(name))
+    			if (var.hashCode() == hash && var.equals(name))
     			{
     				rv = super.get(var);
     				break;
@@ -171,6 +176,34 @@ public class Context extends HashMap<TCNameToken, Value>
 		return rv;
 	}
 
+	/**
+	 * Get the value in a slot of the frame that is depth contexts down the
+	 * chain, as resolved by INSlotResolver. This returns null if the chain
+	 * reaches another frame first, or the frame does not have the slot names
+	 * given, so that the caller can look the name up instead.
+	 */
+	public Value getSlot(TCNameList slotNames, int depth, int slot)
+	{
+		Context frame = this;
+
+		for (int i = 0; i < depth; i++)
+		{
+			if (frame instanceof RootContext || frame.outer == null)
+			{
+				return null;
+			}
+
+			frame = frame.outer;
+		}
+
+		return frame.slotValue(slotNames, slot);
+	}
+
+	protected Value slotValue(TCNameList slotNames, int slot)
+	{
+		return null;	// Only frames have slots
+	}
+
 	/**
 	 * Get all visible names from this Context, with more visible
 	 * values overriding those below.
@@ -28,12 +28,18 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.Map.Entry;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.in.definitions.INClassDefinition;
@@ -58,9 +64,13 @@ import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.statements.TCStatement;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.traces.CallSequence;
+import com.fujitsu.vdmj.traces.TraceCheckpoints;
 import com.fujitsu.vdmj.traces.TraceFilter;
 import com.fujitsu.vdmj.traces.TraceIterator;
 import com.fujitsu.vdmj.traces.TraceReductionType;
+import com.fujitsu.vdmj.traces.TraceResult;
+import com.fujitsu.vdmj.traces.TraceWorker;
+import com.fujitsu.vdmj.traces.TraceWorkerPool;
 import com.fujitsu.vdmj.traces.Verdict;
 import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.NameScope;
@@ -83,6 +93,9 @@ abstract public class Interpreter
 
 	/** A list of source files loaded. */
 	protected Map<File, SourceFile> sourceFiles;
+
+	/** The specification files in the order that they were loaded, if known. */
+	protected List<File> loadedFiles = null;
 	
 	/** The number of the next breakpoint to be created. */
 	protected int nextbreakpoint = 0;
@@ -166,6 +179,16 @@ abstract public class Interpreter
 	 */
 	abstract public void init();
 
+	/**
+	 * Put the interpreter back into the state produced by the last init(),
+	 * between trace tests for example. By default, this is a full init, but
+	 * subclasses can restore a saved state more quickly.
+	 */
+	public void reinit()
+	{
+		init();
+	}
+
 	/**
 	 * Initialize the context between trace sequences. This is less
 	 * thorough than the full init, since it does not reset the scheduler
@@ -236,7 +259,7 @@ abstract public class Interpreter
 	 */
 	public String getSourceLine(LexLocation src)
 	{
-		return getSourceLine(src.file, src.startLine);
+		return getSourceLine(src.getFile(), src.startLine);
 	}
 
 	/**
@@ -285,6 +308,30 @@ abstract public class Interpreter
 	 */
 	abstract public Set<File> getSourceFiles();
 
+	/**
+	 * Set the specification files in the order that they were loaded.
+	 */
+	public void setLoadedFiles(List<File> files)
+	{
+		loadedFiles = files;
+	}
+
+	/**
+	 * Get the specification files in the order that they were loaded, so that
+	 * another process can load them and create the same locations. If the order
+	 * was not set, the source files of the modules or classes are returned in
+	 * the order of their definitions.
+	 */
+	public List<File> getLoadedFiles()
+	{
+		if (loadedFiles != null)
+		{
+			return loadedFiles;
+		}
+
+		return new Vector<File>(getSourceFiles());
+	}
+
 	/**
 	 * Get a list of proof obligations for the loaded specification.
 	 *
@@ -400,7 +447,7 @@ abstract public class Interpreter
 
 		if (old != null)
 		{
-			INStatement stmt = findStatement(old.location.file, old.location.startLine);
+			INStatement stmt = findStatement(old.location.getFile(), old.location.startLine);
 
 			if (stmt != null)
 			{
@@ -408,7 +455,7 @@ abstract public class Interpreter
 			}
 			else
 			{
-				INExpression exp = findExpression(old.location.file, old.location.startLine);
+				INExpression exp = findExpression(old.location.getFile(), old.location.startLine);
 				assert (exp != null) : "Cannot locate old breakpoint?";
 				exp.breakpoint = new Breakpoint(exp.location);
 			}
@@ -501,37 +548,7 @@ abstract public class Interpreter
 		float subset, TraceReductionType reductionType, long seed)
 		throws Exception
 	{
-		LexTokenReader ltr = new LexTokenReader(name, Dialect.VDM_SL);
-		LexToken token = ltr.nextToken();
-		ltr.close();
-		TCNameToken lexname = null;
-
-		switch (token.type)
-		{
-			case NAME:
-				lexname = new TCNameToken((LexNameToken) token);
-
-				if (Settings.dialect == Dialect.VDM_SL &&
-					!lexname.getModule().equals(getDefaultName()))
-				{
-					setDefaultName(lexname.getModule());
-				}
-				break;
-
-			case IDENTIFIER:
-				lexname = new TCNameToken(token.location, getDefaultName(), ((LexIdentifierToken)token).name);
-				break;
-
-			default:
-				throw new Exception("Expecting trace name");
-		}
-
-		INNamedTraceDefinition tracedef = findTraceDefinition(lexname);
-
-		if (tracedef == null)
-		{
-			throw new Exception("Trace " + lexname + " not found");
-		}
+		INNamedTraceDefinition tracedef = findTrace(name);
 
 		long before = System.currentTimeMillis();
 		TraceIterator tests = tracedef.getIterator(getTraceContext(tracedef.classDefinition));
@@ -549,7 +566,7 @@ abstract public class Interpreter
 
 		if (endTest > count)
 		{
-			throw new Exception("Trace " + lexname + " only has " + count + " tests");
+			throw new Exception("Trace " + tracedef.name + " only has " + count + " tests");
 		}
 		
 		if (endTest == 0)		// To the end of the tests, if specified as zero
@@ -565,6 +582,7 @@ abstract public class Interpreter
 
 		int testNumber = 1;
 		int excluded = 0;
+
 		boolean failed = false;
 		TraceFilter filter = new TraceFilter(count, subset, reductionType, seed);
 
@@ -584,51 +602,160 @@ abstract public class Interpreter
 		
 		writer.println(" in " + (double)(after-before)/1000 + " secs. ");
 		before = System.currentTimeMillis();
+
+		// With several threads or stem sharing, the tests are collected first. Then
+		// batches of them are sent to worker processes, or they are executed together
+		// so that stems are shared. Either way, the results are processed in test
+		// number order below.
+		
+		TraceWorkerPool pool = null;
+		TraceCheckpoints checkpoints = null;
+		List<CallSequence> selected = new Vector<CallSequence>();
+		List<Integer> selectedNumbers = new Vector<Integer>();
+
+		if (Settings.traceThreads > 1 && !debug)
+		{
+			pool = new TraceWorkerPool(this, tracedef.name.getExplicit(true).toString(), Settings.traceThreads);
+		}
+		else if (Settings.traceSharing && !debug)
+		{
+			checkpoints = getTraceCheckpoints();
+		}
 		
 		// Not needed with new traces?
 		// Environment environment = getTraceEnvironment(tracedef.classDefinition);
 
-		while (tests.hasMoreTests())
+		try
 		{
-			CallSequence test = tests.getNextTest();
-			
-			if (testNumber < startTest || testNumber > endTest || filter.isRemoved(test, testNumber))
-			{
-				excluded++;
-			}
-			else if (filter.getFilteredBy(test) > 0)
-			{
-				excluded++;
-    			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
-				writer.println("Test " + testNumber + " FILTERED by test " + filter.getFilteredBy(test));
-			}
-			else
-			{
-				// test.typeCheck(this, environment);	// Not needed with new traces?
-				
-    			init();	// Initialize completely between every run...
-    			List<Object> result = runOneTrace(tracedef.classDefinition, test, debug);
-    			filter.update(result, test, testNumber);
-
-    			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
-    			writer.println("Result = " + result);
+    		// Go straight to the tests selected by the range and any random reduction,
+    		// rather than generating every test before them.
+    		Iterator<Integer> numbers = filter.getTestNumbers(Math.max(startTest, 1), endTest);
+
+    		while (numbers.hasNext())
+    		{
+    			testNumber = numbers.next();
+    			CallSequence test = tests.getTest(testNumber - 1);
     			
-    			if (result.lastIndexOf(Verdict.PASSED) == -1)
+    			if (filter.isRemoved(test, testNumber))
     			{
-    				failed = true;	// Not passed => failed.
+    				excluded++;
     			}
-			}
+    			else if (pool != null || checkpoints != null)
+    			{
+    				selected.add(test);
+    				selectedNumbers.add(testNumber);
+    			}
+    			else if (filter.getFilteredBy(test) > 0)
+    			{
+    				excluded++;
+        			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+    				writer.println("Test " + testNumber + " FILTERED by test " + filter.getFilteredBy(test));
+    			}
+    			else
+    			{
+    				// test.typeCheck(this, environment);	// Not needed with new traces?
+    				
+        			reinit();	// Initialize completely between every run...
+        			List<Object> result = runOneTrace(tracedef.classDefinition, test, debug);
+        			filter.update(result, test, testNumber);
+    
+        			writer.println("Test " + testNumber + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+        			writer.println("Result = " + result);
+        			
+        			if (result.lastIndexOf(Verdict.PASSED) == -1)
+        			{
+        				failed = true;	// Not passed => failed.
+        			}
+    			}
+    		}
+
+    		excluded = count - (endTest - startTest + 1);
+
+    		if (pool != null || checkpoints != null)
+    		{
+    			List<TraceResult> results = null;
+    			int sent = 0;	// Tests before this have been sent to the pool, or filtered
 
-			if (testNumber >= endTest)
+    			if (checkpoints != null)
+    			{
+    				results = runSharedTraces(tracedef.classDefinition, selected, selectedNumbers, checkpoints, true);
+    			}
+
+    			for (int i=0; i<selected.size(); i++)
+    			{
+    				CallSequence test = selected.get(i);
+    				int number = selectedNumbers.get(i);
+    				TraceResult result = null;
+
+    				if (pool != null)
+    				{
+    					// Keep the workers busy, but do not send tests that are already
+    					// filtered by the failures processed so far. A test that is not
+    					// sent is always reported as FILTERED below.
+
+    					while (sent < selected.size() && pool.isReady())
+    					{
+    						List<Integer> batch = new Vector<Integer>();
+    						List<Integer> batchNumbers = new Vector<Integer>();
+
+    						while (sent < selected.size() && batch.size() < TraceWorkerPool.BATCH)
+    						{
+    							if (filter.getFilteredBy(selected.get(sent)) == 0)
+    							{
+    								batch.add(sent);
+    								batchNumbers.add(selectedNumbers.get(sent));
+    							}
+
+    							sent++;
+    						}
+
+    						pool.send(batch, batchNumbers);
+    					}
+
+    					if (pool.wasSent(i))
+    					{
+    						result = pool.receive(i);	// Even if filtered
+    					}
+    				}
+    				else
+    				{
+    					result = results.get(i);
+    				}
+
+    				if (filter.getFilteredBy(test) > 0)
+    				{
+    	    			writer.println("Test " + number + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+    					writer.println("Test " + number + " FILTERED by test " + filter.getFilteredBy(test));
+    				}
+    				else
+    				{
+    					filter.update(result.passed, result.size, test, number);
+
+    	    			writer.println("Test " + number + " = " + test.getCallString(getTraceContext(tracedef.classDefinition)));
+    	    			writer.println("Result = " + result.text);
+
+    	    			if (!result.passed)
+    	    			{
+    	    				failed = true;
+    	    			}
+    				}
+    			}
+
+    			if (pool != null)
+    			{
+    				pool.finish();
+    			}
+    		}
+		}
+		finally
+		{
+			if (pool != null)
 			{
-				excluded = count - (endTest - startTest + 1);
-				break;
+				pool.close();
 			}
-
-			testNumber++;
 		}
 
-		init();
+		reinit();
 		Settings.usingCmdLine = wasCMD;
 		
 		if (excluded > 0)
@@ -642,5 +769,251 @@ abstract public class Interpreter
 		return !failed;
 	}
 
+	/**
+	 * Run batches of tests of a trace, writing each result to the output passed.
+	 * Each line of the input is a batch of test numbers, and the results of each
+	 * batch are written in the same order. This is called by {@link TraceWorker}
+	 * processes.
+	 */
+	public void runtraceWorker(String name, BufferedReader in, PrintWriter out) throws Exception
+	{
+		INNamedTraceDefinition tracedef = findTrace(name);
+		TraceIterator tests = tracedef.getIterator(getTraceContext(tracedef.classDefinition));
+		TraceCheckpoints checkpoints = Settings.traceSharing ? getTraceCheckpoints() : null;
+		LexLocation.clearLocations();	// The parent counts initialization and expansion
+		String line = in.readLine();
+
+		while (line != null)
+		{
+			List<CallSequence> selected = new Vector<CallSequence>();
+			List<Integer> selectedNumbers = new Vector<Integer>();
+
+			for (String number: line.trim().split(" "))
+			{
+				int testNumber = Integer.parseInt(number);
+				selected.add(tests.getTest(testNumber - 1));
+				selectedNumbers.add(testNumber);
+			}
+
+			if (checkpoints != null)
+			{
+				for (TraceResult result: runSharedTraces(tracedef.classDefinition, selected, selectedNumbers, checkpoints, false))
+				{
+					out.println(TraceWorkerPool.encode(result));
+				}
+			}
+			else
+			{
+				for (int i=0; i<selected.size(); i++)
+				{
+					reinit();
+					List<Object> result = runOneTrace(tracedef.classDefinition, selected.get(i), false);
+					out.println(TraceWorkerPool.encode(new TraceResult(selectedNumbers.get(i), result)));
+				}
+			}
+
+			out.flush();
+			line = in.readLine();
+		}
+	}
+
+	/**
+	 * Run a list of tests, sharing the execution of their common stems. The tests
+	 * are run in the order of a depth first walk of their prefix tree, so that each
+	 * test starts from a checkpoint taken during the test before, and checkpoints
+	 * are only taken at the stems where the tree branches. The results are
+	 * returned in the order of the tests passed, which must be in test number
+	 * order.
+	 * 
+	 * If filtering, a test is not run if a test with a lower number, whose result
+	 * is known, has failed in a stem of this test. Its result is null, and the
+	 * caller's TraceFilter will always report it as FILTERED.
+	 */
+	private List<TraceResult> runSharedTraces(INClassDefinition classDefinition,
+		final List<CallSequence> tests, List<Integer> numbers, TraceCheckpoints checkpoints,
+		boolean filtering)
+	{
+		final List<List<String>> keys = new Vector<List<String>>();
+		List<Integer> order = new Vector<Integer>();
+
+		for (int i=0; i<tests.size(); i++)
+		{
+			List<String> key = new Vector<String>();
+
+			for (INStatement stmt: tests.get(i))
+			{
+				key.add(stmt.toString());
+			}
+
+			keys.add(key);
+			order.add(i);
+		}
+
+		Collections.sort(order, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(Integer a, Integer b)
+			{
+				List<String> ka = keys.get(a);
+				List<String> kb = keys.get(b);
+				int size = Math.min(ka.size(), kb.size());
+
+				for (int i=0; i<size; i++)
+				{
+					int c = ka.get(i).compareTo(kb.get(i));
+
+					if (c != 0)
+					{
+						return c;
+					}
+				}
+
+				return ka.size() - kb.size();
+			}
+		});
+
+		// The length of the stem that each test in the order has in common with
+		// the test before it.
+
+		int[] common = new int[order.size()];
+
+		for (int k=1; k<order.size(); k++)
+		{
+			List<String> ka = keys.get(order.get(k - 1));
+			List<String> kb = keys.get(order.get(k));
+			int size = Math.min(ka.size(), kb.size());
+
+			while (common[k] < size && ka.get(common[k]).equals(kb.get(common[k])))
+			{
+				common[k]++;
+			}
+		}
+
+		TraceResult[] results = new TraceResult[tests.size()];
+		TraceFilter failures = filtering ? new TraceFilter() : null;
+		int resolved = 0;	// Tests before this have been run or filtered, in number order
+		int last = -1;		// The position in the order of the last test run
+
+		for (int k=0; k<order.size(); k++)
+		{
+			int i = order.get(k);
+
+			if (failures != null && failures.getFilteredBy(tests.get(i)) > 0)
+			{
+				continue;
+			}
+
+			// The test starts after the stem it shares with the last test run. The
+			// later tests start from the stems after that where the tree branches,
+			// which are where the shortest common stem so far drops.
+
+			int stem = Integer.MAX_VALUE;
+
+			for (int j=last+1; j<=k; j++)
+			{
+				stem = Math.min(stem, j == 0 ? 0 : common[j]);
+			}
+
+			Set<Integer> shared = new HashSet<Integer>();
+			int min = Integer.MAX_VALUE;
+
+			for (int j=k+1; j<order.size() && min > stem; j++)
+			{
+				min = Math.min(min, common[j]);
+
+				if (min > stem)
+				{
+					shared.add(min);
+				}
+			}
+
+			checkpoints.setShared(shared);
+			List<Object> result = runOneTrace(classDefinition, tests.get(i), checkpoints);
+			results[i] = new TraceResult(numbers.get(i), result);
+			last = k;
+
+			// Record the failures of the tests whose results are now known in
+			// number order, as the caller will.
+
+			while (failures != null && resolved < tests.size())
+			{
+				CallSequence test = tests.get(resolved);
+
+				if (failures.getFilteredBy(test) == 0)
+				{
+					if (results[resolved] == null)
+					{
+						break;		// Not run yet
+					}
+
+					failures.update(results[resolved].passed, results[resolved].size, test, numbers.get(resolved));
+				}
+
+				resolved++;
+			}
+		}
+
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Find a named trace, which may set the default module for VDM-SL.
+	 */
+	private INNamedTraceDefinition findTrace(String name) throws Exception
+	{
+		LexTokenReader ltr = new LexTokenReader(name, Dialect.VDM_SL);
+		LexToken token = ltr.nextToken();
+		ltr.close();
+		TCNameToken lexname = null;
+
+		switch (token.type)
+		{
+			case NAME:
+				lexname = new TCNameToken((LexNameToken) token);
+
+				if (Settings.dialect == Dialect.VDM_SL &&
+					!lexname.getModule().equals(getDefaultName()))
+				{
+					setDefaultName(lexname.getModule());
+				}
+				break;
+
+			case IDENTIFIER:
+				lexname = new TCNameToken(token.location, getDefaultName(), ((LexIdentifierToken)token).name);
+				break;
+
+			default:
+				throw new Exception("Expecting trace name");
+		}
+
+		INNamedTraceDefinition tracedef = findTraceDefinition(lexname);
+
+		if (tracedef == null)
+		{
+			throw new Exception("Trace " + lexname + " not found");
+		}
+
+		return tracedef;
+	}
+
 	abstract protected List<Object> runOneTrace(INClassDefinition classDefinition, CallSequence test, boolean debug);
+
+	/**
+	 * Return checkpoints to share the execution of test stems, or null if this
+	 * interpreter cannot save and restore its state.
+	 */
+	protected TraceCheckpoints getTraceCheckpoints()
+	{
+		return null;
+	}
+
+	/**
+	 * Run one test, starting from the checkpoint after the stem that it shares with
+	 * the previous test.
+	 */
+	protected List<Object> runOneTrace(INClassDefinition classDefinition, CallSequence test, TraceCheckpoints checkpoints)
+	{
+		reinit();
+		return runOneTrace(classDefinition, test, false);
+	}
 }
@@ -61,10 +61,12 @@ import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 import com.fujitsu.vdmj.traces.CallSequence;
+import com.fujitsu.vdmj.traces.TraceCheckpoints;
 import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.ModuleEnvironment;
 import com.fujitsu.vdmj.values.CPUValue;
 import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
 
 /**
  * The VDM-SL module interpreter.
@@ -82,6 +84,8 @@ public class ModuleInterpreter extends Interpreter
 	private Environment defaultEnvironment;
 	/** The PO analysis tree */
 	private POModuleList pogModules;
+	/** True if init() has completed and saved the module state */
+	private boolean stateSaved = false;
 
 	/**
 	 * Create an Interpreter from the list of executableModules passed.
@@ -170,7 +174,7 @@ public class ModuleInterpreter extends Interpreter
 	@Override
 	public File getDefaultFile()
 	{
-		return defaultModule.name.getLocation().file;
+		return defaultModule.name.getLocation().getFile();
 	}
 
 	@Override
@@ -198,13 +202,45 @@ public class ModuleInterpreter extends Interpreter
 	@Override
 	public void init()
 	{
+		stateSaved = false;
 		scheduler.init();
 		CPUValue.init(scheduler);
 		initialContext = executableModules.creatInitialContext();
 		executableModules.initialize(initialContext);
+		executableModules.saveState();
+		stateSaved = true;
 		INAnnotation.init(initialContext);
 	}
 
+	/**
+	 * Module values are constant, so the only thing that changes after
+	 * initialization is the module state (and measure counts). So rather
+	 * than re-evaluating everything, we restore the state saved by init().
+	 */
+	@Override
+	public void reinit()
+	{
+		if (!stateSaved)
+		{
+			init();
+		}
+		else
+		{
+			scheduler.init();
+			CPUValue.init(scheduler);
+			initialContext.setThreadState(null);
+
+			if (executableModules.restoreState(initialContext))
+			{
+				INAnnotation.init(initialContext);
+			}
+			else
+			{
+				init();
+			}
+		}
+	}
+
 	@Override
 	public void traceInit()
 	{
@@ -372,6 +408,50 @@ public class ModuleInterpreter extends Interpreter
 		return main.getList();
 	}
 
+	/**
+	 * Module state is the only thing that changes during a test, so that is
+	 * all that needs to be saved after each statement.
+	 */
+	@Override
+	protected TraceCheckpoints getTraceCheckpoints()
+	{
+		return new TraceCheckpoints()
+		{
+			@Override
+			protected void reset()
+			{
+				reinit();
+			}
+
+			@Override
+			protected Object save()
+			{
+				return executableModules.checkpointState();
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			protected void restore(Object state)
+			{
+				executableModules.restoreState(initialContext, (List<ValueList>)state);
+			}
+		};
+	}
+
+	@Override
+	protected List<Object> runOneTrace(INClassDefinition classdef, CallSequence test, TraceCheckpoints checkpoints)
+	{
+		int stem = checkpoints.start(test);
+		clearBreakpointHits();
+
+		CTMainThread main = new CTMainThread(test, initialContext, checkpoints, stem);
+		main.start();
+		scheduler.start(main);
+
+		checkpoints.finish(main.getList());
+		return main.getList();
+	}
+
 	public TCModuleList getTC()
 	{
 		return checkedModules;
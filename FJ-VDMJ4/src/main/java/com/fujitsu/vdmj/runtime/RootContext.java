@@ -24,18 +24,29 @@
 package com.fujitsu.vdmj.runtime;
 
 import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.values.ObjectValue;
+import com.fujitsu.vdmj.values.Value;
 
 /**
  * A Context class, specialized to represent points in a context chain where
  * name resolution does not proceed further down the chain, but rather jumps to
- * the outermost level.
+ * the outermost level. A function's frame also holds its parameter values in
+ * an array, indexed by the slots that INSlotResolver gives the parameter names
+ * in the function body. The names are still held in the map, for the debugger
+ * and getVisibleVariables.
  */
 @SuppressWarnings("serial")
 public abstract class RootContext extends Context
 {
 	protected final Context freeVariables;
 
+	/** The names that have slots, if any. */
+	private TCNameList slotNames = null;
+	/** The values of the slot names. */
+	private Value[] slots = null;
+
 	public RootContext(
 		LexLocation location, String title, Context freeVariables, Context outer)
 	{
@@ -43,6 +54,59 @@ public abstract class RootContext extends Context
 		this.freeVariables = freeVariables;
 	}
 
+	/**
+	 * Give the slot names a slot each, holding their current values.
+	 */
+	public void setSlots(TCNameList slotNames)
+	{
+		slots = new Value[slotNames.size()];
+
+		for (int i = 0; i < slots.length; i++)
+		{
+			slots[i] = get(slotNames.get(i));
+		}
+
+		this.slotNames = slotNames;
+	}
+
+	@Override
+	protected Value slotValue(TCNameList names, int slot)
+	{
+		return names == slotNames ? slots[slot] : null;
+	}
+
+	@Override
+	public Value put(TCNameToken name, Value value)
+	{
+		if (slotNames != null)
+		{
+			int slot = slotNames.indexOf(name);
+
+			if (slot >= 0)
+			{
+				slots[slot] = value;	// Keep the slot in step
+			}
+		}
+
+		return super.put(name, value);
+	}
+
+	@Override
+	public Value remove(Object name)
+	{
+		if (slotNames != null)
+		{
+			int slot = slotNames.indexOf(name);
+
+			if (slot >= 0)
+			{
+				slots[slot] = null;
+			}
+		}
+
+		return super.remove(name);
+	}
+
 	@Override
 	public Context getVisibleVariables()
 	{
@@ -33,6 +33,7 @@ import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ContextException;
 import com.fujitsu.vdmj.traces.CallSequence;
+import com.fujitsu.vdmj.traces.TraceCheckpoints;
 import com.fujitsu.vdmj.traces.Verdict;
 import com.fujitsu.vdmj.values.CPUValue;
 
@@ -44,6 +45,8 @@ public class CTMainThread extends MainThread
 	private static final long serialVersionUID = 1L;
 	private final CallSequence test;
 	private final boolean debug;
+	private final TraceCheckpoints checkpoints;
+	private final int stem;
 
 	private List<Object> result = new Vector<Object>();
 
@@ -53,6 +56,25 @@ public class CTMainThread extends MainThread
 
 		this.test = test;
 		this.debug = debug;
+		this.checkpoints = null;
+		this.stem = 0;
+
+		setName("CTMainThread");
+	}
+
+	/**
+	 * Run a test whose first "stem" statements have already been executed, as
+	 * returned by the start method of the checkpoints passed.
+	 */
+	public CTMainThread(CallSequence test, Context ctxt, TraceCheckpoints checkpoints, int stem)
+	{
+		super(null, ctxt);
+
+		this.test = test;
+		this.debug = false;
+		this.checkpoints = checkpoints;
+		this.stem = stem;
+		this.result = checkpoints.getStemResult(stem);
 
 		setName("CTMainThread");
 	}
@@ -71,17 +93,24 @@ public class CTMainThread extends MainThread
 			DebugLink link = DebugLink.getInstance();
 			link.newThread(CPUValue.vCPU);
 
-			for (INStatement statement: test)
+			for (int i=0; i<test.size(); i++)
 			{
+				INStatement statement = test.get(i);
+
 				if (statement instanceof INTraceVariableStatement)
 				{
 					// Just update the context...
 					statement.eval(ctxt);
 				}
-				else
+				else if (i >= stem)
 				{
  					result.add(statement.eval(ctxt));
 				}
+
+				if (checkpoints != null && i >= stem)
+				{
+					checkpoints.checkpoint(statement, result);
+				}
 			}
 
 			result.add(Verdict.PASSED);
@@ -143,7 +143,7 @@ public class ModuleReader extends SyntaxReader
 
 	private ASTModule readFlatModule() throws ParserException, LexException
 	{
-		File file = lastToken().location.file;
+		File file = lastToken().location.getFile();
 		setCurrentModule("DEFAULT");
 		ASTDefinitionList definitions = getDefinitionReader().readDefinitions();
 		checkFor(Token.EOF, 2318, "Unexpected token after flat definitions");
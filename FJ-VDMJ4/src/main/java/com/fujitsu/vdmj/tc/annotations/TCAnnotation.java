@@ -64,6 +64,14 @@ public abstract class TCAnnotation
 		instances.clear();
 	}
 
+	/**
+	 * True if any annotations have been created since the last reset.
+	 */
+	public static boolean hasInstances()
+	{
+		return !instances.isEmpty();
+	}
+
 	public static void init(Environment globals)
 	{
 		for (Class<?> clazz: declared)
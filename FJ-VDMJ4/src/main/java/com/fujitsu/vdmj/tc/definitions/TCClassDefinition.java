@@ -652,7 +652,7 @@ public class TCClassDefinition extends TCDefinition
 	{
 		TCDefinition def = null;
 
-		for (TCDefinition d: definitions)
+		for (TCDefinition d: definitions.findCandidates(sought))
 		{
 			TCDefinition found = d.findName(sought, scope);
 
@@ -753,6 +753,12 @@ public class TCClassDefinition extends TCDefinition
 		return def;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return null;	// Not fixed
+	}
+
 	/**
 	 * Find a list of definitions whose names match that passed (overloads) 
 	 */
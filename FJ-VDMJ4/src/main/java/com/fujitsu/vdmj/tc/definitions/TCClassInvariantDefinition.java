@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.tc.expressions.TCExpression;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
@@ -55,6 +58,12 @@ public class TCClassInvariantDefinition extends TCDefinition
 		return null;		// We can never find inv_C().
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return new Vector<String>();
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
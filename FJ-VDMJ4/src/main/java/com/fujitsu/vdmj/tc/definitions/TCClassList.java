@@ -66,7 +66,7 @@ public class TCClassList extends TCMappedList<ASTClassDefinition, TCClassDefinit
 			if (!(def instanceof TCCPUClassDefinition ||
 				  def instanceof TCBUSClassDefinition))
 			{
-				files.add(def.location.file);
+				files.add(def.location.getFile());
 			}
 		}
 
@@ -24,6 +24,8 @@
 package com.fujitsu.vdmj.tc.definitions;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.Vector;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.fujitsu.vdmj.ast.lex.LexCommentList;
@@ -288,6 +290,27 @@ public abstract class TCDefinition extends TCNode implements Serializable, Compa
 		return null;
 	}
 
+	/**
+	 * Return the simple names of all the definitions that findName or findType
+	 * could return, or null if they are not known in advance. This is used to
+	 * index large definition lists by name, so it may include names that never
+	 * match, but must include every name that could. Subclasses which can find
+	 * other names must override this too.
+	 *
+	 * @return A list of simple names, or null.
+	 */
+	public List<String> getIndexNames()
+	{
+		if (name == null)
+		{
+			return null;
+		}
+
+		List<String> names = new Vector<String>();
+		names.add(name.getName());
+		return names;
+	}
+
 	/**
 	 * Check whether this definition has ever been used. This method is called
 	 * when a definition goes out of scope. If the "used" flag has not been set,
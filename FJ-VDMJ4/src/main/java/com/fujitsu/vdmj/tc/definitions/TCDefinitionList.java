@@ -23,8 +23,15 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.ast.definitions.ASTDefinition;
 import com.fujitsu.vdmj.ast.definitions.ASTDefinitionList;
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.tc.TCMappedList;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
@@ -37,6 +44,118 @@ import com.fujitsu.vdmj.typechecker.NameScope;
 @SuppressWarnings("serial")
 public class TCDefinitionList extends TCMappedList<ASTDefinition, TCDefinition>
 {
+	/** An index of the definitions by name, built when the list is first searched. */
+	private transient volatile NameIndex index = null;
+
+	/**
+	 * The positions of the definitions in the list, by the names that they could
+	 * match, plus the positions of those which can match any name. An index is
+	 * only valid for the modCount of the list when it was built.
+	 */
+	private static class NameIndex
+	{
+		private static final int[] NONE = new int[0];
+
+		private final int modCount;
+		private final int size;
+		private final Map<String, int[]> named = new HashMap<String, int[]>();
+		private final int[] unnamed;
+
+		public NameIndex(TCDefinitionList list, int modCount)
+		{
+			Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+			List<Integer> others = new Vector<Integer>();
+
+			for (int i=0; i<list.size(); i++)
+			{
+				List<String> names = list.get(i).getIndexNames();
+
+				if (names == null)
+				{
+					others.add(i);
+				}
+				else
+				{
+					for (String name: names)
+					{
+						List<Integer> found = positions.get(name);
+
+						if (found == null)
+						{
+							found = new Vector<Integer>();
+							positions.put(name, found);
+						}
+
+						if (found.isEmpty() || found.get(found.size() - 1) != i)
+						{
+							found.add(i);
+						}
+					}
+				}
+			}
+
+			for (Entry<String, List<Integer>> entry: positions.entrySet())
+			{
+				named.put(entry.getKey(), toArray(entry.getValue()));
+			}
+
+			this.unnamed = toArray(others);
+			this.modCount = modCount;
+			this.size = list.size();
+		}
+
+		private static int[] toArray(List<Integer> list)
+		{
+			int[] array = new int[list.size()];
+
+			for (int i=0; i<array.length; i++)
+			{
+				array[i] = list.get(i);
+			}
+
+			return array;
+		}
+
+		public boolean isValid(TCDefinitionList list, int listModCount)
+		{
+			return modCount == listModCount && size == list.size();
+		}
+
+		/**
+		 * Merge the positions of the definitions with the name and those with
+		 * no fixed names, so that they are searched in list order.
+		 */
+		public List<TCDefinition> getCandidates(TCDefinitionList list, String name)
+		{
+			int[] a = named.get(name);
+			int[] b = unnamed;
+
+			if (a == null)
+			{
+				a = NONE;
+			}
+
+
+			List<TCDefinition> candidates = new Vector<TCDefinition>(a.length + b.length);
+			int i = 0;
+			int j = 0;
+
+			while (i < a.length || j < b.length)
+			{
+				if (j == b.length || (i < a.length && a[i] < b[j]))
+				{
+					candidates.add(list.get(a[i++]));
+				}
+				else
+				{
+					candidates.add(list.get(b[j++]));
+				}
+			}
+
+			return candidates;
+		}
+	}
+
 	public TCDefinitionList(ASTDefinitionList from) throws Exception
 	{
 		super(from);
@@ -101,9 +220,43 @@ public class TCDefinitionList extends TCMappedList<ASTDefinition, TCDefinition>
 		}
 	}
 
+	/**
+	 * Return the definitions which could match a name, in list order. Lists with
+	 * fewer than tc.index.threshold definitions are not indexed, so all of the
+	 * list is returned. Otherwise only the definitions whose getIndexNames include
+	 * the name are returned, plus those which do not have fixed names.
+	 */
+	public List<TCDefinition> findCandidates(TCNameToken name)
+	{
+		int threshold = Properties.tc_index_threshold;
+
+		if (threshold == 0 || size() < threshold)
+		{
+			return this;
+		}
+
+		NameIndex current = index;
+		int listModCount = modCount;
+
+		if (current == null || !current.isValid(this, listModCount))
+		{
+			current = new NameIndex(this, listModCount);
+			index = current;
+		}
+
+		return current.getCandidates(this, name.getName());
+	}
+
+	@Override
+	public synchronized TCDefinition set(int position, TCDefinition definition)
+	{
+		modCount++;		// Vector does not count a set as a modification
+		return super.set(position, definition);
+	}
+
 	public TCDefinition findName(TCNameToken name, NameScope scope)
 	{
-		for (TCDefinition d: this)
+		for (TCDefinition d: findCandidates(name))
 		{
 			TCDefinition def = d.findName(name, scope);
 
@@ -118,7 +271,7 @@ public class TCDefinitionList extends TCMappedList<ASTDefinition, TCDefinition>
 
 	public TCDefinition findType(TCNameToken name, String fromModule)
 	{
-		for (TCDefinition d: this)
+		for (TCDefinition d: findCandidates(name))
 		{
 			TCDefinition def = d.findType(name, fromModule);
 
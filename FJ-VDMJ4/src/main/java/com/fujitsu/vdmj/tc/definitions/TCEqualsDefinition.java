@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.tc.expressions.TCExpression;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
@@ -191,6 +193,12 @@ public class TCEqualsDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return null;	// Not fixed
+	}
+
 	@Override
 	public void unusedCheck()
 	{
@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.tc.definitions;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 
 import com.fujitsu.vdmj.lex.Token;
@@ -619,6 +620,27 @@ public class TCExplicitFunctionDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = super.getIndexNames();
+		names.add("pre_" + name.getName());
+		names.add("post_" + name.getName());
+
+		if (measureExp != null)
+		{
+			names.add("measure_" + name.getName());
+
+			if (measureExp instanceof TCVariableExpression)
+			{
+				TCVariableExpression exp = (TCVariableExpression)measureExp;
+				names.add(exp.name.getName());
+			}
+		}
+
+		return names;
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
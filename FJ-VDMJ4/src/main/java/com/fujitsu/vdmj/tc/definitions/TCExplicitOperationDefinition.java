@@ -24,6 +24,7 @@
 package com.fujitsu.vdmj.tc.definitions;
 
 import java.util.Iterator;
+import java.util.List;
 
 import com.fujitsu.vdmj.Release;
 import com.fujitsu.vdmj.Settings;
@@ -399,6 +400,15 @@ public class TCExplicitOperationDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = super.getIndexNames();
+		names.add("pre_" + name.getName());
+		names.add("post_" + name.getName());
+		return names;
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
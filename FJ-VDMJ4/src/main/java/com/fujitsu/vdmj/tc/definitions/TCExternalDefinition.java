@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCType;
@@ -59,6 +61,12 @@ public class TCExternalDefinition extends TCDefinition
 		return state.findName(sought, scope) != null ? this : null;	// (sought.equals(state.name)) ? this : null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return state.getIndexNames();
+	}
+
 	@Override
 	public String toString()
 	{
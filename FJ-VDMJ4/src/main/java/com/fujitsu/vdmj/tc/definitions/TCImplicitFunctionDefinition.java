@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.lex.Token;
 import com.fujitsu.vdmj.tc.annotations.TCAnnotationList;
 import com.fujitsu.vdmj.tc.expressions.TCExpression;
@@ -491,6 +493,27 @@ public class TCImplicitFunctionDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = super.getIndexNames();
+		names.add("pre_" + name.getName());
+		names.add("post_" + name.getName());
+
+		if (measureExp != null)
+		{
+			names.add("measure_" + name.getName());
+
+			if (measureExp instanceof TCVariableExpression)
+			{
+				TCVariableExpression exp = (TCVariableExpression)measureExp;
+				names.add(exp.name.getName());
+			}
+		}
+
+		return names;
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.Release;
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.lex.Dialect;
@@ -493,6 +495,15 @@ public class TCImplicitOperationDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = super.getIndexNames();
+		names.add("pre_" + name.getName());
+		names.add("post_" + name.getName());
+		return names;
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
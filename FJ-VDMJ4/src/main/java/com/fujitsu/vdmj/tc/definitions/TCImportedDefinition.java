@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
@@ -100,7 +102,7 @@ public class TCImportedDefinition extends TCDefinition
 		// We can only find an import if it is being sought from the module that
 		// imports it.
 
-		if (fromModule != null && !location.module.equals(fromModule))
+		if (fromModule != null && !location.getModule().equals(fromModule))
 		{
 			return null;	// Someone else's import
 		}
@@ -115,6 +117,12 @@ public class TCImportedDefinition extends TCDefinition
 		return d;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return def.getIndexNames();
+	}
+
 	@Override
 	public TCDefinition findName(TCNameToken sought, NameScope scope)
 	{
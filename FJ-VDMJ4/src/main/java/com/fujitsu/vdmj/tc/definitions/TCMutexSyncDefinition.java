@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.ast.lex.LexIntegerToken;
 import com.fujitsu.vdmj.ast.lex.LexKeywordToken;
 import com.fujitsu.vdmj.lex.LexLocation;
@@ -108,6 +111,12 @@ public class TCMutexSyncDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return new Vector<String>();
+	}
+
 	@Override
 	public void typeCheck(Environment base, NameScope scope)
 	{
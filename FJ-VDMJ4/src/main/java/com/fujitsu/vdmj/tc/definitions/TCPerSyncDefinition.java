@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.tc.annotations.TCAnnotationList;
 import com.fujitsu.vdmj.tc.expressions.TCExpression;
@@ -86,6 +89,12 @@ public class TCPerSyncDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return new Vector<String>();
+	}
+
 	@Override
 	public void typeCheck(Environment base, NameScope scope)
 	{
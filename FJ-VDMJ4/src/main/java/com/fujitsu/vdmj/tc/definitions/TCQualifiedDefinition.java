@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.lex.Token;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
@@ -128,6 +131,20 @@ public class TCQualifiedDefinition extends TCDefinition
 		return def.findType(sought, fromModule);
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = def.getIndexNames();
+
+		if (names != null)
+		{
+			names = new Vector<String>(names);
+			names.add(name.getName());
+		}
+
+		return names;
+	}
+
 	@Override
 	public void unusedCheck()
 	{
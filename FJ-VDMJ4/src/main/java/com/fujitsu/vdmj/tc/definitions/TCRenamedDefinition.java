@@ -23,6 +23,9 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+import java.util.Vector;
+
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCType;
@@ -123,7 +126,7 @@ public class TCRenamedDefinition extends TCDefinition
 		// We can only find an import if it is being sought from the module that
 		// imports it.
 
-		if (fromModule != null && !location.module.equals(fromModule))
+		if (fromModule != null && !location.getModule().equals(fromModule))
 		{
 			return null;	// Someone else's import
 		}
@@ -141,6 +144,20 @@ public class TCRenamedDefinition extends TCDefinition
 		}
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = def.getIndexNames();
+
+		if (names != null)
+		{
+			names = new Vector<String>(names);
+			names.add(name.getName());
+		}
+
+		return names;
+	}
+
 	@Override
 	public boolean isFunction()
 	{
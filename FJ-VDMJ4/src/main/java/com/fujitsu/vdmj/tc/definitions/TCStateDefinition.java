@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.tc.expressions.TCExpression;
 import com.fujitsu.vdmj.tc.expressions.TCStateInitExpression;
@@ -209,6 +211,28 @@ public class TCStateDefinition extends TCDefinition
 		return null;
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = super.getIndexNames();
+		names.add("inv_" + name.getName());
+		names.add("init_" + name.getName());
+
+		for (TCDefinition d: statedefs)
+		{
+			List<String> fields = d.getIndexNames();
+
+			if (fields == null)
+			{
+				return null;
+			}
+
+			names.addAll(fields);
+		}
+
+		return names;
+	}
+
 	@Override
 	public TCDefinition findName(TCNameToken sought, NameScope scope)
 	{
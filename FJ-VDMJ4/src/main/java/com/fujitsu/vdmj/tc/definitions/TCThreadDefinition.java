@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.lex.Token;
 import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
@@ -66,6 +68,12 @@ public class TCThreadDefinition extends TCDefinition
 		return operationDef.findName(sought, scope);
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		return operationDef.getIndexNames();
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
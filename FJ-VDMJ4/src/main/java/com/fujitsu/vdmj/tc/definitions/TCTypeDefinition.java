@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.tc.definitions;
 
+import java.util.List;
+
 import com.fujitsu.vdmj.ast.expressions.ASTExpression;
 import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.lex.LexLocation;
@@ -405,6 +407,30 @@ public class TCTypeDefinition extends TCDefinition
 		return super.findName(sought, NameScope.TYPENAME);
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = super.getIndexNames();
+		names.add("inv_" + name.getName());
+		names.add("eq_" + name.getName());
+		names.add("ord_" + name.getName());
+		names.add("min_" + name.getName());
+		names.add("max_" + name.getName());
+
+		if (type instanceof TCNamedType)
+		{
+			TCNamedType nt = (TCNamedType)type;
+
+			for (TCType compose: nt.type.getComposeTypes())
+			{
+				TCRecordType rtype = (TCRecordType)compose;
+				names.add(rtype.name.getName());
+			}
+		}
+
+		return names;
+	}
+
 	@Override
 	public TCDefinitionList getDefinitions()
 	{
@@ -520,8 +546,8 @@ public class TCTypeDefinition extends TCDefinition
 	{
 		LexLocation loc = fname.getLocation();
 		TCPatternList params = new TCPatternList();
-		params.add(new TCIdentifierPattern(new TCNameToken(loc, loc.module, "a")));
-		params.add(new TCIdentifierPattern(new TCNameToken(loc, loc.module, "b")));
+		params.add(new TCIdentifierPattern(new TCNameToken(loc, loc.getModule(), "a")));
+		params.add(new TCIdentifierPattern(new TCNameToken(loc, loc.getModule(), "b")));
 
 		TCPatternListList parameters = new TCPatternListList();
 		parameters.add(params);
@@ -24,6 +24,8 @@
 package com.fujitsu.vdmj.tc.definitions;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.lex.Token;
 import com.fujitsu.vdmj.tc.annotations.TCAnnotationList;
@@ -191,7 +193,7 @@ public class TCValueDefinition extends TCDefinition
 		if (base.isVDMPP() && type instanceof TCNamedType)
 		{
 			TCNamedType named = (TCNamedType)type;
-    		TCDefinition typedef = base.findType(named.typename, location.module);
+    		TCDefinition typedef = base.findType(named.typename, location.getModule());
 
     		if (typedef.accessSpecifier.narrowerThan(accessSpecifier))
     		{
@@ -245,6 +247,19 @@ public class TCValueDefinition extends TCDefinition
 		return defs.findName(sought, scope);
 	}
 
+	@Override
+	public List<String> getIndexNames()
+	{
+		List<String> names = new Vector<String>();
+
+		for (TCNameToken var: pattern.getVariableNames())
+		{
+			names.add(var.getName());
+		}
+
+		return names;
+	}
+
 	@Override
 	public TCType getType()
 	{
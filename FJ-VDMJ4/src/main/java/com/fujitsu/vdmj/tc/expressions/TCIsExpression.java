@@ -71,7 +71,7 @@ public class TCIsExpression extends TCExpression
 
 		if (typename != null)
 		{
-			typedef = env.findType(typename, location.module);
+			typedef = env.findType(typename, location.getModule());
 
 			if (typedef == null)
 			{
@@ -102,7 +102,7 @@ public class TCIsExpression extends TCExpression
         		{
         			if (typedef == null)
         			{
-        				typedef = env.findType(typename, location.module);
+        				typedef = env.findType(typename, location.getModule());
         			}
 
         			if (typedef != null)
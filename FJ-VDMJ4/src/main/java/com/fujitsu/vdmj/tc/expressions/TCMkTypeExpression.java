@@ -63,7 +63,7 @@ public class TCMkTypeExpression extends TCExpression
 	@Override
 	public TCType typeCheck(Environment env, TCTypeList qualifiers, NameScope scope, TCType constraint)
 	{
-		TCDefinition typeDef = env.findType(typename, location.module);
+		TCDefinition typeDef = env.findType(typename, location.getModule());
 
 		if (typeDef == null)
 		{
@@ -81,7 +81,7 @@ public class TCMkTypeExpression extends TCExpression
 
 		recordType = (TCRecordType)rec;
 
-		if (recordType.opaque && !location.module.equals(recordType.location.module))
+		if (recordType.opaque && !location.getModule().equals(recordType.location.getModule()))
 		{
 			report(3127, "Type '" + typename + "' has no struct export");
 			return rec;
@@ -71,7 +71,7 @@ public class TCNarrowExpression extends TCExpression
 		}
 		else
 		{
-			typedef = env.findType(typename, location.module);
+			typedef = env.findType(typename, location.getModule());
 
 			if (typedef == null)
 			{
@@ -27,6 +27,7 @@ import com.fujitsu.vdmj.ast.lex.LexQuoteToken;
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.tc.types.TCQuoteType;
 import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.tc.types.TCTypeFactory;
 import com.fujitsu.vdmj.tc.types.TCTypeList;
 import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.NameScope;
@@ -51,7 +52,7 @@ public class TCQuoteLiteralExpression extends TCExpression
 	@Override
 	public TCType typeCheck(Environment env, TCTypeList qualifiers, NameScope scope, TCType constraint)
 	{
-		return checkConstraint(constraint, new TCQuoteType(location, type.value));
+		return checkConstraint(constraint, TCTypeFactory.getCanonical(new TCQuoteType(location, type.value)));
 	}
 
 	@Override
@@ -40,7 +40,7 @@ public class TCSelfExpression extends TCExpression
 	public TCSelfExpression(LexLocation location)
 	{
 		super(location);
-		name = new TCNameToken(location, location.module, "self", false, false);
+		name = new TCNameToken(location, location.getModule(), "self", false, false);
 	}
 
 	@Override
@@ -63,7 +63,7 @@ public class TCIdentifierToken extends TCToken
 		// read the name. So create a new location with the right module.
 
 		LexLocation loc = new LexLocation(
-			identifier.location.file,
+			identifier.location.getFile(),
 			identifier.name,
 			identifier.location.startLine,
 			identifier.location.startPos,
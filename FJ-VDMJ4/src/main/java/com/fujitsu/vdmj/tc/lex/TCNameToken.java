@@ -288,7 +288,7 @@ public class TCNameToken extends TCToken implements Serializable, Comparable<TCN
 
 	public static TCNameToken getThreadName(LexLocation loc)
 	{
-		TCNameToken thread = new TCNameToken(loc, loc.module, "thread", false);
+		TCNameToken thread = new TCNameToken(loc, loc.getModule(), "thread", false);
 		thread.setTypeQualifier(new TCTypeList());
 		return thread;
 	}
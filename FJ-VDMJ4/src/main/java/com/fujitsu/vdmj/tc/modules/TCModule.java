@@ -25,7 +25,9 @@ package com.fujitsu.vdmj.tc.modules;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.ast.lex.LexCommentList;
@@ -249,14 +251,34 @@ public class TCModule extends TCNode implements Serializable
 		List<String> done = new Vector<String>();
 
 		TCDefinitionList singles = defs.singleDefinitions();
+		Map<String, TCDefinitionList> byName = new HashMap<String, TCDefinitionList>();
+
+		for (TCDefinition def: singles)
+		{
+			if (def.name != null)
+			{
+				TCDefinitionList same = byName.get(def.name.getName());
+
+				if (same == null)
+				{
+					same = new TCDefinitionList();
+					byName.put(def.name.getName(), same);
+				}
+
+				same.add(def);
+			}
+		}
 
 		for (TCDefinition def1: singles)
 		{
-			for (TCDefinition def2: singles)
+			if (def1.name == null)
+			{
+				continue;
+			}
+
+			for (TCDefinition def2: byName.get(def1.name.getName()))
 			{
 				if (def1 != def2 &&
-					def1.name != null && def2.name != null &&
-					def1.name.getName().equals(def2.name.getName()) &&
 					!done.contains(def1.name.getName()))
 				{
 					if ((def1.isFunction() && !def2.isFunction()) ||
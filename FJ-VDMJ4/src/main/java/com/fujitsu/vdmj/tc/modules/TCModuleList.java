@@ -121,7 +121,7 @@ public class TCModuleList extends TCMappedList<ASTModule, TCModule>
 				if (m.isFlat)
 				{
 					def.defs.addAll(m.defs);
-					def.files.add(m.name.getLocation().file);
+					def.files.add(m.name.getLocation().getFile());
 				}
 				else
 				{
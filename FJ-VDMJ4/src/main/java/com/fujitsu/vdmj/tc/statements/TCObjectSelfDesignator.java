@@ -40,7 +40,7 @@ public class TCObjectSelfDesignator extends TCObjectDesignator
 	public TCObjectSelfDesignator(LexLocation location)
 	{
 		super(location);
-		self = new TCNameToken(location, location.module, "self", false);
+		self = new TCNameToken(location, location.getModule(), "self", false);
 	}
 
 	@Override
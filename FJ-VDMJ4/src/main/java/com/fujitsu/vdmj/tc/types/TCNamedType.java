@@ -50,21 +50,21 @@ public class TCNamedType extends TCInvariantType
 	@Override
 	public TCType isType(String other, LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return null;
+		if (opaque && !from.getModule().equals(location.getModule())) return null;
 		return type.isType(other, location);
 	}
 
 	@Override
 	public boolean isType(Class<? extends TCType> typeclass, LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isType(typeclass, location);
 	}
 
 	@Override
 	public boolean isUnion(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isUnion(location);
 	}
 
@@ -95,28 +95,28 @@ public class TCNamedType extends TCInvariantType
 	@Override
 	public boolean isSeq(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isSeq(location);
 	}
 
 	@Override
 	public boolean isSet(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isSet(location);
 	}
 
 	@Override
 	public boolean isMap(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isMap(location);
 	}
 
 	@Override
 	public boolean isRecord(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isRecord(from);
 	}
 
@@ -136,14 +136,14 @@ public class TCNamedType extends TCInvariantType
 	@Override
 	public boolean isNumeric(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isNumeric(location);
 	}
 
 	@Override
 	public boolean isOrdered(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		
 		if (orddef != null)
 		{
@@ -158,7 +158,7 @@ public class TCNamedType extends TCInvariantType
 	@Override
 	public boolean isEq(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		
 		if (eqdef != null)
 		{
@@ -173,28 +173,28 @@ public class TCNamedType extends TCInvariantType
 	@Override
 	public boolean isProduct(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isProduct(location);
 	}
 
 	@Override
 	public boolean isProduct(int n, LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isProduct(n, location);
 	}
 
 	@Override
 	public boolean isFunction(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isFunction(location);
 	}
 
 	@Override
 	public boolean isOperation(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return type.isOperation(location);
 	}
 
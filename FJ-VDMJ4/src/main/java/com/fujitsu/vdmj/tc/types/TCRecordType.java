@@ -71,7 +71,7 @@ public class TCRecordType extends TCInvariantType
 	@Override
 	public TCType isType(String typename, LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return null;
+		if (opaque && !from.getModule().equals(location.getModule())) return null;
 
 		if (typename.indexOf('`') > 0)
 		{
@@ -87,7 +87,7 @@ public class TCRecordType extends TCInvariantType
 	@Override
 	public boolean isRecord(LexLocation from)
 	{
-		if (opaque && !from.module.equals(location.module)) return false;
+		if (opaque && !from.getModule().equals(location.getModule())) return false;
 		return true;
 	}
 
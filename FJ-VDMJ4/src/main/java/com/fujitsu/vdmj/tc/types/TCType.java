@@ -48,6 +48,9 @@ public abstract class TCType extends TCNode implements Comparable<TCType>, Seria
 	public boolean resolved = false;
 	/** The type's possible definition(s) (if a named type) */
 	public transient TCDefinitionList definitions = null;
+
+	/** The display string of a canonical type, which never changes. See TCTypeFactory. */
+	transient String display = null;
 	
 	/**
 	 * Create a new type at the given location.
@@ -74,7 +77,11 @@ public abstract class TCType extends TCNode implements Comparable<TCType>, Seria
 	@Override
 	public final synchronized String toString()
 	{
-		if (inToString)
+		if (display != null)
+		{
+			return display;
+		}
+		else if (inToString)
 		{
 			return "...";
 		}
@@ -404,6 +411,11 @@ public abstract class TCType extends TCNode implements Comparable<TCType>, Seria
 	public int compareTo(TCType o)
 	{
 		// This is used by the TreeSet to do inserts, not equals!!
+		if (this == o)
+		{
+			return 0;
+		}
+
 		return toString().compareTo(o.toString());
 	}
 
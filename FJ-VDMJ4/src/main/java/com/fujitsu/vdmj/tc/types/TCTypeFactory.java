@@ -0,0 +1,353 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.tc.types;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+
+/**
+ * A factory for the canonical instances of types that the type checker creates,
+ * like the union of the types of the branches of an "if" expression. Types with
+ * the same structure are hash-consed, so that there is one instance that holds
+ * the derived types and display string that it caches, and the instance can be
+ * compared by identity. Canonical types are never changed, so the types of a
+ * specification can only be made canonical once they have been resolved.
+ *
+ * Types that are structurally equal may still differ in their location, and the
+ * canonical instance has the location of the first one seen. So parsed types,
+ * which are used to report errors, are never replaced.
+ */
+public class TCTypeFactory
+{
+	/** The canonical instances, keyed by their structure. */
+	private static Map<Key, TCType> canonical = new ConcurrentHashMap<Key, TCType>();
+
+	/**
+	 * The structure of a type: its class, an optional value, and the canonical
+	 * instances of its component types, which are compared by identity.
+	 */
+	private static class Key
+	{
+		private final Class<?> kind;
+		private final Object value;
+		private final TCType[] parts;
+		private final int hash;
+
+		public Key(Class<?> kind, Object value, TCType... parts)
+		{
+			this.kind = kind;
+			this.value = value;
+			this.parts = parts;
+
+			int h = kind.hashCode() * 31 + (value == null ? 0 : value.hashCode());
+
+			for (TCType part: parts)
+			{
+				h = h * 31 + System.identityHashCode(part);
+			}
+
+			this.hash = h;
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Key)
+			{
+				Key key = (Key)other;
+
+				if (kind != key.kind || hash != key.hash || parts.length != key.parts.length ||
+					(value == null ? key.value != null : !value.equals(key.value)))
+				{
+					return false;
+				}
+
+				for (int i=0; i<parts.length; i++)
+				{
+					if (parts[i] != key.parts[i])
+					{
+						return false;
+					}
+				}
+
+				return true;
+			}
+
+			return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+
+	/**
+	 * Discard all of the canonical types. This is called when a new type check
+	 * starts, so that the types of the last specification can be released.
+	 */
+	public static void clear()
+	{
+		canonical = new ConcurrentHashMap<Key, TCType>();
+	}
+
+	/**
+	 * The number of canonical types, for tests and diagnostics.
+	 */
+	public static int size()
+	{
+		return canonical.size();
+	}
+
+	/**
+	 * Create a union of a set of types, which is canonical if all of the types
+	 * can be. A set without nested unions is already in the form that the union
+	 * would expand it to, so its canonical union is found without creating one.
+	 */
+	public static TCUnionType getUnion(LexLocation location, TCTypeSet types)
+	{
+		for (TCType type: types)
+		{
+			if (type instanceof TCUnionType)
+			{
+				TCUnionType union = new TCUnionType(location, types);
+				TCType result = getCanonical(union);
+				return result instanceof TCUnionType ? (TCUnionType)result : union;
+			}
+		}
+
+		Key key = makeKey(TCUnionType.class, null, types);
+
+		if (key == null)
+		{
+			return new TCUnionType(location, types);
+		}
+
+		return (TCUnionType)getCanonical(key, location, TCUnionType.class);
+	}
+
+	/**
+	 * Return the canonical instance of a type, or the type itself if it cannot be
+	 * shared. Named, record and class types (and other types without structure,
+	 * like parameter types) are already shared by the definitions that create them,
+	 * so they are canonical as they are. Types that are not fully resolved, or which
+	 * have state that can change, like function types, are never canonical, and
+	 * neither is any type that contains them.
+	 */
+	public static TCType getCanonical(TCType type)
+	{
+		if (type.display != null || isShared(type))
+		{
+			return type;
+		}
+
+		Key key = getKey(type);
+
+		if (key == null)
+		{
+			return type;
+		}
+		else if (key.parts.length == 0)
+		{
+			return getCanonical(key, type);		// Share the type itself
+		}
+		else
+		{
+			return getCanonical(key, type.location, type.getClass());
+		}
+	}
+
+	private static TCType getCanonical(Key key, LexLocation location, Class<?> kind)
+	{
+		TCType found = canonical.get(key);
+		return found != null ? found : getCanonical(key, make(kind, location, key.parts));
+	}
+
+	private static TCType getCanonical(Key key, TCType made)
+	{
+		TCType found = canonical.get(key);
+
+		if (found == null)
+		{
+			made.resolved = true;
+			made.display = made.toString();
+			found = canonical.putIfAbsent(key, made);
+
+			if (found == null)
+			{
+				found = made;
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Types which are shared by identity and whose display never changes.
+	 */
+	private static boolean isShared(TCType type)
+	{
+		return type instanceof TCNamedType ||
+			type instanceof TCRecordType ||
+			type instanceof TCClassType ||
+			type instanceof TCParameterType ||
+			type instanceof TCUnknownType ||
+			type instanceof TCUndefinedType ||
+			type instanceof TCVoidType ||
+			type instanceof TCVoidReturnType;
+	}
+
+	/**
+	 * Build the key of a type from the canonical instances of its components, or
+	 * return null if the type cannot be canonical.
+	 */
+	private static Key getKey(TCType type)
+	{
+		Class<?> kind = type.getClass();
+
+		if (type instanceof TCQuoteType)
+		{
+			return new Key(kind, ((TCQuoteType)type).value);
+		}
+		else if (type instanceof TCBasicType)
+		{
+			return new Key(kind, null);
+		}
+		else if (kind == TCSeqType.class || kind == TCSeq1Type.class)
+		{
+			TCSeqType seq = (TCSeqType)type;
+			return seq.empty ? new Key(kind, seq.empty) : makeKey(kind, seq.empty, seq.seqof);
+		}
+		else if (kind == TCSetType.class || kind == TCSet1Type.class)
+		{
+			TCSetType set = (TCSetType)type;
+			return set.empty ? new Key(kind, set.empty) : makeKey(kind, set.empty, set.setof);
+		}
+		else if (kind == TCMapType.class || kind == TCInMapType.class)
+		{
+			TCMapType map = (TCMapType)type;
+			return map.empty ? new Key(kind, map.empty) : makeKey(kind, map.empty, map.from, map.to);
+		}
+		else if (kind == TCOptionalType.class)
+		{
+			return makeKey(kind, null, ((TCOptionalType)type).type);
+		}
+		else if (kind == TCProductType.class)
+		{
+			return makeKey(kind, null, ((TCProductType)type).types);
+		}
+		else if (kind == TCUnionType.class)
+		{
+			return makeKey(kind, null, ((TCUnionType)type).types);
+		}
+		else
+		{
+			return null;	// Functions, operations, brackets and unresolved types
+		}
+	}
+
+	private static Key makeKey(Class<?> kind, Object value, TCType... parts)
+	{
+		TCType[] canon = new TCType[parts.length];
+
+		for (int i=0; i<parts.length; i++)
+		{
+			canon[i] = getCanonical(parts[i]);
+
+			if (canon[i].display == null && !isShared(canon[i]))
+			{
+				return null;
+			}
+		}
+
+		return new Key(kind, value, canon);
+	}
+
+	private static Key makeKey(Class<?> kind, Object value, Collection<TCType> parts)
+	{
+		return makeKey(kind, value, parts.toArray(new TCType[parts.size()]));
+	}
+
+	/**
+	 * Make a canonical instance of a type with components, from the canonical
+	 * instances of the components.
+	 */
+	private static TCType make(Class<?> kind, LexLocation location, TCType[] parts)
+	{
+		if (kind == TCSeq1Type.class)
+		{
+			return new TCSeq1Type(location, parts[0]);
+		}
+		else if (kind == TCSeqType.class)
+		{
+			return new TCSeqType(location, parts[0]);
+		}
+		else if (kind == TCSet1Type.class)
+		{
+			return new TCSet1Type(location, parts[0]);
+		}
+		else if (kind == TCSetType.class)
+		{
+			return new TCSetType(location, parts[0]);
+		}
+		else if (kind == TCInMapType.class)
+		{
+			return new TCInMapType(location, parts[0], parts[1]);
+		}
+		else if (kind == TCMapType.class)
+		{
+			return new TCMapType(location, parts[0], parts[1]);
+		}
+		else if (kind == TCOptionalType.class)
+		{
+			return new TCOptionalType(location, parts[0]);
+		}
+		else if (kind == TCProductType.class)
+		{
+			TCTypeList list = new TCTypeList();
+
+			for (TCType part: parts)
+			{
+				list.add(part);
+			}
+
+			return new TCProductType(location, list);
+		}
+		else	// TCUnionType
+		{
+			TCTypeSet set = new TCTypeSet();
+
+			for (TCType part: parts)
+			{
+				set.add(part);
+			}
+
+			return new TCUnionType(location, set);
+		}
+	}
+}
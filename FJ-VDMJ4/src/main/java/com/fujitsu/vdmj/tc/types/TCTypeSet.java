@@ -170,7 +170,7 @@ public class TCTypeSet extends TreeSet<TCType> implements Cloneable
 		}
 		else
 		{
-			result = new TCUnionType(location, this);
+			result = TCTypeFactory.getUnion(location, this);
 		}
 
 		return (optional ? new TCOptionalType(location, result) : result);
@@ -23,8 +23,12 @@
 
 package com.fujitsu.vdmj.tc.types;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 
 import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.Token;
@@ -68,6 +72,11 @@ public class TCUnionType extends TCType
 	private int prodCard = -1;
 	private boolean expanded = false;
 
+	/** The members and quote values of a large union, for hasMember. */
+	private transient Set<TCType> members = null;
+	private transient Set<String> quotes = null;
+	private static final int MEMBER_INDEX = 8;
+
 	public TCUnionType(LexLocation location, TCType a, TCType b)
 	{
 		super(location);
@@ -288,6 +297,47 @@ public class TCUnionType extends TCType
 		return this;
 	}
 
+	/**
+	 * True if the type is one of the members of the union, or is a quote whose
+	 * value is one of the union's quotes. The TypeComparator uses this to avoid
+	 * comparing every member, so large unions of quotes are indexed.
+	 */
+	public boolean hasMember(TCType type)
+	{
+		String quote = (type instanceof TCQuoteType) ? ((TCQuoteType)type).value : null;
+
+		if (types.size() < MEMBER_INDEX)
+		{
+			for (TCType t: types)
+			{
+				if (t == type || (quote != null && t instanceof TCQuoteType && quote.equals(((TCQuoteType)t).value)))
+				{
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		if (members == null)
+		{
+			members = Collections.newSetFromMap(new IdentityHashMap<TCType, Boolean>());
+			quotes = new HashSet<String>();
+
+			for (TCType t: types)
+			{
+				members.add(t);
+
+				if (t instanceof TCQuoteType)
+				{
+					quotes.add(((TCQuoteType)t).value);
+				}
+			}
+		}
+
+		return members.contains(type) || (quote != null && quotes.contains(quote));
+	}
+
 	@Override
 	public TCSeqType getSeq()
 	{
@@ -450,6 +500,27 @@ public class TCUnionType extends TCType
 
 	@Override
 	public TCClassType getClassType(Environment env)
+	{
+		if (display == null || classDone)
+		{
+			return deriveClass(env);
+		}
+
+		// A canonical union is shared by every class, but its fields depend on
+		// what the accessing class can see, so the result is not kept.
+
+		try
+		{
+			return deriveClass(env);
+		}
+		finally
+		{
+			classDone = false;
+			classType = null;
+		}
+	}
+
+	private TCClassType deriveClass(Environment env)
 	{
 		if (!classDone)
 		{
@@ -848,6 +919,8 @@ public class TCUnionType extends TCType
 
 		types = exptypes;
 		expanded = true;
+		members = null;
+		quotes = null;
 		definitions = new TCDefinitionList();
 
 		for (TCType t: types)
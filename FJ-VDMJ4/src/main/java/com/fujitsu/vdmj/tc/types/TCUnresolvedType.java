@@ -70,7 +70,7 @@ public class TCUnresolvedType extends TCType
 
 	private TCType dereference(Environment env, TCTypeDefinition root)
 	{
-		TCDefinition def = env.findType(typename, location.module);
+		TCDefinition def = env.findType(typename, location.getModule());
 
 		if (def == null)
 		{
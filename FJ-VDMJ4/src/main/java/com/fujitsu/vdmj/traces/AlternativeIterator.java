@@ -64,6 +64,14 @@ public class AlternativeIterator extends TraceIterator
 		return test;
 	}
 
+	@Override
+	public CallSequence getTest(int n)
+	{
+		CallSequence test = getVariables();
+		test.addAll(alternatives.getTestAlternative(n));
+		return test;
+	}
+
 	@Override
 	public boolean hasMoreTests()
 	{
@@ -116,6 +116,33 @@ public class ConcurrentIterator extends TraceIterator
 		return test;
 	}
 
+	@Override
+	public CallSequence getTest(int n)
+	{
+		int nodesSize = nodes.size();
+		int selections = nodes.countSequence();
+		int[] perm = PermuteArray.get(nodesSize, n / selections);
+		int select = n % selections;
+		
+		CallSequence[] subsequences = new CallSequence[nodesSize];
+		
+		for (int node=0; node<nodesSize; node++)	// As the Permutor, the first varies fastest
+		{
+			int count = nodes.get(node).count();
+			subsequences[node] = nodes.get(node).getTest(select % count);
+			select = select / count;
+		}
+		
+		CallSequence test = getVariables();
+		
+		for (int i=0; i<nodesSize; i++)		// Add in permutation order
+		{
+			test.addAll(subsequences[perm[i]]);
+		}
+		
+		return test;
+	}
+
 	@Override
 	public boolean hasMoreTests()
 	{
@@ -138,5 +165,7 @@ public class ConcurrentIterator extends TraceIterator
 	public void reset()
 	{
 		nodes.reset();
+		permutations = null;	// Start again, with the first permutation
+		selector = null;
 	}
 }
@@ -26,6 +26,8 @@
 package com.fujitsu.vdmj.traces;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
 
 public class PermuteArray
 {
@@ -97,7 +99,7 @@ public class PermuteArray
 
 	private static long getFactorial(int n)
 	{
-		return n == 1 ? 1 : n * getFactorial(n-1);
+		return n <= 1 ? 1 : n * getFactorial(n-1);
 	}
 
 	//--------------------------------------------------------
@@ -157,6 +159,31 @@ public class PermuteArray
 		return a;
 	}
 	
+	//-----------------------------------------------------------
+	// Return the k'th permutation of n, counting from zero, in
+	// the order that next() generates them (lexicographic).
+	//-----------------------------------------------------------
+
+	public static int[] get(int n, long k)
+	{
+		int[] result = new int[n];
+		List<Integer> unused = new Vector<Integer>(n);
+
+		for (int i = 0; i < n; i++)
+		{
+			unused.add(i);
+		}
+
+		for (int i = 0; i < n; i++)
+		{
+			long f = getFactorial(n - i - 1);
+			result[i] = unused.remove((int)(k / f));
+			k = k % f;
+		}
+
+		return result;
+	}
+
 	public static void main(String[] args)
 	{
 		PermuteArray p = new PermuteArray(4);
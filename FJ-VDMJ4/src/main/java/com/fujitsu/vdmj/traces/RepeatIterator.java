@@ -106,6 +106,29 @@ public class RepeatIterator extends TraceIterator
 		return test;
 	}
 
+	@Override
+	public CallSequence getTest(int n)
+	{
+		CallSequence test = getVariables();
+		int rval = from;
+		int block = (int) Math.pow(repeatCount, rval);
+		
+		while (n >= block && rval < to)		// Find the {n} for this test
+		{
+			n = n - block;
+			rval++;
+			block = (int) Math.pow(repeatCount, rval);
+		}
+		
+		for (int i=0; i<rval; i++)		// As the Permutor, the first varies fastest
+		{
+			test.addAll(repeat.getTest(n % repeatCount));
+			n = n / repeatCount;
+		}
+		
+		return test;
+	}
+
 	@Override
 	public boolean hasMoreTests()
 	{
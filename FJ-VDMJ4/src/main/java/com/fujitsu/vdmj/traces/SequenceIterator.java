@@ -62,6 +62,14 @@ public class SequenceIterator extends TraceIterator
 		return test;
 	}
 
+	@Override
+	public CallSequence getTest(int n)
+	{
+		CallSequence test = getVariables();
+		test.addAll(nodes.getTestSequence(n));
+		return test;
+	}
+
 	@Override
 	public boolean hasMoreTests()
 	{
@@ -57,6 +57,14 @@ public class StatementIterator extends TraceIterator
 		return test;
 	}
 
+	@Override
+	public CallSequence getTest(int n)
+	{
+		CallSequence test = getVariables();
+		test.add(statement);
+		return test;
+	}
+
 	@Override
 	public boolean hasMoreTests()
 	{
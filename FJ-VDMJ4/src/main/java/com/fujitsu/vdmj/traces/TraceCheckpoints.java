@@ -0,0 +1,167 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.traces;
+
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.in.statements.INStatement;
+import com.fujitsu.vdmj.in.traces.INTraceVariableStatement;
+
+/**
+ * A class to share the execution of test stems. The interpreter state is saved
+ * after the statements of a test that end the stems shared with later tests; the
+ * next test then starts from the state after the longest saved stem it has in
+ * common with the previous test, and only executes the statements that follow.
+ * If tests are run in the order of a depth first walk of their prefix tree, each
+ * stem is only executed once.
+ */
+abstract public class TraceCheckpoints
+{
+	/** The previous test executed. */
+	private CallSequence previous = null;
+
+	/** The result list of the previous test. */
+	private List<Object> previousResult = null;
+
+	/** Marks a stem of the previous test whose state was not saved. */
+	private static final Object NOT_SAVED = new Object();
+
+	/** The states after each statement of the previous test, and result sizes. */
+	private Vector<Object> states = new Vector<Object>();
+	private Vector<Integer> sizes = new Vector<Integer>();
+
+	/** The lengths of the stems of the next test to save, or null for every stem. */
+	private Set<Integer> shared = null;
+
+	/**
+	 * Re-initialize the interpreter completely.
+	 */
+	abstract protected void reset();
+
+	/**
+	 * Return a copy of the current interpreter state.
+	 */
+	abstract protected Object save();
+
+	/**
+	 * Restore an interpreter state, as returned by save, after a reset.
+	 */
+	abstract protected void restore(Object state);
+
+	/**
+	 * Set the lengths of the stems of the next test that later tests will share,
+	 * so that only the states after those stems are saved.
+	 */
+	public void setShared(Set<Integer> lengths)
+	{
+		shared = lengths;
+	}
+
+	/**
+	 * Prepare to execute a test, by restoring the state after the longest saved
+	 * stem that the test shares with the previous test.
+	 * 
+	 * @return The number of statements of the test that have been executed.
+	 */
+	public int start(CallSequence test)
+	{
+		int stem = 0;
+
+		if (previous != null)
+		{
+			int max = Math.min(states.size(), test.size());
+
+			while (stem < max && test.get(stem).toString().equals(previous.get(stem).toString()))
+			{
+				stem++;
+			}
+
+			while (stem > 0 && states.get(stem - 1) == NOT_SAVED)
+			{
+				stem--;
+			}
+		}
+
+		reset();
+
+		if (stem > 0 && states.get(stem - 1) != null)
+		{
+			restore(states.get(stem - 1));
+		}
+
+		states.setSize(stem);
+		sizes.setSize(stem);
+		previous = test;
+		return stem;
+	}
+
+	/**
+	 * The results of the statements of the stem, as passed to start.
+	 */
+	public List<Object> getStemResult(int stem)
+	{
+		List<Object> result = new Vector<Object>();
+
+		if (stem > 0)
+		{
+			result.addAll(previousResult.subList(0, sizes.get(stem - 1)));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Called after each statement of a test completes successfully.
+	 */
+	public void checkpoint(INStatement statement, List<Object> result)
+	{
+		Object last = states.isEmpty() ? null : states.lastElement();
+
+		if (shared != null && !shared.contains(states.size() + 1))
+		{
+			states.add(NOT_SAVED);
+		}
+		else if (statement instanceof INTraceVariableStatement && last != NOT_SAVED)
+		{
+			// State unchanged, so just repeat the previous state (null => initial)
+			states.add(last);
+		}
+		else
+		{
+			states.add(save());
+		}
+
+		sizes.add(result.size());
+	}
+
+	/**
+	 * Called with the complete result of each test.
+	 */
+	public void finish(List<Object> result)
+	{
+		previousResult = result;
+	}
+}
@@ -23,12 +23,19 @@
 
 package com.fujitsu.vdmj.traces;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.Vector;
 
+import com.fujitsu.vdmj.in.statements.INStatement;
+import com.fujitsu.vdmj.in.traces.INTraceVariableStatement;
+
 /**
  * A class to filter whether tests are performed, by various criteria.
  */
@@ -39,14 +46,22 @@ public class TraceFilter
 	private final TraceReductionType reductionType;
 	private final Random prng;
 	
-	private List<CallSequence> failedTests = new Vector<CallSequence>();
-	private List<Integer> failedStems = new Vector<Integer>();
-	private List<Integer> failedNumbers = new Vector<Integer>();
+	/** The stems of failed tests, indexed by their statements. */
+	private final StemNode failedStems = new StemNode();
+	private int failures = 0;
 	private Set<String> shapes = new HashSet<String>();
 	private int extras = 0;
 	
 	private Set<Integer> included = new HashSet<Integer>();
 	
+	/**
+	 * A filter with no reduction, which only records failed stems.
+	 */
+	public TraceFilter()
+	{
+		this(0, 1.0F, TraceReductionType.NONE, 0);
+	}
+
 	public TraceFilter(int count, float subset, TraceReductionType reductionType, long seed)
 	{
 		this.count = count;
@@ -72,27 +87,186 @@ public class TraceFilter
 		}
 	}
 
+	/**
+	 * A node in a trie of failed test stems. The children are keyed by the text
+	 * of the next statement, as compared by CallSequence.compareStem. A node
+	 * holds the failures whose stem ends there, in the order they were added.
+	 */
+	private static class StemNode
+	{
+		private Map<String, StemNode> children = null;
+		private List<Failure> failures = null;
+
+		public StemNode child(String key, boolean create)
+		{
+			if (children == null)
+			{
+				if (!create)
+				{
+					return null;
+				}
+
+				children = new HashMap<String, StemNode>();
+			}
+
+			StemNode node = children.get(key);
+
+			if (node == null && create)
+			{
+				node = new StemNode();
+				children.put(key, node);
+			}
+
+			return node;
+		}
+
+		public void add(Failure failure)
+		{
+			if (failures == null)
+			{
+				failures = new Vector<Failure>(1);
+			}
+
+			failures.add(failure);
+		}
+
+		/**
+		 * The earliest failure here, if any, that filters a test of the size given.
+		 */
+		public Failure match(int size)
+		{
+			if (failures != null)
+			{
+				for (Failure f: failures)
+				{
+					if (size >= f.size)
+					{
+						return f;
+					}
+				}
+			}
+
+			return null;
+		}
+	}
+
+	private static class Failure
+	{
+		public final int order;		// The order added
+		public final int size;		// The size of the failed test
+		public final int number;	// The failed test number
+
+		public Failure(int order, int size, int number)
+		{
+			this.order = order;
+			this.size = size;
+			this.number = number;
+		}
+	}
+
+	/**
+	 * Return the number of the first failed test whose stem matches this test, or
+	 * zero if there is none. This walks the failed stem trie along the statements
+	 * of the test, so the time taken is proportional to the length of the test
+	 * rather than the number of failures.
+	 */
 	public int getFilteredBy(CallSequence test)
 	{
-		for (int i=0; i<failedTests.size(); i++)
+		Failure first = failedStems.match(test.size());
+		StemNode node = failedStems;
+
+		for (int i=0; i<test.size() && node != null; i++)
 		{
-			if (failedTests.get(i).compareStem(test, failedStems.get(i)))
+			INStatement stmt = test.get(i);
+			node = node.child(stmt.toString(), false);
+
+			if (node != null && !(stmt instanceof INTraceVariableStatement))
 			{
-				return failedNumbers.get(i);
+				Failure f = node.match(test.size());
+
+				if (f != null && (first == null || f.order < first.order))
+				{
+					first = f;
+				}
 			}
 		}
-		
-		return 0;
+
+		return first == null ? 0 : first.number;
 	}
 
 	public void update(List<Object> result, CallSequence test, int n)
 	{
-		if (result.get(result.size()-1) != Verdict.PASSED)
+		update(result.get(result.size()-1) == Verdict.PASSED, result.size(), test, n);
+	}
+
+	/**
+	 * Update with a result that was produced elsewhere, such as by a TraceWorker
+	 * process. The size is the number of results, including the final verdict.
+	 */
+	public void update(boolean passed, int size, CallSequence test, int n)
+	{
+		if (!passed)
 		{
-			failedTests.add(test);
-			failedStems.add(result.size() - 1);
-			failedNumbers.add(n);
+			// The stem is the first (size - 1) calls, plus any variable statements
+			// before the last of them. See CallSequence.compareStem.
+
+			int upto = size - 1;
+			StemNode node = failedStems;
+
+			for (int i=0, count=0; count<upto; i++)
+			{
+				if (i >= test.size())
+				{
+					return;		// Can never match anything
+				}
+
+				INStatement stmt = test.get(i);
+				node = node.child(stmt.toString(), true);
+
+				if (!(stmt instanceof INTraceVariableStatement))
+				{
+					count++;
+				}
+			}
+
+			node.add(new Failure(failures++, test.size(), n));
+		}
+	}
+
+	/**
+	 * Return the numbers of the tests in the range given that have to be
+	 * considered, in order. A random reduction only has to consider the tests
+	 * that it selected, but other reductions have to see every test.
+	 */
+	public Iterator<Integer> getTestNumbers(final int first, final int last)
+	{
+		if (reductionType == TraceReductionType.RANDOM && included.size() > 0)
+		{
+			return new TreeSet<Integer>(included).subSet(first, true, last, true).iterator();
 		}
+
+		return new Iterator<Integer>()
+		{
+			private int next = first;
+
+			@Override
+			public boolean hasNext()
+			{
+				return next <= last;
+			}
+
+			@Override
+			public Integer next()
+			{
+				return next++;
+			}
+
+			@Override
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	public boolean isRemoved(CallSequence test, int number)
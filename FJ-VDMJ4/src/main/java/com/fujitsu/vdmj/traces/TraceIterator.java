@@ -53,6 +53,13 @@ public abstract class TraceIterator
 
 	abstract public CallSequence getNextTest();
 
+	/**
+	 * Return the n'th test of the expansion, counting from zero. This is the test
+	 * that getNextTest would return after a reset and n calls, but it is computed
+	 * from the counts of the sub-iterators, without generating the tests before it.
+	 */
+	abstract public CallSequence getTest(int n);
+
 	abstract public int count();
 	
 	abstract public void reset();
@@ -36,6 +36,9 @@ public class TraceIteratorList extends Vector<TraceIterator>
 
 	private Integer lastAlternative = null;
 
+	private int sequenceCount = -1;		// Cached, as the list does not change
+	private int alternativeCount = -1;
+
 	public void reset()
 	{
 		for (TraceIterator iter: this)
@@ -49,26 +52,36 @@ public class TraceIteratorList extends Vector<TraceIterator>
 	
 	public int countSequence()
 	{
-		int result = 1;
-		
-		for (TraceIterator iter: this)
+		if (sequenceCount < 0)
 		{
-			result = result * iter.count();
+			int result = 1;
+			
+			for (TraceIterator iter: this)
+			{
+				result = result * iter.count();
+			}
+			
+			sequenceCount = result;
 		}
 		
-		return result;
+		return sequenceCount;
 	}
 
 	public int countAlternative()
 	{
-		int result = 0;
-		
-		for (TraceIterator iter: this)
+		if (alternativeCount < 0)
 		{
-			result = result + iter.count();
+			int result = 0;
+			
+			for (TraceIterator iter: this)
+			{
+				result = result + iter.count();
+			}
+			
+			alternativeCount = result;
 		}
 		
-		return result;
+		return alternativeCount;
 	}
 
 	public boolean hasMoreSequenceTests()
@@ -159,6 +172,44 @@ public class TraceIteratorList extends Vector<TraceIterator>
 		throw new RuntimeException("Called getNextTest() when !hasMoreTests()");
 	}
 	
+	/**
+	 * Return the n'th sequence test, as getNextTestSequence would. The first
+	 * iterator varies fastest.
+	 */
+	public CallSequence getTestSequence(int n)
+	{
+		CallSequence seq = new CallSequence();
+		
+		for (TraceIterator iter: this)
+		{
+			int count = iter.count();
+			seq.addAll(iter.getTest(n % count));
+			n = n / count;
+		}
+		
+		return seq;
+	}
+
+	/**
+	 * Return the n'th alternative test, as getNextTestAlternative would.
+	 */
+	public CallSequence getTestAlternative(int n)
+	{
+		for (TraceIterator iter: this)
+		{
+			int count = iter.count();
+			
+			if (n < count)
+			{
+				return iter.getTest(n);
+			}
+			
+			n = n - count;
+		}
+		
+		throw new RuntimeException("Called getTest() with n > count()");
+	}
+
 	/**
 	 * Get the simplest alternative iterator representing the list.
 	 */
@@ -0,0 +1,51 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.traces;
+
+import java.util.List;
+
+/**
+ * The result of one test, as needed to report it and to update a TraceFilter,
+ * after the test has been executed.
+ */
+public class TraceResult
+{
+	public final int number;
+	public final int size;
+	public final boolean passed;
+	public final String text;
+
+	public TraceResult(int number, int size, boolean passed, String text)
+	{
+		this.number = number;
+		this.size = size;
+		this.passed = passed;
+		this.text = text;
+	}
+
+	public TraceResult(int number, List<Object> result)
+	{
+		this(number, result.size(), result.lastIndexOf(Verdict.PASSED) != -1, result.toString());
+	}
+}
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.traces;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.ExitStatus;
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.VDMJ;
+import com.fujitsu.vdmj.VDMPP;
+import com.fujitsu.vdmj.VDMRT;
+import com.fujitsu.vdmj.VDMSL;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.runtime.Interpreter;
+
+/**
+ * The main class of a process started by a {@link TraceWorkerPool}. The arguments
+ * give the specification and the trace to execute, and batches of the numbers of
+ * the tests to run are read from stdin. The results are written to stdout, one per
+ * line, followed by the coverage of the tests when stdin is closed. Anything else
+ * that the specification prints is discarded.
+ */
+public class TraceWorker
+{
+	public static void main(String[] args)
+	{
+		PrintWriter out = null;
+
+		try
+		{
+			out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), "UTF-8"));
+
+			System.setOut(new PrintStream(new OutputStream()
+			{
+				@Override
+				public void write(int b)
+				{
+					return;		// Discard spec output
+				}
+			}));
+
+			System.exit(run(args, out) ? 0 : 1);
+		}
+		catch (Throwable e)
+		{
+			System.err.println("Trace worker: " + e);
+			System.exit(1);
+		}
+	}
+
+	private static boolean run(String[] args, PrintWriter out) throws Exception
+	{
+		VDMJ controller = null;
+		String defaultName = null;
+		String trace = null;
+		List<File> files = new Vector<File>();
+
+		for (int i=0; i<args.length; i++)
+		{
+			String arg = args[i];
+
+			if (arg.equals("-vdmsl"))
+			{
+				controller = new VDMSL();
+				Settings.dialect = Dialect.VDM_SL;
+			}
+			else if (arg.equals("-vdmpp"))
+			{
+				controller = new VDMPP();
+				Settings.dialect = Dialect.VDM_PP;
+			}
+			else if (arg.equals("-vdmrt"))
+			{
+				controller = new VDMRT();
+				Settings.dialect = Dialect.VDM_RT;
+			}
+			else if (arg.equals("-r"))
+			{
+				Settings.release = Release.lookup(args[++i]);
+			}
+			else if (arg.equals("-c"))
+			{
+				VDMJ.filecharset = args[++i];
+			}
+			else if (arg.equals("-pre"))
+			{
+				Settings.prechecks = false;
+			}
+			else if (arg.equals("-post"))
+			{
+				Settings.postchecks = false;
+			}
+			else if (arg.equals("-inv"))
+			{
+				Settings.invchecks = false;
+			}
+			else if (arg.equals("-dtc"))
+			{
+				Settings.invchecks = false;
+				Settings.dynamictypechecks = false;
+			}
+			else if (arg.equals("-exceptions"))
+			{
+				Settings.exceptions = true;
+			}
+			else if (arg.equals("-measures"))
+			{
+				Settings.measureChecks = false;
+			}
+			else if (arg.equals("-annotations"))
+			{
+				Settings.annotations = true;
+			}
+			else if (arg.equals("-strict"))
+			{
+				Settings.strict = true;
+			}
+			else if (arg.equals("-sharing"))
+			{
+				Settings.traceSharing = true;
+			}
+			else if (arg.equals("-default"))
+			{
+				defaultName = args[++i];
+			}
+			else if (arg.equals("-trace"))
+			{
+				trace = args[++i];
+			}
+			else
+			{
+				files.add(new File(arg));
+			}
+		}
+
+		if (controller == null || trace == null)
+		{
+			System.err.println("Trace worker: missing dialect or trace name");
+			return false;
+		}
+
+		controller.setQuiet(true);
+		System.setProperty(Settings.dialect.name(), "1");
+
+		if (controller.parse(files) != ExitStatus.EXIT_OK ||
+			controller.typeCheck() != ExitStatus.EXIT_OK)
+		{
+			System.err.println("Trace worker: specification has errors");
+			return false;
+		}
+
+		Interpreter interpreter = controller.getInterpreter();
+
+		if (defaultName != null)
+		{
+			interpreter.setDefaultName(defaultName);
+		}
+
+		interpreter.init();
+
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+		interpreter.runtraceWorker(trace, in, out);
+		out.println(TraceWorkerPool.encodeCoverage(files));
+		out.flush();
+		return true;
+	}
+}
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.traces;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.VDMJ;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Interpreter;
+
+/**
+ * A pool of TraceWorker processes, used to execute the tests of a trace in parallel.
+ * Each worker is a separate JVM that loads the same specification, because the
+ * interpreter keeps its state in static fields and so cannot be shared by threads.
+ * Tests are sent in batches, one batch per line, and each worker is only given a
+ * new batch when it has fewer than two waiting. So the caller can decide whether
+ * to send each test shortly before it is needed, using the results received so
+ * far. When the workers have finished, their coverage is added to the locations
+ * of this process.
+ */
+public class TraceWorkerPool
+{
+	private static final String CHARSET = "UTF-8";
+	private static final String COVERAGE = "#coverage";
+
+	/** The number of tests sent to a worker in one batch. */
+	public static final int BATCH = 10;
+
+	private final int size;
+	private final List<File> files;
+	private final List<Process> processes = new Vector<Process>();
+	private final List<PrintWriter> inputs = new Vector<PrintWriter>();
+	private final List<BufferedReader> outputs = new Vector<BufferedReader>();
+
+	/** The sizes of the batches that each worker has not yet returned. */
+	private final List<LinkedList<Integer>> waiting = new Vector<LinkedList<Integer>>();
+
+	/** The worker that was sent each test, keyed by the caller's test index. */
+	private final Map<Integer, Integer> workers = new HashMap<Integer, Integer>();
+
+	public TraceWorkerPool(Interpreter interpreter, String trace, int size) throws IOException
+	{
+		this.size = size;
+		this.files = interpreter.getLoadedFiles();
+		List<String> command = getCommand(interpreter, trace);
+
+		for (int i=0; i<size; i++)
+		{
+			ProcessBuilder pb = new ProcessBuilder(command);
+			pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+			Process p = pb.start();
+
+			processes.add(p);
+			inputs.add(new PrintWriter(new OutputStreamWriter(p.getOutputStream(), CHARSET)));
+			outputs.add(new BufferedReader(new InputStreamReader(p.getInputStream(), CHARSET)));
+			waiting.add(new LinkedList<Integer>());
+		}
+	}
+
+	private List<String> getCommand(Interpreter interpreter, String trace)
+	{
+		List<String> command = new Vector<String>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+
+		for (String arg: ManagementFactory.getRuntimeMXBean().getInputArguments())
+		{
+			if (!arg.startsWith("-agentlib") && !arg.startsWith("-javaagent") && !arg.startsWith("-Xrunjdwp"))
+			{
+				command.add(arg);
+			}
+		}
+
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(TraceWorker.class.getName());
+
+		switch (Settings.dialect)
+		{
+			case VDM_SL:	command.add("-vdmsl"); break;
+			case VDM_PP:	command.add("-vdmpp"); break;
+			case VDM_RT:	command.add("-vdmrt"); break;
+		}
+
+		command.add("-r");
+		command.add(Settings.release.toString());
+		command.add("-c");
+		command.add(VDMJ.filecharset);
+
+		if (!Settings.prechecks)
+		{
+			command.add("-pre");
+		}
+
+		if (!Settings.postchecks)
+		{
+			command.add("-post");
+		}
+
+		if (!Settings.invchecks)
+		{
+			command.add("-inv");
+		}
+
+		if (!Settings.dynamictypechecks)
+		{
+			command.add("-dtc");
+		}
+
+		if (Settings.exceptions)
+		{
+			command.add("-exceptions");
+		}
+
+		if (!Settings.measureChecks)
+		{
+			command.add("-measures");
+		}
+
+		if (Settings.annotations)
+		{
+			command.add("-annotations");
+		}
+
+		if (Settings.strict)
+		{
+			command.add("-strict");
+		}
+
+		if (Settings.traceSharing)
+		{
+			command.add("-sharing");
+		}
+
+
+		command.add("-default");
+		command.add(interpreter.getDefaultName());
+		command.add("-trace");
+		command.add(trace);
+
+		for (File file: files)
+		{
+			command.add(file.getPath());		// Same cwd and order, so locations match
+		}
+
+		return command;
+	}
+
+	/**
+	 * True if a worker has fewer than two batches waiting, so that another batch
+	 * can be sent without delaying the tests of the batches already sent.
+	 */
+	public boolean isReady()
+	{
+		for (LinkedList<Integer> batches: waiting)
+		{
+			if (batches.size() < 2)
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Send a batch of tests to the worker with the fewest batches waiting. The
+	 * indexes identify the tests to the receive method, and the numbers are the
+	 * test numbers of the trace.
+	 */
+	public void send(List<Integer> indexes, List<Integer> numbers)
+	{
+		if (indexes.isEmpty())
+		{
+			return;
+		}
+
+		int worker = 0;
+
+		for (int i=1; i<size; i++)
+		{
+			if (waiting.get(i).size() < waiting.get(worker).size())
+			{
+				worker = i;
+			}
+		}
+
+		StringBuilder sb = new StringBuilder();
+
+		for (int i=0; i<indexes.size(); i++)
+		{
+			sb.append(i == 0 ? "" : " ");
+			sb.append(numbers.get(i));
+			workers.put(indexes.get(i), worker);
+		}
+
+		PrintWriter in = inputs.get(worker);
+		in.println(sb.toString());
+		in.flush();
+		waiting.get(worker).add(indexes.size());
+	}
+
+	/**
+	 * True if the test with the index given has been sent to a worker.
+	 */
+	public boolean wasSent(int index)
+	{
+		return workers.containsKey(index);
+	}
+
+	/**
+	 * Wait for the result of a test that was sent. The results of the tests sent
+	 * to each worker must be received in the order that they were sent.
+	 */
+	public TraceResult receive(int index) throws Exception
+	{
+		int worker = workers.remove(index);
+		String line = outputs.get(worker).readLine();
+
+		if (line == null)
+		{
+			throw new Exception("Trace worker " + (worker + 1) + " failed");
+		}
+
+		LinkedList<Integer> batches = waiting.get(worker);
+		int remaining = batches.removeFirst() - 1;
+
+		if (remaining > 0)
+		{
+			batches.addFirst(remaining);
+		}
+
+		return decode(line);
+	}
+
+	/**
+	 * Tell the workers that there are no more tests, and add the coverage of the
+	 * tests that they executed to the locations of this process. This is called
+	 * after all of the results have been received.
+	 */
+	public void finish() throws Exception
+	{
+		for (PrintWriter in: inputs)
+		{
+			in.close();
+		}
+
+		List<List<LexLocation>> locations = new Vector<List<LexLocation>>();
+
+		for (File file: files)
+		{
+			locations.add(LexLocation.getLocations(file));
+		}
+
+		for (int w=0; w<size; w++)
+		{
+			String line = outputs.get(w).readLine();
+
+			if (line == null || !line.startsWith(COVERAGE))
+			{
+				throw new Exception("Trace worker " + (w + 1) + " did not return coverage");
+			}
+
+			String[] parts = line.split(" ");
+
+			for (int i=1; i<parts.length; i++)
+			{
+				String[] hit = parts[i].split(":");	// file:location:hits
+				locations.get(Integer.parseInt(hit[0])).get(Integer.parseInt(hit[1])).hits +=
+					Long.parseLong(hit[2]);
+			}
+		}
+	}
+
+	public void close()
+	{
+		for (Process p: processes)
+		{
+			p.destroy();
+		}
+	}
+
+	/**
+	 * Encode the coverage of the files passed as a single line, as written by a
+	 * worker. Each location with hits is identified by the position of its file
+	 * in the list and its position in the locations of the file, which are the
+	 * same in every process that loads the files in the same order.
+	 */
+	public static String encodeCoverage(List<File> files)
+	{
+		StringBuilder sb = new StringBuilder(COVERAGE);
+
+		for (int f=0; f<files.size(); f++)
+		{
+			List<LexLocation> locations = LexLocation.getLocations(files.get(f));
+
+			for (int l=0; l<locations.size(); l++)
+			{
+				long hits = locations.get(l).hits;
+
+				if (hits > 0)
+				{
+					sb.append(" " + f + ":" + l + ":" + hits);
+				}
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Encode a test result as a single line, as written by a worker.
+	 */
+	public static String encode(TraceResult result)
+	{
+		String text = result.text.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+		return result.number + "\t" + result.size + "\t" + result.passed + "\t" + text;
+	}
+
+	private static TraceResult decode(String line)
+	{
+		String[] parts = line.split("\t", 4);
+		StringBuilder text = new StringBuilder();
+
+		for (int i=0; i<parts[3].length(); i++)
+		{
+			char c = parts[3].charAt(i);
+
+			if (c == '\\' && i < parts[3].length() - 1)
+			{
+				c = parts[3].charAt(++i);
+
+				switch (c)
+				{
+					case 'n':	c = '\n'; break;
+					case 'r':	c = '\r'; break;
+				}
+			}
+
+			text.append(c);
+		}
+
+		return new TraceResult(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+			Boolean.parseBoolean(parts[2]), text.toString());
+	}
+}
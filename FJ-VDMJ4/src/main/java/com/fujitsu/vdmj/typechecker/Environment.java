@@ -23,6 +23,10 @@
 
 package com.fujitsu.vdmj.typechecker;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import com.fujitsu.vdmj.config.Properties;
 import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
@@ -66,12 +70,13 @@ abstract public class Environment
 	protected void dupHideCheck(TCDefinitionList list, NameScope scope)
 	{
 		TCNameList allnames = list.getVariableNames();
+		Map<String, TCNameList> groups = groupNames(allnames);
 
 		for (TCNameToken n1: allnames)
 		{
 			TCNameList done = new TCNameList();
 
-			for (TCNameToken n2: allnames)
+			for (TCNameToken n2: groups == null ? allnames : groups.get(groupKey(n1)))
 			{
 				if (n1 != n2 && n1.equals(n2) && !done.contains(n1))
 				{
@@ -94,7 +99,7 @@ abstract public class Environment
 					// Reduce clutter for names in the same module/class
 					String message = null;
 
-					if (def.location.file.equals(n1.getLocation().file))
+					if (def.location.getFile().equals(n1.getLocation().getFile()))
 					{
 						message = def.name.getName() + " " + def.location.toShortString() +
 							" hidden by " +	n1.toString();
@@ -111,6 +116,44 @@ abstract public class Environment
 		}
 	}
 
+	/**
+	 * Group a large list of names by module, name and "old" flag, since only
+	 * names in the same group can be equal. Lists smaller than tc.index.threshold
+	 * are not grouped, and null is returned.
+	 */
+	private Map<String, TCNameList> groupNames(TCNameList names)
+	{
+		int threshold = Properties.tc_index_threshold;
+
+		if (threshold == 0 || names.size() < threshold)
+		{
+			return null;
+		}
+
+		Map<String, TCNameList> groups = new HashMap<String, TCNameList>();
+
+		for (TCNameToken name: names)
+		{
+			String key = groupKey(name);
+			TCNameList group = groups.get(key);
+
+			if (group == null)
+			{
+				group = new TCNameList();
+				groups.put(key, group);
+			}
+
+			group.add(name);
+		}
+
+		return groups;
+	}
+
+	private String groupKey(TCNameToken name)
+	{
+		return name.getModule() + "`" + name.getName() + (name.isOld() ? "~" : "");
+	}
+
 	public TCDefinition getEnclosingDefinition()
 	{
 		if (enclosingDefinition != null)
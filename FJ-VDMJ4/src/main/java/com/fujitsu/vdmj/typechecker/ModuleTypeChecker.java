@@ -39,7 +39,10 @@ import com.fujitsu.vdmj.tc.modules.TCModuleList;
 public class ModuleTypeChecker extends TypeChecker
 {
 	/** The list of executableModules to check. */
-	private final TCModuleList modules;
+	private final TCModuleList allModules;
+
+	/** The modules in the list that have already been checked. */
+	private final TCModuleList checked;
 
 	/**
 	 * Create a type checker with the list of executableModules passed. The warnings
@@ -49,9 +52,27 @@ public class ModuleTypeChecker extends TypeChecker
 	 */
 
 	public ModuleTypeChecker(TCModuleList modules)
+	{
+		this(modules, new TCModuleList());
+	}
+
+	/**
+	 * Create a type checker for a list of modules, some of which have already been
+	 * checked. Those modules are not checked again, but their definitions are
+	 * available to the others. A checked module may not import from one that is
+	 * being checked, so this is used to check just the modules affected by a change
+	 * and the modules that import from them. Only the recursive loops of the modules
+	 * checked are recorded.
+	 *
+	 * @param modules
+	 * @param checked
+	 */
+
+	public ModuleTypeChecker(TCModuleList modules, TCModuleList checked)
 	{
 		super();
-		this.modules = modules;
+		this.allModules = modules;
+		this.checked = checked;
 	}
 
 	/**
@@ -74,13 +95,23 @@ public class ModuleTypeChecker extends TypeChecker
 	@Override
 	public void typeCheck()
 	{
+		TCModuleList modules = new TCModuleList();
+
+		for (TCModule m: allModules)
+		{
+			if (!checked.contains(m))
+			{
+				modules.add(m);
+			}
+		}
+
 		// Check for module name duplication
 
 		boolean hasFlat = false;
 
 		for (TCModule m1: modules)
 		{
-			for (TCModule m2: modules)
+			for (TCModule m2: allModules)
 			{
 				if (m1 != m2 && m1.name.equals(m2.name))
 				{
@@ -121,7 +152,7 @@ public class ModuleTypeChecker extends TypeChecker
 
 		for (TCModule m: modules)
 		{
-			m.processImports(modules);	// Populate importDefs
+			m.processImports(allModules);	// Populate importDefs
 		}
 
 		// Create a list of all definitions from all executableModules, including
@@ -131,21 +162,29 @@ public class ModuleTypeChecker extends TypeChecker
 		TCDefinitionList alldefs = new TCDefinitionList();
 		TCDefinitionList checkDefs = new TCDefinitionList();
 
-		for (TCModule m: modules)
+		for (TCModule m: allModules)
 		{
 			for (TCDefinition d: m.importdefs)
 			{
 				alldefs.add(d);
-				checkDefs.add(d);
+				
+				if (!checked.contains(m))
+				{
+					checkDefs.add(d);
+				}
 			}
 		}
 
-		for (TCModule m: modules)
+		for (TCModule m: allModules)
 		{
 			for (TCDefinition d: m.defs)
 			{
 				alldefs.add(d);
-				checkDefs.add(d);
+				
+				if (!checked.contains(m))
+				{
+					checkDefs.add(d);
+				}
 			}
 		}
 
@@ -239,7 +278,7 @@ public class ModuleTypeChecker extends TypeChecker
 		
 		for (TCModule m: modules)
 		{
-			m.processImports(modules);		// Re-populate importDefs
+			m.processImports(allModules);	// Re-populate importDefs
 
 			try
 			{
@@ -42,6 +42,7 @@ import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinitionList;
 import com.fujitsu.vdmj.tc.lex.TCNameSet;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.types.TCTypeFactory;
 
 
 /**
@@ -59,6 +60,7 @@ abstract public class TypeChecker
 	public TypeChecker()
 	{
 		clearErrors();
+		TCTypeFactory.clear();
 		
 		try
 		{
@@ -23,8 +23,9 @@
 
 package com.fujitsu.vdmj.typechecker;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Vector;
+import java.util.Map;
 
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCTypeDefinition;
@@ -64,12 +65,15 @@ import com.fujitsu.vdmj.tc.types.TCVoidType;
 public class TypeComparator
 {
 	/**
-	 * A vector of type pairs that have already been compared. This is to
+	 * A map of type pairs that have already been compared. This is to
 	 * allow recursive type definitions to be compared without infinite
 	 * regress.
 	 */
 
-	private static Vector<TypePair> done = new Vector<TypePair>(256);
+	private static Map<TypePair, TypePair> done = new HashMap<TypePair, TypePair>(256);
+
+	/** A map larger than this is replaced rather than cleared, to release its table. */
+	private static final int DONE_LIMIT = 4096;
 
 	/**
 	 * A result value for comparison of types. The "Maybe" value is needed so
@@ -112,7 +116,22 @@ public class TypeComparator
 		@Override
 		public int hashCode()
 		{
-			return a.hashCode() + b.hashCode();
+			return System.identityHashCode(a) * 31 + System.identityHashCode(b);
+		}
+	}
+
+	/**
+	 * Start a new top level comparison, with no pairs done.
+	 */
+	private static void clearDone()
+	{
+		if (done.size() > DONE_LIMIT)
+		{
+			done = new HashMap<TypePair, TypePair>(256);
+		}
+		else
+		{
+			done.clear();
 		}
 	}
 	
@@ -141,13 +160,12 @@ public class TypeComparator
 
 	public synchronized static boolean compatible(TCType to, TCType from)
 	{
-		done.clear();
-		return searchCompatible(to, from, false) == Result.Yes;
+		return compatible(to, from, false);
 	}
 
 	public synchronized static boolean compatible(TCType to, TCType from, boolean paramOnly)
 	{
-		done.clear();
+		clearDone();
 		return searchCompatible(to, from, paramOnly) == Result.Yes;
 	}
 
@@ -161,7 +179,7 @@ public class TypeComparator
 
 	public synchronized static boolean compatible(TCTypeList to, TCTypeList from)
 	{
-		done.clear();
+		clearDone();
 		return allCompatible(to, from, false) == Result.Yes;
 	}
 
@@ -196,9 +214,9 @@ public class TypeComparator
 	}
 
 	/**
-	 * Search the {@link #done} vector for an existing comparison of two
+	 * Search the {@link #done} map for an existing comparison of two
 	 * types before either returning the previous result, or making a new
-	 * comparison and adding that result to the vector.
+	 * comparison and adding that result to the map.
 	 *
 	 * @param to
 	 * @param from
@@ -208,15 +226,15 @@ public class TypeComparator
 	private static Result searchCompatible(TCType to, TCType from, boolean paramOnly)
 	{
 		TypePair pair = new TypePair(to, from);
-		int i = done.indexOf(pair);
+		TypePair previous = done.get(pair);
 
-		if (i >= 0)
+		if (previous != null)
 		{
-			return done.get(i).result;		// May be "Maybe".
+			return previous.result;		// May be "Maybe".
 		}
 		else
 		{
-			done.add(pair);
+			done.put(pair, pair);
 		}
 
 		// The pair.result is "Maybe" until this call returns.
@@ -306,7 +324,7 @@ public class TypeComparator
     			TCInvariantType ito =(TCInvariantType)to;
     			
 	    		if (to instanceof TCNamedType &&
-	    			(!ito.opaque || ito.location.module.equals(currentModule)))
+	    			(!ito.opaque || ito.location.getModule().equals(currentModule)))
 	    		{
 	    			to = ((TCNamedType)to).type;
 	    			continue;
@@ -318,7 +336,7 @@ public class TypeComparator
     			TCInvariantType ifrom =(TCInvariantType)from;
     			
 	    		if (from instanceof TCNamedType &&
-	    			(!ifrom.opaque || ifrom.location.module.equals(currentModule)))
+	    			(!ifrom.opaque || ifrom.location.getModule().equals(currentModule)))
 	    		{
 	    			from = ((TCNamedType)from).type;
 	    			continue;
@@ -372,6 +390,11 @@ public class TypeComparator
 		{
 			TCUnionType ua = (TCUnionType)to;
 
+			if (ua.hasMember(from))
+			{
+				return Result.Yes;	// Same object (or quote) is in the union
+			}
+
 			for (TCType ta: ua.types)
 			{
 				if (searchCompatible(ta, from, paramOnly) == Result.Yes)
@@ -586,7 +609,7 @@ public class TypeComparator
 
 	public synchronized static boolean isSubType(TCType sub, TCType sup, boolean invignore)
 	{
-		done.clear();
+		clearDone();
 		return searchSubType(sub, sup, invignore) == Result.Yes;
 	}
 
@@ -621,9 +644,9 @@ public class TypeComparator
 	}
 
 	/**
-	 * Search the {@link #done} vector for an existing subtype comparison of two
+	 * Search the {@link #done} map for an existing subtype comparison of two
 	 * types before either returning the previous result, or making a new
-	 * comparison and adding that result to the vector.
+	 * comparison and adding that result to the map.
 	 *
 	 * @param sub
 	 * @param sup
@@ -634,15 +657,15 @@ public class TypeComparator
 	private static Result searchSubType(TCType sub, TCType sup, boolean invignore)
 	{
 		TypePair pair = new TypePair(sub, sup);
-		int i = done.indexOf(pair);
+		TypePair previous = done.get(pair);
 
-		if (i >= 0)
+		if (previous != null)
 		{
-			return done.get(i).result;		// May be "Maybe".
+			return previous.result;		// May be "Maybe".
 		}
 		else
 		{
-			done.add(pair);
+			done.put(pair, pair);
 		}
 
 		// The pair.result is "Maybe" until this call returns.
@@ -793,6 +816,11 @@ public class TypeComparator
 			{
 				TCUnionType supu = (TCUnionType)sup;
 
+				if (supu.hasMember(sub))
+				{
+					return Result.Yes;	// Same object (or quote) is in the union
+				}
+
 				for (TCType supt: supu.types)
 				{
 					if (searchSubType(sub, supt, invignore) == Result.Yes)
@@ -1184,6 +1212,7 @@ public class TypeComparator
 	 */
 	public static synchronized TCTypeList narrowest(TCTypeList t1, TCTypeList t2)
 	{
+		clearDone();
 		return allSubTypes(t1, t2, false) == Result.Yes ? t1 : t2;
 	}
 	
@@ -50,6 +50,7 @@ import com.fujitsu.vdmj.runtime.PatternMatchException;
 import com.fujitsu.vdmj.runtime.RootContext;
 import com.fujitsu.vdmj.runtime.StateContext;
 import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.lex.TCNameList;
 import com.fujitsu.vdmj.tc.lex.TCNameToken;
 import com.fujitsu.vdmj.tc.types.TCFunctionType;
 import com.fujitsu.vdmj.tc.types.TCType;
@@ -72,6 +73,9 @@ public class FunctionValue extends Value
 	public final Context freeVariables;
 	public final INClassDefinition classdef;
 
+	// The parameter names with frame slots, if any
+	private TCNameList slotNames = null;
+
 	// Causes parameter assignments to check their invariants (if any).
 	// This is set to false for inv_() functions, which cannot check them.
 	private final boolean checkInvariants;
@@ -85,6 +89,9 @@ public class FunctionValue extends Value
 	private ValueList curriedArgs = null;
 	private boolean isMeasure = false;
 
+	// The context title, built on the first call
+	private String title = null;
+
 	public ObjectValue self = null;
 	public boolean isStatic = false;
 	public boolean uninstantiated = false;
@@ -149,6 +156,7 @@ public class FunctionValue extends Value
 		this.freeVariables = freeVariables;
 		this.checkInvariants = !def.isTypeInvariant;
 		this.classdef = def.classDefinition;
+		this.slotNames = def.slotNames;
 
 		if (Settings.measureChecks && def.measureName != null)
 		{
@@ -344,11 +352,16 @@ public class FunctionValue extends Value
 
 		if (self != null)
 		{
-			evalContext.put(new TCNameToken(location, location.module, "self"), self);
+			evalContext.put(new TCNameToken(location, location.getModule(), "self"), self);
 		}
 
 		evalContext.putAll(args);
 
+		if (slotNames != null)
+		{
+			evalContext.setSlots(slotNames);
+		}
+
 		if (paramPatternList.size() == 1)
 		{
 			if (precondition != null && Settings.prechecks)
@@ -707,9 +720,28 @@ public class FunctionValue extends Value
 		return copy;
 	}
 
+	/**
+	 * Discard any measure values left by an evaluation that failed, so that the
+	 * function can be reused as though it had just been initialized.
+	 */
+	public void resetMeasure()
+	{
+		if (measureValues != null)
+		{
+			measureValues.clear();
+		}
+
+		measure = null;
+	}
+
 	public String toTitle()
 	{
-		INPatternList paramPatterns = paramPatternList.get(0);
-		return name + Utils.listToString("(", paramPatterns, ", ", ")");
+		if (title == null)
+		{
+			INPatternList paramPatterns = paramPatternList.get(0);
+			title = name + Utils.listToString("(", paramPatterns, ", ", ")");
+		}
+
+		return title;
 	}
 }
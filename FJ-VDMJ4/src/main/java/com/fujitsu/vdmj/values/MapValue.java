@@ -23,6 +23,8 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.Map;
+
 import com.fujitsu.vdmj.runtime.Context;
 import com.fujitsu.vdmj.runtime.ValueException;
 import com.fujitsu.vdmj.tc.types.TCInMapType;
@@ -33,47 +35,238 @@ import com.fujitsu.vdmj.tc.types.TCTypeSet;
 public class MapValue extends Value
 {
 	private static final long serialVersionUID = 1L;
-	public final ValueMap values;
+
+	/**
+	 * A map is held as a persistent ValueTrie, so that ++, munion and the domain
+	 * and range restrictions share structure rather than copying. A ValueMap view
+	 * is created on demand for the code that needs one. If the map view is changed,
+	 * the trie is rebuilt from the map when it is next needed.
+	 */
+	private ValueTrie trie;
+	private ValueMap values;
+	private int version;
+
+	/**
+	 * A map made by getUpdatable records the listeners that its entries were given.
+	 * A map that is being assigned to a variable that holds such a map refers to it
+	 * as "shared". The trie nodes that the two share hold the variable's own entries,
+	 * which are converted and updatable already, so the conversions on the way to the
+	 * variable keep those nodes as they are. See assignedTo.
+	 */
+	private boolean updatable = false;
+	private ValueListenerList listeners = null;
+	private MapValue shared = null;
 
 	public MapValue()
 	{
-		this.values = new ValueMap();
+		this(ValueTrie.EMPTY);
 	}
 
 	public MapValue(ValueMap values)
 	{
 		this.values = values;
+		this.trie = null;
+	}
+
+	public MapValue(ValueTrie trie)
+	{
+		this.values = null;
+		this.trie = trie;
 	}
 
 	@Override
-	public ValueMap mapValue(Context ctxt)
+	public synchronized ValueMap mapValue(Context ctxt)
 	{
+		if (values == null)
+		{
+			values = trie.toMap();
+			version = values.version();
+		}
+
 		return values;
 	}
 
 	@Override
-	public Value getUpdatable(ValueListenerList listeners)
+	public synchronized ValueTrie mapTrie(Context ctxt)
+	{
+		if (trie == null || (values != null && values.version() != version))
+		{
+			trie = ValueTrie.of(values);
+			version = values.version();
+		}
+
+		return trie;
+	}
+
+	/**
+	 * The map entries, from whichever form is current.
+	 */
+	private synchronized Iterable<Map.Entry<Value, Value>> entries()
+	{
+		return values != null ? values.entrySet() : trie;
+	}
+
+	private synchronized Value get(Value key)
+	{
+		return values != null ? values.get(key) : trie.get(key);
+	}
+
+	private synchronized int size()
+	{
+		return values != null ? values.size() : trie.size();
+	}
+
+	/**
+	 * The trie, if that is the only form, else null.
+	 */
+	private synchronized ValueTrie trieOnly()
+	{
+		return values == null ? trie : null;
+	}
+
+	/**
+	 * The trie of the shared map, if any.
+	 */
+	private ValueTrie sharedTrie()
+	{
+		return shared == null ? null : shared.mapTrie(null);
+	}
+
+	/**
+	 * Return a copy of this map to assign to the target given. If the target holds
+	 * a map whose entries were made updatable for it, the copy shares that map, so
+	 * that an assignment like m := m ++ {k |-> v} only converts and copies the trie
+	 * nodes on the path to k, rather than every entry. Transactions keep their own
+	 * copy of the entries until they commit, so they are not shared.
+	 */
+	public Value assignedTo(Value target)
+	{
+		ValueTrie original = trieOnly();
+
+		if (original != null && target instanceof UpdatableValue && !(target instanceof TransactionValue))
+		{
+			UpdatableValue uv = (UpdatableValue)target;
+			Value current = uv.deref();
+
+			if (current instanceof MapValue)
+			{
+				MapValue cm = (MapValue)current;
+
+				if (cm.updatable && cm.listeners == uv.listeners)
+				{
+					MapValue copy = new MapValue(original);
+					copy.shared = cm;
+					return copy;
+				}
+			}
+		}
+
+		return this;
+	}
+
+	private static final ValueTrie.Converter SAME = new ValueTrie.Converter()
+	{
+		@Override
+		public Value convert(Value value)
+		{
+			return value;
+		}
+	};
+
+	private static final ValueTrie.Converter CONSTANT = new ValueTrie.Converter()
+	{
+		@Override
+		public Value convert(Value value)
+		{
+			return value.getConstant();
+		}
+	};
+
+	@Override
+	public Value getUpdatable(final ValueListenerList listeners)
 	{
+		ValueTrie original = trieOnly();
+
+		if (original != null)
+		{
+			try
+			{
+				ValueTrie base = null;
+
+				if (shared != null && shared.updatable && shared.listeners == listeners)
+				{
+					base = sharedTrie();
+				}
+
+				ValueTrie nt = original.convert(SAME, new ValueTrie.Converter()
+				{
+					@Override
+					public Value convert(Value value)
+					{
+						return value.getUpdatable(listeners);
+					}
+				}, base);
+
+				return UpdatableValue.factory(updatable(new MapValue(nt), listeners), listeners);
+			}
+			catch (ValueException e)
+			{
+				// Not reached
+			}
+		}
+
 		ValueMap nm = new ValueMap();
 
-		for (Value k: values.keySet())
+		for (Map.Entry<Value, Value> entry: entries())
 		{
-			Value v = values.get(k).getUpdatable(listeners);
-			nm.put(k, v);
+			Value v = entry.getValue().getUpdatable(listeners);
+			nm.put(entry.getKey(), v);
 		}
 
-		return UpdatableValue.factory(new MapValue(nm), listeners);
+		return UpdatableValue.factory(updatable(new MapValue(nm), listeners), listeners);
+	}
+
+	private static MapValue updatable(MapValue map, ValueListenerList listeners)
+	{
+		map.updatable = true;
+		map.listeners = listeners;
+		return map;
+	}
+
+	/**
+	 * Return a new map with the trie given, that keeps this map's shared map.
+	 */
+	private MapValue sharing(ValueTrie nt)
+	{
+		MapValue result = new MapValue(nt);
+		result.shared = shared;
+		return result;
 	}
 
 	@Override
 	public Value getConstant()
 	{
+		ValueTrie original = trieOnly();
+
+		if (original != null)
+		{
+			try
+			{
+				// The shared entries stay updatable, as getUpdatable will keep them
+				return sharing(original.convert(SAME, CONSTANT, sharedTrie()));
+			}
+			catch (ValueException e)
+			{
+				// Not reached
+			}
+		}
+
 		ValueMap nm = new ValueMap();
 
-		for (Value k: values.keySet())
+		for (Map.Entry<Value, Value> entry: entries())
 		{
-			Value v = values.get(k).getConstant();
-			nm.put(k, v);
+			Value v = entry.getValue().getConstant();
+			nm.put(entry.getKey(), v);
 		}
 
 		return new MapValue(nm);
@@ -81,7 +274,7 @@ public class MapValue extends Value
 
 	public Value lookup(Value arg, Context ctxt) throws ValueException
 	{
-		Value v = values.get(arg);
+		Value v = get(arg);
 
 		if (v == null)
 		{
@@ -101,7 +294,21 @@ public class MapValue extends Value
     		if (val instanceof MapValue)
     		{
     			MapValue ot = (MapValue)val;
-    			return values.equals(ot.values);
+
+    			if (ot.size() != size())
+    			{
+    				return false;
+    			}
+
+    			for (Map.Entry<Value, Value> entry: entries())
+    			{
+    				if (!entry.getValue().equals(ot.get(entry.getKey())))
+    				{
+    					return false;
+    				}
+    			}
+
+    			return true;
     		}
 		}
 
@@ -111,13 +318,20 @@ public class MapValue extends Value
 	@Override
 	public String toString()
 	{
-		return values.isEmpty() ? "{|->}" : values.toString();
+		return size() == 0 ? "{|->}" : mapValue(null).toString();
 	}
 
 	@Override
 	public int hashCode()
 	{
-		return values.hashCode();
+		int hash = 0;
+
+		for (Map.Entry<Value, Value> entry: entries())
+		{
+			hash += entry.getKey().hashCode() ^ entry.getValue().hashCode();
+		}
+
+		return hash;
 	}
 
 	@Override
@@ -131,19 +345,47 @@ public class MapValue extends Value
 	{
 		if (to instanceof TCMapType)
 		{
-			if (to instanceof TCInMapType && !values.isInjective())
+			if (to instanceof TCInMapType && !mapValue(ctxt).isInjective())
 			{
 				abort(4062, "Cannot convert non-injective map to an inmap", ctxt);
 			}
 
-			TCMapType mapto = to.getMap();
+			final TCMapType mapto = to.getMap();
+			final Context cctxt = ctxt;
+			ValueTrie original = trieOnly();
+
+			if (original != null)
+			{
+				ValueTrie nt = original.convert(new ValueTrie.Converter()
+				{
+					@Override
+					public Value convert(Value key) throws ValueException
+					{
+						return key.convertValueTo(mapto.from, cctxt);
+					}
+				},
+				new ValueTrie.Converter()
+				{
+					@Override
+					public Value convert(Value value) throws ValueException
+					{
+						return value.convertValueTo(mapto.to, cctxt);
+					}
+				},
+				sharedTrie());
+
+				if (nt != null)
+				{
+					return sharing(nt);
+				}
+			}
+
 			ValueMap nm = new ValueMap();
 
-			for (Value k: values.keySet())
+			for (Map.Entry<Value, Value> entry: entries())
 			{
-				Value v = values.get(k);
-				Value dom = k.convertValueTo(mapto.from, ctxt);
-				Value rng = v.convertValueTo(mapto.to, ctxt);
+				Value dom = entry.getKey().convertValueTo(mapto.from, ctxt);
+				Value rng = entry.getValue().convertValueTo(mapto.to, ctxt);
 
 				Value old = nm.put(dom, rng);
 
@@ -164,6 +406,6 @@ public class MapValue extends Value
 	@Override
 	public Object clone()
 	{
-		return new MapValue((ValueMap)values.clone());
+		return new MapValue((ValueMap)mapValue(null).clone());
 	}
 }
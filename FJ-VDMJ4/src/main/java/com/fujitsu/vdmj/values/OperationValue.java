@@ -99,6 +99,9 @@ public class OperationValue extends Value
 	private long priority = 0;
 	private boolean traceRT = true;
 
+	// The context title, built on the first call
+	private String title = null;
+
 	public OperationValue(INExplicitOperationDefinition def,
 		FunctionValue precondition, FunctionValue postcondition,
 		INStateDefinition state)
@@ -786,6 +789,11 @@ public class OperationValue extends Value
 
 	public String toTitle()
 	{
-		return name.getName() + Utils.listToString("(", paramPatterns, ", ", ")");
+		if (title == null)
+		{
+			title = name.getName() + Utils.listToString("(", paramPatterns, ", ", ")");
+		}
+
+		return title;
 	}
 }
@@ -126,6 +126,16 @@ public class RealValue extends NumericValue
 	@Override
 	public int hashCode()
 	{
+		// Integral values must hash the same as the equivalent IntegerValue,
+		// since they are equal, and sets and maps are hash indexed.
+
+		long rounded = (long)value;
+
+		if (rounded == value)
+		{
+			return (int)rounded;
+		}
+
 		return toString().hashCode();
 	}
 
@@ -152,6 +152,12 @@ abstract public class ReferenceValue extends Value
 		return value.seqValue(ctxt);
 	}
 
+	@Override
+	public ValueRope seqRope(Context ctxt) throws ValueException
+	{
+		return value.seqRope(ctxt);
+	}
+
 	@Override
 	public ValueSet setValue(Context ctxt) throws ValueException
 	{
@@ -170,6 +176,12 @@ abstract public class ReferenceValue extends Value
 		return value.mapValue(ctxt);
 	}
 
+	@Override
+	public ValueTrie mapTrie(Context ctxt) throws ValueException
+	{
+		return value.mapTrie(ctxt);
+	}
+
 	@Override
 	public FunctionValue functionValue(Context ctxt) throws ValueException
 	{
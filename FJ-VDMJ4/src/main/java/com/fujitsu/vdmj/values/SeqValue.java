@@ -33,25 +33,42 @@ import com.fujitsu.vdmj.tc.types.TCSeq1Type;
 import com.fujitsu.vdmj.tc.types.TCSeqType;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeSet;
+import com.fujitsu.vdmj.typechecker.ParameterCollector;
 
 public class SeqValue extends Value
 {
 	private static final long serialVersionUID = 1L;
-	public final ValueList values;
+
+	/**
+	 * A sequence is held as a persistent ValueRope, so that tl, ^, subsequences
+	 * and ++ share structure rather than copying. A ValueList view is created on
+	 * demand for the code that needs one. If the list view is changed, the rope
+	 * is rebuilt from the list when it is next needed.
+	 */
+	private ValueRope rope;
+	private ValueList values;
+	private int version;
 
 	public SeqValue()
 	{
-		values = new ValueList();
+		this(ValueRope.EMPTY);
 	}
 
 	public SeqValue(ValueList values)
 	{
 		this.values = values;
+		this.rope = null;
+	}
+
+	public SeqValue(ValueRope rope)
+	{
+		this.values = null;
+		this.rope = rope;
 	}
 
 	public SeqValue(String s)
 	{
-		this.values = new ValueList();
+		this.values = new ValueList(s.length());
 		int len = s.length();
 
 		for (int i=0; i<len; i++)
@@ -66,15 +83,33 @@ public class SeqValue extends Value
 	}
 
 	@Override
-	public ValueList seqValue(Context ctxt)
+	public synchronized ValueList seqValue(Context ctxt)
 	{
+		if (values == null)
+		{
+			values = rope.toList();
+			version = values.version();
+		}
+
 		return values;
 	}
 
+	@Override
+	public synchronized ValueRope seqRope(Context ctxt)
+	{
+		if (rope == null || (values != null && values.version() != version))
+		{
+			rope = ValueRope.of(values);
+			version = values.version();
+		}
+
+		return rope;
+	}
+
 	@Override
 	public String stringValue(Context ctxt)
 	{
-		String s = values.toString();
+		String s = toString();
 
 		if (s.charAt(0) == '"')
 		{
@@ -87,7 +122,7 @@ public class SeqValue extends Value
 	@Override
 	public void formatTo(Formatter formatter, int flags, int width, int precision)
 	{
-		String s = values.toString();
+		String s = toString();
 
 		if ((flags & FormattableFlags.ALTERNATE) == 0 && s.charAt(0) == '"')
 		{
@@ -100,9 +135,10 @@ public class SeqValue extends Value
 	@Override
 	public Value getUpdatable(ValueListenerList listeners)
 	{
-		ValueList nseq = new ValueList();
+		ValueRope seq = seqRope(null);
+		ValueList nseq = new ValueList(seq.size());
 
-		for (Value k: values)
+		for (Value k: seq)
 		{
 			Value v = k.getUpdatable(listeners);
 			nseq.add(v);
@@ -114,19 +150,20 @@ public class SeqValue extends Value
 	@Override
 	public Value getConstant()
 	{
-		return new SeqValue(values.getConstant());
+		return new SeqValue(seqValue(null).getConstant());
 	}
 
 	public Value get(Value arg, Context ctxt) throws ValueException
 	{
 		int i = (int)arg.nat1Value(ctxt);
+		ValueRope seq = seqRope(ctxt);
 
-		if (i < 1 || i > values.size())
+		if (i < 1 || i > seq.size())
 		{
 			abort(4083, "Sequence index out of range: " + arg, ctxt);
 		}
 
-		return values.get(i-1);		// NB 1st = 1. Throws IndexOutOfBounds
+		return seq.get(i-1);		// NB 1st = 1. Throws IndexOutOfBounds
 	}
 
 	@Override
@@ -139,7 +176,7 @@ public class SeqValue extends Value
     		if (val instanceof SeqValue)
     		{
     			SeqValue ot = (SeqValue)val;
-    			return values.equals(ot.values);
+    			return seqRope(null).equals(ot.seqRope(null));
     		}
 		}
 
@@ -149,13 +186,13 @@ public class SeqValue extends Value
 	@Override
 	public String toString()
 	{
-		return values.toString();
+		return seqValue(null).toString();
 	}
 
 	@Override
 	public int hashCode()
 	{
-		return values.hashCode();
+		return seqRope(null).hashCode();
 	}
 
 	@Override
@@ -173,20 +210,33 @@ public class SeqValue extends Value
 
 		if (to instanceof TCSeqType)
 		{
-			if (to instanceof TCSeq1Type && values.isEmpty())
+			ValueRope seq = seqRope(ctxt);
+
+			if (to instanceof TCSeq1Type && seq.isEmpty())
 			{
 				abort(4084, "Cannot convert empty sequence to seq1", ctxt);
 			}
 
-			TCSeqType seqto = (TCSeqType)to;
-			ValueList nl = new ValueList();
+			final TCSeqType seqto = (TCSeqType)to;
+			final Context cctxt = ctxt;
 
-			for (Value v: values)
-			{
-				nl.add(v.convertValueTo(seqto.seqof, ctxt));
-			}
+			// The converted rope is marked with the element type, so that converting
+			// tl s or s ^ t afterwards only converts what is new, unless the type
+			// depends on the type parameters in the context.
 
-			return new SeqValue(nl);
+			boolean polymorphic = !seqto.seqof.apply(new ParameterCollector(), null).isEmpty();
+
+			ValueRope converted = seq.convert(new ValueRope.Converter()
+			{
+				@Override
+				public Value convert(Value value) throws ValueException
+				{
+					return value.convertValueTo(seqto.seqof, cctxt);
+				}
+			},
+			polymorphic ? null : seqto.seqof);
+
+			return converted == seq ? this : new SeqValue(converted);
 		}
 		else
 		{
@@ -197,6 +247,6 @@ public class SeqValue extends Value
 	@Override
 	public Object clone()
 	{
-		return new SeqValue((ValueList)values.clone());
+		return new SeqValue((ValueList)seqValue(null).clone());
 	}
 }
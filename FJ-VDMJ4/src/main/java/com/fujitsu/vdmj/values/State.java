@@ -42,6 +42,11 @@ public class State implements ValueListener
 
 	public boolean doInvariantChecks = true;
 
+	/** The record value created with the field values in the context. */
+	private final Value initialRecord;
+	/** The field values saved after initialization, if any. */
+	private ValueList savedFields = null;
+
 	public State(INStateDefinition definition)
 	{
 		this.definition = definition;
@@ -54,8 +59,8 @@ public class State implements ValueListener
 		}
 
 		TCRecordType rt = (TCRecordType)definition.getType();
-		this.recordValue = UpdatableValue.factory(new RecordValue(rt, fieldvalues),
-			new ValueListenerList(this));
+		this.initialRecord = new RecordValue(rt, fieldvalues);
+		this.recordValue = UpdatableValue.factory(initialRecord, new ValueListenerList(this));
 
 		this.context = new Context(definition.location, "module state", null);
 		this.context.put(definition.name, recordValue);
@@ -115,6 +120,80 @@ public class State implements ValueListener
 		}
 	}
 
+	/**
+	 * Save a constant copy of the state fields, after initialization, so that
+	 * they can be restored later without re-evaluating the init clause.
+	 */
+	public void save()
+	{
+		savedFields = checkpoint();
+	}
+
+	/**
+	 * Return a constant copy of the current state fields, which can be passed
+	 * to restore later.
+	 */
+	public ValueList checkpoint()
+	{
+		ValueList fields = new ValueList();
+
+		for (TCField f: definition.fields)
+		{
+			fields.add(context.get(f.tagname).getConstant());
+		}
+
+		return fields;
+	}
+
+	/**
+	 * Restore the state fields saved, if any. Note that the field values are
+	 * set in place, because operations hold a reference to the state context.
+	 * 
+	 * @return false if nothing was saved.
+	 */
+	public boolean restore(Context globals)
+	{
+		if (savedFields == null)
+		{
+			return false;
+		}
+
+		restore(globals, savedFields);
+		return true;
+	}
+
+	/**
+	 * Restore the state fields from a checkpoint.
+	 */
+	public void restore(Context globals, ValueList fields)
+	{
+		try
+		{
+			doInvariantChecks = false;
+			
+			synchronized (recordValue)
+			{
+				recordValue.value = initialRecord;	// In case the whole state was assigned
+			}
+
+			int i = 0;
+
+			for (TCField f: definition.fields)
+			{
+				Value sv = context.get(f.tagname);
+				sv.set(definition.location, fields.get(i++), globals);
+			}
+		}
+		catch (ValueException e)
+		{
+			definition.abort(e);
+		}
+		finally
+		{
+			doInvariantChecks = true;
+		}
+	}
+
 	public Context getContext()
 	{
 		return context;
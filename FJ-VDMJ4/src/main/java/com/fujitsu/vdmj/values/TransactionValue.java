@@ -266,6 +266,12 @@ public class TransactionValue extends UpdatableValue
 		return select().seqValue(ctxt);
 	}
 
+	@Override
+	public synchronized ValueRope seqRope(Context ctxt) throws ValueException
+	{
+		return select().seqRope(ctxt);
+	}
+
 	@Override
 	public synchronized ValueSet setValue(Context ctxt) throws ValueException
 	{
@@ -284,6 +290,12 @@ public class TransactionValue extends UpdatableValue
 		return select().mapValue(ctxt);
 	}
 
+	@Override
+	public synchronized ValueTrie mapTrie(Context ctxt) throws ValueException
+	{
+		return select().mapTrie(ctxt);
+	}
+
 	@Override
 	public synchronized FunctionValue functionValue(Context ctxt) throws ValueException
 	{
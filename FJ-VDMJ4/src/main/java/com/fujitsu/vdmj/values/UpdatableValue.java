@@ -303,6 +303,12 @@ public class UpdatableValue extends ReferenceValue
 		return value.seqValue(ctxt);
 	}
 
+	@Override
+	public synchronized ValueRope seqRope(Context ctxt) throws ValueException
+	{
+		return value.seqRope(ctxt);
+	}
+
 	@Override
 	public synchronized ValueSet setValue(Context ctxt) throws ValueException
 	{
@@ -321,6 +327,12 @@ public class UpdatableValue extends ReferenceValue
 		return value.mapValue(ctxt);
 	}
 
+	@Override
+	public synchronized ValueTrie mapTrie(Context ctxt) throws ValueException
+	{
+		return value.mapTrie(ctxt);
+	}
+
 	@Override
 	public synchronized FunctionValue functionValue(Context ctxt) throws ValueException
 	{
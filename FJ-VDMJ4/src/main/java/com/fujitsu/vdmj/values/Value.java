@@ -417,6 +417,12 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 		return null;
 	}
 
+	public ValueRope seqRope(Context ctxt) throws ValueException
+	{
+		abort(4099, "Can't get sequence value of " + kind(), ctxt);
+		return null;
+	}
+
 	public ValueSet setValue(Context ctxt) throws ValueException
 	{
 		abort(4100, "Can't get set value of " + kind(), ctxt);
@@ -435,6 +441,12 @@ abstract public class Value implements Comparable<Value>, Serializable, Formatta
 		return null;
 	}
 
+	public ValueTrie mapTrie(Context ctxt) throws ValueException
+	{
+		abort(4102, "Can't get map value of " + kind(), ctxt);
+		return null;
+	}
+
 	public FunctionValue functionValue(Context ctxt) throws ValueException
 	{
 		abort(4103, "Can't get function value of " + kind(), ctxt);
@@ -34,6 +34,8 @@ import com.fujitsu.vdmj.util.Utils;
 @SuppressWarnings("serial")
 public class ValueList extends Vector<Value>
 {
+	private int updates = 0;
+
 	public ValueList()
 	{
 		super();
@@ -67,6 +69,29 @@ public class ValueList extends Vector<Value>
 		return i >= 0 && i < size();
 	}
 
+	/**
+	 * A number that changes whenever the list is modified, so that cached copies
+	 * of the list (see SeqValue) can be seen to be stale.
+	 */
+	public int version()
+	{
+		return modCount + updates;
+	}
+
+	@Override
+	public synchronized Value set(int index, Value value)
+	{
+		updates++;
+		return super.set(index, value);
+	}
+
+	@Override
+	public synchronized void setElementAt(Value value, int index)
+	{
+		updates++;
+		super.setElementAt(value, index);
+	}
+
 	@Override
 	public String toString()
 	{
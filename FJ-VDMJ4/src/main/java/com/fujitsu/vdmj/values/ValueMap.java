@@ -23,12 +23,19 @@
 
 package com.fujitsu.vdmj.values;
 
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import com.fujitsu.vdmj.traces.PermuteArray;
 
@@ -39,6 +46,8 @@ import com.fujitsu.vdmj.traces.PermuteArray;
 @SuppressWarnings("serial")
 public class ValueMap extends LinkedHashMap<Value, Value>
 {
+	private int updates = 0;
+
 	public ValueMap()
 	{
 		super();
@@ -54,6 +63,162 @@ public class ValueMap extends LinkedHashMap<Value, Value>
 		put(k, v);
 	}
 
+	/**
+	 * A number that changes whenever the map is modified, so that cached copies
+	 * of the map (see MapValue) can be seen to be stale. Every method that can
+	 * change the map is overridden to change it, and the keySet, values and
+	 * entrySet views cannot be used to change the map.
+	 */
+	public int version()
+	{
+		return updates;
+	}
+
+	@Override
+	public Value put(Value key, Value value)
+	{
+		updates++;
+		return super.put(key, value);
+	}
+
+	@Override
+	public void putAll(Map<? extends Value, ? extends Value> map)
+	{
+		updates++;
+		super.putAll(map);
+	}
+
+	@Override
+	public Value remove(Object key)
+	{
+		updates++;
+		return super.remove(key);
+	}
+
+	@Override
+	public boolean remove(Object key, Object value)
+	{
+		updates++;
+		return super.remove(key, value);
+	}
+
+	@Override
+	public void clear()
+	{
+		updates++;
+		super.clear();
+	}
+
+	@Override
+	public Value putIfAbsent(Value key, Value value)
+	{
+		updates++;
+		return super.putIfAbsent(key, value);
+	}
+
+	@Override
+	public Value replace(Value key, Value value)
+	{
+		updates++;
+		return super.replace(key, value);
+	}
+
+	@Override
+	public boolean replace(Value key, Value oldValue, Value newValue)
+	{
+		updates++;
+		return super.replace(key, oldValue, newValue);
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super Value, ? super Value, ? extends Value> function)
+	{
+		updates++;
+		super.replaceAll(function);
+	}
+
+	@Override
+	public Value computeIfAbsent(Value key, Function<? super Value, ? extends Value> function)
+	{
+		updates++;
+		return super.computeIfAbsent(key, function);
+	}
+
+	@Override
+	public Value computeIfPresent(Value key, BiFunction<? super Value, ? super Value, ? extends Value> function)
+	{
+		updates++;
+		return super.computeIfPresent(key, function);
+	}
+
+	@Override
+	public Value compute(Value key, BiFunction<? super Value, ? super Value, ? extends Value> function)
+	{
+		updates++;
+		return super.compute(key, function);
+	}
+
+	@Override
+	public Value merge(Value key, Value value, BiFunction<? super Value, ? super Value, ? extends Value> function)
+	{
+		updates++;
+		return super.merge(key, value, function);
+	}
+
+	@Override
+	public Set<Value> keySet()
+	{
+		return Collections.unmodifiableSet(super.keySet());
+	}
+
+	@Override
+	public Collection<Value> values()
+	{
+		return Collections.unmodifiableCollection(super.values());
+	}
+
+	@Override
+	public Set<Entry<Value, Value>> entrySet()
+	{
+		final Set<Entry<Value, Value>> entries = super.entrySet();
+
+		return new AbstractSet<Entry<Value, Value>>()
+		{
+			@Override
+			public Iterator<Entry<Value, Value>> iterator()
+			{
+				final Iterator<Entry<Value, Value>> iter = entries.iterator();
+
+				return new Iterator<Entry<Value, Value>>()
+				{
+					@Override
+					public boolean hasNext()
+					{
+						return iter.hasNext();
+					}
+
+					@Override
+					public Entry<Value, Value> next()
+					{
+						return new SimpleImmutableEntry<Value, Value>(iter.next());
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object entry)
+			{
+				return entries.contains(entry);
+			}
+
+			@Override
+			public int size()
+			{
+				return entries.size();
+			}
+		};
+	}
+
 	public boolean isInjective()
 	{
 		Set<Value> rng = new HashSet<Value>(values());
@@ -0,0 +1,552 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.types.TCType;
+
+/**
+ * A persistent (immutable, structure sharing) sequence of values. This is a rope,
+ * being a balanced binary tree of leaf segments of value arrays. Leaf arrays are
+ * never modified once created, so slices of a leaf (like tl s) share the array,
+ * and concatenations (like s ^ t) share both operands. Indexing, tail, slicing,
+ * concatenation and single element updates are all O(log n).
+ */
+abstract public class ValueRope implements Serializable, Iterable<Value>
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum length of a leaf segment created by merging or updating. */
+	private static final int LEAF_SIZE = 64;
+
+	public static final ValueRope EMPTY = new Leaf(new Value[0], 0, 0);
+
+	/**
+	 * The element type that the values of this rope are known to conform to, having
+	 * been converted to it already, if any. Slices of a leaf and unchanged subtrees
+	 * keep this, so converting tl s or s ^ t after s only converts what is new.
+	 */
+	protected transient TCType conforms = null;
+
+	abstract public int size();
+	abstract public Value get(int index);
+	abstract protected int depth();
+	abstract protected ValueRope sub(int from, int to);
+	abstract protected ValueRope replace(int index, Value value);
+	abstract protected void leaves(List<Leaf> list);
+	abstract protected ValueRope convertValues(Converter converter, TCType type) throws ValueException;
+
+	public static ValueRope of(List<Value> values)
+	{
+		int size = values.size();
+
+		if (size == 0)
+		{
+			return EMPTY;
+		}
+
+		List<Leaf> leaves = new ArrayList<Leaf>(size/LEAF_SIZE + 1);
+
+		for (int from=0; from < size; from += LEAF_SIZE)
+		{
+			int to = Math.min(size, from + LEAF_SIZE);
+			leaves.add(new Leaf(values.subList(from, to).toArray(new Value[to - from]), 0, to - from));
+		}
+
+		return balance(leaves, 0, leaves.size());
+	}
+
+	public static ValueRope of(Value value)
+	{
+		return new Leaf(new Value[] { value }, 0, 1);
+	}
+
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	/**
+	 * The sequence [from+1, ..., to], ie. zero based and to exclusive.
+	 */
+	public ValueRope slice(int from, int to)
+	{
+		if (from < 0 || to > size() || from > to)
+		{
+			throw new IndexOutOfBoundsException("Slice " + from + ".." + to + " of " + size());
+		}
+
+		if (from == 0 && to == size())
+		{
+			return this;
+		}
+
+		return from == to ? EMPTY : sub(from, to);
+	}
+
+	public ValueRope tail()
+	{
+		return slice(1, size());
+	}
+
+	public ValueRope set(int index, Value value)
+	{
+		if (index < 0 || index >= size())
+		{
+			throw new IndexOutOfBoundsException("Index " + index + " of " + size());
+		}
+
+		return replace(index, value);
+	}
+
+	public ValueRope concat(ValueRope other)
+	{
+		if (other.isEmpty())
+		{
+			return this;
+		}
+		else if (isEmpty())
+		{
+			return other;
+		}
+
+		ValueRope result = join(this, other);
+
+		if (result.depth() > maxDepth(result.size()))
+		{
+			List<Leaf> leaves = new ArrayList<Leaf>();
+			result.leaves(leaves);
+			result = balance(leaves, 0, leaves.size());
+		}
+
+		return result;
+	}
+
+	/**
+	 * A conversion of the values of a rope. See convert.
+	 */
+	public interface Converter
+	{
+		public Value convert(Value value) throws ValueException;
+	}
+
+	/**
+	 * Convert every value, returning a rope of the same shape, or this rope if no
+	 * value is changed. If a type is given, the result is marked as conforming to
+	 * it and the parts that are marked already are not converted again. The type
+	 * must not depend on the context of the conversion, like a type parameter. Parts
+	 * holding updatable values are not marked, as they must be copied each time.
+	 */
+	public ValueRope convert(Converter converter, TCType type) throws ValueException
+	{
+		return isEmpty() ? this : convertValues(converter, type);
+	}
+
+	private static void mark(ValueRope result, TCType type, boolean marked)
+	{
+		if (type != null && marked)
+		{
+			result.conforms = type;
+		}
+	}
+
+	public ValueList toList()
+	{
+		ValueList list = new ValueList(size());
+
+		for (Value v: this)
+		{
+			list.add(v);
+		}
+
+		return list;
+	}
+
+	@Override
+	public Iterator<Value> iterator()
+	{
+		final List<Leaf> leaves = new ArrayList<Leaf>();
+		leaves(leaves);
+
+		return new Iterator<Value>()
+		{
+			private int leaf = 0;
+			private int pos = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				while (leaf < leaves.size() && pos >= leaves.get(leaf).length)
+				{
+					leaf++;
+					pos = 0;
+				}
+
+				return leaf < leaves.size();
+			}
+
+			@Override
+			public Value next()
+			{
+				if (!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+
+				Leaf current = leaves.get(leaf);
+				return current.array[current.offset + pos++];
+			}
+		};
+	}
+
+	/**
+	 * Equality and hashCode are the same as for the equivalent ValueList.
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof ValueRope)
+		{
+			ValueRope rope = (ValueRope)other;
+
+			if (rope == this)
+			{
+				return true;
+			}
+			else if (rope.size() != size())
+			{
+				return false;
+			}
+
+			Iterator<Value> iter = rope.iterator();
+
+			for (Value v: this)
+			{
+				if (!v.equals(iter.next()))
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 1;
+
+		for (Value v: this)
+		{
+			hash = 31 * hash + v.hashCode();
+		}
+
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return toList().toString();
+	}
+
+	/**
+	 * Join two non-empty ropes, merging small adjacent leaves.
+	 */
+	private static ValueRope join(ValueRope left, ValueRope right)
+	{
+		if (left.size() + right.size() <= LEAF_SIZE &&
+			left instanceof Leaf && right instanceof Leaf)
+		{
+			return merge((Leaf)left, (Leaf)right);
+		}
+		else if (left instanceof Node && right instanceof Leaf)
+		{
+			Node node = (Node)left;
+
+			if (node.right instanceof Leaf && node.right.size() + right.size() <= LEAF_SIZE)
+			{
+				return new Node(node.left, merge((Leaf)node.right, (Leaf)right));
+			}
+		}
+		else if (left instanceof Leaf && right instanceof Node)
+		{
+			Node node = (Node)right;
+
+			if (node.left instanceof Leaf && left.size() + node.left.size() <= LEAF_SIZE)
+			{
+				return new Node(merge((Leaf)left, (Leaf)node.left), node.right);
+			}
+		}
+
+		return new Node(left, right);
+	}
+
+	private static Leaf merge(Leaf left, Leaf right)
+	{
+		Value[] array = new Value[left.length + right.length];
+		System.arraycopy(left.array, left.offset, array, 0, left.length);
+		System.arraycopy(right.array, right.offset, array, left.length, right.length);
+		return new Leaf(array, 0, array.length);
+	}
+
+	private static ValueRope balance(List<Leaf> leaves, int from, int to)
+	{
+		if (to - from == 1)
+		{
+			return leaves.get(from);
+		}
+
+		int mid = (from + to) >>> 1;
+		return new Node(balance(leaves, from, mid), balance(leaves, mid, to));
+	}
+
+	private static int maxDepth(int size)
+	{
+		return 2 * (32 - Integer.numberOfLeadingZeros(size / LEAF_SIZE + 1)) + 8;
+	}
+
+	/**
+	 * A segment of an immutable array.
+	 */
+	private static class Leaf extends ValueRope
+	{
+		private static final long serialVersionUID = 1L;
+		private final Value[] array;
+		private final int offset;
+		private final int length;
+
+		public Leaf(Value[] array, int offset, int length)
+		{
+			this.array = array;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int size()
+		{
+			return length;
+		}
+
+		@Override
+		public Value get(int index)
+		{
+			if (index < 0 || index >= length)
+			{
+				throw new IndexOutOfBoundsException("Index " + index + " of " + length);
+			}
+
+			return array[offset + index];
+		}
+
+		@Override
+		protected int depth()
+		{
+			return 0;
+		}
+
+		@Override
+		protected ValueRope sub(int from, int to)
+		{
+			Leaf slice = new Leaf(array, offset + from, to - from);
+			slice.conforms = conforms;
+			return slice;
+		}
+
+		@Override
+		protected ValueRope replace(int index, Value value)
+		{
+			Value[] copy = new Value[length];
+			System.arraycopy(array, offset, copy, 0, length);
+			copy[index] = value;
+			return new Leaf(copy, 0, length);
+		}
+
+		@Override
+		protected void leaves(List<Leaf> list)
+		{
+			if (length > 0)
+			{
+				list.add(this);
+			}
+		}
+
+		@Override
+		protected ValueRope convertValues(Converter converter, TCType type) throws ValueException
+		{
+			if (type != null && conforms == type)
+			{
+				return this;
+			}
+
+			Value[] copy = null;
+			boolean updatable = false;
+
+			for (int i=0; i<length; i++)
+			{
+				Value v = array[offset + i];
+				Value c = converter.convert(v);
+
+				if (c != v && copy == null)
+				{
+					copy = new Value[length];
+					System.arraycopy(array, offset, copy, 0, i);
+				}
+
+				if (copy != null)
+				{
+					copy[i] = c;
+				}
+
+				updatable = updatable || c instanceof UpdatableValue;
+			}
+
+			ValueRope result = (copy == null) ? this : new Leaf(copy, 0, length);
+			mark(result, type, !updatable);
+			return result;
+		}
+	}
+
+	/**
+	 * A concatenation of two non-empty ropes.
+	 */
+	private static class Node extends ValueRope
+	{
+		private static final long serialVersionUID = 1L;
+		private final ValueRope left;
+		private final ValueRope right;
+		private final int size;
+		private final int depth;
+
+		public Node(ValueRope left, ValueRope right)
+		{
+			this.left = left;
+			this.right = right;
+			this.size = left.size() + right.size();
+			this.depth = Math.max(left.depth(), right.depth()) + 1;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public Value get(int index)
+		{
+			ValueRope rope = this;
+
+			while (rope instanceof Node)
+			{
+				Node node = (Node)rope;
+				int lsize = node.left.size();
+
+				if (index < lsize)
+				{
+					rope = node.left;
+				}
+				else
+				{
+					rope = node.right;
+					index = index - lsize;
+				}
+			}
+
+			return rope.get(index);
+		}
+
+		@Override
+		protected int depth()
+		{
+			return depth;
+		}
+
+		@Override
+		protected ValueRope sub(int from, int to)
+		{
+			int lsize = left.size();
+
+			if (to <= lsize)
+			{
+				return left.slice(from, to);
+			}
+			else if (from >= lsize)
+			{
+				return right.slice(from - lsize, to - lsize);
+			}
+			else
+			{
+				return join(left.slice(from, lsize), right.slice(0, to - lsize));
+			}
+		}
+
+		@Override
+		protected ValueRope replace(int index, Value value)
+		{
+			int lsize = left.size();
+
+			if (index < lsize)
+			{
+				return new Node(left.replace(index, value), right);
+			}
+			else
+			{
+				return new Node(left, right.replace(index - lsize, value));
+			}
+		}
+
+		@Override
+		protected void leaves(List<Leaf> list)
+		{
+			left.leaves(list);
+			right.leaves(list);
+		}
+
+		@Override
+		protected ValueRope convertValues(Converter converter, TCType type) throws ValueException
+		{
+			if (type != null && conforms == type)
+			{
+				return this;
+			}
+
+			ValueRope l = left.convertValues(converter, type);
+			ValueRope r = right.convertValues(converter, type);
+			ValueRope result = (l == left && r == right) ? this : new Node(l, r);
+			mark(result, type, l.conforms == type && r.conforms == type);
+			return result;
+		}
+	}
+}
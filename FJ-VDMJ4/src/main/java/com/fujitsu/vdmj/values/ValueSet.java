@@ -25,8 +25,12 @@ package com.fujitsu.vdmj.values;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Vector;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import com.fujitsu.vdmj.traces.PermuteArray;
 import com.fujitsu.vdmj.util.Utils;
@@ -37,12 +41,27 @@ import com.fujitsu.vdmj.util.Utils;
  * it is not based on a java.util.Set<Value>, but rather a Vector<Value>. This is
  * so that the possible orderings of set values can be enumerated when
  * performing quantifiers like "a,b,c in set {{1,2,3}, {4,5,6}}".
+ *
+ * Once a set grows beyond INDEX_THRESHOLD members, a hash index of the members
+ * is built alongside the Vector, so that membership tests (and hence add, union,
+ * inter, subset and so on) are O(1) rather than a linear scan. The Vector is
+ * still the master copy and defines the enumeration order. The index is transient,
+ * and is simply rebuilt on demand after deserialization or bulk updates.
+ *
+ * Values whose type has an "eq" or "ord" clause compare with a user function,
+ * but their hashCode is still structural, so equal values may hash differently.
+ * If any member contains such a value, the set is not indexed and falls back to
+ * the linear scan.
  */
 
 @SuppressWarnings("serial")
 public class ValueSet extends Vector<Value>		// NB based on Vector
 {
+	private static final int INDEX_THRESHOLD = 16;
+
 	private boolean isSorted;
+	private transient HashSet<Value> index = null;
+	private transient boolean unhashable = false;
 
 	public ValueSet()
 	{
@@ -58,8 +77,9 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 
 	public ValueSet(ValueSet from)
 	{
-		addAll(from);
+		super(from);	// Members already unique
 		isSorted = from.isSorted;
+		unhashable = from.unhashable;
 	}
 
 	public ValueSet(Value v)
@@ -101,6 +121,19 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		return hash;
 	}
 
+	@Override
+	public boolean contains(Object v)
+	{
+		if (getIndex() != null && (!(v instanceof Value) || isHashable((Value)v)))
+		{
+			return index.contains(v);
+		}
+		else
+		{
+			return super.contains(v);
+		}
+	}
+
 	@Override
 	public boolean add(Value v)
 	{
@@ -110,20 +143,22 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		}
 		else
 		{
-			isSorted = false;
-			return super.add(v);
+			return addNoCheck(v);
 		}
 	}
 
 	public boolean addNoCheck(Value v)
 	{
 		isSorted = false;
+		addIndex(v);
 		return super.add(v);	// Used by power set function
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends Value> values)
 	{
+		ensureCapacity(size() + values.size());
+
 		for (Value v: values)
 		{
 			add(v);
@@ -132,6 +167,274 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		return true;
 	}
 
+	@Override
+	public void addElement(Value v)
+	{
+		add(v);
+	}
+
+	@Override
+	public synchronized void insertElementAt(Value v, int i)
+	{
+		if (!contains(v))
+		{
+			isSorted = false;
+			super.insertElementAt(v, i);
+			addIndex(v);
+		}
+	}
+
+	@Override
+	public synchronized Value set(int i, Value v)
+	{
+		Value old = super.set(i, v);
+		isSorted = false;
+		index = null;
+		return old;
+	}
+
+	@Override
+	public synchronized void setElementAt(Value v, int i)
+	{
+		set(i, v);
+	}
+
+	@Override
+	public synchronized Value remove(int i)
+	{
+		Value old = super.remove(i);
+
+		if (index != null)
+		{
+			index.remove(old);
+		}
+
+		return old;
+	}
+
+	@Override
+	public synchronized void removeElementAt(int i)
+	{
+		remove(i);
+	}
+
+	@Override
+	public boolean remove(Object v)
+	{
+		if (getIndex() != null && v instanceof Value && isHashable((Value)v) && !index.contains(v))
+		{
+			return false;
+		}
+
+		int i = indexOf(v);
+
+		if (i >= 0)
+		{
+			remove(i);
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public boolean removeElement(Object v)
+	{
+		return remove(v);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> values)
+	{
+		index = null;
+		return super.removeAll(values);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> values)
+	{
+		index = null;
+		return super.retainAll(values);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super Value> filter)
+	{
+		index = null;
+		return super.removeIf(filter);
+	}
+
+	@Override
+	public synchronized void replaceAll(UnaryOperator<Value> operator)
+	{
+		index = null;
+		isSorted = false;
+		super.replaceAll(operator);
+	}
+
+	@Override
+	protected synchronized void removeRange(int from, int to)
+	{
+		index = null;
+		super.removeRange(from, to);
+	}
+
+	@Override
+	public synchronized void setSize(int size)
+	{
+		index = null;
+		super.setSize(size);
+	}
+
+	@Override
+	public synchronized void removeAllElements()
+	{
+		index = null;
+		unhashable = false;
+		isSorted = true;
+		super.removeAllElements();
+	}
+
+	@Override
+	public void clear()
+	{
+		removeAllElements();
+	}
+
+	/**
+	 * Return the hash index of the members, building it if the set has grown
+	 * large enough to benefit, else null.
+	 */
+	private HashSet<Value> getIndex()
+	{
+		if (index == null && !unhashable && size() > INDEX_THRESHOLD)
+		{
+			for (Value v: this)
+			{
+				if (!isHashable(v))
+				{
+					unhashable = true;
+					return null;
+				}
+			}
+
+			index = new HashSet<Value>(size() * 2);
+			index.addAll(this);
+		}
+
+		return index;
+	}
+
+	/**
+	 * Add a new member to the index, if there is one. A member that cannot be
+	 * hashed removes the index for good (until the set is cleared).
+	 */
+	private void addIndex(Value v)
+	{
+		if (index != null)
+		{
+			if (isHashable(v))
+			{
+				index.add(v);
+			}
+			else
+			{
+				index = null;
+				unhashable = true;
+			}
+		}
+	}
+
+	/**
+	 * True if the value's hashCode agrees with its equals method, which is not
+	 * the case if it contains a value whose type has an equality or ordering
+	 * abstraction.
+	 */
+	private static boolean isHashable(Value v)
+	{
+		while (v instanceof ReferenceValue)
+		{
+			if (v instanceof InvariantValue)
+			{
+				InvariantValue iv = (InvariantValue)v;
+
+				if (iv.equality != null || iv.ordering != null)
+				{
+					return false;
+				}
+			}
+
+			v = ((ReferenceValue)v).value;
+		}
+
+		if (v instanceof RecordValue)
+		{
+			RecordValue rv = (RecordValue)v;
+
+			if (rv.equality != null || rv.ordering != null)
+			{
+				return false;
+			}
+
+			for (FieldValue fv: rv.fieldmap)
+			{
+				if (!isHashable(fv.value))
+				{
+					return false;
+				}
+			}
+		}
+		else if (v instanceof TupleValue)
+		{
+			for (Value m: ((TupleValue)v).values)
+			{
+				if (!isHashable(m))
+				{
+					return false;
+				}
+			}
+		}
+		else if (v instanceof SetValue)
+		{
+			ValueSet set = ((SetValue)v).values;
+
+			if (set.unhashable)
+			{
+				return false;
+			}
+
+			for (Value m: set)
+			{
+				if (!isHashable(m))
+				{
+					return false;
+				}
+			}
+		}
+		else if (v instanceof SeqValue)
+		{
+			for (Value m: ((SeqValue)v).seqRope(null))
+			{
+				if (!isHashable(m))
+				{
+					return false;
+				}
+			}
+		}
+		else if (v instanceof MapValue)
+		{
+			for (Map.Entry<Value, Value> entry: ((MapValue)v).mapTrie(null))
+			{
+				if (!isHashable(entry.getKey()) || !isHashable(entry.getValue()))
+				{
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -231,7 +534,7 @@ public class ValueSet extends Vector<Value>		// NB based on Vector
 		for (Value v: this)
 		{
 			Value vcopy = (Value)v.clone();
-			copy.add(vcopy);
+			copy.addNoCheck(vcopy);
 		}
 
 		copy.isSorted = isSorted;
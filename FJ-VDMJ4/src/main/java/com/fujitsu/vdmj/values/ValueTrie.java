@@ -0,0 +1,799 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.values;
+
+import com.fujitsu.vdmj.runtime.ValueException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A persistent (immutable, structure sharing) map of values. This is a hash array
+ * mapped trie, so that lookups, single key updates and removals are O(log n) and
+ * the original map is unaffected by the update. Maps like m ++ {k |-> v} therefore
+ * share almost all of the structure of m.
+ *
+ * Iteration is in the same order as a ValueMap (ie. a LinkedHashMap) would give,
+ * being insertion order with updated keys keeping their original position.
+ */
+public class ValueTrie implements Serializable, Iterable<Map.Entry<Value, Value>>
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	public static final ValueTrie EMPTY = new ValueTrie(null, 0, 0);
+
+	private final Node root;
+	private final int size;
+	private final long nextOrder;
+
+	private transient Entry[] ordered = null;	// Cached iteration order
+
+	private ValueTrie(Node root, int size, long nextOrder)
+	{
+		this.root = root;
+		this.size = size;
+		this.nextOrder = nextOrder;
+	}
+
+	public static ValueTrie of(Map<Value, Value> map)
+	{
+		ValueTrie trie = EMPTY;
+
+		for (Map.Entry<Value, Value> entry: map.entrySet())
+		{
+			trie = trie.put(entry.getKey(), entry.getValue());
+		}
+
+		return trie;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	public Value get(Value key)
+	{
+		if (root == null)
+		{
+			return null;
+		}
+
+		Entry e = root.find(key, key.hashCode(), 0);
+		return e == null ? null : e.value;
+	}
+
+	public boolean containsKey(Value key)
+	{
+		return get(key) != null;
+	}
+
+	/**
+	 * Return a new trie with key mapped to value. An existing key keeps its
+	 * position in the iteration order.
+	 */
+	public ValueTrie put(Value key, Value value)
+	{
+		return put(new Entry(key, value, key.hashCode(), nextOrder));
+	}
+
+	private ValueTrie put(Entry entry)
+	{
+		Change change = new Change();
+		Node newroot;
+
+		if (root == null)
+		{
+			newroot = new BitmapNode(0, new Object[0]).put(entry, 0, change);
+		}
+		else
+		{
+			newroot = root.put(entry, 0, change);
+		}
+
+		if (newroot == root)
+		{
+			return this;
+		}
+		else if (change.replaced != null)
+		{
+			return new ValueTrie(newroot, size, nextOrder);
+		}
+		else
+		{
+			return new ValueTrie(newroot, size + 1, Math.max(nextOrder, entry.order + 1));
+		}
+	}
+
+	/**
+	 * Return a new trie without the key given.
+	 */
+	public ValueTrie remove(Value key)
+	{
+		if (root == null)
+		{
+			return this;
+		}
+
+		Node newroot = root.remove(key, key.hashCode(), 0);
+
+		if (newroot == root)
+		{
+			return this;
+		}
+
+		return new ValueTrie(newroot, size - 1, nextOrder);
+	}
+
+	/**
+	 * Return a new trie with only the keys given, in the original order.
+	 */
+	public ValueTrie select(Iterable<Value> keys)
+	{
+		ValueTrie result = EMPTY;
+
+		if (root != null)
+		{
+			for (Value key: keys)
+			{
+				Entry e = root.find(key, key.hashCode(), 0);
+
+				if (e != null)
+				{
+					result = result.put(e);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * A conversion of the keys or values of a trie. See convert.
+	 */
+	public interface Converter
+	{
+		public Value convert(Value value) throws ValueException;
+	}
+
+	/**
+	 * Convert the keys and values of every entry, returning a trie of the same
+	 * shape. This is O(n), rather than re-hashing everything. If a converted key
+	 * is not equal to the original, null is returned and the caller must build
+	 * a new map the hard way. Nodes and entries that the conversion does not
+	 * change are shared with the original.
+	 */
+	public ValueTrie convert(Converter keys, Converter values) throws ValueException
+	{
+		return convert(keys, values, null);
+	}
+
+	/**
+	 * As above, but the nodes that this trie shares with the trie given are not
+	 * converted. So if this trie was made from the other by a few puts, only the
+	 * nodes on the paths to the new entries are converted, which is O(log n).
+	 */
+	public ValueTrie convert(Converter keys, Converter values, ValueTrie shared) throws ValueException
+	{
+		if (root == null)
+		{
+			return this;
+		}
+
+		Node newroot = root.convert(keys, values, shared == null ? null : shared.root);
+
+		if (newroot == null)
+		{
+			return null;
+		}
+		else if (newroot == root)
+		{
+			return this;
+		}
+		else
+		{
+			return new ValueTrie(newroot, size, nextOrder);
+		}
+	}
+
+	public ValueMap toMap()
+	{
+		ValueMap map = new ValueMap();
+
+		for (Entry e: ordered())
+		{
+			map.put(e.key, e.value);
+		}
+
+		return map;
+	}
+
+	@Override
+	public Iterator<Map.Entry<Value, Value>> iterator()
+	{
+		List<Map.Entry<Value, Value>> list = Arrays.<Map.Entry<Value, Value>>asList(ordered());
+		return Collections.unmodifiableList(list).iterator();
+	}
+
+	private synchronized Entry[] ordered()
+	{
+		if (ordered == null)
+		{
+			List<Entry> list = new ArrayList<Entry>(size);
+
+			if (root != null)
+			{
+				root.entries(list);
+			}
+
+			Collections.sort(list, new Comparator<Entry>()
+			{
+				@Override
+				public int compare(Entry a, Entry b)
+				{
+					return Long.compare(a.order, b.order);
+				}
+			});
+
+			ordered = list.toArray(new Entry[size]);
+		}
+
+		return ordered;
+	}
+
+	/**
+	 * Equality and hashCode are the same as for the equivalent ValueMap.
+	 */
+	@Override
+	public boolean equals(Object other)
+	{
+		if (other instanceof ValueTrie)
+		{
+			ValueTrie trie = (ValueTrie)other;
+
+			if (trie.size != size)
+			{
+				return false;
+			}
+
+			for (Entry e: ordered())
+			{
+				if (!e.value.equals(trie.get(e.key)))
+				{
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		int hash = 0;
+
+		for (Entry e: ordered())
+		{
+			hash += e.hashCode();
+		}
+
+		return hash;
+	}
+
+	@Override
+	public String toString()
+	{
+		return toMap().toString();
+	}
+
+	private static int index(int hash, int shift)
+	{
+		return (hash >>> shift) & MASK;
+	}
+
+	/**
+	 * An immutable key/value pair, with the key's hash and its insertion order.
+	 */
+	private static class Entry implements Map.Entry<Value, Value>, Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		private final Value key;
+		private final Value value;
+		private final int hash;
+		private final long order;
+
+		public Entry(Value key, Value value, int hash, long order)
+		{
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+			this.order = order;
+		}
+
+		public boolean matches(Value k, int h)
+		{
+			return h == hash && (k == key || k.equals(key));
+		}
+
+		public Entry convert(Converter keys, Converter values) throws ValueException
+		{
+			Value k = keys.convert(key);
+
+			if (k != key && !matches(k, k.hashCode()))
+			{
+				return null;
+			}
+
+			Value v = values.convert(value);
+			return (k == key && v == value) ? this : new Entry(k, v, hash, order);
+		}
+
+		@Override
+		public Value getKey()
+		{
+			return key;
+		}
+
+		@Override
+		public Value getValue()
+		{
+			return value;
+		}
+
+		@Override
+		public Value setValue(Value v)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return key.hashCode() ^ value.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if (other instanceof Map.Entry)
+			{
+				Map.Entry<?, ?> e = (Map.Entry<?, ?>)other;
+				return key.equals(e.getKey()) && value.equals(e.getValue());
+			}
+
+			return false;
+		}
+	}
+
+	/**
+	 * Records whether a put replaced an existing entry.
+	 */
+	private static class Change
+	{
+		public Entry replaced = null;
+	}
+
+	private static abstract class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		abstract public Entry find(Value key, int hash, int shift);
+		abstract public Node put(Entry entry, int shift, Change change);
+		abstract public Node remove(Value key, int hash, int shift);
+		abstract public void entries(List<Entry> list);
+		abstract public Node convert(Converter keys, Converter values, Node shared) throws ValueException;
+
+		/**
+		 * If the node holds just one entry, return it (so the parent can hold it).
+		 */
+		abstract public Entry single();
+	}
+
+	/**
+	 * A node with up to 32 slots, each of which is an Entry or a sub-Node. The
+	 * bitmap indicates which of the 32 possible slots are present.
+	 */
+	private static class BitmapNode extends Node
+	{
+		private static final long serialVersionUID = 1L;
+		private final int bitmap;
+		private final Object[] slots;
+
+		public BitmapNode(int bitmap, Object[] slots)
+		{
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		private int position(int bit)
+		{
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+
+		@Override
+		public Entry find(Value key, int hash, int shift)
+		{
+			int bit = 1 << index(hash, shift);
+
+			if ((bitmap & bit) == 0)
+			{
+				return null;
+			}
+
+			Object slot = slots[position(bit)];
+
+			if (slot instanceof Entry)
+			{
+				Entry e = (Entry)slot;
+				return e.matches(key, hash) ? e : null;
+			}
+			else
+			{
+				return ((Node)slot).find(key, hash, shift + BITS);
+			}
+		}
+
+		@Override
+		public Node put(Entry entry, int shift, Change change)
+		{
+			int bit = 1 << index(entry.hash, shift);
+			int pos = position(bit);
+
+			if ((bitmap & bit) == 0)
+			{
+				Object[] newslots = new Object[slots.length + 1];
+				System.arraycopy(slots, 0, newslots, 0, pos);
+				newslots[pos] = entry;
+				System.arraycopy(slots, pos, newslots, pos + 1, slots.length - pos);
+				return new BitmapNode(bitmap | bit, newslots);
+			}
+
+			Object slot = slots[pos];
+			Object newslot;
+
+			if (slot instanceof Entry)
+			{
+				Entry e = (Entry)slot;
+
+				if (e.matches(entry.key, entry.hash))
+				{
+					if (e.value == entry.value)
+					{
+						change.replaced = e;
+						return this;
+					}
+
+					change.replaced = e;
+					newslot = new Entry(e.key, entry.value, e.hash, e.order);
+				}
+				else
+				{
+					newslot = pair(e, entry, shift + BITS);
+				}
+			}
+			else
+			{
+				Node node = (Node)slot;
+				newslot = node.put(entry, shift + BITS, change);
+
+				if (newslot == node)
+				{
+					return this;
+				}
+			}
+
+			Object[] newslots = slots.clone();
+			newslots[pos] = newslot;
+			return new BitmapNode(bitmap, newslots);
+		}
+
+		private Node pair(Entry a, Entry b, int shift)
+		{
+			if (a.hash == b.hash)
+			{
+				return new CollisionNode(a.hash, new Entry[] { a, b });
+			}
+
+			int ia = index(a.hash, shift);
+			int ib = index(b.hash, shift);
+
+			if (ia == ib)
+			{
+				return new BitmapNode(1 << ia, new Object[] { pair(a, b, shift + BITS) });
+			}
+			else if (ia < ib)
+			{
+				return new BitmapNode((1 << ia) | (1 << ib), new Object[] { a, b });
+			}
+			else
+			{
+				return new BitmapNode((1 << ia) | (1 << ib), new Object[] { b, a });
+			}
+		}
+
+		@Override
+		public Node remove(Value key, int hash, int shift)
+		{
+			int bit = 1 << index(hash, shift);
+
+			if ((bitmap & bit) == 0)
+			{
+				return this;
+			}
+
+			int pos = position(bit);
+			Object slot = slots[pos];
+
+			if (slot instanceof Entry)
+			{
+				if (!((Entry)slot).matches(key, hash))
+				{
+					return this;
+				}
+			}
+			else
+			{
+				Node node = (Node)slot;
+				Node newnode = node.remove(key, hash, shift + BITS);
+
+				if (newnode == node)
+				{
+					return this;
+				}
+				else if (newnode != null)
+				{
+					Object[] newslots = slots.clone();
+					Entry single = newnode.single();
+					newslots[pos] = (single != null) ? single : newnode;
+					return new BitmapNode(bitmap, newslots);
+				}
+			}
+
+			if (slots.length == 1)
+			{
+				return null;
+			}
+
+			Object[] newslots = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, newslots, 0, pos);
+			System.arraycopy(slots, pos + 1, newslots, pos, slots.length - pos - 1);
+			return new BitmapNode(bitmap & ~bit, newslots);
+		}
+
+		@Override
+		public void entries(List<Entry> list)
+		{
+			for (Object slot: slots)
+			{
+				if (slot instanceof Entry)
+				{
+					list.add((Entry)slot);
+				}
+				else
+				{
+					((Node)slot).entries(list);
+				}
+			}
+		}
+
+		@Override
+		public Node convert(Converter keys, Converter values, Node shared) throws ValueException
+		{
+			if (this == shared)
+			{
+				return this;
+			}
+
+			BitmapNode other = (shared instanceof BitmapNode) ? (BitmapNode)shared : null;
+			Object[] newslots = new Object[slots.length];
+			boolean changed = false;
+			int remaining = bitmap;
+
+			for (int i=0; i<slots.length; i++)
+			{
+				int bit = Integer.lowestOneBit(remaining);
+				remaining &= ~bit;
+				Object otherslot = null;
+
+				if (other != null && (other.bitmap & bit) != 0)
+				{
+					otherslot = other.slots[other.position(bit)];
+				}
+
+				if (slots[i] == otherslot)
+				{
+					newslots[i] = slots[i];
+				}
+				else if (slots[i] instanceof Entry)
+				{
+					newslots[i] = ((Entry)slots[i]).convert(keys, values);
+				}
+				else
+				{
+					Node othernode = (otherslot instanceof Node) ? (Node)otherslot : null;
+					newslots[i] = ((Node)slots[i]).convert(keys, values, othernode);
+				}
+
+				if (newslots[i] == null)
+				{
+					return null;
+				}
+
+				changed = changed || newslots[i] != slots[i];
+			}
+
+			return changed ? new BitmapNode(bitmap, newslots) : this;
+		}
+
+		@Override
+		public Entry single()
+		{
+			return (slots.length == 1 && slots[0] instanceof Entry) ? (Entry)slots[0] : null;
+		}
+	}
+
+	/**
+	 * A node for entries whose keys have the same hash.
+	 */
+	private static class CollisionNode extends Node
+	{
+		private static final long serialVersionUID = 1L;
+		private final int hash;
+		private final Entry[] entries;
+
+		public CollisionNode(int hash, Entry[] entries)
+		{
+			this.hash = hash;
+			this.entries = entries;
+		}
+
+		@Override
+		public Entry find(Value key, int h, int shift)
+		{
+			if (h == hash)
+			{
+				for (Entry e: entries)
+				{
+					if (e.matches(key, h))
+					{
+						return e;
+					}
+				}
+			}
+
+			return null;
+		}
+
+		@Override
+		public Node put(Entry entry, int shift, Change change)
+		{
+			if (entry.hash != hash)
+			{
+				// Push this node down a level, below a bitmap node
+
+				Node node = new BitmapNode(1 << index(hash, shift), new Object[] { this });
+				return node.put(entry, shift, change);
+			}
+
+			for (int i=0; i<entries.length; i++)
+			{
+				Entry e = entries[i];
+
+				if (e.matches(entry.key, entry.hash))
+				{
+					change.replaced = e;
+
+					if (e.value == entry.value)
+					{
+						return this;
+					}
+
+					Entry[] newentries = entries.clone();
+					newentries[i] = new Entry(e.key, entry.value, e.hash, e.order);
+					return new CollisionNode(hash, newentries);
+				}
+			}
+
+			Entry[] newentries = Arrays.copyOf(entries, entries.length + 1);
+			newentries[entries.length] = entry;
+			return new CollisionNode(hash, newentries);
+		}
+
+		@Override
+		public Node remove(Value key, int h, int shift)
+		{
+			for (int i=0; i<entries.length; i++)
+			{
+				if (entries[i].matches(key, h))
+				{
+					if (entries.length == 1)
+					{
+						return null;
+					}
+
+					Entry[] newentries = new Entry[entries.length - 1];
+					System.arraycopy(entries, 0, newentries, 0, i);
+					System.arraycopy(entries, i + 1, newentries, i, entries.length - i - 1);
+					return new CollisionNode(hash, newentries);
+				}
+			}
+
+			return this;
+		}
+
+		@Override
+		public void entries(List<Entry> list)
+		{
+			list.addAll(Arrays.asList(entries));
+		}
+
+		@Override
+		public Node convert(Converter keys, Converter values, Node shared) throws ValueException
+		{
+			if (this == shared)
+			{
+				return this;
+			}
+
+			Entry[] newentries = new Entry[entries.length];
+			boolean changed = false;
+
+			for (int i=0; i<entries.length; i++)
+			{
+				newentries[i] = entries[i].convert(keys, values);
+
+				if (newentries[i] == null)
+				{
+					return null;
+				}
+
+				changed = changed || newentries[i] != entries[i];
+			}
+
+			return changed ? new CollisionNode(hash, newentries) : this;
+		}
+
+		@Override
+		public Entry single()
+		{
+			return (entries.length == 1) ? entries[0] : null;
+		}
+	}
+}
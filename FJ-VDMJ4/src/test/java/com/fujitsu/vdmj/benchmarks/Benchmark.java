@@ -0,0 +1,88 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * The timing harness for the benchmarks in this package. Each benchmark gives
+ * its workloads, which return the time they took, and these are run in turn,
+ * first to warm up and then to be timed.
+ */
+class Benchmark
+{
+	/**
+	 * A workload, which returns the number of nanoseconds that it took.
+	 */
+	interface Workload
+	{
+		long run() throws Exception;
+	}
+
+	/**
+	 * Run the workloads in turn for the warmup passes, and then for the timed
+	 * runs. The result has a row of times for each workload.
+	 */
+	static long[][] time(int warmup, int runs, Workload... workloads) throws Exception
+	{
+		for (int i=0; i<warmup; i++)
+		{
+			for (Workload workload: workloads)
+			{
+				workload.run();
+			}
+		}
+
+		long[][] times = new long[workloads.length][runs];
+
+		for (int i=0; i<runs; i++)
+		{
+			for (int w=0; w<workloads.length; w++)
+			{
+				times[w][i] = workloads[w].run();
+			}
+		}
+
+		return times;
+	}
+
+	/**
+	 * Print the best, median and mean of a set of times for a workload of a
+	 * given size.
+	 */
+	static void report(String name, int size, long[] times)
+	{
+		long[] sorted = times.clone();
+		Arrays.sort(sorted);
+		long total = 0;
+
+		for (long t: times)
+		{
+			total += t;
+		}
+
+		System.out.printf("%-10s n=%-8d best %10.3f ms, median %10.3f ms, mean %10.3f ms%n",
+			name, size, sorted[0]/1e6, sorted[sorted.length/2]/1e6, total/1e6/times.length);
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.io.File;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.config.Properties;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+/**
+ * Compare the type checking of a generated module with a large number of
+ * definitions, with the definition lists indexed by name and with the original
+ * linear search. Each function refers to two other functions, a type and a
+ * value. Run with an optional number of functions argument.
+ */
+public class DefinitionIndexBenchmark
+{
+	private static final int WARMUP = 2;
+	private static final int RUNS = 3;
+	private static final int THRESHOLD = 20;
+
+	private static String generate(int size)
+	{
+		int types = Math.max(1, size / 10);
+		StringBuilder sb = new StringBuilder();
+		sb.append("module M\nexports all\ndefinitions\n\ntypes\n");
+
+		for (int i=0; i<types; i++)
+		{
+			sb.append("\tT" + i + " = nat inv t == t < " + (i + 1000) + ";\n");
+		}
+
+		sb.append("\nvalues\n");
+
+		for (int i=0; i<types; i++)
+		{
+			sb.append("\tv" + i + " : T" + i + " = " + i + ";\n");
+		}
+
+		sb.append("\nfunctions\n");
+		sb.append("\tf0: T0 -> nat\n\tf0(x) == x + v0;\n\n");
+
+		for (int i=1; i<size; i++)
+		{
+			int t = i % types;
+			sb.append("\tf" + i + ": T" + t + " -> nat\n");
+			sb.append("\tf" + i + "(x) == f" + (i - 1) + "(v" + ((i - 1) % types) + ") + f" + (i / 2) +
+				"(v" + ((i / 2) % types) + ") + x;\n\n");
+		}
+
+		sb.append("end M\n");
+		return sb.toString();
+	}
+
+	private static long timeCheck(String spec, int threshold) throws Exception
+	{
+		LexLocation.resetLocations();
+		LexTokenReader ltr = new LexTokenReader(spec, Dialect.VDM_SL, new File("M.vdmsl"));
+		ASTModuleList ast = new ModuleReader(ltr).readModules();
+		TCModuleList tc = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(ast);
+
+		Properties.tc_index_threshold = threshold;
+		TypeChecker.clearErrors();
+		long before = System.nanoTime();
+		new ModuleTypeChecker(tc).typeCheck();
+		long after = System.nanoTime();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Type errors: " + TypeChecker.getErrors());
+		}
+
+		return after - before;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 100, 1000, 4000 };
+
+		for (int size: sizes)
+		{
+			final String spec = generate(size);
+
+			long[][] times = Benchmark.time(WARMUP, RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return timeCheck(spec, THRESHOLD);
+					}
+				},
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return timeCheck(spec, 0);
+					}
+				});
+
+			Benchmark.report("Indexed", size, times[0]);
+			Benchmark.report("Linear", size, times[1]);
+		}
+	}
+}
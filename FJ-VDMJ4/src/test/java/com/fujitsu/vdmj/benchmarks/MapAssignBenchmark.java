@@ -0,0 +1,151 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+/**
+ * Time loops of m := m ++ {i |-> i} that grow a map one key at a time, with m
+ * a state variable and with m a local dcl variable. Each assignment shares the
+ * trie of the map it replaces, so the time should grow linearly with the size,
+ * rather than with its square. Dynamic type checks are on, as by default. Run
+ * with an optional size argument.
+ */
+public class MapAssignBenchmark
+{
+	private static final int WARMUP = 2;
+	private static final int RUNS = 5;
+
+	private static final String SPEC =
+		"state S of\n" +
+		"	m : map nat to nat\n" +
+		"init s == s = mk_S({|->})\n" +
+		"end\n" +
+		"operations\n" +
+		"	growState: nat ==> nat\n" +
+		"	growState(size) ==\n" +
+		"	(\n" +
+		"		m := {|->};\n" +
+		"		for i = 1 to size do m := m ++ {i |-> i};\n" +
+		"		return card dom m\n" +
+		"	);\n" +
+		"\n" +
+		"	growLocal: nat ==> nat\n" +
+		"	growLocal(size) ==\n" +
+		"	(\n" +
+		"		dcl x : map nat to nat := {|->};\n" +
+		"		for i = 1 to size do x := x ++ {i |-> i};\n" +
+		"		return card dom x\n" +
+		"	);\n";
+
+	private static ModuleInterpreter interpreter() throws Exception
+	{
+		LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+
+		if (mr.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Syntax errors");
+		}
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Type check errors");
+		}
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		ModuleInterpreter interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+		return interpreter;
+	}
+
+	private static long time(ModuleInterpreter interpreter, String op, int size) throws Exception
+	{
+		long before = System.nanoTime();
+		long card = interpreter.execute(op + "(" + size + ")").intValue(null);
+
+		if (card != size)
+		{
+			throw new IllegalStateException("Map has " + card + " keys?");
+		}
+
+		return System.nanoTime() - before;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Settings.release = Release.VDM_10;
+		Settings.dialect = Dialect.VDM_SL;
+		Settings.dynamictypechecks = true;
+		final ModuleInterpreter interpreter = interpreter();
+
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 4000, 16000, 64000 };
+
+		for (final int size: sizes)
+		{
+			long[][] times = Benchmark.time(WARMUP, RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return time(interpreter, "growState", size);
+					}
+				},
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return time(interpreter, "growLocal", size);
+					}
+				});
+
+			Benchmark.report("State", size, times[0]);
+			Benchmark.report("Local", size, times[1]);
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.lex.LexToken;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexException;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.lex.Token;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+
+/**
+ * Time the parsing of an expression heavy specification, and count how many of
+ * the tokens lexed are the same tokens lexed again after the parser backtracks
+ * with pop(). The re-read fraction of the lexing time is the most that a lexer
+ * that kept its tokens could save, and lexing alone is timed to compare with the
+ * parse. The module has functions with let/if bodies, and functions with let-be-st and
+ * comprehension bodies. Run with an optional number of functions argument.
+ */
+public class ParserBacktrackBenchmark
+{
+	private static final int WARMUP = 2;
+	private static final int RUNS = 5;
+
+	/**
+	 * A reader that counts the tokens lexed, and the distinct positions they
+	 * start at. EOF is not counted, because it is read repeatedly at the end.
+	 */
+	private static class CountingReader extends LexTokenReader
+	{
+		public int lexed = 0;
+		public Set<Long> starts = new HashSet<Long>();
+
+		public CountingReader(String content)
+		{
+			super(content, Dialect.VDM_SL, new File("M.vdmsl"));
+		}
+
+		@Override
+		public LexToken nextToken() throws LexException
+		{
+			LexToken token = super.nextToken();
+
+			if (!token.is(Token.EOF))
+			{
+				lexed++;
+				starts.add(((long)token.location.startLine << 32) + token.location.startPos);
+			}
+
+			return token;
+		}
+	}
+
+	private static String generate(int size)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("module M\nexports all\ndefinitions\n\nfunctions\n");
+
+		for (int i=0; i<size; i++)
+		{
+			sb.append("\tf" + i + ": nat * seq of nat -> nat\n");
+			sb.append("\tf" + i + "(x, s) ==\n");
+			sb.append("\t\tlet a = x + " + i + ", mk_(b, c) = mk_(a * 2, s(1)), d : nat = len s in\n");
+			sb.append("\t\t\tif a > b and c <> d then (a + b) mod 7 else f" + i + "(c, tl s) + [a, b](1);\n\n");
+
+			sb.append("\tg" + i + ": set of nat -> nat\n");
+			sb.append("\tg" + i + "(s) ==\n");
+			sb.append("\t\tlet y in set s be st y > " + i + " in\n");
+			sb.append("\t\t\ty + card {m * 2 | m in set s & m < y} + len [n | n in set s & n > y]\n");
+			sb.append("\tpre exists z in set s & z > " + i + ";\n\n");
+		}
+
+		sb.append("end M\n");
+		return sb.toString();
+	}
+
+	private static long timeParse(String spec) throws Exception
+	{
+		LexLocation.resetLocations();
+		long before = System.nanoTime();
+		LexTokenReader ltr = new LexTokenReader(spec, Dialect.VDM_SL, new File("M.vdmsl"));
+		ModuleReader reader = new ModuleReader(ltr);
+		reader.readModules();
+
+		if (reader.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Syntax errors");
+		}
+
+		return System.nanoTime() - before;
+	}
+
+	private static long timeLex(String spec) throws Exception
+	{
+		LexLocation.resetLocations();
+		long before = System.nanoTime();
+		LexTokenReader ltr = new LexTokenReader(spec, Dialect.VDM_SL, new File("M.vdmsl"));
+
+		while (!ltr.nextToken().is(Token.EOF))
+		{
+			// Just lex
+		}
+
+		return System.nanoTime() - before;
+	}
+
+	private static void count(String spec, int size) throws Exception
+	{
+		LexLocation.resetLocations();
+		CountingReader ltr = new CountingReader(spec);
+		ASTModuleList ast = new ModuleReader(ltr).readModules();
+
+		if (ast.isEmpty())
+		{
+			throw new IllegalStateException("No modules");
+		}
+
+		int reread = ltr.lexed - ltr.starts.size();
+
+		System.out.printf("%-10s n=%-8d lexed %d tokens, %d distinct, %d re-read (%.1f%%)%n",
+			"Tokens", size, ltr.lexed, ltr.starts.size(), reread, 100.0 * reread / ltr.lexed);
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 250, 1000, 4000 };
+
+		for (int size: sizes)
+		{
+			final String spec = generate(size);
+
+			long[][] times = Benchmark.time(WARMUP, RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return timeParse(spec);
+					}
+				},
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return timeLex(spec);
+					}
+				});
+
+			Benchmark.report("Parse", size, times[0]);
+			Benchmark.report("Lex", size, times[1]);
+			count(spec, size);
+		}
+	}
+}
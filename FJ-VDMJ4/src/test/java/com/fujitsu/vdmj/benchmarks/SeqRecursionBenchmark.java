@@ -0,0 +1,142 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+/**
+ * Time recursive functions that take a sequence apart with f(tl s) and build one
+ * with f(s ^ [n]), with dynamic type checks on, as by default. Each call converts
+ * its sequence argument to the parameter type, which only converts the parts of
+ * the rope that are new, so the time should grow linearly with the size, rather
+ * than with its square. The recursion is deep, so run with a large stack, like
+ * -Xss256m, and an optional size argument.
+ */
+public class SeqRecursionBenchmark
+{
+	private static final int WARMUP = 2;
+	private static final int RUNS = 5;
+
+	private static final String SPEC =
+		"functions\n" +
+		"	sum: seq of nat -> nat\n" +
+		"	sum(s) ==\n" +
+		"		if s = [] then 0 else hd s + sum(tl s)\n" +
+		"	measure len s;\n" +
+		"\n" +
+		"	build: seq of nat * nat -> seq of nat\n" +
+		"	build(s, n) ==\n" +
+		"		if n = 0 then s else build(s ^ [n], n - 1)\n" +
+		"	measure n;\n";
+
+	private static ModuleInterpreter interpreter() throws Exception
+	{
+		LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+
+		if (mr.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Syntax errors");
+		}
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Type check errors");
+		}
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		ModuleInterpreter interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+		return interpreter;
+	}
+
+	private static long time(ModuleInterpreter interpreter, String expression, long expected) throws Exception
+	{
+		long before = System.nanoTime();
+		long result = interpreter.execute(expression).intValue(null);
+
+		if (result != expected)
+		{
+			throw new IllegalStateException(expression + " = " + result + "?");
+		}
+
+		return System.nanoTime() - before;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Settings.release = Release.VDM_10;
+		Settings.dialect = Dialect.VDM_SL;
+		Settings.dynamictypechecks = true;
+		final ModuleInterpreter interpreter = interpreter();
+
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 2000, 8000, 32000 };
+
+		for (final int size: sizes)
+		{
+			long[][] times = Benchmark.time(WARMUP, RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return time(interpreter, "sum([1 | i in set {1,...," + size + "}])", size);
+					}
+				},
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run() throws Exception
+					{
+						return time(interpreter, "len build([], " + size + ")", size);
+					}
+				});
+
+			Benchmark.report("Tail", size, times[0]);
+			Benchmark.report("Concat", size, times[1]);
+		}
+	}
+}
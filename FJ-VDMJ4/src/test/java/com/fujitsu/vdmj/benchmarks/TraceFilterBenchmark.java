@@ -0,0 +1,266 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.util.List;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.in.statements.INStatement;
+import com.fujitsu.vdmj.in.statements.INStatementVisitor;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.Context;
+import com.fujitsu.vdmj.traces.CallSequence;
+import com.fujitsu.vdmj.traces.TraceFilter;
+import com.fujitsu.vdmj.traces.TraceReductionType;
+import com.fujitsu.vdmj.values.Value;
+
+/**
+ * Compare the trie indexed failed stem filtering of TraceFilter with the original
+ * linear scan of every failed test. A synthetic trace of six calls per test is
+ * "executed", where some tests fail part way through, and all of the tests after
+ * them with the same stem are filtered. Run with an optional trace size argument.
+ * The linear scan is only timed up to 100000 tests, as it is quadratic.
+ */
+public class TraceFilterBenchmark
+{
+	private static final int WARMUP = 2;
+	private static final int RUNS = 3;
+	private static final int LENGTH = 6;
+	private static final int LINEAR_LIMIT = 100000;
+
+	/** The number of tests filtered by the last run of each filter. */
+	private static long trieFiltered = 0;
+	private static long linearFiltered = 0;
+
+	private static class Call extends INStatement
+	{
+		private static final long serialVersionUID = 1L;
+		private final String text;
+
+		public Call(String text)
+		{
+			super(new LexLocation());
+			this.text = text;
+		}
+
+		@Override
+		public String toString()
+		{
+			return text;
+		}
+
+		@Override
+		public Value eval(Context ctxt)
+		{
+			return null;
+		}
+
+		@Override
+		public <R, S> R apply(INStatementVisitor<R, S> visitor, S arg)
+		{
+			return null;
+		}
+	}
+
+	private static final Call[] CALLS = new Call[10];
+
+	static
+	{
+		for (int i=0; i<CALLS.length; i++)
+		{
+			CALLS[i] = new Call("op(" + i + ")");
+		}
+	}
+
+	/**
+	 * The original filter, which compared each test with every failed stem.
+	 */
+	private static class LinearFilter
+	{
+		private List<CallSequence> failedTests = new Vector<CallSequence>();
+		private List<Integer> failedStems = new Vector<Integer>();
+		private List<Integer> failedNumbers = new Vector<Integer>();
+
+		public int getFilteredBy(CallSequence test)
+		{
+			for (int i=0; i<failedTests.size(); i++)
+			{
+				if (failedTests.get(i).compareStem(test, failedStems.get(i)))
+				{
+					return failedNumbers.get(i);
+				}
+			}
+			
+			return 0;
+		}
+
+		public void update(boolean passed, int size, CallSequence test, int n)
+		{
+			if (!passed)
+			{
+				failedTests.add(test);
+				failedStems.add(size - 1);
+				failedNumbers.add(n);
+			}
+		}
+	}
+
+	private static int[] digits(int n)
+	{
+		int[] d = new int[LENGTH];
+
+		for (int i=LENGTH-1; i>=0; i--)
+		{
+			d[i] = n % 10;
+			n = n / 10;
+		}
+
+		return d;
+	}
+
+	private static CallSequence test(int[] d)
+	{
+		CallSequence test = new CallSequence();
+
+		for (int i=0; i<LENGTH; i++)
+		{
+			test.add(CALLS[d[i]]);
+		}
+
+		return test;
+	}
+
+	/**
+	 * The number of results a test produces, including the verdict. A test fails
+	 * at its third call if that is op(9), or at its last call if the last two are
+	 * op(3); op(7). Otherwise it passes.
+	 */
+	private static int resultSize(int[] d)
+	{
+		return d[2] == 9 ? 4 : LENGTH + 1;
+	}
+
+	private static boolean passed(int[] d)
+	{
+		return d[2] != 9 && !(d[4] == 3 && d[5] == 7);
+	}
+
+	private static long timeTrie(int size)
+	{
+		long before = System.nanoTime();
+		TraceFilter filter = new TraceFilter(size, 1.0F, TraceReductionType.NONE, 0);
+		long filtered = 0;
+
+		for (int n=1; n<=size; n++)
+		{
+			int[] d = digits(n - 1);
+			CallSequence test = test(d);
+
+			if (filter.getFilteredBy(test) > 0)
+			{
+				filtered++;
+			}
+			else
+			{
+				filter.update(passed(d), resultSize(d), test, n);
+			}
+		}
+
+		trieFiltered = filtered;
+		return System.nanoTime() - before;
+	}
+
+	private static long timeLinear(int size)
+	{
+		long before = System.nanoTime();
+		LinearFilter filter = new LinearFilter();
+		long filtered = 0;
+
+		for (int n=1; n<=size; n++)
+		{
+			int[] d = digits(n - 1);
+			CallSequence test = test(d);
+
+			if (filter.getFilteredBy(test) > 0)
+			{
+				filtered++;
+			}
+			else
+			{
+				filter.update(passed(d), resultSize(d), test, n);
+			}
+		}
+
+		linearFiltered = filtered;
+		return System.nanoTime() - before;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 10000, 100000, 1000000 };
+
+		for (final int size: sizes)
+		{
+			Benchmark.Workload trie = new Benchmark.Workload()
+			{
+				@Override
+				public long run()
+				{
+					return timeTrie(size);
+				}
+			};
+
+			Benchmark.Workload linear = new Benchmark.Workload()
+			{
+				@Override
+				public long run()
+				{
+					return timeLinear(size);
+				}
+			};
+
+			if (size > LINEAR_LIMIT)
+			{
+				long[][] times = Benchmark.time(WARMUP, RUNS, trie);
+				Benchmark.report("Trie", size, times[0]);
+			}
+			else
+			{
+				long[][] times = Benchmark.time(WARMUP, RUNS, trie, linear);
+
+				if (linearFiltered != trieFiltered)
+				{
+					throw new IllegalStateException("Filters disagree: " + trieFiltered + " vs " + linearFiltered);
+				}
+
+				Benchmark.report("Trie", size, times[0]);
+				Benchmark.report("Linear", size, times[1]);
+			}
+
+			System.out.printf("Filtered %d of %d tests%n", trieFiltered, size);
+		}
+	}
+}
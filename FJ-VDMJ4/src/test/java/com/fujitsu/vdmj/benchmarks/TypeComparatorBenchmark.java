@@ -0,0 +1,209 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.definitions.ASTClassList;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.syntax.ClassReader;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.definitions.TCClassList;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.typechecker.ClassTypeChecker;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeComparator;
+
+/**
+ * Time the TypeComparator in two ways. First, the VDM++ specifications in the
+ * Overture typecheck and VDMBook test resources are mapped and type checked
+ * repeatedly, which is dominated by many small comparisons. Second, two chains
+ * of product types of increasing length are compared, which should grow linearly
+ * with the length of the chain, because each level of the comparison looks up
+ * the pairs already compared. Run with the test resources on the classpath, and
+ * an optional argument for the length of the chains.
+ */
+public class TypeComparatorBenchmark
+{
+	private static final int WARMUP = 200;
+	private static final int RUNS = 1000;
+	private static final int LOOPS = 100;
+	private static final int CHAIN_RUNS = 10;
+
+	private static List<ASTClassList> parseResources(String... dirs) throws Exception
+	{
+		List<ASTClassList> specs = new Vector<ASTClassList>();
+
+		for (String dir: dirs)
+		{
+			File[] files = new File(TypeComparatorBenchmark.class.getResource(dir).toURI()).listFiles();
+			Arrays.sort(files);
+
+			for (File file: files)
+			{
+				if (file.getName().endsWith(".vpp"))
+				{
+					ClassReader reader = new ClassReader(new LexTokenReader(file, Dialect.VDM_PP));
+					specs.add(reader.readClasses());
+				}
+			}
+		}
+
+		return specs;
+	}
+
+	private static long checkAll(List<ASTClassList> specs) throws Exception
+	{
+		long before = System.nanoTime();
+
+		for (ASTClassList spec: specs)
+		{
+			LexLocation.resetLocations();
+			TCClassList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(spec);
+			new ClassTypeChecker(checked).typeCheck();
+		}
+
+		return System.nanoTime() - before;
+	}
+
+	private static String generateChains(int length)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("module M\nexports all\ndefinitions\n\ntypes\n");
+
+		for (String chain: new String[] { "A", "B" })
+		{
+			for (int i=0; i<length; i++)
+			{
+				sb.append("\t" + chain + i + " = nat * " + chain + (i + 1) + ";\n");
+			}
+
+			sb.append("\t" + chain + length + " = nat;\n");
+		}
+
+		sb.append("\nend M\n");
+		return sb.toString();
+	}
+
+	private static TCModuleList checkModule(String spec) throws Exception
+	{
+		LexLocation.resetLocations();
+		LexTokenReader ltr = new LexTokenReader(spec, Dialect.VDM_SL, new File("M.vdmsl"));
+		ASTModuleList ast = new ModuleReader(ltr).readModules();
+		TCModuleList tc = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(ast);
+		new ModuleTypeChecker(tc).typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Type errors: " + TypeChecker.getErrors());
+		}
+
+		return tc;
+	}
+
+	private static TCType findType(TCModuleList tc, String name)
+	{
+		for (TCDefinition def: tc.get(0).defs)
+		{
+			if (def.name != null && def.name.getName().equals(name))
+			{
+				return def.getType();
+			}
+		}
+
+		throw new IllegalStateException("Type not found: " + name);
+	}
+
+	private static long timeChains(TCType a, TCType b)
+	{
+		long before = System.nanoTime();
+
+		for (int i=0; i<LOOPS; i++)
+		{
+			if (!TypeComparator.compatible(a, b) || !TypeComparator.isSubType(a, b))
+			{
+				throw new IllegalStateException("Not compatible");
+			}
+		}
+
+		return (System.nanoTime() - before) / LOOPS;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Settings.release = Release.DEFAULT;
+
+		Settings.dialect = Dialect.VDM_PP;
+		final List<ASTClassList> specs = parseResources("/Overture/typecheck", "/VDMBook");
+
+		long[][] times = Benchmark.time(WARMUP, RUNS,
+			new Benchmark.Workload()
+			{
+				@Override
+				public long run() throws Exception
+				{
+					return checkAll(specs);
+				}
+			});
+
+		Benchmark.report("Check", specs.size(), times[0]);
+
+		Settings.dialect = Dialect.VDM_SL;
+		int[] lengths = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 100, 200, 400, 800 };
+
+		for (int length: lengths)
+		{
+			TCModuleList tc = checkModule(generateChains(length));
+			final TCType a = findType(tc, "A0");
+			final TCType b = findType(tc, "B0");
+
+			times = Benchmark.time(CHAIN_RUNS, CHAIN_RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run()
+					{
+						return timeChains(a, b);
+					}
+				});
+
+			Benchmark.report("Chains", length, times[0]);
+		}
+	}
+}
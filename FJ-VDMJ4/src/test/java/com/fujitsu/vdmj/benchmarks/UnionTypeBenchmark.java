@@ -0,0 +1,185 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.io.File;
+
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.tc.types.TCQuoteType;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.tc.types.TCTypeFactory;
+import com.fujitsu.vdmj.tc.types.TCTypeSet;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeComparator;
+
+/**
+ * Time the comparison of large unions of quote types, which should grow linearly
+ * with the size of the union. A module defines Q as a union of quotes and Q2 as
+ * half of Q. Q2 is tested as a subtype of Q, and a union of canonical quotes is
+ * created and tested for compatibility with Q, as an expression like a set
+ * enumeration would. Run with an optional number of quotes argument.
+ */
+public class UnionTypeBenchmark
+{
+	private static final int WARMUP = 2;
+	private static final int RUNS = 5;
+	private static final int LOOPS = 100;
+
+	private static String generate(int size)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("module M\nexports all\ndefinitions\n\ntypes\n\tQ = ");
+
+		for (int i=0; i<size; i++)
+		{
+			sb.append((i > 0 ? " | " : "") + "<Q" + i + ">");
+		}
+
+		sb.append(";\n\tQ2 = ");
+
+		for (int i=0; i<size/2; i++)
+		{
+			sb.append((i > 0 ? " | " : "") + "<Q" + i + ">");
+		}
+
+		sb.append(";\n\nend M\n");
+		return sb.toString();
+	}
+
+	private static TCModuleList check(String spec) throws Exception
+	{
+		LexLocation.resetLocations();
+		LexTokenReader ltr = new LexTokenReader(spec, Dialect.VDM_SL, new File("M.vdmsl"));
+		ASTModuleList ast = new ModuleReader(ltr).readModules();
+		TCModuleList tc = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(ast);
+		TypeChecker.clearErrors();
+		new ModuleTypeChecker(tc).typeCheck();
+
+		if (TypeChecker.getErrorCount() > 0)
+		{
+			throw new IllegalStateException("Type errors: " + TypeChecker.getErrors());
+		}
+
+		return tc;
+	}
+
+	private static TCType findType(TCModuleList tc, String name)
+	{
+		for (TCDefinition def: tc.get(0).defs)
+		{
+			if (def.name != null && def.name.getName().equals(name))
+			{
+				return def.getType();
+			}
+		}
+
+		throw new IllegalStateException("Type not found: " + name);
+	}
+
+	private static long timeSubType(TCType sub, TCType sup)
+	{
+		long before = System.nanoTime();
+
+		for (int i=0; i<LOOPS; i++)
+		{
+			if (!TypeComparator.isSubType(sub, sup))
+			{
+				throw new IllegalStateException("Not a subtype");
+			}
+		}
+
+		return (System.nanoTime() - before) / LOOPS;
+	}
+
+	private static long timeUnion(TCType sup, int size)
+	{
+		LexLocation location = new LexLocation();
+		long before = System.nanoTime();
+
+		for (int i=0; i<LOOPS; i++)
+		{
+			TCTypeSet set = new TCTypeSet();
+
+			for (int q=0; q<size; q+=3)
+			{
+				set.add(TCTypeFactory.getCanonical(new TCQuoteType(location, "Q" + q)));
+			}
+
+			if (!TypeComparator.compatible(sup, set.getType(location)))
+			{
+				throw new IllegalStateException("Not compatible");
+			}
+		}
+
+		return (System.nanoTime() - before) / LOOPS;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		Settings.dialect = Dialect.VDM_SL;
+
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 100, 400, 1600 };
+
+		for (final int size: sizes)
+		{
+			TCModuleList tc = check(generate(size));
+			final TCType q = findType(tc, "Q");
+			final TCType q2 = findType(tc, "Q2");
+
+			long[][] times = Benchmark.time(WARMUP, RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run()
+					{
+						return timeSubType(q2, q);
+					}
+				},
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run()
+					{
+						return timeUnion(q, size);
+					}
+				});
+
+			Benchmark.report("Subtype", size, times[0]);
+			Benchmark.report("Union", size, times[1]);
+		}
+	}
+}
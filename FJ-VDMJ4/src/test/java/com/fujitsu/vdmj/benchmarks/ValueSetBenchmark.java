@@ -0,0 +1,132 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.benchmarks;
+
+import java.util.Vector;
+
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueSet;
+
+/**
+ * Compare the hash indexed ValueSet with the original Vector based set, which
+ * checked membership with a linear scan. Run with an optional set size argument.
+ */
+public class ValueSetBenchmark
+{
+	private static final int WARMUP = 3;
+	private static final int RUNS = 5;
+
+	private static class VectorSet extends Vector<Value>
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean add(Value v)
+		{
+			return contains(v) || super.add(v);
+		}
+	}
+
+	private static long timeValueSet(int size)
+	{
+		long before = System.nanoTime();
+		ValueSet set = new ValueSet();
+
+		for (int i=0; i<size; i++)
+		{
+			set.add(new IntegerValue(i % (size/2 + 1)));
+		}
+
+		int found = 0;
+
+		for (int i=0; i<size; i++)
+		{
+			if (set.contains(new IntegerValue(i))) found++;
+		}
+
+		check(found, size);
+		return System.nanoTime() - before;
+	}
+
+	private static long timeVectorSet(int size)
+	{
+		long before = System.nanoTime();
+		VectorSet set = new VectorSet();
+
+		for (int i=0; i<size; i++)
+		{
+			set.add(new IntegerValue(i % (size/2 + 1)));
+		}
+
+		int found = 0;
+
+		for (int i=0; i<size; i++)
+		{
+			if (set.contains(new IntegerValue(i))) found++;
+		}
+
+		check(found, size);
+		return System.nanoTime() - before;
+	}
+
+	private static void check(int found, int size)
+	{
+		if (found != size/2 + 1)
+		{
+			throw new IllegalStateException("Found " + found + " members?");
+		}
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		int[] sizes = args.length > 0 ?
+			new int[] { Integer.parseInt(args[0]) } :
+			new int[] { 10, 100, 1000, 10000, 50000 };
+
+		for (final int size: sizes)
+		{
+			long[][] times = Benchmark.time(WARMUP, RUNS,
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run()
+					{
+						return timeValueSet(size);
+					}
+				},
+				new Benchmark.Workload()
+				{
+					@Override
+					public long run()
+					{
+						return timeVectorSet(size);
+					}
+				});
+
+			Benchmark.report("ValueSet", size, times[0]);
+			Benchmark.report("Vector", size, times[1]);
+		}
+	}
+}
@@ -144,4 +144,9 @@ public class ExecutionTest extends TestCase
 	{
 		process("flat.vdm", "flat.tests");
 	}
+
+	public void testInitOrder() throws Exception
+	{
+		process("initorder.vdm", "initorder.tests");
+	}
 }
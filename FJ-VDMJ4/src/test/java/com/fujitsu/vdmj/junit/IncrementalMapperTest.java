@@ -0,0 +1,149 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.io.File;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModule;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INImportedDefinition;
+import com.fujitsu.vdmj.in.modules.INModule;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModule;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that incremental conversions re-use the results for unchanged roots, and
+ * that references to them from new conversions are kept.
+ */
+public class IncrementalMapperTest extends TestCase
+{
+	private static final String A =
+		"module A\nexports all\ndefinitions\n" +
+		"functions\n  f : nat -> nat\n  f(n) == n + 1;\n" +
+		"end A\n";
+
+	private static final String B =
+		"module B\nimports from A functions f;\nexports all\ndefinitions\n" +
+		"functions\n  h : nat -> nat\n  h(n) == A`f(n) * 2;\n" +
+		"end B\n";
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Settings.release = Release.DEFAULT;
+		Settings.dialect = Dialect.VDM_SL;
+		Settings.annotations = false;
+	}
+
+	public void testIncremental() throws Exception
+	{
+		TCModuleList checked = check(A + B);
+		TCModule tcA = checked.get(0);
+		TCModule tcB = checked.get(1);
+
+		ClassMapper mapper = ClassMapper.getInstance(INNode.MAPPINGS).init();
+		INModule inA = mapper.convertIncremental("A", "a1", tcA);
+		INModule inB = mapper.convertIncremental("B", "b1", tcB);
+		INDefinition g = importOf(inB);
+		assertTrue("Import not shared", inA.defs.contains(g));
+
+		assertSame("Same source", inA, mapper.convertIncremental("A", null, tcA));
+		assertSame("Same hash", inB, mapper.convertIncremental("B", "b1", check(A + B).get(1)));
+
+		INModule newB = mapper.convertIncremental("B", "b2", tcB);
+		assertNotSame("Not converted again", inB, newB);
+		assertSame("Import not kept", g, importOf(newB));
+		assertSame("A converted again", inA, mapper.convertIncremental("A", "a1", tcA));
+	}
+
+	public void testCheckedModules() throws Exception
+	{
+		ClassMapper mapper = ClassMapper.getInstance(TCNode.MAPPINGS).init();
+		ASTModuleList parsed = parse(A + B);
+		TCModuleList modules = new TCModuleList();
+		modules.add(mapper.<TCModule>convertIncremental("A", null, parsed.get(0)));
+		modules.add(mapper.<TCModule>convertIncremental("B", null, parsed.get(1)));
+		new ModuleTypeChecker(modules).typeCheck();
+		assertEquals("Type errors", 0, TypeChecker.getErrorCount());
+
+		TCModuleList checked = new TCModuleList();
+		checked.add(modules.get(0));
+		ASTModule badB = parse(B.replace("A`f(n) * 2", "A`f(n) = 2")).get(0);
+		modules.set(1, mapper.<TCModule>convertIncremental("B", null, badB));
+		new ModuleTypeChecker(modules, checked).typeCheck();
+		assertEquals("Type errors", 2, TypeChecker.getErrorCount());
+		assertEquals("Error module", "B", TypeChecker.getErrors().get(0).location.getModule());
+		assertEquals("Error module", "B", TypeChecker.getErrors().get(1).location.getModule());
+
+		ASTModule goodB = parse(B).get(0);
+		modules.set(1, mapper.<TCModule>convertIncremental("B", null, goodB));
+		new ModuleTypeChecker(modules, checked).typeCheck();
+		assertEquals("Type errors", 0, TypeChecker.getErrorCount());
+		assertEquals("Type warnings", 0, TypeChecker.getWarningCount());
+	}
+
+	private ASTModuleList parse(String source) throws Exception
+	{
+		LexTokenReader ltr = new LexTokenReader(source, Dialect.VDM_SL, new File("test.vdmsl"));
+		return new ModuleReader(ltr).readModules();
+	}
+
+	private TCModuleList check(String source) throws Exception
+	{
+		LexTokenReader ltr = new LexTokenReader(source, Dialect.VDM_SL, new File("test.vdmsl"));
+		ASTModuleList parsed = new ModuleReader(ltr).readModules();
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		new ModuleTypeChecker(checked).typeCheck();
+		assertEquals("Type errors", 0, TypeChecker.getErrorCount());
+		return checked;
+	}
+
+	private INDefinition importOf(INModule module)
+	{
+		for (INDefinition def: module.importdefs)
+		{
+			if (def instanceof INImportedDefinition)
+			{
+				return ((INImportedDefinition)def).def;
+			}
+		}
+
+		fail("No import in " + module.name);
+		return null;
+	}
+}
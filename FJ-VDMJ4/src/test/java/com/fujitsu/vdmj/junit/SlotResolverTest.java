@@ -0,0 +1,133 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+
+package com.fujitsu.vdmj.junit;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INExplicitFunctionDefinition;
+import com.fujitsu.vdmj.in.expressions.INSlotResolver;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+import junit.framework.TestCase;
+
+public class SlotResolverTest extends TestCase
+{
+	private static final String SPEC =
+		"functions\n" +
+		"f: nat * nat -> nat\n" +
+		"f(x, y) == let x = y + 1 in x * 10 + y;\n" +
+		"g: seq of nat -> nat\n" +
+		"g(s) == cases s: [] -> 0, [h] ^ t -> h + g(t) end;\n" +
+		"h: nat -> bool\n" +
+		"h(x) == forall x in set {1, 2, 3} & x < 4;\n" +
+		"k: nat -> nat\n" +
+		"k(x) == let a = x + 1, x = a * 2 in x + a;\n" +
+		"m: nat * nat -> nat\n" +
+		"m(n, acc) == if n = 0 then acc else m(n - 1, acc + n);\n" +
+		"p: nat -> nat\n" +
+		"p(x) == let add = lambda y : nat & x + y in add(1) + x;\n" +
+		"c: nat -> nat -> nat\n" +
+		"c(a)(b) == a + b;\n";
+
+	private INModuleList runnable = null;
+	private ModuleInterpreter interpreter = null;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		Settings.release = Release.VDM_10;
+		Settings.dialect = Dialect.VDM_SL;
+
+		LexTokenReader ltr = new LexTokenReader(SPEC, Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+		assertEquals("Type check errors", 0, TypeChecker.getErrorCount());
+
+		runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+	}
+
+	private INExplicitFunctionDefinition function(String name)
+	{
+		for (INDefinition def: runnable.get(0).defs)
+		{
+			if (def.name != null && def.name.getName().equals(name))
+			{
+				return (INExplicitFunctionDefinition)def;
+			}
+		}
+
+		fail("Function " + name + " not found");
+		return null;
+	}
+
+	private int resolved(String name)
+	{
+		INExplicitFunctionDefinition def = function(name);
+		return new INSlotResolver(def.slotNames).resolve(def.body).size();
+	}
+
+	public void testResolution() throws Exception
+	{
+		assertEquals(2, resolved("f"));		// Just the y's, as x is hidden
+		assertEquals(1, resolved("g"));		// Not h or t, which are bound by the cases
+		assertEquals(0, resolved("h"));		// Hidden by the forall
+		assertEquals(0, resolved("k"));		// Hidden by the let
+		assertEquals(5, resolved("m"));
+		assertEquals(1, resolved("p"));		// The lambda is not descended
+		assertNull(function("c").slotNames);	// Curried, so looked up
+	}
+
+	public void testEvaluation() throws Exception
+	{
+		assertEquals(32, interpreter.execute("f(1, 2)").intValue(null));
+		assertEquals(10, interpreter.execute("g([1, 2, 3, 4])").intValue(null));
+		assertTrue(interpreter.execute("h(10)").boolValue(null));
+		assertEquals(18, interpreter.execute("k(5)").intValue(null));
+		assertEquals(5050, interpreter.execute("m(100, 0)").intValue(null));
+		assertEquals(7, interpreter.execute("p(3)").intValue(null));
+		assertEquals(3, interpreter.execute("c(1)(2)").intValue(null));
+	}
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.io.File;
+import java.net.URL;
+import java.util.List;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.definitions.INDefinition;
+import com.fujitsu.vdmj.in.definitions.INNamedTraceDefinition;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.traces.TraceIterator;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that the tests returned by TraceIterator.getTest(n) are the same as
+ * those generated in order by getNextTest, for a variety of trace structures.
+ */
+public class TraceIteratorTest extends TestCase
+{
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Settings.release = Release.DEFAULT;
+		Settings.dialect = Dialect.VDM_SL;
+	}
+
+	public void testGetTest() throws Exception
+	{
+		URL rurl = getClass().getResource("/exectest/traces.vdm");
+		LexTokenReader ltr = new LexTokenReader(new File(rurl.getPath()), Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+		assertEquals("Type check errors", 0, TypeChecker.getErrorCount());
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		ModuleInterpreter interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+		int traces = 0;
+
+		for (INDefinition def: runnable.get(0).defs)
+		{
+			if (def instanceof INNamedTraceDefinition)
+			{
+				INNamedTraceDefinition tdef = (INNamedTraceDefinition)def;
+				TraceIterator iter = tdef.getIterator(interpreter.getInitialContext());
+				List<String> expected = new Vector<String>();
+
+				while (iter.hasMoreTests())
+				{
+					expected.add(iter.getNextTest().toString());
+				}
+
+				assertEquals(tdef.name + " count", expected.size(), iter.count());
+
+				for (int n=expected.size()-1; n>=0; n--)	// Backwards, to show no state
+				{
+					assertEquals(tdef.name + " test " + n, expected.get(n), iter.getTest(n).toString());
+				}
+
+				traces++;
+			}
+		}
+
+		assertEquals(4, traces);
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.URL;
+import java.util.List;
+import java.util.Vector;
+
+import com.fujitsu.vdmj.ExitStatus;
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.VDMSL;
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.messages.Console;
+import com.fujitsu.vdmj.runtime.Interpreter;
+import com.fujitsu.vdmj.traces.TraceReductionType;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that a trace gives the same results when it is run with stem sharing or
+ * by worker processes as when its tests are run one at a time.
+ */
+public class TraceRunTest extends TestCase
+{
+	private File file = null;
+	private File traces = null;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		Settings.release = Release.DEFAULT;
+		Settings.annotations = false;
+
+		URL rurl = getClass().getResource("/exectest/tracerun.vdm");
+		file = new File(rurl.getPath());
+		rurl = getClass().getResource("/exectest/traces.vdm");
+		traces = new File(rurl.getPath());
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		Settings.traceThreads = 1;
+		Settings.traceSharing = false;
+		Interpreter.setTraceOutput(Console.out);
+		super.tearDown();
+	}
+
+	public void testFiltered() throws Exception
+	{
+		String serial = run(file, "Failing", 1, false);
+
+		assertTrue("No failures", serial.contains("FAILED"));
+		assertTrue("No filtering", serial.contains("FILTERED by test"));
+		assertEquals("Sharing", serial, run(file, "Failing", 1, true));
+		assertEquals("Workers", serial, run(file, "Failing", 2, false));
+		assertEquals("Sharing workers", serial, run(file, "Failing", 2, true));
+	}
+
+	public void testStems() throws Exception
+	{
+		for (String trace: new String[] { "T1", "T2", "T3", "T4" })
+		{
+			String serial = run(traces, trace, 1, false);
+			assertEquals(trace + " sharing", serial, run(traces, trace, 1, true));
+		}
+	}
+
+	public void testCoverage() throws Exception
+	{
+		String serial = run(file, "Passing", 1, false);
+		List<Long> hits = hits();
+
+		assertFalse("Failures", serial.contains("FAILED"));
+		assertEquals("Workers", serial, run(file, "Passing", 2, false));
+		assertEquals("Worker hits", hits, hits());
+	}
+
+	private String run(File spec, String trace, int threads, boolean sharing) throws Exception
+	{
+		List<File> files = new Vector<File>();
+		files.add(spec);
+
+		VDMSL controller = new VDMSL();
+		controller.setQuiet(true);
+		assertEquals("Parse", ExitStatus.EXIT_OK, controller.parse(files));
+		assertEquals("Type check", ExitStatus.EXIT_OK, controller.typeCheck());
+
+		Interpreter interpreter = controller.getInterpreter();
+		interpreter.init();
+		LexLocation.clearLocations();
+
+		StringWriter out = new StringWriter();
+		Interpreter.setTraceOutput(new PrintWriter(out));
+		Settings.traceThreads = threads;
+		Settings.traceSharing = sharing;
+		interpreter.runtrace(trace, 0, 0, false, 1.0F, TraceReductionType.NONE, 1234);
+
+		StringBuilder sb = new StringBuilder();
+
+		for (String line: out.toString().split("\n"))
+		{
+			if (!line.contains(" secs."))	// Timings vary
+			{
+				sb.append(line + "\n");
+			}
+		}
+
+		return sb.toString();
+	}
+
+	private List<Long> hits()
+	{
+		List<Long> hits = new Vector<Long>();
+
+		for (LexLocation location: LexLocation.getLocations(file))
+		{
+			hits.add(location.hits);
+		}
+
+		return hits;
+	}
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.tc.types.TCNaturalType;
+import com.fujitsu.vdmj.tc.types.TCType;
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.SeqValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueList;
+import com.fujitsu.vdmj.values.ValueRope;
+
+import junit.framework.TestCase;
+
+public class ValueRopeTest extends TestCase
+{
+	private ValueList range(int from, int to)
+	{
+		ValueList list = new ValueList();
+
+		for (int i=from; i<=to; i++)
+		{
+			list.add(new IntegerValue(i));
+		}
+
+		return list;
+	}
+
+	public void testSlicing() throws Exception
+	{
+		ValueRope rope = ValueRope.of(range(1, 1000));
+		assertEquals(1000, rope.size());
+		assertEquals(new IntegerValue(500), rope.get(499));
+
+		ValueRope tail = rope;
+
+		for (int i=1; i<1000; i++)
+		{
+			tail = tail.tail();
+			assertEquals(new IntegerValue(i+1), tail.get(0));
+		}
+
+		assertEquals(1, tail.size());
+		assertEquals(range(100, 199), rope.slice(99, 199).toList());
+		assertEquals(1000, rope.size());	// Unchanged
+	}
+
+	public void testConcat() throws Exception
+	{
+		ValueRope rope = ValueRope.EMPTY;
+
+		for (int i=1; i<=1000; i++)
+		{
+			rope = rope.concat(ValueRope.of(new IntegerValue(i)));
+		}
+
+		assertEquals(range(1, 1000), rope.toList());
+		assertEquals(ValueRope.of(range(1, 1000)), rope);
+		assertEquals(range(1, 1000).hashCode(), rope.hashCode());
+
+		ValueRope both = rope.concat(rope);
+		assertEquals(2000, both.size());
+		assertEquals(new IntegerValue(1), both.get(1000));
+		assertEquals(range(990, 1000), both.slice(989, 1000).toList());
+	}
+
+	public void testUpdate() throws Exception
+	{
+		ValueRope rope = ValueRope.of(range(1, 500));
+		ValueRope updated = rope.set(250, new IntegerValue(0));
+
+		assertEquals(new IntegerValue(251), rope.get(250));
+		assertEquals(new IntegerValue(0), updated.get(250));
+		assertEquals(new IntegerValue(252), updated.get(251));
+	}
+
+	public void testSeqValue() throws Exception
+	{
+		SeqValue seq = new SeqValue(range(1, 10));
+		SeqValue tail = new SeqValue(seq.seqRope(null).tail());
+
+		assertEquals(new SeqValue(range(2, 10)), tail);
+		assertEquals(new SeqValue(range(2, 10)).hashCode(), tail.hashCode());
+		assertEquals(range(2, 10), tail.seqValue(null));
+
+		seq.seqValue(null).add(new IntegerValue(11));	// Updates the list view
+		assertEquals(11, seq.seqRope(null).size());
+	}
+
+	public void testConvert() throws Exception
+	{
+		final int[] count = { 0 };
+
+		ValueRope.Converter copy = new ValueRope.Converter()
+		{
+			@Override
+			public Value convert(Value value) throws ValueException
+			{
+				count[0]++;
+				return new IntegerValue(value.intValue(null));
+			}
+		};
+
+		ValueRope.Converter same = new ValueRope.Converter()
+		{
+			@Override
+			public Value convert(Value value)
+			{
+				count[0]++;
+				return value;
+			}
+		};
+
+		ValueRope rope = ValueRope.of(range(1, 1000));
+		assertSame(rope, rope.convert(same, null));
+
+		TCType nat = new TCNaturalType(new LexLocation());
+		ValueRope converted = rope.convert(copy, nat);
+		assertEquals(rope, converted);
+		assertNotSame(rope, converted);
+
+		count[0] = 0;
+		ValueRope tail = converted.tail().concat(ValueRope.of(new IntegerValue(0)));
+		ValueRope again = tail.convert(copy, nat);
+		assertEquals(tail, again);
+		assertTrue(count[0] < 200);		// Only the new and sliced leaves
+
+		count[0] = 0;
+		assertSame(converted, converted.convert(copy, nat));
+		assertEquals(0, count[0]);
+	}
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import com.fujitsu.vdmj.Release;
+import com.fujitsu.vdmj.Settings;
+import com.fujitsu.vdmj.ast.modules.ASTModuleList;
+import com.fujitsu.vdmj.in.INNode;
+import com.fujitsu.vdmj.in.modules.INModuleList;
+import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexTokenReader;
+import com.fujitsu.vdmj.mapper.ClassMapper;
+import com.fujitsu.vdmj.runtime.ModuleInterpreter;
+import com.fujitsu.vdmj.syntax.ModuleReader;
+import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.modules.TCModuleList;
+import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
+import com.fujitsu.vdmj.typechecker.TypeChecker;
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.RealValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueSet;
+
+import junit.framework.TestCase;
+
+public class ValueSetTest extends TestCase
+{
+	private ValueSet range(int from, int to)
+	{
+		ValueSet set = new ValueSet();
+
+		for (int i=from; i<=to; i++)
+		{
+			set.add(new IntegerValue(i));
+		}
+
+		return set;
+	}
+
+	public void testMembership() throws Exception
+	{
+		ValueSet set = range(1, 1000);
+		assertEquals(1000, set.size());
+
+		set.add(new IntegerValue(500));		// Duplicate
+		set.add(new RealValue(500.0));		// Duplicate
+		assertEquals(1000, set.size());
+
+		assertTrue(set.contains(new IntegerValue(1000)));
+		assertTrue(set.contains(new RealValue(1.0)));
+		assertFalse(set.contains(new IntegerValue(1001)));
+		assertFalse(set.contains(new RealValue(1.5)));
+	}
+
+	public void testOrdering() throws Exception
+	{
+		ValueSet set = new ValueSet();
+		set.add(new IntegerValue(3));
+		set.add(new IntegerValue(2));
+		set.add(new IntegerValue(1));
+		set.add(new IntegerValue(2));
+
+		assertEquals(3, set.size());
+		assertEquals(new IntegerValue(3), set.get(0));
+		assertEquals(new IntegerValue(1), set.get(2));
+
+		set.sort();
+		assertEquals(new IntegerValue(1), set.get(0));
+		assertEquals(new IntegerValue(3), set.get(2));
+	}
+
+	public void testRemoval() throws Exception
+	{
+		ValueSet set = range(1, 100);
+
+		assertTrue(set.remove(new IntegerValue(50)));
+		assertFalse(set.remove(new IntegerValue(50)));
+		assertFalse(set.contains(new IntegerValue(50)));
+		assertEquals(99, set.size());
+
+		set.retainAll(range(1, 10));
+		assertEquals(10, set.size());
+		assertFalse(set.contains(new IntegerValue(11)));
+		assertTrue(set.contains(new IntegerValue(10)));
+
+		set.removeAll(range(1, 5));
+		assertEquals(range(6, 10), set);
+
+		for (int i=0; i<100; i++)
+		{
+			set.add(new IntegerValue(i));
+		}
+
+		Value first = set.get(0);
+		set.set(0, new IntegerValue(1000));
+		assertFalse(set.contains(first));
+		assertTrue(set.contains(new IntegerValue(1000)));
+
+		set.clear();
+		assertFalse(set.contains(new IntegerValue(1000)));
+		assertTrue(set.isEmpty());
+	}
+
+	public void testEquality() throws Exception
+	{
+		ValueSet a = range(1, 200);
+		ValueSet b = new ValueSet();
+
+		for (int i=200; i>=1; i--)
+		{
+			b.add(new IntegerValue(i));
+		}
+
+		assertEquals(a, b);
+		assertEquals(a.hashCode(), b.hashCode());
+		assertEquals(a, new ValueSet(b));
+		assertEquals(a, b.clone());
+	}
+
+	public void testEqualityAbstraction() throws Exception
+	{
+		Settings.release = Release.VDM_10;
+		Settings.dialect = Dialect.VDM_SL;
+
+		String spec =
+			"types\n" +
+			"T = nat eq a = b == a mod 50 = b mod 50;\n" +
+			"R :: n : nat eq mk_R(a) = mk_R(b) == a mod 50 = b mod 50;\n" +
+			"functions\n" +
+			"mkT: nat -> T\n" +
+			"mkT(n) == n;\n" +
+			"values\n" +
+			"S = {mkT(i) | i in set {1,...,200}};\n" +
+			"Q = {mk_R(i) | i in set {1,...,200}};\n" +
+			"P = {mk_(mkT(i), i mod 2) | i in set {1,...,200}}\n";
+
+		LexTokenReader ltr = new LexTokenReader(spec, Dialect.VDM_SL);
+		ModuleReader mr = new ModuleReader(ltr);
+		ASTModuleList parsed = new ASTModuleList();
+		parsed.addAll(mr.readModules());
+		mr.close();
+		assertEquals("Parse errors", 0, mr.getErrorCount());
+
+		TCModuleList checked = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(parsed);
+		TypeChecker typeChecker = new ModuleTypeChecker(checked);
+		typeChecker.typeCheck();
+		assertEquals("Type check errors", 0, TypeChecker.getErrorCount());
+
+		INModuleList runnable = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(checked);
+		ModuleInterpreter interpreter = new ModuleInterpreter(runnable, checked);
+		interpreter.init();
+
+		assertEquals(50, interpreter.execute("card S").intValue(null));
+		assertTrue(interpreter.execute("mkT(250) in set S").boolValue(null));
+		assertEquals(50, interpreter.execute("card Q").intValue(null));
+		assertTrue(interpreter.execute("mk_R(250) in set Q").boolValue(null));
+		assertEquals(50, interpreter.execute("card P").intValue(null));
+		assertTrue(interpreter.execute("mk_(mkT(251), 1) in set P").boolValue(null));
+		assertEquals(50, interpreter.execute("card (S union {mkT(i) | i in set {1000,...,1099}})").intValue(null));
+		assertEquals(40, interpreter.execute("card (Q \\ {mk_R(i) | i in set {1000,...,1009}})").intValue(null));
+	}
+}
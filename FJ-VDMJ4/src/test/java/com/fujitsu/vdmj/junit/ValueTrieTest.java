@@ -0,0 +1,220 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package com.fujitsu.vdmj.junit;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import com.fujitsu.vdmj.runtime.ValueException;
+import com.fujitsu.vdmj.values.IntegerValue;
+import com.fujitsu.vdmj.values.Value;
+import com.fujitsu.vdmj.values.ValueMap;
+import com.fujitsu.vdmj.values.ValueSet;
+import com.fujitsu.vdmj.values.ValueTrie;
+
+import junit.framework.TestCase;
+
+public class ValueTrieTest extends TestCase
+{
+	private Value key(long n)
+	{
+		// Keys n and n + 2^32 have the same hashCode, so this tests collisions
+		return new IntegerValue(n % 2 == 0 ? n : n + (1L << 32));
+	}
+
+	private void check(ValueMap expected, ValueTrie trie)
+	{
+		assertEquals(expected.size(), trie.size());
+		assertEquals(expected, trie.toMap());
+		assertEquals(expected.toString(), trie.toString());		// Same order
+		assertEquals(expected.hashCode(), trie.hashCode());
+
+		for (Map.Entry<Value, Value> entry: expected.entrySet())
+		{
+			assertEquals(entry.getValue(), trie.get(entry.getKey()));
+		}
+	}
+
+	public void testRandomUpdates() throws Exception
+	{
+		Random random = new Random(1234);
+		ValueMap map = new ValueMap();
+		ValueTrie trie = ValueTrie.EMPTY;
+
+		for (int i=0; i<20000; i++)
+		{
+			Value k = key(random.nextInt(2000));
+			Value v = new IntegerValue(random.nextInt(10));
+
+			if (random.nextInt(4) == 0)
+			{
+				map.remove(k);
+				trie = trie.remove(k);
+			}
+			else
+			{
+				map.put(k, v);
+				trie = trie.put(k, v);
+			}
+		}
+
+		check(map, trie);
+		assertEquals(trie, ValueTrie.of(map));
+	}
+
+	public void testPersistence() throws Exception
+	{
+		ValueMap map = new ValueMap();
+
+		for (int i=0; i<100; i++)
+		{
+			map.put(key(i), new IntegerValue(i));
+		}
+
+		ValueTrie before = ValueTrie.of(map);
+		ValueTrie after = before.put(key(50), new IntegerValue(0)).remove(key(51)).put(key(100), new IntegerValue(100));
+
+		check(map, before);		// Unchanged
+		assertEquals(new IntegerValue(0), after.get(key(50)));
+		assertNull(after.get(key(51)));
+		assertEquals(100, after.size());
+	}
+
+	public void testSelect() throws Exception
+	{
+		ValueMap map = new ValueMap();
+		ValueSet keys = new ValueSet();
+
+		for (int i=0; i<100; i++)
+		{
+			map.put(key(i), new IntegerValue(i));
+		}
+
+		for (int i=90; i>=10; i -= 10)
+		{
+			keys.add(key(i));
+		}
+
+		ValueTrie selected = ValueTrie.of(map).select(keys);
+		ValueMap expected = new ValueMap();
+
+		for (int i=10; i<100; i += 10)
+		{
+			expected.put(key(i), new IntegerValue(i));
+		}
+
+		check(expected, selected);
+	}
+
+	public void testMapVersion() throws Exception
+	{
+		ValueMap map = new ValueMap();
+		map.put(key(1), new IntegerValue(1));
+		map.put(key(2), new IntegerValue(2));
+		int version = map.version();
+
+		map.putIfAbsent(key(3), new IntegerValue(3));
+		assertTrue(map.version() != version);
+		version = map.version();
+
+		map.merge(key(3), new IntegerValue(1), new BiFunction<Value, Value, Value>()
+		{
+			@Override
+			public Value apply(Value a, Value b)
+			{
+				return b;
+			}
+		});
+		assertTrue(map.version() != version);
+		version = map.version();
+
+		map.replace(key(1), new IntegerValue(10));
+		assertTrue(map.version() != version);
+
+		try
+		{
+			map.keySet().remove(key(1));
+			fail("keySet changed map");
+		}
+		catch (UnsupportedOperationException e)
+		{
+			// Expected
+		}
+
+		try
+		{
+			map.entrySet().iterator().next().setValue(new IntegerValue(0));
+			fail("entrySet changed map");
+		}
+		catch (UnsupportedOperationException e)
+		{
+			// Expected
+		}
+
+		assertEquals(3, map.size());
+		assertEquals(new IntegerValue(10), map.get(key(1)));
+	}
+
+	public void testConvertShared() throws Exception
+	{
+		ValueMap map = new ValueMap();
+
+		for (int i=0; i<1000; i++)
+		{
+			map.put(key(i), new IntegerValue(i));
+		}
+
+		ValueTrie.Converter same = new ValueTrie.Converter()
+		{
+			@Override
+			public Value convert(Value value)
+			{
+				return value;
+			}
+		};
+
+		final int[] count = { 0 };
+
+		ValueTrie.Converter copy = new ValueTrie.Converter()
+		{
+			@Override
+			public Value convert(Value value) throws ValueException
+			{
+				count[0]++;
+				return new IntegerValue(value.intValue(null));
+			}
+		};
+
+		ValueTrie before = ValueTrie.of(map);
+		assertSame(before, before.convert(same, same));
+
+		ValueTrie after = before.put(key(1000), new IntegerValue(1000));
+		ValueTrie converted = after.convert(same, copy, before);
+		map.put(key(1000), new IntegerValue(1000));
+
+		check(map, converted);
+		assertTrue(count[0] < 100);		// Only the path to the new key
+	}
+}
@@ -122,4 +122,9 @@ public class ClassTest extends OvertureTest
 	{
 		evaluate("ordering2", ResultType.TRUE, 0, Release.VDM_10);
 	}
+
+	public void test_InitOrder()
+	{
+		evaluate("initorder", ResultType.TRUE);
+	}
 }
@@ -70,4 +70,9 @@ public class ClassTest extends OvertureTest
 	{
 		typecheck("cyclic");
 	}
+
+	public void test_UnionAccess()
+	{
+		typecheck("unionaccess");
+	}
 }
@@ -94,11 +94,12 @@ public abstract class VDMJUnitTest
 	 * Initialize, or re-initialize the VDM specification. This is often called
 	 * in an @Before method, to reset the specification to the same state before
 	 * every test. Note that this method must be called before any of the run
-	 * methods.
+	 * methods. Re-initialization restores the state saved by the first init,
+	 * where the dialect allows, rather than re-evaluating the specification.
 	 */
 	protected static void init()
 	{
-		interpreter.init();
+		interpreter.reinit();
 		initialized = true;
 	}
 	
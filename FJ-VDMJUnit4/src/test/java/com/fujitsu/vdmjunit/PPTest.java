@@ -74,8 +74,8 @@ public class PPTest extends VDMJUnitTestPP
 		{
 			// Error 4055: Precondition failure: pre_f in 'A' (test.vpp) at line 8:11
 			assertEquals(4055, e.number);
-			assertEquals("A", e.location.module);
-			assertEquals("testPP.vpp", e.location.file.getName());
+			assertEquals("A", e.location.getModule());
+			assertEquals("testPP.vpp", e.location.getFile().getName());
 			assertEquals(8, e.location.startLine);
 			assertEquals(11, e.location.startPos);
 		}
@@ -91,4 +91,14 @@ public class SLTest extends VDMJUnitTestSL
 	{
 		assertEquals(true, runBool("100 > 10"));
 	}
+	
+	@Test
+	public void four() throws Exception
+	{
+		setDefault("A");
+		run("setValue(456)");
+		assertEquals(456, runInt("getValue()"));
+		init();
+		assertEquals(0, runInt("getValue()"));
+	}
 }
@@ -137,7 +137,7 @@ abstract public class JSONServer
 		}
 	}
 	
-	public void writeMessage(JSONObject response) throws IOException
+	public synchronized void writeMessage(JSONObject response) throws IOException
 	{
 		StringWriter swout = new StringWriter();
 		JSONWriter jwriter = new JSONWriter(new PrintWriter(swout));
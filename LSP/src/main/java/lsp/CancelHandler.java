@@ -0,0 +1,54 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package lsp;
+
+import java.io.IOException;
+
+import json.JSONObject;
+import rpc.RPCMessageList;
+import rpc.RPCRequest;
+import workspace.Log;
+
+/**
+ * Cancellation is not supported. Requests are answered in the order that they
+ * arrive, so a request has always been answered before its $/cancelRequest is
+ * read. The background checks are not requests, so the client cannot cancel
+ * them either; they only stop early when a later check supersedes them. The
+ * notification is logged and otherwise ignored.
+ */
+public class CancelHandler extends LSPHandler
+{
+	public CancelHandler(LSPServerState state)
+	{
+		super(state);
+	}
+
+	@Override
+	public RPCMessageList run(RPCRequest request) throws IOException
+	{
+		JSONObject params = request.get("params");
+		Log.printf("Cancellation not supported, request %s already answered", params.get("id"));
+		return null;
+	}
+}
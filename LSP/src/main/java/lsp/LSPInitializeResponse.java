@@ -40,6 +40,8 @@ public class LSPInitializeResponse extends JSONObject
 		JSONObject cap = new JSONObject();
 		cap.put("definitionProvider", true);			// Go to definition for F12
 		cap.put("documentSymbolProvider", true);		// Symbol information for Outline view
+		cap.put("referencesProvider", true);			// Find all references
+		cap.put("workspaceSymbolProvider", true);		// Symbol search across files
 
 //		cap.put("completionProvider",					// Completions
 //			new JSONObject(
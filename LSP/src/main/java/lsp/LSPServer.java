@@ -40,6 +40,8 @@ import lsp.textdocument.DidCloseHandler;
 import lsp.textdocument.DidOpenHandler;
 import lsp.textdocument.DidSaveHandler;
 import lsp.textdocument.DocumentSymbolHandler;
+import lsp.textdocument.ReferencesHandler;
+import lsp.textdocument.WorkspaceSymbolHandler;
 import rpc.RPCDispatcher;
 import rpc.RPCMessageList;
 import rpc.RPCRequest;
@@ -82,6 +84,7 @@ public class LSPServer extends JSONServer
 		dispatcher.register("initialized", new InitializeHandler(state));
 		dispatcher.register("shutdown", new ShutdownHandler(state));
 		dispatcher.register("exit", new ExitHandler(state));
+		dispatcher.register("$/cancelRequest", new CancelHandler(state));
 
 		dispatcher.register("textDocument/didOpen", new DidOpenHandler(state));
 		dispatcher.register("textDocument/didClose", new DidCloseHandler(state));
@@ -89,6 +92,8 @@ public class LSPServer extends JSONServer
 		dispatcher.register("textDocument/didSave", new DidSaveHandler(state));
 		dispatcher.register("textDocument/definition", new DefinitionHandler(state));
 		dispatcher.register("textDocument/documentSymbol", new DocumentSymbolHandler(state));
+		dispatcher.register("textDocument/references", new ReferencesHandler(state));
+		dispatcher.register("workspace/symbol", new WorkspaceSymbolHandler(state));
 		dispatcher.register("workspace/didChangeWatchedFiles", new DidChangeWSHandler(state));
 
 		return dispatcher;
@@ -62,7 +62,7 @@ public class Utils
 	public static JSONObject lexLocationToLocation(LexLocation location)
 	{
 		return new JSONObject(
-			"uri",   location.file.toURI().toString(),
+			"uri",   location.getFile().toURI().toString(),
 			"range", lexLocationToRange(location));
 	}
 
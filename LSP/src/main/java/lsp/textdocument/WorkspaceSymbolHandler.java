@@ -0,0 +1,57 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package lsp.textdocument;
+
+import java.io.IOException;
+
+import json.JSONObject;
+import lsp.LSPHandler;
+import lsp.LSPServerState;
+import rpc.RPCErrors;
+import rpc.RPCMessageList;
+import rpc.RPCRequest;
+
+public class WorkspaceSymbolHandler extends LSPHandler
+{
+	public WorkspaceSymbolHandler(LSPServerState state)
+	{
+		super(state);
+	}
+
+	@Override
+	public RPCMessageList run(RPCRequest request) throws IOException
+	{
+		try
+		{
+			JSONObject params = request.get("params");
+			String query = params.get("query");
+			
+			return lspServerState.getManager().workspaceSymbols(request, query == null ? "" : query);
+		}
+		catch (Exception e)
+		{
+			return new RPCMessageList(request, RPCErrors.InternalError, e.getMessage());
+		}
+	}
+}
@@ -154,7 +154,7 @@ public class DAPDebugExecutor implements DebugExecutor
 	{
    		try
 		{
-			interpreter.setDefaultName(breakloc.module);
+			interpreter.setDefaultName(breakloc.getModule());
 		}
 		catch (Exception e)
 		{
@@ -306,10 +306,10 @@ public class DAPDebugExecutor implements DebugExecutor
 				frames.add(new JSONObject(
 						"id",		frame.frameId,
 						"name",		frame.title,
-						"source",	new JSONObject("path", frame.location.file.getAbsolutePath()),
+						"source",	new JSONObject("path", frame.location.getFile().getAbsolutePath()),
 						"line",		frame.location.startLine,
 						"column",	frame.location.startPos,
-						"moduleId",	frame.location.module));
+						"moduleId",	frame.location.getModule()));
 			}
 			
 			totalFrames++;
@@ -334,7 +334,7 @@ public class DAPDebugExecutor implements DebugExecutor
 				scopes.add(new JSONObject(
 					"name", scope.name,
 					"variablesReference", scope.vref,
-					"source", new JSONObject("path", frame.location.file.getAbsolutePath())
+					"source", new JSONObject("path", frame.location.getFile().getAbsolutePath())
 				));
 			}
 		}
@@ -412,7 +412,7 @@ public class DAPDebugExecutor implements DebugExecutor
 			SeqValue s = (SeqValue)var;
 			int i = 1;
 			
-			for (Value value: s.values)
+			for (Value value: s.seqValue(null))
 			{
 				variables.add(new JSONObject(
 						"name", "[" + i++ + "]",
@@ -447,12 +447,12 @@ public class DAPDebugExecutor implements DebugExecutor
 		{
 			MapValue m = (MapValue)var;
 			
-			for (Value key: m.values.keySet())
+			for (Value key: m.mapValue(null).keySet())
 			{
 				variables.add(new JSONObject(
 					"name", key.toString(),
-					"value", m.values.get(key).toString(),
-					"variablesReference", valueToReference(m.values.get(key)))
+					"value", m.mapValue(null).get(key).toString(),
+					"variablesReference", valueToReference(m.mapValue(null).get(key)))
 				);
 			}
 		}
@@ -678,7 +678,7 @@ public class DAPDebugExecutor implements DebugExecutor
 		// That causes problems in the client, so we try to replace it with
 		// the start of an arbitrary definition's file.
 		
-		if (loc.file.getName().equals("?") && !c.isEmpty())
+		if (loc.getFile().getName().equals("?") && !c.isEmpty())
 		{
 			for (Entry<TCNameToken, Value> entry: c.entrySet())
 			{
@@ -686,14 +686,14 @@ public class DAPDebugExecutor implements DebugExecutor
 				{
 					OperationValue op = (OperationValue)entry.getValue();
 					loc = op.name.getLocation();
-					loc = new LexLocation(loc.file, "DEFAULT", 0, 0, 0, 0);
+					loc = new LexLocation(loc.getFile(), "DEFAULT", 0, 0, 0, 0);
 					break;
 				}
 				else if (entry.getValue() instanceof FunctionValue)
 				{
 					FunctionValue fn = (FunctionValue)entry.getValue();
 					loc = fn.location;
-					loc = new LexLocation(loc.file, "DEFAULT", 0, 0, 0, 0);
+					loc = new LexLocation(loc.getFile(), "DEFAULT", 0, 0, 0, 0);
 					break;
 				}
 			}
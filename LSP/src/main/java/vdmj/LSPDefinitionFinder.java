@@ -24,10 +24,11 @@
 package vdmj;
 
 import java.io.File;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
 
-import com.fujitsu.vdmj.ast.lex.LexNameToken;
-import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.definitions.TCClassDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCClassList;
@@ -40,144 +41,118 @@ import com.fujitsu.vdmj.tc.statements.TCCallObjectStatement;
 import com.fujitsu.vdmj.tc.statements.TCCallStatement;
 import com.fujitsu.vdmj.tc.statements.TCIdentifierDesignator;
 import com.fujitsu.vdmj.tc.types.TCUnresolvedType;
+import com.fujitsu.vdmj.typechecker.Environment;
 import com.fujitsu.vdmj.typechecker.ModuleEnvironment;
 import com.fujitsu.vdmj.typechecker.NameScope;
 import com.fujitsu.vdmj.typechecker.PrivateClassEnvironment;
 import com.fujitsu.vdmj.typechecker.PublicClassEnvironment;
 
-import workspace.Log;
-
+/**
+ * Find the definitions of the names in a type checked specification. The names are
+ * located and resolved once, when the finder is created, and the references of each
+ * file are then indexed by position, with the definitions that they refer to.
+ */
 public class LSPDefinitionFinder
 {
-	public TCDefinition find(TCModuleList modules, File file, int line, int col)
-	{
-		return find(modules, new LexLocation(file, "?", line, col, line, col));
-	}
+	private final Map<File, List<LSPNodeLocation>> references =
+		new HashMap<File, List<LSPNodeLocation>>();
 	
-	public TCDefinition find(TCModuleList modules, LexLocation position)
+	public LSPDefinitionFinder(TCModuleList modules)
 	{
 		LSPDefinitionLocationFinder finder = new LSPDefinitionLocationFinder();
 		
 		for (TCModule module: modules)
 		{
-			// Only explicit modules have a span, called (say) "M`M"
-			LexNameToken sname = new LexNameToken(module.name.getName(), module.name.getLex());
-			LexLocation span = LexLocation.getSpan(sname);
+			ModuleEnvironment env = new ModuleEnvironment(module);
 			
-			if (span == null || position.within(span))
+			for (TCDefinition def: module.defs)
 			{
-				ModuleEnvironment env = new ModuleEnvironment(module);
-				
-				for (TCDefinition def: module.defs)
-				{
-					Set<TCNode> nodes = def.apply(finder, position);
-					
-					if (nodes != null && !nodes.isEmpty())	// found it!
-					{
-						TCNode node = nodes.iterator().next();
-						
-						if (node instanceof TCVariableExpression)
-						{
-							TCVariableExpression vexp = (TCVariableExpression)node;
-							return vexp.getDefinition();
-						}
-						else if (node instanceof TCCallStatement)
-						{
-							TCCallStatement stmt = (TCCallStatement)node;
-							return stmt.getDefinition();
-						}
-						else if (node instanceof TCCallObjectStatement)
-						{
-							TCCallObjectStatement stmt = (TCCallObjectStatement)node;
-							return stmt.getDefinition();
-						}
-						else if (node instanceof TCUnresolvedType)
-						{
-							TCUnresolvedType unresolved = (TCUnresolvedType)node;
-							return env.findType(unresolved.typename, module.name.getName());
-						}
-						else if (node instanceof TCMkTypeExpression)
-						{
-							TCMkTypeExpression mk = (TCMkTypeExpression)node;
-							return env.findType(mk.typename, module.name.getName());
-						}
-						
-						Log.error("TCNode located, but unable to find definition %s", position);
-						return null;
-					}
-				}
+				addNodes(def.apply(finder, null), env, module.name.getName());
 			}
 		}
-
-		Log.error("Unable to locate symbol %s", position);
-		return null;
-	}
-	
-	public TCDefinition find(TCClassList classes, File file, int line, int col)
-	{
-		return find(classes, new LexLocation(file, "?", line, col, line, col));
 	}
 	
-	public TCDefinition find(TCClassList classes, LexLocation position)
+	public LSPDefinitionFinder(TCClassList classes)
 	{
 		LSPDefinitionLocationFinder finder = new LSPDefinitionLocationFinder();
 		PublicClassEnvironment globals = new PublicClassEnvironment(classes); 
 		
 		for (TCClassDefinition cdef: classes)
 		{
-			LexLocation span = LexLocation.getSpan(cdef.name.getLex());
+			PrivateClassEnvironment env = new PrivateClassEnvironment(cdef, globals);
+			
+			for (TCDefinition def: cdef.definitions)
+			{
+				addNodes(def.apply(finder, null), env, cdef.name.getName());
+			}
+		}
+	}
+	
+	/**
+	 * The names in a file that refer to definitions. Each is returned as the
+	 * definition and the location of the name.
+	 */
+	public List<LSPNodeLocation> getReferences(File file)
+	{
+		List<LSPNodeLocation> list = references.get(file);
+		return list == null ? new Vector<LSPNodeLocation>() : list;
+	}
+	
+	private void addNodes(Iterable<LSPNodeLocation> nodes, Environment env, String fromModule)
+	{
+		for (LSPNodeLocation found: nodes)
+		{
+			TCDefinition def = getDefinition(found.node, env, fromModule);
 			
-			if (span == null || position.within(span))
+			if (def != null)
 			{
-				PrivateClassEnvironment env = new PrivateClassEnvironment(cdef, globals);
+				File file = found.location.getFile();
+				List<LSPNodeLocation> list = references.get(file);
 				
-				for (TCDefinition def: cdef.definitions)
+				if (list == null)
 				{
-					Set<TCNode> nodes = def.apply(finder, position);
-					
-					if (nodes != null && !nodes.isEmpty())	// found it!
-					{
-						TCNode node = nodes.iterator().next();
-						
-						if (node instanceof TCVariableExpression)
-						{
-							TCVariableExpression vexp = (TCVariableExpression)node;
-							return vexp.getDefinition();
-						}
-						else if (node instanceof TCCallStatement)
-						{
-							TCCallStatement stmt = (TCCallStatement)node;
-							return stmt.getDefinition();
-						}
-						else if (node instanceof TCCallObjectStatement)
-						{
-							TCCallObjectStatement stmt = (TCCallObjectStatement)node;
-							return stmt.getDefinition();
-						}
-						else if (node instanceof TCIdentifierDesignator)
-						{
-							TCIdentifierDesignator id = (TCIdentifierDesignator)node;
-							return env.findName(id.name, NameScope.NAMESANDSTATE);
-						}
-						else if (node instanceof TCUnresolvedType)
-						{
-							TCUnresolvedType unresolved = (TCUnresolvedType)node;
-							return env.findType(unresolved.typename, cdef.name.getName());
-						}
-						else if (node instanceof TCMkTypeExpression)
-						{
-							TCMkTypeExpression mk = (TCMkTypeExpression)node;
-							return env.findType(mk.typename, cdef.name.getName());
-						}
-						
-						Log.error("TCNode located, but unable to find definition %s", position);
-						return null;
-					}
+					list = new Vector<LSPNodeLocation>();
+					references.put(file, list);
 				}
+				
+				list.add(new LSPNodeLocation(def, found.location));
 			}
 		}
-
-		Log.error("Unable to locate symbol %s", position);
+	}
+	
+	private TCDefinition getDefinition(TCNode node, Environment env, String fromModule)
+	{
+		if (node instanceof TCVariableExpression)
+		{
+			TCVariableExpression vexp = (TCVariableExpression)node;
+			return vexp.getDefinition();
+		}
+		else if (node instanceof TCCallStatement)
+		{
+			TCCallStatement stmt = (TCCallStatement)node;
+			return stmt.getDefinition();
+		}
+		else if (node instanceof TCCallObjectStatement)
+		{
+			TCCallObjectStatement stmt = (TCCallObjectStatement)node;
+			return stmt.getDefinition();
+		}
+		else if (node instanceof TCIdentifierDesignator)
+		{
+			TCIdentifierDesignator id = (TCIdentifierDesignator)node;
+			return env.findName(id.name, NameScope.NAMESANDSTATE);
+		}
+		else if (node instanceof TCUnresolvedType)
+		{
+			TCUnresolvedType unresolved = (TCUnresolvedType)node;
+			return env.findType(unresolved.typename, fromModule);
+		}
+		else if (node instanceof TCMkTypeExpression)
+		{
+			TCMkTypeExpression mk = (TCMkTypeExpression)node;
+			return env.findType(mk.typename, fromModule);
+		}
+		
 		return null;
 	}
 }
@@ -23,11 +23,9 @@
 
 package vdmj;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Vector;
 
-import com.fujitsu.vdmj.lex.LexLocation;
-import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.definitions.TCAssignmentDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCExplicitFunctionDefinition;
@@ -45,123 +43,118 @@ import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCTypeList;
 import com.fujitsu.vdmj.tc.types.TCUnresolvedType;
 
-public class LSPDefinitionLocationFinder extends TCLeafDefinitionVisitor<TCNode, Set<TCNode>, LexLocation>
+public class LSPDefinitionLocationFinder extends TCLeafDefinitionVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object>
 {
 	// Note, static to avoid constructor loops!
 	private static LSPExpressionLocationFinder expVisitor = new LSPExpressionLocationFinder();
 	private static LSPStatementLocationFinder stmtVisitor = new LSPStatementLocationFinder();
 	
 	/**
-	 * Search for types in the unresolved list that match the LexLocation sought. If there
-	 * are any matches, there should only be one!
+	 * Locate the names of the types in the unresolved list.
 	 */
-	private Set<TCNode> matchUnresolved(TCTypeList unresolvedList, LexLocation sought)
+	private List<LSPNodeLocation> matchUnresolved(TCTypeList unresolvedList)
 	{
-		Set<TCNode> matched = newCollection();
+		List<LSPNodeLocation> matched = newCollection();
 		
 		for (TCType type: unresolvedList)
 		{
 			TCUnresolvedType unresolved = (TCUnresolvedType)type;
-			
-			if (sought.within(unresolved.typename.getLocation()))
-			{
-				matched.add(unresolved);
-			}
+			matched.add(new LSPNodeLocation(unresolved, unresolved.typename.getLocation()));
 		}
 
 		return matched;
 	}
 
 	@Override
-	public Set<TCNode> caseDefinition(TCDefinition node, LexLocation position)
+	public List<LSPNodeLocation> caseDefinition(TCDefinition node, Object arg)
 	{
 		return newCollection();		// Nothing found
 	}
 	
 	@Override
-	public Set<TCNode> caseAssignmentDefinition(TCAssignmentDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseAssignmentDefinition(TCAssignmentDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseAssignmentDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseAssignmentDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	public Set<TCNode> caseTypeDefinition(TCTypeDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseTypeDefinition(TCTypeDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseTypeDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseTypeDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	public Set<TCNode> caseLocalDefinition(TCLocalDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseLocalDefinition(TCLocalDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseLocalDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseLocalDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	public Set<TCNode> caseValueDefinition(TCValueDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseValueDefinition(TCValueDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseValueDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseValueDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	public Set<TCNode> caseExplicitFunctionDefinition(TCExplicitFunctionDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseExplicitFunctionDefinition(TCExplicitFunctionDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseExplicitFunctionDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseExplicitFunctionDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	public Set<TCNode> caseImplicitFunctionDefinition(TCImplicitFunctionDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseImplicitFunctionDefinition(TCImplicitFunctionDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseImplicitFunctionDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseImplicitFunctionDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	public Set<TCNode> caseExplicitOperationDefinition(TCExplicitOperationDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseExplicitOperationDefinition(TCExplicitOperationDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseExplicitOperationDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseExplicitOperationDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 
 	@Override
-	public Set<TCNode> caseImplicitOperationDefinition(TCImplicitOperationDefinition node, LexLocation sought)
+	public List<LSPNodeLocation> caseImplicitOperationDefinition(TCImplicitOperationDefinition node, Object arg)
 	{
-		Set<TCNode> all = super.caseImplicitOperationDefinition(node, sought);
-		all.addAll(matchUnresolved(node.unresolved, sought));
+		List<LSPNodeLocation> all = super.caseImplicitOperationDefinition(node, arg);
+		all.addAll(matchUnresolved(node.unresolved));
 		return all;
 	}
 	
 	@Override
-	protected Set<TCNode> newCollection()
+	protected List<LSPNodeLocation> newCollection()
 	{
-		return new HashSet<TCNode>();
+		return new Vector<LSPNodeLocation>();
 	}
 	
 	@Override
-	protected TCLeafExpressionVisitor<TCNode, Set<TCNode>, LexLocation> getExpressionVisitor()
+	protected TCLeafExpressionVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object> getExpressionVisitor()
 	{
 		return expVisitor;
 	}
 	
 	@Override
-	protected TCLeafStatementVisitor<TCNode, Set<TCNode>, LexLocation> getStatementVisitor()
+	protected TCLeafStatementVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object> getStatementVisitor()
 	{
 		return stmtVisitor;
 	}
 
 	@Override
-	protected TCLeafTypeVisitor<TCNode, Set<TCNode>, LexLocation> getTypeVisitor()
+	protected TCLeafTypeVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object> getTypeVisitor()
 	{
 		return null;
 	}
@@ -23,11 +23,9 @@
 
 package vdmj;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Vector;
 
-import com.fujitsu.vdmj.lex.LexLocation;
-import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
 import com.fujitsu.vdmj.tc.definitions.TCValueDefinition;
 import com.fujitsu.vdmj.tc.expressions.TCExpression;
@@ -38,50 +36,40 @@ import com.fujitsu.vdmj.tc.expressions.TCVariableExpression;
 import com.fujitsu.vdmj.tc.types.TCType;
 import com.fujitsu.vdmj.tc.types.TCUnresolvedType;
 
-public class LSPExpressionLocationFinder extends TCLeafExpressionVisitor<TCNode, Set<TCNode>, LexLocation>
+public class LSPExpressionLocationFinder extends TCLeafExpressionVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object>
 {
 	@Override
-	protected Set<TCNode> newCollection()
+	protected List<LSPNodeLocation> newCollection()
 	{
-		return new HashSet<TCNode>();
+		return new Vector<LSPNodeLocation>();
 	}
 
 	@Override
-	public Set<TCNode> caseExpression(TCExpression node, LexLocation arg)
+	public List<LSPNodeLocation> caseExpression(TCExpression node, Object arg)
 	{
 		return newCollection();
 	}
 	
 	@Override
-	public Set<TCNode> caseMkTypeExpression(TCMkTypeExpression node, LexLocation arg)
+	public List<LSPNodeLocation> caseMkTypeExpression(TCMkTypeExpression node, Object arg)
 	{
-		Set<TCNode> all = super.caseMkTypeExpression(node, arg);
-		
-		if (arg.within(node.typename.getLocation()))
-		{
-			all.add(node);
-		}
-		
+		List<LSPNodeLocation> all = super.caseMkTypeExpression(node, arg);
+		all.add(new LSPNodeLocation(node, node.typename.getLocation()));
 		return all;
 	}
 
 	@Override
-	public Set<TCNode> caseVariableExpression(TCVariableExpression node, LexLocation arg)
+	public List<LSPNodeLocation> caseVariableExpression(TCVariableExpression node, Object arg)
 	{
-		Set<TCNode> result = newCollection();
-
-		if (arg.within(node.location))
-		{
-			result.add(node);
-		}
-
+		List<LSPNodeLocation> result = newCollection();
+		result.add(new LSPNodeLocation(node, node.location));
 		return result;
 	}
 	
 	@Override
-	public Set<TCNode> caseLetDefExpression(TCLetDefExpression node, LexLocation arg)
+	public List<LSPNodeLocation> caseLetDefExpression(TCLetDefExpression node, Object arg)
 	{
-		Set<TCNode> all = super.caseLetDefExpression(node, arg);
+		List<LSPNodeLocation> all = super.caseLetDefExpression(node, arg);
 
 		for (TCDefinition def: node.localDefs)
  		{
@@ -92,11 +80,7 @@ public class LSPExpressionLocationFinder extends TCLeafExpressionVisitor<TCNode,
  				for (TCType type: vdef.unresolved)
  				{
  					TCUnresolvedType unresolved = (TCUnresolvedType)type;
- 					
- 					if (arg.within(unresolved.typename.getLocation()))
- 					{
- 						all.add(unresolved);
- 					}
+ 					all.add(new LSPNodeLocation(unresolved, unresolved.typename.getLocation()));
  				}
  			}
  		}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package vdmj;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.TCNode;
+
+/**
+ * A TC node and one of the locations that identify it, such as a name that is
+ * located in the TC tree, or a definition and a name that refers to it.
+ */
+public class LSPNodeLocation
+{
+	public final TCNode node;
+	public final LexLocation location;
+	
+	public LSPNodeLocation(TCNode node, LexLocation location)
+	{
+		this.node = node;
+		this.location = location;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return node + " at " + location;
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package vdmj;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * An interval tree of the locations in one file, which finds the innermost location
+ * that contains a position in O(log n) time, plus the number of enclosing locations.
+ * Locations are given as line and column numbers, with an exclusive end, in any
+ * consistent numbering, such as LexLocation or LSP positions. They are added,
+ * then the index is built once and is read only after that.
+ * The tree is held as a list sorted by start position, where each subtree is the
+ * range either side of its middle element, and records the latest end position
+ * of the locations within it.
+ */
+public class LSPPositionIndex<T>
+{
+	private List<Entry<T>> entries = new Vector<Entry<T>>();
+	private long[] maxEnds = null;
+	
+	private static class Entry<T>
+	{
+		public final long start;
+		public final long end;
+		public final T value;
+		
+		public Entry(long start, long end, T value)
+		{
+			this.start = start;
+			this.end = end;
+			this.value = value;
+		}
+	}
+	
+	public void add(int startLine, int startPos, int endLine, int endPos, T value)
+	{
+		if (maxEnds != null)
+		{
+			throw new IllegalStateException("Index already built");
+		}
+		
+		Entry<T> entry = new Entry<T>(position(startLine, startPos), position(endLine, endPos), value);
+		
+		if (entry.end > entry.start)	// Empty locations contain nothing
+		{
+			entries.add(entry);
+		}
+	}
+	
+	public void build()
+	{
+		Collections.sort(entries, new Comparator<Entry<T>>()
+		{
+			@Override
+			public int compare(Entry<T> a, Entry<T> b)
+			{
+				return Long.compare(a.start, b.start);
+			}
+		});
+		
+		maxEnds = new long[entries.size()];
+		build(0, entries.size());
+	}
+	
+	public int size()
+	{
+		return entries.size();
+	}
+	
+	/**
+	 * Find the value of the innermost location that contains the position, so that
+	 * the start is inclusive and the end exclusive, or null if there is none.
+	 */
+	public T find(int line, int col)
+	{
+		Entry<T> found = find(0, entries.size(), position(line, col), null);
+		return found == null ? null : found.value;
+	}
+	
+	private long build(int from, int to)
+	{
+		if (from >= to)
+		{
+			return Long.MIN_VALUE;
+		}
+		
+		int mid = (from + to) >>> 1;
+		long max = Math.max(entries.get(mid).end, Math.max(build(from, mid), build(mid + 1, to)));
+		maxEnds[mid] = max;
+		return max;
+	}
+	
+	private Entry<T> find(int from, int to, long pos, Entry<T> best)
+	{
+		if (from >= to)
+		{
+			return best;
+		}
+		
+		int mid = (from + to) >>> 1;
+		
+		if (maxEnds[mid] <= pos)
+		{
+			return best;	// Everything in this range ends before pos
+		}
+		
+		best = find(from, mid, pos, best);
+		Entry<T> entry = entries.get(mid);
+		
+		if (entry.start <= pos)		// Otherwise, everything to the right starts after pos
+		{
+			if (entry.end > pos && innermost(entry, best))
+			{
+				best = entry;
+			}
+			
+			best = find(mid + 1, to, pos, best);
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Locations in the TC tree nest, so the one that starts last, then ends first, is
+	 * the innermost.
+	 */
+	private boolean innermost(Entry<T> entry, Entry<T> best)
+	{
+		return best == null || entry.start > best.start ||
+			(entry.start == best.start && entry.end < best.end);
+	}
+	
+	private static long position(int line, int col)
+	{
+		return ((long)line << 32) + col;
+	}
+}
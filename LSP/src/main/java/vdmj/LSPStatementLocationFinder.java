@@ -23,11 +23,10 @@
 
 package vdmj;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
+import java.util.Vector;
 
 import com.fujitsu.vdmj.lex.LexLocation;
-import com.fujitsu.vdmj.tc.TCNode;
 import com.fujitsu.vdmj.tc.definitions.TCLeafDefinitionVisitor;
 import com.fujitsu.vdmj.tc.expressions.TCLeafExpressionVisitor;
 import com.fujitsu.vdmj.tc.statements.TCAssignmentStatement;
@@ -40,33 +39,37 @@ import com.fujitsu.vdmj.tc.statements.TCMapSeqDesignator;
 import com.fujitsu.vdmj.tc.statements.TCStateDesignator;
 import com.fujitsu.vdmj.tc.statements.TCStatement;
 
-public class LSPStatementLocationFinder extends TCLeafStatementVisitor<TCNode, Set<TCNode>, LexLocation>
+public class LSPStatementLocationFinder extends TCLeafStatementVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object>
 {
 	private LSPExpressionLocationFinder expVisitor = new LSPExpressionLocationFinder();
 	private LSPDefinitionLocationFinder defVisitor = new LSPDefinitionLocationFinder();
 
 	@Override
-	protected Set<TCNode> newCollection()
+	protected List<LSPNodeLocation> newCollection()
 	{
-		return new HashSet<TCNode>();
+		return new Vector<LSPNodeLocation>();
 	}
 
 	@Override
-	public Set<TCNode> caseStatement(TCStatement node, LexLocation arg)
+	public List<LSPNodeLocation> caseStatement(TCStatement node, Object arg)
 	{
 		return newCollection();		// Default is "nothing found"
 	}
 
  	@Override
-	public Set<TCNode> caseCallObjectStatement(TCCallObjectStatement node, LexLocation arg)
+	public List<LSPNodeLocation> caseCallObjectStatement(TCCallObjectStatement node, Object arg)
 	{
-		Set<TCNode> all = newCollection();
+		List<LSPNodeLocation> all = newCollection();
+		all.add(new LSPNodeLocation(node, node.location));
 
-		if (arg.within(node.location) ||
-			(node.classname != null && arg.within(node.classname.getLocation())) ||
-			(node.fieldname != null && arg.within(node.fieldname.getLocation())))
+		if (node.classname != null)
 		{
-			all.add(node);
+			all.add(new LSPNodeLocation(node, node.classname.getLocation()));
+		}
+
+		if (node.fieldname != null)
+		{
+			all.add(new LSPNodeLocation(node, node.fieldname.getLocation()));
 		}
 
 		all.addAll(super.caseCallObjectStatement(node, arg));
@@ -74,32 +77,33 @@ public class LSPStatementLocationFinder extends TCLeafStatementVisitor<TCNode, S
 	}
 
  	@Override
-	public Set<TCNode> caseCallStatement(TCCallStatement node, LexLocation arg)
+	public List<LSPNodeLocation> caseCallStatement(TCCallStatement node, Object arg)
 	{
-		Set<TCNode> all = newCollection();
-
-		if (arg.within(node.location))
-		{
-			all.add(node);
-		}
+		List<LSPNodeLocation> all = newCollection();
+		all.add(new LSPNodeLocation(node, node.location));
 
 		all.addAll(super.caseCallStatement(node, arg));
 		return all;
 	}
  	
  	@Override
- 	public Set<TCNode> caseAssignmentStatement(TCAssignmentStatement node, LexLocation arg)
+ 	public List<LSPNodeLocation> caseAssignmentStatement(TCAssignmentStatement node, Object arg)
  	{
-		Set<TCNode> all = newCollection();
+		List<LSPNodeLocation> all = newCollection();
 		TCStateDesignator des = node.target;
-		boolean found = false;
+		List<LexLocation> fields = new Vector<LexLocation>();
 		
 		while (true)
 		{
 			if (des instanceof TCIdentifierDesignator)
 			{
-				found = found || arg.within(des.location);
-				if (found) all.add(des);
+				all.add(new LSPNodeLocation(des, des.location));
+				
+				for (LexLocation field: fields)		// Field names also locate the variable
+				{
+					all.add(new LSPNodeLocation(des, field));
+				}
+				
 				break;
 			}
 			else if (des instanceof TCMapSeqDesignator)
@@ -111,7 +115,7 @@ public class LSPStatementLocationFinder extends TCLeafStatementVisitor<TCNode, S
 			{
 				TCFieldDesignator f = (TCFieldDesignator)des;
 				des = f.object;
-				found = found || arg.within(f.field.getLocation());
+				fields.add(f.field.getLocation());
 			}
 		}
 
@@ -120,13 +124,13 @@ public class LSPStatementLocationFinder extends TCLeafStatementVisitor<TCNode, S
  	}
 	
 	@Override
-	protected TCLeafExpressionVisitor<TCNode, Set<TCNode>, LexLocation> getExpressionVisitor()
+	protected TCLeafExpressionVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object> getExpressionVisitor()
 	{
 		return expVisitor;
 	}
 
 	@Override
-	protected TCLeafDefinitionVisitor<TCNode, Set<TCNode>, LexLocation> getDefinitionVisitor()
+	protected TCLeafDefinitionVisitor<LSPNodeLocation, List<LSPNodeLocation>, Object> getDefinitionVisitor()
 	{
 		return defVisitor;
 	}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package workspace;
+
+import java.io.File;
+import java.util.List;
+
+import com.fujitsu.vdmj.lex.LexLocation.ThreadLocations;
+import com.fujitsu.vdmj.messages.VDMMessage;
+
+/**
+ * The result of parsing one version of a project file. This is kept until the
+ * file changes, so that a check only parses the files that have been edited. The
+ * locations created by the parse are registered again each time it is used.
+ * The hash of the text identifies the file's entry in a saved SymbolIndex.
+ */
+public class ParsedFile
+{
+	public final File file;
+	public final long version;
+	public final String hash;
+	public final Object result;
+	public final List<VDMMessage> errors;
+	public final List<VDMMessage> warnings;
+	public final ThreadLocations locations;
+
+	public ParsedFile(File file, long version, String hash, Object result,
+		List<VDMMessage> errors, List<VDMMessage> warnings, ThreadLocations locations)
+	{
+		this.file = file;
+		this.version = version;
+		this.hash = hash;
+		this.result = result;
+		this.errors = errors;
+		this.warnings = warnings;
+		this.locations = locations;
+	}
+}
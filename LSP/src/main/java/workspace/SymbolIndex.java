@@ -0,0 +1,679 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package workspace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+
+import json.JSONArray;
+import json.JSONObject;
+import json.JSONReader;
+import json.JSONWriter;
+import lsp.Utils;
+import vdmj.LSPNodeLocation;
+import vdmj.LSPPositionIndex;
+
+/**
+ * An index of the symbols defined in each project file, and of the names in each
+ * file that refer to definitions, which answers symbol, definition and references
+ * requests without the TC tree. A new index is built after each check that type
+ * checks the specification, and it is saved under the workspace root with a hash
+ * of the text of each file. At startup, the saved entries of the files that have
+ * not changed are used until the first check completes.
+ *
+ * The entry for a file holds flat arrays of numbers, to keep the saved index small.
+ * Each symbol is a name, kind, container and range; each target is the number of a
+ * URI in the entry's list and a range; and each reference is a range and the number
+ * of its target. All ranges are LSP line and character numbers.
+ */
+public class SymbolIndex
+{
+	/** Change this if the content of the saved index changes. */
+	private static final long FORMAT = 1;
+
+	/** The sizes of the symbol, target and reference records in the flat arrays. */
+	private static final int SYMBOL = 7;
+	private static final int TARGET = 5;
+	private static final int REFERENCE = 5;
+
+	/** Where the index is saved, or null. */
+	private final File store;
+
+	/** The entry for each file, by URI. */
+	private final Map<String, JSONObject> entries = new HashMap<String, JSONObject>();
+
+	/** The positions of the references and of the symbols in each file, built when first used. */
+	private final Map<String, LSPPositionIndex<String>> referencePositions =
+		new HashMap<String, LSPPositionIndex<String>>();
+	private final Map<String, LSPPositionIndex<String>> symbolPositions =
+		new HashMap<String, LSPPositionIndex<String>>();
+
+	/** The locations of the references to each target, built when first used. */
+	private Map<String, JSONArray> referencesTo = null;
+
+	public SymbolIndex(File store)
+	{
+		this.store = store;
+	}
+
+	/**
+	 * Load a saved index, keeping the entries of the files whose text has the hash
+	 * given, and removing the references to other files. A saved index that cannot
+	 * be read, or which is not in the form expected, gives an empty index.
+	 */
+	public static SymbolIndex load(File store, Map<File, String> hashes)
+	{
+		try
+		{
+			return loadEntries(store, hashes);
+		}
+		catch (Exception e)
+		{
+			Log.error("Cannot load symbols from %s: %s", store, e);
+			return new SymbolIndex(store);
+		}
+	}
+
+	private static SymbolIndex loadEntries(File store, Map<File, String> hashes)
+	{
+		SymbolIndex index = new SymbolIndex(store);
+		JSONObject saved = read(store);
+		
+		if (saved == null || !Long.valueOf(FORMAT).equals(saved.get("format")))
+		{
+			return index;
+		}
+		
+		Map<String, String> current = new HashMap<String, String>();
+		
+		for (File file: hashes.keySet())
+		{
+			current.put(uri(file), hashes.get(file));
+		}
+		
+		JSONArray files = saved.get("files");
+		
+		for (Object object: files)
+		{
+			JSONObject entry = (JSONObject)object;
+			String uri = entry.get("uri");
+			String hash = entry.get("hash");
+			
+			if (hash != null && hash.equals(current.get(uri)))
+			{
+				checkEntry(entry);
+				index.entries.put(uri, entry);
+			}
+		}
+		
+		for (JSONObject entry: index.entries.values())
+		{
+			JSONArray uris = entry.get("uris");
+			JSONArray targets = entry.get("targets");
+			JSONArray references = entry.get("references");
+			JSONArray valid = new JSONArray();
+			
+			for (int r = 0; r < references.size(); r += REFERENCE)
+			{
+				int t = number(references, r + 4) * TARGET;
+				
+				if (index.entries.containsKey(uris.get(number(targets, t))))
+				{
+					valid.addAll(references.subList(r, r + REFERENCE));
+				}
+			}
+			
+			entry.put("references", valid);
+		}
+		
+		Log.printf("Loaded symbols of %d/%d files from %s", index.entries.size(), hashes.size(), store);
+		return index;
+	}
+
+	/**
+	 * Check that every field of a saved entry has the type that is used later, so
+	 * that a damaged index fails to load rather than failing a request.
+	 */
+	private static void checkEntry(JSONObject entry)
+	{
+		JSONArray symbols = entry.get("symbols");
+		JSONArray uris = entry.get("uris");
+		JSONArray targets = entry.get("targets");
+		JSONArray references = entry.get("references");
+		
+		checkRecords(symbols, SYMBOL);
+		checkRecords(targets, TARGET);
+		checkRecords(references, REFERENCE);
+		
+		for (int s = 0; s < symbols.size(); s += SYMBOL)
+		{
+			Object name = symbols.get(s);
+			Object container = symbols.get(s + 2);
+			checkNumbers(symbols, s + 1, s + 2);
+			checkNumbers(symbols, s + 3, s + SYMBOL);
+			
+			if (!(name instanceof String) || (container != null && !(container instanceof String)))
+			{
+				throw new IllegalArgumentException("Invalid symbol at " + s);
+			}
+		}
+		
+		for (Object uri: uris)
+		{
+			if (!(uri instanceof String))
+			{
+				throw new IllegalArgumentException("Invalid URI " + uri);
+			}
+		}
+		
+		checkNumbers(targets, 0, targets.size());
+		checkNumbers(references, 0, references.size());
+		
+		for (int t = 0; t < targets.size(); t += TARGET)
+		{
+			uris.get(number(targets, t));	// Throws if out of range
+		}
+		
+		for (int r = 0; r < references.size(); r += REFERENCE)
+		{
+			targets.get(number(references, r + 4) * TARGET);
+		}
+	}
+
+	private static void checkRecords(JSONArray array, int size)
+	{
+		if (array.size() % size != 0)
+		{
+			throw new IllegalArgumentException("Array size " + array.size() + " is not a multiple of " + size);
+		}
+	}
+
+	private static void checkNumbers(JSONArray array, int from, int to)
+	{
+		for (int i = from; i < to; i++)
+		{
+			if (number(array, i) < 0)
+			{
+				throw new IllegalArgumentException("Invalid number at " + i);
+			}
+		}
+	}
+
+	/**
+	 * Add the entry for a file, from a check. The symbols are those returned by
+	 * documentSymbols, and the references are the definitions and the locations of
+	 * the names that refer to them.
+	 */
+	public void put(File file, String hash, JSONArray symbols, List<LSPNodeLocation> references)
+	{
+		JSONArray flatSymbols = new JSONArray();
+		
+		for (Object object: symbols)
+		{
+			JSONObject symbol = (JSONObject)object;
+			JSONObject location = symbol.get("location");
+			flatSymbols.add(symbol.get("name"));
+			flatSymbols.add(symbol.get("kind"));
+			flatSymbols.add(symbol.get("container"));
+			addRange(flatSymbols, location.get("range"));
+		}
+		
+		JSONArray uris = new JSONArray();
+		JSONArray targets = new JSONArray();
+		JSONArray refs = new JSONArray();
+		Map<String, Long> uriNumbers = new HashMap<String, Long>();
+		Map<TCDefinition, Long> targetNumbers = new HashMap<TCDefinition, Long>();
+		
+		for (LSPNodeLocation ref: references)
+		{
+			TCDefinition def = (TCDefinition)ref.node;
+			Long t = targetNumbers.get(def);
+			
+			if (t == null)
+			{
+				String uri = uri(def.location.getFile());
+				Long u = uriNumbers.get(uri);
+				
+				if (u == null)
+				{
+					u = (long)uris.size();
+					uris.add(uri);
+					uriNumbers.put(uri, u);
+				}
+				
+				t = (long)(targets.size() / TARGET);
+				targets.add(u);
+				addRange(targets, Utils.lexLocationToRange(def.location));
+				targetNumbers.put(def, t);
+			}
+			
+			addRange(refs, Utils.lexLocationToRange(ref.location));
+			refs.add(t);
+		}
+		
+		String uri = uri(file);
+		
+		entries.put(uri, new JSONObject(
+			"uri", uri,
+			"hash", hash,
+			"symbols", flatSymbols,
+			"uris", uris,
+			"targets", targets,
+			"references", refs));
+	}
+
+	public JSONArray documentSymbols(File file)
+	{
+		JSONArray results = new JSONArray();
+		JSONObject entry = entries.get(uri(file));
+		
+		if (entry != null)
+		{
+			JSONArray symbols = entry.get("symbols");
+			
+			for (int s = 0; s < symbols.size(); s += SYMBOL)
+			{
+				results.add(symbolInformation(entry, s));
+			}
+		}
+		
+		return results;
+	}
+
+	/**
+	 * The symbols of every file whose names contain the query, ignoring case.
+	 */
+	public JSONArray workspaceSymbols(String query)
+	{
+		String sought = query.toLowerCase();
+		JSONArray results = new JSONArray();
+		
+		for (JSONObject entry: entries.values())
+		{
+			JSONArray symbols = entry.get("symbols");
+			
+			for (int s = 0; s < symbols.size(); s += SYMBOL)
+			{
+				String name = symbols.index(s);
+				
+				if (name.toLowerCase().contains(sought))
+				{
+					results.add(symbolInformation(entry, s));
+				}
+			}
+		}
+		
+		return results;
+	}
+
+	/**
+	 * The location of the definition of the name at an LSP position, or null.
+	 */
+	public JSONObject findDefinition(File file, int line, int character)
+	{
+		LSPPositionIndex<String> positions = getReferencePositions(uri(file));
+		String target = positions == null ? null : positions.find(line, character);
+		return target == null ? null : location(target);
+	}
+
+	/**
+	 * The locations of the references to the definition of the name at an LSP
+	 * position, which may be a reference or the definition itself, or null.
+	 */
+	public JSONArray findReferences(File file, int line, int character, boolean includeDeclaration)
+	{
+		String uri = uri(file);
+		LSPPositionIndex<String> positions = getReferencePositions(uri);
+		String target = positions == null ? null : positions.find(line, character);
+		
+		if (target == null)
+		{
+			positions = getSymbolPositions(uri);
+			target = positions == null ? null : positions.find(line, character);
+			
+			if (target == null)
+			{
+				return null;
+			}
+		}
+		
+		JSONArray results = new JSONArray();
+		JSONArray references = getReferencesTo().get(target);
+		
+		if (includeDeclaration)
+		{
+			results.add(location(target));
+		}
+		
+		if (references != null)
+		{
+			results.addAll(references);
+		}
+		
+		return results;
+	}
+
+	/**
+	 * Save the index, to a temporary file which is then renamed, so that an index
+	 * that is only partly written is never read. Failures mean that the next session
+	 * does not start with an index.
+	 */
+	public void save()
+	{
+		if (store == null)
+		{
+			return;
+		}
+		
+		File temp = null;
+		PrintWriter out = null;
+		
+		try
+		{
+			store.getParentFile().mkdirs();
+			temp = File.createTempFile("symbols", ".tmp", store.getParentFile());
+			out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), "UTF-8")));
+			JSONWriter writer = new JSONWriter(out);
+			writer.writeObject(new JSONObject("format", FORMAT, "files", new JSONArray(entries.values().toArray())));
+			writer.flush();
+			out.close();
+			out = null;
+			
+			if (!temp.renameTo(store))
+			{
+				store.delete();
+				temp.renameTo(store);
+			}
+		}
+		catch (IOException e)
+		{
+			Log.error("Cannot save symbols to %s: %s", store, e.getMessage());
+		}
+		finally
+		{
+			if (out != null)
+			{
+				out.close();
+			}
+			
+			if (temp != null && temp.exists())
+			{
+				temp.delete();
+			}
+		}
+	}
+
+	private static JSONObject read(File store)
+	{
+		if (store == null || !store.exists())
+		{
+			return null;
+		}
+		
+		Reader in = null;
+		
+		try
+		{
+			in = new BufferedReader(new InputStreamReader(new FileInputStream(store), "UTF-8"));
+			return new JSONReader(in).readObject();
+		}
+		catch (Exception e)
+		{
+			Log.error("Cannot read symbols from %s: %s", store, e.getMessage());
+			return null;
+		}
+		finally
+		{
+			if (in != null)
+			{
+				try
+				{
+					in.close();
+				}
+				catch (IOException e)
+				{
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 * The reference positions of a file, with the key of each target.
+	 */
+	private synchronized LSPPositionIndex<String> getReferencePositions(String uri)
+	{
+		JSONObject entry = entries.get(uri);
+		
+		if (entry == null)
+		{
+			return null;
+		}
+		
+		LSPPositionIndex<String> positions = referencePositions.get(uri);
+		
+		if (positions == null)
+		{
+			JSONArray references = entry.get("references");
+			positions = new LSPPositionIndex<String>();
+			
+			for (int r = 0; r < references.size(); r += REFERENCE)
+			{
+				positions.add(number(references, r), number(references, r + 1),
+					number(references, r + 2), number(references, r + 3),
+					targetKey(entry, number(references, r + 4)));
+			}
+			
+			positions.build();
+			referencePositions.put(uri, positions);
+		}
+		
+		return positions;
+	}
+
+	/**
+	 * The symbol positions of a file, with the key of each symbol's location, which
+	 * is the same as the key of a reference target with that location.
+	 */
+	private synchronized LSPPositionIndex<String> getSymbolPositions(String uri)
+	{
+		JSONObject entry = entries.get(uri);
+		
+		if (entry == null)
+		{
+			return null;
+		}
+		
+		LSPPositionIndex<String> positions = symbolPositions.get(uri);
+		
+		if (positions == null)
+		{
+			JSONArray symbols = entry.get("symbols");
+			positions = new LSPPositionIndex<String>();
+			
+			for (int s = 0; s < symbols.size(); s += SYMBOL)
+			{
+				positions.add(number(symbols, s + 3), number(symbols, s + 4),
+					number(symbols, s + 5), number(symbols, s + 6),
+					key(uri, symbols, s + 3));
+			}
+			
+			positions.build();
+			symbolPositions.put(uri, positions);
+		}
+		
+		return positions;
+	}
+
+	private synchronized Map<String, JSONArray> getReferencesTo()
+	{
+		if (referencesTo == null)
+		{
+			referencesTo = new HashMap<String, JSONArray>();
+			
+			for (JSONObject entry: entries.values())
+			{
+				String uri = entry.get("uri");
+				JSONArray references = entry.get("references");
+				
+				for (int r = 0; r < references.size(); r += REFERENCE)
+				{
+					String target = targetKey(entry, number(references, r + 4));
+					JSONArray list = referencesTo.get(target);
+					
+					if (list == null)
+					{
+						list = new JSONArray();
+						referencesTo.put(target, list);
+					}
+					
+					list.add(new JSONObject("uri", uri, "range", range(references, r)));
+				}
+			}
+		}
+		
+		return referencesTo;
+	}
+
+	private JSONObject symbolInformation(JSONObject entry, int s)
+	{
+		JSONArray symbols = entry.get("symbols");
+		String container = symbols.index(s + 2);
+		
+		JSONObject symbol = new JSONObject(
+			"name", symbols.index(s),
+			"kind", symbols.index(s + 1),
+			"location", new JSONObject("uri", entry.get("uri"), "range", range(symbols, s + 3)));
+		
+		if (container != null)
+		{
+			symbol.put("container", container);
+		}
+		
+		return symbol;
+	}
+
+	private String targetKey(JSONObject entry, int t)
+	{
+		JSONArray uris = entry.get("uris");
+		JSONArray targets = entry.get("targets");
+		return key((String)uris.get(number(targets, t * TARGET)), targets, t * TARGET + 1);
+	}
+
+	/**
+	 * Locations are identified by a URI and the four numbers of their range, in
+	 * the form "uri line:character-line:character", which is made back into an LSP
+	 * location when needed.
+	 */
+	private static String key(String uri, JSONArray array, int i)
+	{
+		return uri + " " + number(array, i) + ":" + number(array, i + 1) + "-" + number(array, i + 2) + ":" + number(array, i + 3);
+	}
+
+	private static JSONObject location(String key)
+	{
+		int space = key.lastIndexOf(' ');
+		String[] numbers = key.substring(space + 1).split("[:-]");
+		
+		return new JSONObject(
+			"uri", key.substring(0, space),
+			"range", new JSONObject(
+				"start", new JSONObject("line", Long.valueOf(numbers[0]), "character", Long.valueOf(numbers[1])),
+				"end", new JSONObject("line", Long.valueOf(numbers[2]), "character", Long.valueOf(numbers[3]))));
+	}
+
+	private static JSONObject range(JSONArray array, int i)
+	{
+		return new JSONObject(
+			"start", new JSONObject("line", array.get(i), "character", array.get(i + 1)),
+			"end", new JSONObject("line", array.get(i + 2), "character", array.get(i + 3)));
+	}
+
+	private static void addRange(JSONArray array, JSONObject range)
+	{
+		JSONObject start = range.get("start");
+		JSONObject end = range.get("end");
+		array.add(((Number)start.get("line")).longValue());
+		array.add(((Number)start.get("character")).longValue());
+		array.add(((Number)end.get("line")).longValue());
+		array.add(((Number)end.get("character")).longValue());
+	}
+
+	/**
+	 * Numbers are read as Longs, and added as Longs, but the LSP positions are ints.
+	 */
+	private static int number(JSONArray array, int i)
+	{
+		Number n = array.index(i);
+		return n.intValue();
+	}
+
+	private static String uri(File file)
+	{
+		return file.toURI().toString();
+	}
+
+	/**
+	 * The hash of the text of a file, which identifies the entries of a saved
+	 * index that are still valid.
+	 */
+	public static String hash(String text)
+	{
+		try
+		{
+			MessageDigest md = MessageDigest.getInstance("SHA-256");
+			StringBuilder sb = new StringBuilder();
+			
+			for (byte b: md.digest(text.getBytes("UTF-8")))
+			{
+				sb.append(String.format("%02x", b & 0xff));
+			}
+			
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException(e);	// SHA-256 is always supported
+		}
+		catch (IOException e)
+		{
+			throw new RuntimeException(e);	// UTF-8 is always supported
+		}
+	}
+}
@@ -37,6 +37,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import com.fujitsu.vdmj.Settings;
 import com.fujitsu.vdmj.ast.lex.LexIdentifierToken;
@@ -45,6 +52,7 @@ import com.fujitsu.vdmj.in.expressions.INExpression;
 import com.fujitsu.vdmj.in.statements.INStatement;
 import com.fujitsu.vdmj.lex.Dialect;
 import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.lex.LexLocation.ThreadLocations;
 import com.fujitsu.vdmj.messages.VDMError;
 import com.fujitsu.vdmj.messages.VDMMessage;
 import com.fujitsu.vdmj.runtime.Breakpoint;
@@ -61,6 +69,7 @@ import dap.handlers.DAPInitializeResponse;
 import json.JSONArray;
 import json.JSONObject;
 import lsp.LSPInitializeResponse;
+import lsp.LSPServer;
 import lsp.Utils;
 import lsp.textdocument.SymbolKind;
 import lsp.textdocument.WatchKind;
@@ -77,6 +86,34 @@ public abstract class WorkspaceManager
 	protected Map<File, StringBuilder> projectFiles = new HashMap<File, StringBuilder>();
 	protected Set<File> openFiles = new HashSet<File>();
 	
+	/** The version of each project file's buffer, which changes when its text changes. */
+	private Map<File, Long> fileVersions = new HashMap<File, Long>();
+	private long lastVersion = 0;
+
+	/** The last parse of each project file, which is reused until its version changes. */
+	private Map<File, ParsedFile> parsedFiles = new HashMap<File, ParsedFile>();
+	
+	/**
+	 * Checks run on a background thread, so that queries are answered from the last
+	 * check while one is in progress. A check is cancelled if another is requested
+	 * before it completes. The syntax check after an edit is delayed until a file
+	 * has not been edited for SYNTAX_DELAY milliseconds, and then it runs on the
+	 * checker thread too, because the parser's annotation state and the ids of the
+	 * objects it creates are not safe to share between concurrent parses.
+	 */
+	private final ExecutorService checker = Executors.newSingleThreadExecutor(daemon("checker"));
+	private final ScheduledExecutorService syntaxTimer = Executors.newSingleThreadScheduledExecutor(daemon("syntax timer"));
+	private final Map<File, ScheduledFuture<?>> syntaxChecks = new HashMap<File, ScheduledFuture<?>>();
+	private static final long SYNTAX_DELAY = Long.getLong("lsp.syntax.delay", 250);
+	
+	/** The number of the last check requested, and of the check that is running. */
+	private volatile long checkRequested = 0;
+	private volatile long checkRunning = 0;
+	
+	/** The symbols and references of the last check, or those saved by a previous session. */
+	private volatile SymbolIndex symbolIndex = new SymbolIndex(null);
+	private static final String SYMBOL_INDEX = ".vdmj/symbols.json";
+	
 	private Boolean noDebug;
 	protected Interpreter interpreter;
 	
@@ -119,6 +156,7 @@ public abstract class WorkspaceManager
 			openFiles.clear();
 			Properties.init();
 			loadProjectFiles(rootUri);
+			symbolIndex = SymbolIndex.load(new File(rootUri, SYMBOL_INDEX), getFileHashes());
 			
 			RPCMessageList responses = new RPCMessageList();
 			responses.add(new RPCResponse(request, new LSPInitializeResponse()));
@@ -140,7 +178,7 @@ public abstract class WorkspaceManager
 		{
 			RPCMessageList response = new RPCMessageList();
 			response.add(lspDynamicRegistrations());
-			response.addAll(checkLoadedFiles());
+			checkInBackground();
 			return response;
 		}
 		catch (Exception e)
@@ -266,7 +304,7 @@ public abstract class WorkspaceManager
 		}
 	}
 
-	private void loadFile(File file) throws IOException
+	private synchronized void loadFile(File file) throws IOException
 	{
 		StringBuilder sb = new StringBuilder();
 		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
@@ -281,11 +319,300 @@ public abstract class WorkspaceManager
 	
 		br.close();
 		projectFiles.put(file, sb);
+		fileChanged(file);
 	}
 	
-	private void unloadFile(File file)
+	private synchronized void unloadFile(File file)
 	{
 		projectFiles.remove(file);
+		fileVersions.remove(file);
+		parsedFiles.remove(file);
+	}
+
+	/**
+	 * Give a file a new version after its buffer has changed. The client's document
+	 * versions are not sent with saves or watched file changes, so these are local.
+	 */
+	private void fileChanged(File file)
+	{
+		fileVersions.put(file, ++lastVersion);
+	}
+
+	/**
+	 * Return the parse of the current version of a project file, parsing it again
+	 * only if it has changed since it was last parsed, or null if the file is no
+	 * longer loaded. The locations of a new parse are collected separately, and only
+	 * registered by the caller, via getParsedFiles. The text is parsed without
+	 * holding the lock, so that the buffers can be edited during a check. This is
+	 * only called on the checker thread, so there is one parse at a time.
+	 */
+	protected ParsedFile getParsedFile(File file)
+	{
+		long version = 0;
+		String text = null;
+		
+		synchronized (this)
+		{
+			Long current = fileVersions.get(file);
+			ParsedFile parsed = parsedFiles.get(file);
+			
+			if (current == null)
+			{
+				return null;
+			}
+			else if (parsed != null && parsed.version == current)
+			{
+				return parsed;
+			}
+			
+			version = current;
+			text = projectFiles.get(file).toString();
+		}
+		
+		List<VDMMessage> errs = new Vector<VDMMessage>();
+		List<VDMMessage> warns = new Vector<VDMMessage>();
+		Object result = null;
+		ThreadLocations locations = null;
+		LexLocation.startThreadLocations();
+		
+		try
+		{
+			result = parseFile(file, text, errs, warns);
+		}
+		finally
+		{
+			locations = LexLocation.endThreadLocations();
+		}
+		
+		String hash = SymbolIndex.hash(text);
+		
+		synchronized (this)
+		{
+			ParsedFile parsed = parsedFiles.get(file);
+			
+			if (parsed != null && parsed.version >= version)
+			{
+				return parsed;		// Parsed at this version already
+			}
+			
+			parsed = new ParsedFile(file, version, hash, result, errs, warns, locations);
+			
+			if (fileVersions.containsKey(file))
+			{
+				parsedFiles.put(file, parsed);
+			}
+			
+			return parsed;
+		}
+	}
+
+	/**
+	 * Return the parses of all of the project files, registering their locations
+	 * with the current LexLocation registry, in the order of the files.
+	 */
+	protected List<ParsedFile> getParsedFiles()
+	{
+		List<File> files = null;
+		
+		synchronized (this)
+		{
+			files = new Vector<File>(projectFiles.keySet());
+		}
+		
+		List<ParsedFile> all = new Vector<ParsedFile>();
+		
+		for (File file: files)
+		{
+			checkCancelled();
+			ParsedFile parsed = getParsedFile(file);
+			
+			if (parsed != null)
+			{
+				LexLocation.addLocations(parsed.locations);
+				all.add(parsed);
+			}
+		}
+		
+		return all;
+	}
+
+	/**
+	 * Check the loaded files on the checker thread. Checks that are still queued
+	 * when a later one is requested do not run, and the diagnostics of a check are
+	 * only published if no later check has been requested when it completes.
+	 */
+	protected synchronized void checkInBackground()
+	{
+		final long number = ++checkRequested;
+		
+		checker.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (number == checkRequested)
+				{
+					try
+					{
+						checkRunning = number;
+						RPCMessageList responses = checkLoadedFiles();
+						
+						if (number == checkRequested)
+						{
+							publish(responses);
+						}
+					}
+					catch (CancellationException e)
+					{
+						Log.printf("Check %d cancelled", number);
+					}
+					catch (Exception e)
+					{
+						Log.error(e);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Called by checkLoadedFiles between its stages, so that a check that has been
+	 * superseded stops early. Checks that do not run in the background are never
+	 * cancelled.
+	 */
+	protected void checkCancelled()
+	{
+		if (checkRunning != checkRequested)
+		{
+			throw new CancellationException("Superseded by check " + checkRequested);
+		}
+	}
+
+	/**
+	 * Check the syntax of a file on the checker thread, once it has not been edited
+	 * for SYNTAX_DELAY milliseconds, and publish its diagnostics.
+	 */
+	private void syntaxCheckLater(final File file)
+	{
+		ScheduledFuture<?> pending = syntaxChecks.get(file);
+		
+		if (pending != null)
+		{
+			pending.cancel(false);
+		}
+		
+		final Runnable syntaxCheck = new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				ParsedFile parsed = getParsedFile(file);	// Syntax check only, kept for the next check
+				
+				if (parsed != null)
+				{
+					try
+					{
+						List<VDMMessage> errs = new Vector<VDMMessage>(parsed.errors);
+						errs.addAll(parsed.warnings);
+						Log.dump(errs);
+						publish(diagnosticResponses(errs, file));
+					}
+					catch (IOException e)
+					{
+						Log.error(e);
+					}
+				}
+			}
+		};
+		
+		syntaxChecks.put(file, syntaxTimer.schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				checker.execute(syntaxCheck);
+			}
+		}, SYNTAX_DELAY, TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Return the hashes of the text of the project files.
+	 */
+	private synchronized Map<File, String> getFileHashes()
+	{
+		Map<File, String> hashes = new HashMap<File, String>();
+		
+		for (File file: projectFiles.keySet())
+		{
+			hashes.put(file, SymbolIndex.hash(projectFiles.get(file).toString()));
+		}
+		
+		return hashes;
+	}
+
+	/**
+	 * Create an empty symbol index, to be filled by a check.
+	 */
+	protected SymbolIndex newSymbolIndex()
+	{
+		return new SymbolIndex(rootUri == null ? null : new File(rootUri, SYMBOL_INDEX));
+	}
+
+	/**
+	 * Replace the symbol index with one from a check, and save it on the checker
+	 * thread once the check's diagnostics have been published, unless it has been
+	 * replaced again by then.
+	 */
+	protected void setSymbolIndex(final SymbolIndex index)
+	{
+		symbolIndex = index;
+		
+		checker.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				if (index == symbolIndex)
+				{
+					index.save();
+				}
+			}
+		});
+	}
+
+	protected SymbolIndex getSymbolIndex()
+	{
+		return symbolIndex;
+	}
+
+	/**
+	 * Send messages to the client from a background thread.
+	 */
+	private void publish(RPCMessageList messages) throws IOException
+	{
+		LSPServer server = LSPServer.getInstance();
+		
+		if (server != null && messages != null)
+		{
+			for (JSONObject message: messages)
+			{
+				server.writeMessage(message);
+			}
+		}
+	}
+
+	private static ThreadFactory daemon(final String name)
+	{
+		return new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "LSP " + name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
 	}
 
 	protected RPCMessageList diagnosticResponses(List<? extends VDMMessage> list, File oneFile) throws IOException
@@ -294,7 +621,7 @@ public abstract class WorkspaceManager
 		
 		for (VDMMessage message: list)
 		{
-			File file = message.location.file.getCanonicalFile();
+			File file = message.location.getFile().getCanonicalFile();
 			List<VDMMessage> set = map.get(file);
 			
 			if (set == null)
@@ -317,7 +644,10 @@ public abstract class WorkspaceManager
 		
 		if (oneFile == null)
 		{
-			filesToReport.addAll(projectFiles.keySet());
+			synchronized (this)
+			{
+				filesToReport.addAll(projectFiles.keySet());
+			}
 		}
 		else
 		{
@@ -388,7 +718,7 @@ public abstract class WorkspaceManager
 		return null;
 	}
 
-	public RPCMessageList changeFile(RPCRequest request, File file, JSONObject range, String text) throws Exception
+	public synchronized RPCMessageList changeFile(RPCRequest request, File file, JSONObject range, String text) throws Exception
 	{
 		if (!projectFiles.keySet().contains(file))
 		{
@@ -428,7 +758,9 @@ public abstract class WorkspaceManager
 				// System.out.printf("EDITED %d: [%s]\n", line+1, buffer.substring(start, end));
 			}
 			
-			return diagnosticResponses(parseFile(file), file);
+			fileChanged(file);
+			syntaxCheckLater(file);
+			return null;	// Diagnostics are published later
 		}
 	}
 
@@ -471,7 +803,8 @@ public abstract class WorkspaceManager
 
 	public RPCMessageList afterChangeWatchedFiles(RPCRequest request) throws Exception
 	{
-		return checkLoadedFiles();
+		checkInBackground();
+		return null;
 	}
 
 	/**
@@ -489,18 +822,67 @@ public abstract class WorkspaceManager
 		}
 		else
 		{
-			String buffer = projectFiles.get(file).toString();
-			
-			if (!text.trim().equals(buffer.trim()))		// Trim for trailing newline
+			synchronized (this)
 			{
-				Utils.diff("File different on didSave at %d", text, buffer);
-				projectFiles.put(file, new StringBuilder(text));
+				String buffer = projectFiles.get(file).toString();
+				
+				if (!text.trim().equals(buffer.trim()))		// Trim for trailing newline
+				{
+					Utils.diff("File different on didSave at %d", text, buffer);
+					projectFiles.put(file, new StringBuilder(text));
+					fileChanged(file);
+				}
 			}
 			
-			return checkLoadedFiles();		// typecheck on save
+			checkInBackground();		// typecheck on save
+			return null;
+		}
+	}
+
+	/**
+	 * Definitions, references and workspace symbols are found in the symbol index,
+	 * so they are available from the start of a session, and while there are errors.
+	 */
+	public RPCMessageList findDefinition(RPCRequest request, File file, int line, int col)
+	{
+		JSONObject location = symbolIndex.findDefinition(file, line, col);
+		
+		if (location == null)
+		{
+			Log.error("Unable to locate symbol %s %d:%d", file, line + 1, col + 1);
+			return new RPCMessageList(request, null);
+		}
+		else if (System.getProperty("lsp.lsp4e") != null)
+		{
+			JSONObject range = location.get("range");
+			JSONObject start = range.get("start");
+			Number character = start.get("character");
+			
+			return new RPCMessageList(request,
+				new JSONArray(
+					new JSONObject(
+						"targetUri", location.get("uri"),
+						"targetRange", range,
+						"targetSelectionRange", new JSONObject(
+							"start", start,
+							"end", new JSONObject("line", start.get("line"), "character", character.longValue() + 1)))));
+		}
+		else
+		{
+			return new RPCMessageList(request, location);
 		}
 	}
 
+	public RPCMessageList findReferences(RPCRequest request, File file, int line, int col, boolean includeDeclaration)
+	{
+		return new RPCMessageList(request, symbolIndex.findReferences(file, line, col, includeDeclaration));
+	}
+
+	public RPCMessageList workspaceSymbols(RPCRequest request, String query)
+	{
+		return new RPCMessageList(request, symbolIndex.workspaceSymbols(query));
+	}
+
 	protected JSONObject symbolInformation(String name, LexLocation location, SymbolKind kind, String container)
 	{
 		JSONObject sym = new JSONObject(
@@ -536,7 +918,7 @@ public abstract class WorkspaceManager
 		{
 			Breakpoint bp = breakpoints.get(bpno);
 			
-			if (bp.location.file.equals(file))
+			if (bp.location.getFile().equals(file))
 			{
 				interpreter.clearBreakpoint(bpno);
 			}
@@ -588,12 +970,10 @@ public abstract class WorkspaceManager
 
 	abstract protected String[] getFilenameFilters();
 
-	abstract protected List<VDMMessage> parseFile(File file);
+	abstract protected Object parseFile(File file, String text, List<VDMMessage> errs, List<VDMMessage> warns);
 
 	abstract protected RPCMessageList checkLoadedFiles() throws Exception;
 
-	abstract public RPCMessageList findDefinition(RPCRequest request, File file, int line, int col) throws IOException;
-
 	abstract public RPCMessageList documentSymbols(RPCRequest request, File file);
 
 	abstract public DAPMessageList threads(DAPRequest request);
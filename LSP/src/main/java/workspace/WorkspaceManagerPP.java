@@ -25,10 +25,8 @@ package workspace;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.List;
-import java.util.Map.Entry;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.Settings;
@@ -38,6 +36,7 @@ import com.fujitsu.vdmj.ast.definitions.ASTDefinition;
 import com.fujitsu.vdmj.in.INNode;
 import com.fujitsu.vdmj.in.definitions.INClassList;
 import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
 import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.VDMMessage;
@@ -54,18 +53,16 @@ import dap.DAPMessageList;
 import dap.DAPRequest;
 import json.JSONArray;
 import json.JSONObject;
-import lsp.Utils;
 import lsp.textdocument.SymbolKind;
 import rpc.RPCMessageList;
 import rpc.RPCRequest;
-import rpc.RPCResponse;
 import vdmj.LSPDefinitionFinder;
 
 public class WorkspaceManagerPP extends WorkspaceManager
 {
-	private ASTClassList astClassList = null;
-	private TCClassList tcClassList = null;
-	private INClassList inClassList = null;
+	private volatile ASTClassList astClassList = null;
+	private volatile TCClassList tcClassList = null;
+	private volatile INClassList inClassList = null;
 
 	public WorkspaceManagerPP()
 	{
@@ -73,15 +70,12 @@ public class WorkspaceManagerPP extends WorkspaceManager
 	}
 
 	@Override
-	protected List<VDMMessage> parseFile(File file)
+	protected Object parseFile(File file, String text, List<VDMMessage> errs, List<VDMMessage> warns)
 	{
-		List<VDMMessage> errs = new Vector<VDMMessage>();
-		StringBuilder buffer = projectFiles.get(file);
-		
-		LexTokenReader ltr = new LexTokenReader(buffer.toString(),
+		LexTokenReader ltr = new LexTokenReader(text,
 				Settings.dialect, file, Charset.defaultCharset().displayName());
 		ClassReader cr = new ClassReader(ltr);
-		cr.readClasses();
+		ASTClassList classes = cr.readClasses();
 		
 		if (cr.getErrorCount() > 0)
 		{
@@ -90,11 +84,10 @@ public class WorkspaceManagerPP extends WorkspaceManager
 		
 		if (cr.getWarningCount() > 0)
 		{
-			errs.addAll(cr.getWarnings());
+			warns.addAll(cr.getWarnings());
 		}
 
-		Log.dump(errs);
-		return errs;
+		return classes;
 	}
 	
 	protected ASTClassList extras()
@@ -105,34 +98,29 @@ public class WorkspaceManagerPP extends WorkspaceManager
 	@Override
 	protected RPCMessageList checkLoadedFiles() throws Exception
 	{
-		astClassList = new ASTClassList();
+		LexLocation.resetLocations();		// Release the locations of the last check
+		ASTClassList astClasses = new ASTClassList();
+		TCClassList tcClasses = null;
+		INClassList inClasses = null;
+		SymbolIndex index = null;
 		List<VDMMessage> errs = new Vector<VDMMessage>();
 		List<VDMMessage> warns = new Vector<VDMMessage>();
+		List<ParsedFile> files = getParsedFiles();	// Only changed files are parsed again
 		
-		for (Entry<File, StringBuilder> entry: projectFiles.entrySet())
+		for (ParsedFile parsed: files)
 		{
-			LexTokenReader ltr = new LexTokenReader(entry.getValue().toString(),
-					Settings.dialect, entry.getKey(), Charset.defaultCharset().displayName());
-			ClassReader cr = new ClassReader(ltr);
-			astClassList.addAll(cr.readClasses());
-			
-			if (cr.getErrorCount() > 0)
-			{
-				errs.addAll(cr.getErrors());
-			}
-			
-			if (cr.getWarningCount() > 0)
-			{
-				warns.addAll(cr.getWarnings());
-			}
+			astClasses.addAll((ASTClassList)parsed.result);
+			errs.addAll(parsed.errors);
+			warns.addAll(parsed.warnings);
 		}
 		
-		astClassList.addAll(extras());
+		astClasses.addAll(extras());
 		
 		if (errs.isEmpty())
 		{
-			tcClassList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(astClassList);
-			TypeChecker tc = new ClassTypeChecker(tcClassList);
+			checkCancelled();
+			tcClasses = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(astClasses);
+			TypeChecker tc = new ClassTypeChecker(tcClasses);
 			tc.typeCheck();
 			
 			if (TypeChecker.getErrorCount() > 0)
@@ -150,58 +138,42 @@ public class WorkspaceManagerPP extends WorkspaceManager
 			Log.error("Syntax errors found");
 			Log.dump(errs);
 			Log.dump(warns);
-			tcClassList = null;
 		}
 		
 		if (errs.isEmpty())
 		{
-			inClassList = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(tcClassList);
+			checkCancelled();
+			inClasses = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(tcClasses);
 		}
 		else
 		{
 			Log.error("Type checking errors found");
 			Log.dump(errs);
 			Log.dump(warns);
-			inClassList = null;
 		}
 		
-		errs.addAll(warns);
-		return diagnosticResponses(errs, null);
-	}
-
-	@Override
-	public RPCMessageList findDefinition(RPCRequest request, File file, int line, int col)
-	{
-		if (tcClassList != null && !tcClassList.isEmpty())
+		if (tcClasses != null)
 		{
-			LSPDefinitionFinder finder = new LSPDefinitionFinder();
-			TCDefinition def = finder.find(tcClassList, file, line + 1, col + 1);
+			checkCancelled();
+			LSPDefinitionFinder finder = new LSPDefinitionFinder(tcClasses);
+			index = newSymbolIndex();
 			
-			if (def == null)
+			for (ParsedFile parsed: files)
 			{
-				return new RPCMessageList(request, null);
-			}
-			else
-			{
-				URI defuri = def.location.file.toURI();
-				
-				return new RPCMessageList(request,
-					System.getProperty("lsp.lsp4e") != null ?
-						new JSONArray(
-							new JSONObject(
-								"targetUri", defuri.toString(),
-								"targetRange", Utils.lexLocationToRange(def.location),
-								"targetSelectionRange", Utils.lexLocationToPoint(def.location)))
-						:
-						new JSONObject(
-							"uri", defuri.toString(),
-							"range", Utils.lexLocationToRange(def.location)));
+				index.put(parsed.file, parsed.hash, checkedSymbols(tcClasses, parsed.file), finder.getReferences(parsed.file));
 			}
 		}
-		else
+		
+		astClassList = astClasses;		// Queries use the last check's lists until now
+		tcClassList = tcClasses;
+		inClassList = inClasses;
+		
+		if (index != null)
 		{
-			return new RPCMessageList(new RPCResponse(request, null));
+			setSymbolIndex(index);
 		}
+		errs.addAll(warns);
+		return diagnosticResponses(errs, null);
 	}
 
 	@Override
@@ -219,43 +191,58 @@ public class WorkspaceManagerPP extends WorkspaceManager
 	@Override
 	public RPCMessageList documentSymbols(RPCRequest request, File file)
 	{
-		JSONArray results = new JSONArray();
+		TCClassList tcClasses = tcClassList;	// From the last check, while another runs
+		ASTClassList astClasses = astClassList;
 		
-		if (tcClassList != null)	// May be syntax errors
+		if (tcClasses == null && astClasses != null)	// Syntax errors, so try AST
 		{
-			for (TCClassDefinition clazz: tcClassList)
+			JSONArray results = new JSONArray();
+			
+			for (ASTClassDefinition clazz: astClasses)
 			{
-				if (clazz.name.getLocation().file.equals(file))
+				if (clazz.name.location.getFile().equals(file))
 				{
-					results.add(symbolInformation(clazz.name.toString(), clazz.name.getLocation(), SymbolKind.Class, null));
+					results.add(symbolInformation(clazz.name.toString(), clazz.location, SymbolKind.Class, null));
 
-					for (TCDefinition def: clazz.definitions)
+					for (ASTDefinition def: clazz.definitions)
 					{
-						for (TCDefinition indef: def.getDefinitions())
-						{
-							results.add(symbolInformation(indef.name.getName() + ":" + indef.getType(), indef.location, SymbolKind.kindOf(indef), indef.location.module));
-						}
+						results.add(symbolInformation(def.name.name, def.name.location, SymbolKind.kindOf(def), def.location.getModule()));
 					}
 				}
 			}
+			
+			return new RPCMessageList(request, results);
 		}
-		else if (astClassList != null)		// Try AST instead
+		else
 		{
-			for (ASTClassDefinition clazz: astClassList)
+			return new RPCMessageList(request, getSymbolIndex().documentSymbols(file));
+		}
+	}
+
+	/**
+	 * The symbols of a file in the TC tree of a check, for the symbol index.
+	 */
+	private JSONArray checkedSymbols(TCClassList tcClasses, File file)
+	{
+		JSONArray results = new JSONArray();
+		
+		for (TCClassDefinition clazz: tcClasses)
+		{
+			if (clazz.name.getLocation().getFile().equals(file))
 			{
-				if (clazz.name.location.file.equals(file))
-				{
-					results.add(symbolInformation(clazz.name.toString(), clazz.location, SymbolKind.Class, null));
+				results.add(symbolInformation(clazz.name.toString(), clazz.name.getLocation(), SymbolKind.Class, null));
 
-					for (ASTDefinition def: clazz.definitions)
+				for (TCDefinition def: clazz.definitions)
+				{
+					for (TCDefinition indef: def.getDefinitions())
 					{
-						results.add(symbolInformation(def.name.name, def.name.location, SymbolKind.kindOf(def), def.location.module));
+						results.add(symbolInformation(indef.name.getName() + ":" + indef.getType(), indef.location, SymbolKind.kindOf(indef), indef.location.getModule()));
 					}
 				}
 			}
 		}
 		
-		return new RPCMessageList(request, results);
+		return results;
 	}
 
 	@Override
@@ -25,10 +25,12 @@ package workspace;
 
 import java.io.File;
 import java.io.FilenameFilter;
-import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map.Entry;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
 
 import com.fujitsu.vdmj.Settings;
@@ -38,13 +40,16 @@ import com.fujitsu.vdmj.ast.modules.ASTModuleList;
 import com.fujitsu.vdmj.in.INNode;
 import com.fujitsu.vdmj.in.modules.INModuleList;
 import com.fujitsu.vdmj.lex.Dialect;
+import com.fujitsu.vdmj.lex.LexLocation;
 import com.fujitsu.vdmj.lex.LexTokenReader;
 import com.fujitsu.vdmj.mapper.ClassMapper;
 import com.fujitsu.vdmj.messages.VDMMessage;
 import com.fujitsu.vdmj.runtime.ModuleInterpreter;
 import com.fujitsu.vdmj.syntax.ModuleReader;
 import com.fujitsu.vdmj.tc.TCNode;
+import com.fujitsu.vdmj.tc.annotations.TCAnnotation;
 import com.fujitsu.vdmj.tc.definitions.TCDefinition;
+import com.fujitsu.vdmj.tc.modules.TCImportFromModule;
 import com.fujitsu.vdmj.tc.modules.TCModule;
 import com.fujitsu.vdmj.tc.modules.TCModuleList;
 import com.fujitsu.vdmj.typechecker.ModuleTypeChecker;
@@ -54,18 +59,23 @@ import dap.DAPMessageList;
 import dap.DAPRequest;
 import json.JSONArray;
 import json.JSONObject;
-import lsp.Utils;
 import lsp.textdocument.SymbolKind;
 import rpc.RPCMessageList;
 import rpc.RPCRequest;
-import rpc.RPCResponse;
 import vdmj.LSPDefinitionFinder;
 
 public class WorkspaceManagerSL extends WorkspaceManager
 {
-	private ASTModuleList astModuleList = null;
-	private TCModuleList tcModuleList = null;
-	private INModuleList inModuleList = null;
+	private volatile ASTModuleList astModuleList = null;
+	private volatile TCModuleList tcModuleList = null;
+	private volatile INModuleList inModuleList = null;
+	
+	/** The TC tree of each module at the last type check, or null if the next must check everything. */
+	private Map<String, TCModule> checkedModules = null;
+	
+	/** The type checking errors and warnings of each module, from the last time it was checked. */
+	private Map<String, List<VDMMessage>> moduleErrors = new HashMap<String, List<VDMMessage>>();
+	private Map<String, List<VDMMessage>> moduleWarnings = new HashMap<String, List<VDMMessage>>();
 
 	public WorkspaceManagerSL()
 	{
@@ -73,15 +83,12 @@ public class WorkspaceManagerSL extends WorkspaceManager
 	}
 	
 	@Override
-	protected List<VDMMessage> parseFile(File file)
+	protected Object parseFile(File file, String text, List<VDMMessage> errs, List<VDMMessage> warns)
 	{
-		List<VDMMessage> errs = new Vector<VDMMessage>();
-		StringBuilder buffer = projectFiles.get(file);
-		
-		LexTokenReader ltr = new LexTokenReader(buffer.toString(),
+		LexTokenReader ltr = new LexTokenReader(text,
 				Dialect.VDM_SL, file, Charset.defaultCharset().displayName());
 		ModuleReader mr = new ModuleReader(ltr);
-		mr.readModules();
+		ASTModuleList modules = mr.readModules();
 		
 		if (mr.getErrorCount() > 0)
 		{
@@ -90,112 +97,327 @@ public class WorkspaceManagerSL extends WorkspaceManager
 		
 		if (mr.getWarningCount() > 0)
 		{
-			errs.addAll(mr.getWarnings());
+			warns.addAll(mr.getWarnings());
 		}
 
-		Log.dump(errs);
-		return errs;
+		return modules;
 	}
 
 	@Override
 	protected RPCMessageList checkLoadedFiles() throws Exception
 	{
-		astModuleList = new ASTModuleList();
+		LexLocation.resetLocations();		// Release the locations of the last check
+		ASTModuleList astModules = new ASTModuleList();
+		TCModuleList tcModules = null;
+		INModuleList inModules = null;
+		SymbolIndex index = null;
 		List<VDMMessage> errs = new Vector<VDMMessage>();
 		List<VDMMessage> warns = new Vector<VDMMessage>();
+		List<ParsedFile> files = getParsedFiles();	// Only changed files are parsed again
 		
-		for (Entry<File, StringBuilder> entry: projectFiles.entrySet())
+		for (ParsedFile parsed: files)
 		{
-			LexTokenReader ltr = new LexTokenReader(entry.getValue().toString(),
-					Dialect.VDM_SL, entry.getKey(), Charset.defaultCharset().displayName());
-			ModuleReader mr = new ModuleReader(ltr);
-			astModuleList.addAll(mr.readModules());
-			
-			if (mr.getErrorCount() > 0)
-			{
-				errs.addAll(mr.getErrors());
-			}
-			
-			if (mr.getWarningCount() > 0)
-			{
-				warns.addAll(mr.getWarnings());
-			}
+			astModules.addAll((ASTModuleList)parsed.result);
+			errs.addAll(parsed.errors);
+			warns.addAll(parsed.warnings);
 		}
 		
 		if (errs.isEmpty())
 		{
-			tcModuleList = ClassMapper.getInstance(TCNode.MAPPINGS).init().convert(astModuleList);
-			tcModuleList.combineDefaults();
-			TypeChecker tc = new ModuleTypeChecker(tcModuleList);
-			tc.typeCheck();
-			
-			if (TypeChecker.getErrorCount() > 0)
-			{
-				errs.addAll(TypeChecker.getErrors());
-			}
-			
-			if (TypeChecker.getWarningCount() > 0)
-			{
-				warns.addAll(TypeChecker.getWarnings());
-			}
+			checkCancelled();
+			tcModules = typeCheck(astModules, errs, warns);
 		}
 		else
 		{
 			Log.error("Syntax errors found");
 			Log.dump(errs);
 			Log.dump(warns);
-			tcModuleList = null;
 		}
 		
 		if (errs.isEmpty())
 		{
-			inModuleList = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(tcModuleList);
+			checkCancelled();
+			inModules = ClassMapper.getInstance(INNode.MAPPINGS).init().convert(tcModules);
 		}
 		else
 		{
 			Log.error("Type checking errors found");
 			Log.dump(errs);
 			Log.dump(warns);
-			inModuleList = null;
+		}
+		
+		if (tcModules != null)
+		{
+			checkCancelled();
+			LSPDefinitionFinder finder = new LSPDefinitionFinder(tcModules);
+			index = newSymbolIndex();
+			
+			for (ParsedFile parsed: files)
+			{
+				index.put(parsed.file, parsed.hash, checkedSymbols(tcModules, parsed.file), finder.getReferences(parsed.file));
+			}
+		}
+		
+		astModuleList = astModules;		// Queries use the last check's lists until now
+		tcModuleList = tcModules;
+		inModuleList = inModules;
+		
+		if (index != null)
+		{
+			setSymbolIndex(index);
 		}
 		
 		errs.addAll(warns);
 		return diagnosticResponses(errs, null);
 	}
 
-	@Override
-	public RPCMessageList findDefinition(RPCRequest request, File file, int line, int col)
+	/**
+	 * Type check the modules passed, adding the messages to the lists. Only
+	 * the modules that have changed since the last check, and those that import
+	 * from them, directly or indirectly, are mapped and checked again. The others
+	 * keep their TC trees and messages from before. Flat specifications, duplicate
+	 * module names and annotations always cause a full check.
+	 */
+	private TCModuleList typeCheck(ASTModuleList astModules, List<VDMMessage> errs, List<VDMMessage> warns) throws Exception
 	{
-		if (tcModuleList != null && !tcModuleList.isEmpty())
+		ClassMapper mapper = ClassMapper.getInstance(TCNode.MAPPINGS);
+		TCModuleList tcModules = null;
+		TCModuleList checked = new TCModuleList();
+		Set<String> changed = null;
+		
+		if (checkedModules != null && isIncremental(astModules))
+		{
+			tcModules = convertModules(mapper, astModules);
+			changed = changedModules(tcModules);
+			
+			// A TC tree cannot be checked twice, so the unchanged modules that import
+			// from changed ones are converted again.
+			
+			List<String> keep = new Vector<String>();
+			
+			for (TCModule m: tcModules)
+			{
+				String name = m.name.getName();
+				
+				if (!changed.contains(name) || checkedModules.get(name) != m)
+				{
+					keep.add(name);
+				}
+			}
+			
+			mapper.retainOnly(keep);
+			tcModules = convertModules(mapper, astModules);
+			
+			for (TCModule m: tcModules)
+			{
+				if (!changed.contains(m.name.getName()))
+				{
+					checked.add(m);
+				}
+			}
+			
+			if (TCAnnotation.hasInstances())
+			{
+				changed = null;		// Annotations are only initialized by a full check
+			}
+		}
+		
+		checkedModules = null;		// Until this check succeeds
+		
+		if (changed == null)
 		{
-			LSPDefinitionFinder finder = new LSPDefinitionFinder();
-			TCDefinition def = finder.find(tcModuleList, file, line + 1, col + 1);
+			mapper.init();
+			moduleErrors.clear();
+			moduleWarnings.clear();
+			checked.clear();
 			
-			if (def == null)
+			if (isIncremental(astModules))
 			{
-				return new RPCMessageList(request, null);
+				tcModules = convertModules(mapper, astModules);
 			}
 			else
 			{
-				URI defuri = def.location.file.toURI();
-				
-				return new RPCMessageList(request,
-					System.getProperty("lsp.lsp4e") != null ?
-						new JSONArray(
-							new JSONObject(
-								"targetUri", defuri.toString(),
-								"targetRange", Utils.lexLocationToRange(def.location),
-								"targetSelectionRange", Utils.lexLocationToPoint(def.location)))
-						:
-						new JSONObject(
-							"uri", defuri.toString(),
-							"range", Utils.lexLocationToRange(def.location)));
+				tcModules = mapper.convert(astModules);
+				tcModules.combineDefaults();
 			}
 		}
-		else
+
+		Log.printf("Type checking %d of %d modules", tcModules.size() - checked.size(), tcModules.size());
+		TypeChecker tc = new ModuleTypeChecker(tcModules, checked);
+		tc.typeCheck();
+		
+		// Replace the messages of the modules just checked, and drop those of modules
+		// that have been removed. Messages that do not belong to a module that was
+		// checked are reported, but cannot be kept, so the next check is a full one.
+		
+		Set<String> names = new HashSet<String>();
+		Set<String> rechecked = new HashSet<String>();
+		
+		for (TCModule m: tcModules)
+		{
+			names.add(m.name.getName());
+			
+			if (!checked.contains(m))
+			{
+				rechecked.add(m.name.getName());
+				moduleErrors.put(m.name.getName(), new Vector<VDMMessage>());
+				moduleWarnings.put(m.name.getName(), new Vector<VDMMessage>());
+			}
+		}
+		
+		moduleErrors.keySet().retainAll(names);
+		moduleWarnings.keySet().retainAll(names);
+		boolean kept = addMessages(TypeChecker.getErrors(), moduleErrors, rechecked, errs);
+		kept = addMessages(TypeChecker.getWarnings(), moduleWarnings, rechecked, warns) && kept;
+		
+		for (TCModule m: tcModules)
 		{
-			return new RPCMessageList(new RPCResponse(request, null));
+			errs.addAll(moduleErrors.get(m.name.getName()));
+			warns.addAll(moduleWarnings.get(m.name.getName()));
 		}
+		
+		if (kept && isIncremental(astModules))
+		{
+			checkedModules = new HashMap<String, TCModule>();
+			
+			for (TCModule m: tcModules)
+			{
+				checkedModules.put(m.name.getName(), m);
+			}
+		}
+		
+		return tcModules;
+	}
+
+	/**
+	 * Convert each module separately, keeping the TC trees of modules which have
+	 * not been parsed again, unless they have been forgotten by the mapper.
+	 */
+	private TCModuleList convertModules(ClassMapper mapper, ASTModuleList astModules) throws Exception
+	{
+		TCModuleList list = new TCModuleList();
+		
+		for (ASTModule m: astModules)
+		{
+			list.add(mapper.convertIncremental(m.name.name, null, m));
+		}
+		
+		return list;
+	}
+
+	/**
+	 * Add messages to the list of the module that they belong to, or to the unkept
+	 * list if that module is not one that was just checked.
+	 * 
+	 * @return True if all of the messages were added to a module.
+	 */
+	private boolean addMessages(List<? extends VDMMessage> messages,
+		Map<String, List<VDMMessage>> byModule, Set<String> rechecked, List<VDMMessage> unkept)
+	{
+		boolean kept = true;
+		
+		for (VDMMessage message: messages)
+		{
+			String module = message.location.getModule();
+			
+			if (rechecked.contains(module))
+			{
+				byModule.get(module).add(message);
+			}
+			else
+			{
+				unkept.add(message);
+				kept = false;
+			}
+		}
+		
+		return kept;
+	}
+
+	/**
+	 * Modules can only be checked separately if none of them are flat, which are
+	 * combined into one DEFAULT module, and their names are unique.
+	 */
+	private boolean isIncremental(ASTModuleList modules)
+	{
+		Set<String> names = new HashSet<String>();
+		
+		for (ASTModule m: modules)
+		{
+			if (m.isFlat || !names.add(m.name.name))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * Return the names of the modules in the list that must be checked
+	 * again, because they have a new TC tree or have been removed since the last
+	 * check, or because they import from such a module, directly or indirectly.
+	 */
+	private Set<String> changedModules(TCModuleList tcModules)
+	{
+		Set<String> changed = new HashSet<String>();
+		Set<String> names = new HashSet<String>();
+		Map<String, Set<String>> importers = new HashMap<String, Set<String>>();
+		
+		for (TCModule m: tcModules)
+		{
+			String name = m.name.getName();
+			names.add(name);
+			
+			if (checkedModules.get(name) != m)	// Parsed again, or new
+			{
+				changed.add(name);
+			}
+			
+			if (m.imports != null)
+			{
+				for (TCImportFromModule ifm: m.imports.imports)
+				{
+					Set<String> users = importers.get(ifm.name.getName());
+					
+					if (users == null)
+					{
+						users = new HashSet<String>();
+						importers.put(ifm.name.getName(), users);
+					}
+					
+					users.add(name);
+				}
+			}
+		}
+		
+		for (String name: checkedModules.keySet())
+		{
+			if (!names.contains(name))	// Removed
+			{
+				changed.add(name);
+			}
+		}
+		
+		List<String> pending = new Vector<String>(changed);
+		
+		while (!pending.isEmpty())
+		{
+			Set<String> users = importers.get(pending.remove(0));
+			
+			if (users != null)
+			{
+				for (String user: users)
+				{
+					if (changed.add(user))
+					{
+						pending.add(user);
+					}
+				}
+			}
+		}
+		
+		return changed;
 	}
 
 	@Override
@@ -213,51 +435,66 @@ public class WorkspaceManagerSL extends WorkspaceManager
 	@Override
 	public RPCMessageList documentSymbols(RPCRequest request, File file)
 	{
-		JSONArray results = new JSONArray();
+		TCModuleList tcModules = tcModuleList;	// From the last check, while another runs
+		ASTModuleList astModules = astModuleList;
 		
-		if (tcModuleList != null)	// May be syntax errors
+		if (tcModules == null && astModules != null)	// Syntax errors, so try AST
 		{
-			for (TCModule module: tcModuleList)
+			JSONArray results = new JSONArray();
+			
+			for (ASTModule module: astModules)
 			{
 				if (module.files.contains(file))
 				{
-					results.add(symbolInformation(module.name.toString(), module.name.getLocation(), SymbolKind.Module, null));
+					results.add(symbolInformation(module.name, SymbolKind.Module, null));
 
-					for (TCDefinition def: module.defs)
+					for (ASTDefinition def: module.defs)
 					{
-						for (TCDefinition indef: def.getDefinitions())
+						if (def.name != null && def.location.getFile().equals(file) && !def.name.old)
 						{
-							if (indef.name != null && indef.location.file.equals(file) && !indef.name.isOld())
-							{
-								results.add(symbolInformation(indef.name + ":" + indef.getType(),
-										indef.location, SymbolKind.kindOf(indef), indef.location.module));
-							}
+							results.add(symbolInformation(def.name.toString(),
+									def.name.location, SymbolKind.kindOf(def), def.location.getModule()));
 						}
 					}
 				}
 			}
+			
+			return new RPCMessageList(request, results);
 		}
-		else if (astModuleList != null)		// Try AST instead
+		else
+		{
+			return new RPCMessageList(request, getSymbolIndex().documentSymbols(file));
+		}
+	}
+
+	/**
+	 * The symbols of a file in the TC tree of a check, for the symbol index.
+	 */
+	private JSONArray checkedSymbols(TCModuleList tcModules, File file)
+	{
+		JSONArray results = new JSONArray();
+		
+		for (TCModule module: tcModules)
 		{
-			for (ASTModule module: astModuleList)
+			if (module.files.contains(file))
 			{
-				if (module.files.contains(file))
-				{
-					results.add(symbolInformation(module.name, SymbolKind.Module, null));
+				results.add(symbolInformation(module.name.toString(), module.name.getLocation(), SymbolKind.Module, null));
 
-					for (ASTDefinition def: module.defs)
+				for (TCDefinition def: module.defs)
+				{
+					for (TCDefinition indef: def.getDefinitions())
 					{
-						if (def.name != null && def.location.file.equals(file) && !def.name.old)
+						if (indef.name != null && indef.location.getFile().equals(file) && !indef.name.isOld())
 						{
-							results.add(symbolInformation(def.name.toString(),
-									def.name.location, SymbolKind.kindOf(def), def.location.module));
+							results.add(symbolInformation(indef.name + ":" + indef.getType(),
+									indef.location, SymbolKind.kindOf(indef), indef.location.getModule()));
 						}
 					}
 				}
 			}
 		}
 		
-		return new RPCMessageList(request, results);
+		return results;
 	}
 
 	@Override
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package vdmj;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class LSPPositionIndexTest extends TestCase
+{
+	@Test
+	public void testInnermost()
+	{
+		LSPPositionIndex<String> index = new LSPPositionIndex<String>();
+		index.add(1, 1, 5, 10, "outer");
+		index.add(2, 5, 2, 20, "middle");
+		index.add(2, 8, 2, 12, "inner");
+		index.add(4, 1, 4, 5, "other");
+		index.add(6, 1, 6, 1, "empty");
+		index.build();
+		
+		assertEquals("outer", index.find(1, 1));
+		assertEquals("outer", index.find(2, 4));
+		assertEquals("middle", index.find(2, 5));
+		assertEquals("inner", index.find(2, 8));
+		assertEquals("inner", index.find(2, 11));
+		assertEquals("middle", index.find(2, 12));
+		assertEquals("outer", index.find(3, 100));
+		assertEquals("other", index.find(4, 4));
+		assertEquals("outer", index.find(5, 9));
+		assertNull(index.find(5, 10));
+		assertNull(index.find(6, 1));
+	}
+
+	@Test
+	public void testMany()
+	{
+		LSPPositionIndex<Integer> index = new LSPPositionIndex<Integer>();
+		
+		for (int line = 1000; line > 0; line--)		// Unsorted, one per line with a nested name
+		{
+			index.add(line, 1, line, 40, line);
+			index.add(line, 10, line, 15, -line);
+		}
+		
+		index.build();
+		assertEquals(2000, index.size());
+		
+		for (int line = 1; line <= 1000; line++)
+		{
+			assertEquals(Integer.valueOf(line), index.find(line, 9));
+			assertEquals(Integer.valueOf(-line), index.find(line, 10));
+			assertEquals(Integer.valueOf(line), index.find(line, 15));
+			assertNull(index.find(line, 40));
+		}
+	}
+}
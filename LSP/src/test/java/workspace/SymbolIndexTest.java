@@ -0,0 +1,224 @@
+/*******************************************************************************
+ *
+ *	Copyright (c) 2020 Nick Battle.
+ *
+ *	Author: Nick Battle
+ *
+ *	This file is part of VDMJ.
+ *
+ *	VDMJ is free software: you can redistribute it and/or modify
+ *	it under the terms of the GNU General Public License as published by
+ *	the Free Software Foundation, either version 3 of the License, or
+ *	(at your option) any later version.
+ *
+ *	VDMJ is distributed in the hope that it will be useful,
+ *	but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *	MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *	GNU General Public License for more details.
+ *
+ *	You should have received a copy of the GNU General Public License
+ *	along with VDMJ.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+
+package workspace;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import org.junit.Test;
+
+import com.fujitsu.vdmj.lex.LexLocation;
+import com.fujitsu.vdmj.tc.definitions.TCLocalDefinition;
+import com.fujitsu.vdmj.tc.lex.TCNameToken;
+import com.fujitsu.vdmj.tc.types.TCNaturalType;
+
+import json.JSONArray;
+import json.JSONObject;
+import junit.framework.TestCase;
+import lsp.Utils;
+import vdmj.LSPNodeLocation;
+
+public class SymbolIndexTest extends TestCase
+{
+	private File root;
+	private File store;
+	private File fileA;
+	private File fileB;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		root = Files.createTempDirectory("symbols").toFile();
+		store = new File(root, ".vdmj/symbols.json");
+		fileA = new File(root, "A.vdmsl");
+		fileB = new File(root, "B.vdmsl");
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		store.delete();
+		store.getParentFile().delete();
+		root.delete();
+	}
+
+	/**
+	 * File B defines "x" and "y", and file A defines "f", which refers to "x" twice.
+	 */
+	private void saveIndex()
+	{
+		LexLocation xloc = new LexLocation(fileB, "DEFAULT", 1, 1, 1, 2);
+		LexLocation yloc = new LexLocation(fileB, "DEFAULT", 2, 1, 2, 2);
+		LexLocation floc = new LexLocation(fileA, "DEFAULT", 1, 1, 1, 2);
+		TCLocalDefinition x = new TCLocalDefinition(xloc,
+			new TCNameToken(xloc, "DEFAULT", "x"), new TCNaturalType(xloc));
+
+		List<LSPNodeLocation> refsA = new Vector<LSPNodeLocation>();
+		refsA.add(new LSPNodeLocation(x, new LexLocation(fileA, "DEFAULT", 3, 5, 3, 6)));
+		refsA.add(new LSPNodeLocation(x, new LexLocation(fileA, "DEFAULT", 4, 9, 4, 10)));
+
+		SymbolIndex index = new SymbolIndex(store);
+		index.put(fileA, "hashA", symbols(symbol("f", floc, "A")), refsA);
+		index.put(fileB, "hashB", symbols(symbol("x", xloc, null), symbol("y", yloc, null)),
+			new Vector<LSPNodeLocation>());
+		index.save();
+	}
+
+	private JSONObject symbol(String name, LexLocation location, String container)
+	{
+		JSONObject symbol = new JSONObject(
+			"name", name,
+			"kind", 13L,
+			"location", Utils.lexLocationToLocation(location));
+
+		if (container != null)
+		{
+			symbol.put("container", container);
+		}
+
+		return symbol;
+	}
+
+	private JSONArray symbols(JSONObject... symbols)
+	{
+		JSONArray array = new JSONArray();
+
+		for (JSONObject symbol: symbols)
+		{
+			array.add(symbol);
+		}
+
+		return array;
+	}
+
+	private Map<File, String> hashes(String hashA, String hashB)
+	{
+		Map<File, String> hashes = new HashMap<File, String>();
+		hashes.put(fileA, hashA);
+		hashes.put(fileB, hashB);
+		return hashes;
+	}
+
+	private String uri(File file)
+	{
+		return file.toURI().toString();
+	}
+
+	@Test
+	public void testRoundTrip()
+	{
+		saveIndex();
+		assertTrue(store.exists());
+		SymbolIndex index = SymbolIndex.load(store, hashes("hashA", "hashB"));
+
+		JSONArray symbolsA = index.documentSymbols(fileA);
+		assertEquals(1, symbolsA.size());
+		JSONObject f = symbolsA.index(0);
+		assertEquals("f", f.get("name"));
+		assertEquals("A", f.get("container"));
+		assertEquals(Long.valueOf(13), f.get("kind"));
+		assertEquals(2, index.documentSymbols(fileB).size());
+
+		assertEquals(1, index.workspaceSymbols("X").size());
+		assertEquals(3, index.workspaceSymbols("").size());
+
+		JSONObject definition = index.findDefinition(fileA, 2, 4);
+		assertNotNull(definition);
+		assertEquals(uri(fileB), definition.get("uri"));
+		JSONObject start = ((JSONObject)definition.get("range")).get("start");
+		assertEquals(Long.valueOf(0), start.get("line"));
+		assertEquals(Long.valueOf(0), start.get("character"));
+		assertNull(index.findDefinition(fileA, 2, 5));
+
+		assertEquals(2, index.findReferences(fileA, 3, 8, false).size());
+		assertEquals(3, index.findReferences(fileB, 0, 0, true).size());
+		assertEquals(0, index.findReferences(fileB, 1, 0, false).size());
+	}
+
+	@Test
+	public void testChangedHash()
+	{
+		saveIndex();
+		SymbolIndex index = SymbolIndex.load(store, hashes("changed", "hashB"));
+
+		assertEquals(0, index.documentSymbols(fileA).size());
+		assertEquals(2, index.documentSymbols(fileB).size());
+		assertNull(index.findDefinition(fileA, 2, 4));
+		assertEquals(0, index.findReferences(fileB, 0, 0, false).size());
+
+		index = SymbolIndex.load(store, new HashMap<File, String>());
+		assertEquals(0, index.workspaceSymbols("").size());
+	}
+
+	@Test
+	public void testChangedTarget()
+	{
+		saveIndex();
+		SymbolIndex index = SymbolIndex.load(store, hashes("hashA", "changed"));
+
+		assertEquals(1, index.documentSymbols(fileA).size());
+		assertEquals(0, index.documentSymbols(fileB).size());
+		assertNull(index.findDefinition(fileA, 2, 4));
+		assertNull(index.findReferences(fileA, 2, 4, false));
+	}
+
+	@Test
+	public void testMalformed() throws IOException
+	{
+		String[] saved =
+		{
+			"{\"format\": 1}",
+			"{\"format\": 1, \"files\": 123}",
+			"{\"format\": 1, \"files\": [{\"uri\": \"" + uri(fileA) + "\"}]}",
+			"{\"format\": 1, \"files\": [{\"uri\": \"" + uri(fileA) + "\", \"hash\": \"hashA\"}]}",
+			"{\"format\": 1, \"files\": [{\"uri\": \"" + uri(fileA) + "\", \"hash\": \"hashA\"," +
+				" \"symbols\": [], \"uris\": [], \"targets\": [], \"references\": {}}]}",
+			"{\"format\": 1, \"files\": [{\"uri\": \"" + uri(fileA) + "\", \"hash\": \"hashA\"," +
+				" \"symbols\": [], \"uris\": [], \"targets\": [], \"references\": [0, 0, 0, 1, 0]}]}",
+			"{\"format\": 1, \"files\": [{\"uri\": \"" + uri(fileA) + "\", \"hash\": \"hashA\"," +
+				" \"symbols\": [\"f\", \"kind\", null, 0, 0, 0, 1], \"uris\": [], \"targets\": [], \"references\": []}]}",
+			"{\"format\": 1, \"files\": [\"" + uri(fileA) + "\"]}",
+			"[1, 2, 3]",
+			"not JSON"
+		};
+
+		for (String json: saved)
+		{
+			store.getParentFile().mkdirs();
+			FileWriter out = new FileWriter(store);
+			out.write(json);
+			out.close();
+
+			SymbolIndex index = SymbolIndex.load(store, hashes("hashA", "hashB"));
+			assertEquals(json, 0, index.documentSymbols(fileA).size());
+			assertNull(json, index.findDefinition(fileA, 0, 0));
+		}
+	}
+}